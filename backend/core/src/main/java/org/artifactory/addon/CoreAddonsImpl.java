@@ -109,6 +109,7 @@ import org.artifactory.build.ArtifactoryBuildArtifact;
 import org.artifactory.build.BuildId;
 import org.artifactory.build.BuildRun;
 import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.MutableStatusHolder;
 import org.artifactory.config.ConfigurationException;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
@@ -152,8 +153,12 @@ import org.artifactory.spring.ArtifactoryApplicationContext;
 import org.artifactory.storage.db.servers.model.ArtifactoryServer;
 import org.artifactory.storage.fs.lock.FsItemsVault;
 import org.artifactory.storage.fs.lock.FsItemsVaultCacheImpl;
+import org.artifactory.storage.fs.lock.FsItemsVaultStripedImpl;
+import org.artifactory.storage.fs.lock.LockingTracer;
 import org.artifactory.storage.fs.lock.provider.JVMLockProvider;
 import org.artifactory.storage.fs.lock.provider.LockProvider;
+import org.artifactory.storage.fs.lock.provider.StripedLockProvider;
+import org.artifactory.storage.fs.lock.provider.TracingLockProvider;
 import org.artifactory.util.HttpUtils;
 import org.artifactory.util.RepoLayoutUtils;
 import org.jfrog.build.api.Build;
@@ -198,6 +203,8 @@ public class CoreAddonsImpl implements WebstartAddon, LdapGroupAddon, LicensesAd
 
     private static final Logger log = LoggerFactory.getLogger(CoreAddonsImpl.class);
     private final JvmLockingMapFactory lockingMapFactory = new JvmLockingMapFactory();
+    // the striped lock table shared by the items vaults of all the repositories
+    private StripedLockProvider stripedLockProvider;
 
     @Override
     public boolean isDefault() {
@@ -841,10 +848,22 @@ public class CoreAddonsImpl implements WebstartAddon, LdapGroupAddon, LicensesAd
 
     @Override
     public FsItemsVault getFsItemVault() {
-        LockProvider lockProvider = new JVMLockProvider();
+        if (ConstantValues.locksStriped.getBoolean()) {
+            return new FsItemsVaultStripedImpl(getStripedLockProvider());
+        }
+        LockProvider lockProvider = new TracingLockProvider(new JVMLockProvider(),
+                ContextHelper.get().beanForType(LockingTracer.class));
         return new FsItemsVaultCacheImpl(lockProvider);
     }
 
+    private synchronized StripedLockProvider getStripedLockProvider() {
+        if (stripedLockProvider == null) {
+            stripedLockProvider = new StripedLockProvider(ConstantValues.locksStripesCount.getInt(),
+                    ContextHelper.get().beanForType(LockingTracer.class));
+        }
+        return stripedLockProvider;
+    }
+
     @Override
     public boolean isHaAuthentication() {
         return false;
@@ -86,7 +86,6 @@ import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.getLast;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.artifactory.aql.api.internal.AqlBase.and;
 
@@ -201,7 +200,12 @@ public class BuildServiceImpl implements InternalBuildService {
             return;
         }
 
-        Build latestBuild = getLatestBuildByNameAndStatus(newBuild.getName(), LATEST_BUILD);
+        BuildRun latestBuildRun = buildStoreService.getLatestBuildRun(newBuild.getName(), null);
+        if (latestBuildRun == null) {
+            return;
+        }
+        // only the statuses and issues are needed, no need to bind the modules of the previous build
+        Build latestBuild = buildStoreService.getBuildJsonFields(latestBuildRun, "statuses", "issues");
         if (latestBuild == null) {
             return;
         }
@@ -335,27 +339,8 @@ public class BuildServiceImpl implements InternalBuildService {
         if (StringUtils.isBlank(buildStatus)) {
             return null;
         }
-        //let's find all builds
-        Set<BuildRun> buildsByName = searchBuildsByName(buildName);
-        if (buildsByName == null || buildsByName.isEmpty()) { //no builds - no glory
-            return null;
-        }
-        List<BuildRun> buildRuns = newArrayList(buildsByName);
-        Collections.sort(buildRuns, BuildRunComparators.getComparatorFor(buildRuns));
-        BuildRun latestBuildRun;
-
-        if (buildStatus.equals(LATEST_BUILD)) {
-            latestBuildRun = getLast(buildRuns, null);
-        } else {
-            latestBuildRun = getLast(filter(buildRuns, new Predicate<BuildRun>() {
-                @Override
-                public boolean apply(BuildRun buildRun) {
-                    // Search for the latest build by the given status
-                    return buildStatus.equals(buildRun.getReleaseStatus());
-                }
-            }), null);
-
-        }
+        BuildRun latestBuildRun = buildStoreService.getLatestBuildRun(buildName,
+                buildStatus.equals(LATEST_BUILD) ? null : buildStatus);
         return latestBuildRun == null ? null :
                 getBuild(latestBuildRun);
     }
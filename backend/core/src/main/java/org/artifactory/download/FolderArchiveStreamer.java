@@ -22,15 +22,21 @@ package org.artifactory.download;
 
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.api.archive.ArchiveType;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.repo.RepositoryService;
 import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.FileInfo;
 import org.artifactory.io.checksum.policy.ChecksumPolicy;
@@ -39,7 +45,6 @@ import org.artifactory.repo.RepoPathFactory;
 import org.artifactory.resource.ResourceStreamHandle;
 import org.artifactory.security.AccessLogger;
 import org.artifactory.storage.fs.service.StatsService;
-import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemTree;
 import org.artifactory.storage.fs.tree.TreeBrowsingCriteria;
 import org.artifactory.storage.fs.tree.TreeBrowsingCriteriaBuilder;
@@ -51,16 +56,28 @@ import org.jfrog.client.util.PathUtils;
 import org.jfrog.storage.common.StorageUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import javax.annotation.Nullable;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
 
 /**
- * Traverses the tree under the requested path recursively and writes each file into the stream serially.
+ * Loads the accepted files under the requested path with a single query and writes each file into the stream
+ * serially, while the content of the next files is prefetched in the background.
  * The stream itself is an {@link ArchiveOutputStream} based on the selected {@link ArchiveType}
  *
  * @author Dan Feldman
@@ -77,6 +94,8 @@ class FolderArchiveStreamer {
     private final boolean includeChecksumFiles;
     private final ChecksumPolicy repoChecksumPolicy;
     private final RepositoryService repoService;
+    private final int prefetchCount;
+    private final Set<String> storedExtensions;
     private long filesCount;
     private long totalSizeInBytes;
     private ArchiveOutputStream archiveOutputStream = null;
@@ -93,19 +112,21 @@ class FolderArchiveStreamer {
         this.includeChecksumFiles = includeChecksumFiles;
         this.repoChecksumPolicy = repoChecksumPolicy;
         this.repoService = ContextHelper.get().beanForType(RepositoryService.class);
+        this.prefetchCount = ConstantValues.folderDownloadPrefetchCount.getInt();
+        this.storedExtensions = Sets.newHashSet(StringUtils.split(
+                ConstantValues.folderDownloadStoredExtensions.getString().toLowerCase(), ", "));
     }
 
     public void go(OutputStream out) {
+        ExecutorService prefetchExecutor = createPrefetchExecutor();
         try {
             long start = System.currentTimeMillis();
             archiveOutputStream = ArchiveUtils.createArchiveOutputStream(out, archiveType);
-            ItemTree tree = new ItemTree(rootFolder, getTreeCriteria());
-            ItemNode rootNode = tree.getRootNode();
-            writeRecursive(rootNode);
+            List<FileInfo> files = new ItemTree(rootFolder, getTreeCriteria()).getAcceptedFiles();
+            writeFiles(files, prefetchExecutor);
             archiveOutputStream.finish();
             archiveOutputStream.flush();
-            String path = rootNode == null ? "" : rootNode.getRepoPath().toPath();
-            log.trace("folder download of path {} finished successfully, took {} ms", path,
+            log.trace("folder download of path {} finished successfully, took {} ms", rootFolder.toPath(),
                     System.currentTimeMillis() - start);
         } catch (Exception e) {
             log.error("Error executing folder download: {}", e.getMessage().contains("Broken pipe") ?
@@ -113,6 +134,9 @@ class FolderArchiveStreamer {
             log.debug("Caught exception while executing folder download: ", e);
         } finally {
             IOUtils.closeQuietly(archiveOutputStream);
+            if (prefetchExecutor != null) {
+                prefetchExecutor.shutdownNow();
+            }
         }
     }
 
@@ -121,26 +145,80 @@ class FolderArchiveStreamer {
                 .applyRepoXrayFilter().cacheChildren(false).build();
     }
 
-    private void writeRecursive(ItemNode currentNode) throws IOException {
-        if (limitsReached()) {
-            return;
+    @Nullable
+    private ExecutorService createPrefetchExecutor() {
+        if (prefetchCount <= 0) {
+            return null;
         }
-        if (currentNode.isFolder()) {
-            for (ItemNode child : currentNode.getChildren()) {
-                if (!limitsReached()) {
-                    writeRecursive(child);
+        return Executors.newFixedThreadPool(prefetchCount,
+                new ThreadFactoryBuilder().setNameFormat("art-folder-download-%s").setDaemon(true).build());
+    }
+
+    /**
+     * Writes the files in order while the handles of the next {@link #prefetchCount} files are opened in the
+     * background, so binary store latency is paid while the previous entries are being compressed.
+     */
+    private void writeFiles(List<FileInfo> files, @Nullable ExecutorService prefetchExecutor) throws IOException {
+        Deque<CompletableFuture<ResourceStreamHandle>> prefetched = new ArrayDeque<>();
+        int nextToPrefetch = 0;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                FileInfo fileInfo = files.get(i);
+                totalSizeInBytes += fileInfo.getSize();
+                filesCount++;
+                if (limitsReached()) {
+                    return;
                 }
-            }
-        } else {
-            FileInfo fileInfo = (FileInfo) currentNode.getItemInfo();
-            totalSizeInBytes += fileInfo.getSize();
-            filesCount++;
-            if (!limitsReached()) {
-                writeArtifact(fileInfo.getRepoPath(), fileInfo.getSize());
+                if (prefetchExecutor != null) {
+                    // keep the current file and the next prefetch count files in flight
+                    while (nextToPrefetch < files.size() && nextToPrefetch <= i + prefetchCount) {
+                        prefetched.add(prefetch(files.get(nextToPrefetch++).getRepoPath(), prefetchExecutor));
+                    }
+                }
+                writeArtifact(fileInfo.getRepoPath(), fileInfo.getSize(), prefetched.poll());
                 if (includeChecksumFiles) {
                     findAndAddChecksumFiles(fileInfo);
                 }
             }
+        } finally {
+            // close whatever was prefetched but not written, including handles that are still being opened
+            for (CompletableFuture<ResourceStreamHandle> handle : prefetched) {
+                handle.thenAccept(ResourceStreamHandle::close);
+            }
+        }
+    }
+
+    private CompletableFuture<ResourceStreamHandle> prefetch(RepoPath filePath, ExecutorService prefetchExecutor) {
+        ArtifactoryContext context = ContextHelper.get();
+        ArtifactoryHome artifactoryHome = ArtifactoryHome.get();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return CompletableFuture.supplyAsync(() -> {
+            ArtifactoryContextThreadBinder.bind(context);
+            ArtifactoryHome.bind(artifactoryHome);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            try {
+                return openHandle(filePath);
+            } finally {
+                SecurityContextHolder.clearContext();
+                ArtifactoryHome.unbind();
+                ArtifactoryContextThreadBinder.unbind();
+            }
+        }, prefetchExecutor);
+    }
+
+    /**
+     * Opens the handle and its stream, which is where binary providers fetch the content (or its first bytes) from
+     * the underlying storage.
+     */
+    private ResourceStreamHandle openHandle(RepoPath filePath) {
+        //Ok to go through the non-strict getHandle(), the tree browsing criteria takes security, xray etc. into account
+        ResourceStreamHandle handle = repoService.getResourceStreamHandle(filePath);
+        try {
+            handle.getInputStream();
+            return handle;
+        } catch (RuntimeException e) {
+            handle.close();
+            throw e;
         }
     }
 
@@ -173,13 +251,41 @@ class FolderArchiveStreamer {
         return false;
     }
 
-    private void writeArtifact(RepoPath filePath, long size) throws IOException {
+    private void writeArtifact(RepoPath filePath, long size,
+            @Nullable CompletableFuture<ResourceStreamHandle> prefetchedHandle) throws IOException {
         String relativePath = PathUtils.getRelativePath(rootFolder.getPath(), filePath.getPath());
         log.debug("Writing path {} to output stream", filePath.toPath());
-        //Ok to go through the non-strict getHandle(), the tree browsing criteria takes security, xray etc. into account
-        try (ResourceStreamHandle handle = repoService.getResourceStreamHandle(filePath)) {
-            writeToStream(relativePath, size, handle.getInputStream(), filePath);
+        try (ResourceStreamHandle handle = prefetchedHandle != null ? awaitHandle(prefetchedHandle, filePath) :
+                openHandle(filePath)) {
+            writeToStream(relativePath, size, handle.getInputStream(), filePath, isStored(relativePath));
+        }
+    }
+
+    private ResourceStreamHandle awaitHandle(CompletableFuture<ResourceStreamHandle> prefetchedHandle,
+            RepoPath filePath) throws IOException {
+        try {
+            return prefetchedHandle.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on the content of " + filePath.toPath());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to read the content of " + filePath.toPath(), cause);
+        }
+    }
+
+    /**
+     * Entries of already compressed content are stored as is in zip archives, compressing them again only costs CPU.
+     */
+    private boolean isStored(String relativePath) {
+        if (archiveType != ArchiveType.ZIP) {
+            return false;
         }
+        String extension = StringUtils.substringAfterLast(PathUtils.getFileName(relativePath), ".");
+        return storedExtensions.contains(extension.toLowerCase());
     }
 
     private void writeArtifactChecksum(String checksum, ChecksumType checksumType, RepoPath filePath, long size) throws IOException {
@@ -187,7 +293,7 @@ class FolderArchiveStreamer {
         log.debug("Writing checksum of path {} as {} to output stream", filePath.toPath(), relativePath);
         RepoPath pathToLog = RepoPathFactory.create(filePath.getRepoKey(), filePath.getPath() + checksumType.ext());
         try (InputStream artifactStream = new ByteArrayInputStream(checksum.getBytes(Charsets.UTF_8))) {
-            writeToStream(relativePath, size, artifactStream, pathToLog);
+            writeToStream(relativePath, size, artifactStream, pathToLog, false);
         }
     }
 
@@ -195,10 +301,17 @@ class FolderArchiveStreamer {
      * Common stream writer used by checksum and artifact writers, creates a {@link ArchiveEntry} based on
      * {@param relativePath}, {@param archiveType} and {@param size}.
      * Also logs the written path ({@param pathToLog}) to the access and traffic logs.
+     * Zip entries are written with no compression if {@param stored} is true.
      */
-    private void writeToStream(String relativePath, long size, InputStream streamToWrite, RepoPath pathToLog) throws IOException {
+    private void writeToStream(String relativePath, long size, InputStream streamToWrite, RepoPath pathToLog,
+            boolean stored) throws IOException {
         long start = System.currentTimeMillis();
         ArchiveEntry archiveEntry = ArchiveUtils.createArchiveEntry(relativePath, archiveType, size);
+        if (archiveOutputStream instanceof ZipArchiveOutputStream) {
+            // applies to the next entry
+            ((ZipArchiveOutputStream) archiveOutputStream).setLevel(
+                    stored ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        }
         try {
             archiveOutputStream.putArchiveEntry(archiveEntry);
             IOUtils.copy(streamToWrite, archiveOutputStream);
@@ -147,7 +147,9 @@ public class MavenMetadataCalculator extends AbstractMetadataCalculator {
             String path = item.getRepoPath().getPath();
             return MavenNaming.isPom(path) || MavenNaming.isUniqueSnapshot(path);
         });
-        ItemNode rootNode = itemTree.getRootNode();
+        // non recursive calculation only reads the children of the base folder (the snapshot poms), the poms of the
+        // version folders below them are found with a depth query by getSubFoldersContainingPoms
+        ItemNode rootNode = recursive ? itemTree.buildTree() : itemTree.buildTree(1);
         if (rootNode != null) {
             calculateAndSet(rootNode);
             long duration = System.nanoTime() - start;
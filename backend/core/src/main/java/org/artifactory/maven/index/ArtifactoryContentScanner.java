@@ -20,21 +20,24 @@
 package org.artifactory.maven.index;
 
 import org.apache.maven.index.ArtifactContext;
-import org.apache.maven.index.ArtifactContextProducer;
 import org.apache.maven.index.Scanner;
 import org.apache.maven.index.ScanningRequest;
 import org.apache.maven.index.ScanningResult;
 import org.apache.maven.index.context.IndexingContext;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.storage.fs.tree.file.JavaIOFileAdapter;
 import org.artifactory.util.Files;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 
 /**
  * A repository scanner to scan the content of a single repository.
@@ -44,7 +47,7 @@ import java.util.TreeSet;
 public class ArtifactoryContentScanner extends AbstractLogEnabled implements Scanner {
     private static final Logger log = LoggerFactory.getLogger(ArtifactoryContentScanner.class);
 
-    private ArtifactContextProducer artifactContextProducer;
+    private ArtifactoryArtifactContextProducer artifactContextProducer;
 
     public ArtifactoryContentScanner(ArtifactoryArtifactContextProducer artifactContextProducer) {
         this.artifactContextProducer = artifactContextProducer;
@@ -56,14 +59,44 @@ public class ArtifactoryContentScanner extends AbstractLogEnabled implements Sca
 
         ScanningResult result = new ScanningResult(request);
 
-        scanDirectory(request.getStartingDirectory(), request);
+        scanDirectory(request.getStartingDirectory(), file -> processFile(file, request));
 
         request.getArtifactScanningListener().scanningFinished(request.getIndexingContext(), result);
 
         return result;
     }
 
-    private void scanDirectory(File dir, ScanningRequest request) {
+    /**
+     * Scans only the artifacts which were created or modified after the given time, or are missing from the index.
+     * The UINFOs of all the artifacts in the repository are collected, so the caller can remove the artifacts which
+     * were deleted since from the index.
+     *
+     * @param sinceMillis   Time of the previous indexing
+     * @param indexedUinfos UINFOs of the artifacts in the previous index
+     * @param foundUinfos   Collects the UINFOs of all the artifacts found in the repository
+     */
+    public ScanningResult scanChanges(ScanningRequest request, long sinceMillis, Set<String> indexedUinfos,
+            Set<String> foundUinfos) {
+        request.getArtifactScanningListener().scanningStarted(request.getIndexingContext());
+
+        ScanningResult result = new ScanningResult(request);
+
+        scanDirectory(request.getStartingDirectory(), file -> {
+            String uinfo = getUinfo(file, request);
+            if (uinfo != null) {
+                foundUinfos.add(uinfo);
+                if (isChangedSince(file, sinceMillis) || !indexedUinfos.contains(uinfo)) {
+                    processFile(file, request);
+                }
+            }
+        });
+
+        request.getArtifactScanningListener().scanningFinished(request.getIndexingContext(), result);
+
+        return result;
+    }
+
+    private void scanDirectory(File dir, Consumer<File> fileProcessor) {
         if (dir == null) {
             return;
         }
@@ -82,11 +115,32 @@ public class ArtifactoryContentScanner extends AbstractLogEnabled implements Sca
 
         for (File file : files) {
             if (file.isDirectory()) {
-                scanDirectory(file, request);
+                scanDirectory(file, fileProcessor);
             } else {
-                processFile(file, request);
+                fileProcessor.accept(file);
+            }
+        }
+    }
+
+    @Nullable
+    private String getUinfo(File file, ScanningRequest request) {
+        try {
+            if (!file.getName().startsWith(".")) {
+                return artifactContextProducer.getUinfo(request.getIndexingContext(), file);
             }
+        } catch (Throwable t) {
+            log.debug("Failed to calculate the maven index info of " + file.getAbsolutePath(), t);
+        }
+        return null;
+    }
+
+    private boolean isChangedSince(File file, long sinceMillis) {
+        if (file instanceof JavaIOFileAdapter) {
+            ItemInfo info = ((JavaIOFileAdapter) file).getInfo();
+            // copied and moved files keep their last modified time but are created anew
+            return Math.max(info.getCreated(), info.getLastModified()) > sinceMillis;
         }
+        return file.lastModified() > sinceMillis;
     }
 
     private void processFile(File file, ScanningRequest request) {
@@ -46,7 +46,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author freds
@@ -59,6 +62,12 @@ public class MavenIndexManager {
     private StoringRepo indexStorageRepo;
     private ResourceStreamHandle indexHandle;
     private ResourceStreamHandle propertiesHandle;
+    private Map<String, ? extends ResourceStreamHandle> chunkHandles = Collections.emptyMap();
+    /**
+     * Names of the incremental chunks listed by the created index, null if the chunks of the repository are not managed
+     * by this index (e.g. the index was fetched from a remote repository)
+     */
+    private Set<String> publishedChunks;
     private IndexStatus indexStatus = IndexStatus.NOT_CREATED;
 
     private enum IndexStatus {
@@ -227,9 +236,21 @@ public class MavenIndexManager {
         log.debug("Creating index files for {}", indexedRepo);
         RepoIndexer repoIndexer = new RepoIndexer(indexStorageRepo);
         try {
-            Pair<TempFileStreamHandle, TempFileStreamHandle> tempFileStreamHandlesPair = repoIndexer.index(fireTime);
+            //Remote caches may hold an index fetched from the remote repository, which can't be updated locally
+            boolean incremental = indexedRepo.isLocal() && ConstantValues.mvnIndexerIncremental.getBoolean();
+            Pair<TempFileStreamHandle, TempFileStreamHandle> tempFileStreamHandlesPair =
+                    repoIndexer.index(fireTime, incremental);
+            if (tempFileStreamHandlesPair == null) {
+                log.debug("Index files of {} are up to date", indexedRepo);
+                indexStatus = IndexStatus.SKIP;
+                return;
+            }
             indexHandle = tempFileStreamHandlesPair.getFirst();
             propertiesHandle = tempFileStreamHandlesPair.getSecond();
+            chunkHandles = repoIndexer.getNewChunks();
+            if (indexedRepo.isLocal()) {
+                publishedChunks = repoIndexer.getPublishedChunks();
+            }
             indexStatus = IndexStatus.NEEDS_SAVING;
             log.debug("Created index files for {}", indexedRepo);
         } catch (Exception e) {
@@ -273,6 +294,15 @@ public class MavenIndexManager {
             InputStream propertiesInputStream = propertiesHandle.getInputStream();
             repoService.saveFileInternal(indexPropsRepoPath, propertiesInputStream);
 
+            // save the incremental chunks and remove the ones no longer listed by the properties
+            for (Map.Entry<String, ? extends ResourceStreamHandle> chunk : chunkHandles.entrySet()) {
+                repoService.saveFileInternal(new RepoPathImpl(indexFolderRepoPath, chunk.getKey()),
+                        chunk.getValue().getInputStream());
+            }
+            if (publishedChunks != null) {
+                removeUnpublishedChunks(repoService, indexFolderRepoPath);
+            }
+
             log.info("Successfully saved index file '{}' and index info '{}'.",
                     indexGzRepoPath, indexPropsRepoPath);
             log.debug("Saved index file for {}", indexStorageRepo);
@@ -286,9 +316,19 @@ public class MavenIndexManager {
         }
     }
 
+    private void removeUnpublishedChunks(InternalRepositoryService repoService, RepoPath indexFolderRepoPath) {
+        for (String name : repoService.getChildrenNames(indexFolderRepoPath)) {
+            if (RepoIndexer.INDEX_CHUNK_PATTERN.matcher(name).matches() && !publishedChunks.contains(name)) {
+                log.debug("Removing index chunk '{}' of {}", name, indexStorageRepo);
+                repoService.undeploy(new RepoPathImpl(indexFolderRepoPath, name), false, false);
+            }
+        }
+    }
+
     private void closeHandles() {
         IOUtils.closeQuietly(indexHandle);
         IOUtils.closeQuietly(propertiesHandle);
+        chunkHandles.values().forEach(IOUtils::closeQuietly);
     }
 
     private boolean shouldFetchRemoteIndex(RemoteRepo remoteRepo) {
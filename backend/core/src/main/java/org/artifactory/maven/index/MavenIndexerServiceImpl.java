@@ -56,6 +56,7 @@ import javax.annotation.Nullable;
 import java.io.File;
 import java.net.SocketTimeoutException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -77,6 +78,11 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
     @Autowired
     private InternalRepositoryService repositoryService;
 
+    /**
+     * Keys of the repositories merged into each virtual repository index by the last merge
+     */
+    private final Map<String, Set<String>> lastMergedRepoKeys = new ConcurrentHashMap<>();
+
     @Override
     public void init() {
         new IndexerSchedulerHandler(getDescriptor(), null).reschedule();
@@ -157,6 +163,8 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
         log.info("Starting non virtual repositories indexing...");
         List<RealRepo> indexedRepos = getNonVirtualRepositoriesToIndex(includedRepositories);
         log.info("Non virtual repositories to index: {}", indexedRepos);
+        //Keys of the repositories which index was saved by this run
+        Set<String> updatedRepoKeys = new HashSet<>();
         //Do the indexing work
         for (RealRepo indexedRepo : indexedRepos) {
             //Check if we need to stop/suspend
@@ -174,7 +182,9 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
                     log.info("Stopped indexing on demand");
                     return;
                 }
-                mavenIndexManager.saveIndexFiles();
+                if (mavenIndexManager.saveIndexFiles()) {
+                    updatedRepoKeys.add(indexedRepo.getKey());
+                }
             } catch (Exception e) {
                 //If we failed to index because of a socket timeout, issue a terse warning instead of a complete stack
                 //trace
@@ -187,7 +197,8 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
                 }
             }
         }
-        mergeVirtualRepoIndexes(includedRepositories, indexedRepos);
+        mergeVirtualRepoIndexes(includedRepositories, indexedRepos,
+                settings.isManualRun() ? null : updatedRepoKeys);
         log.info("Finished Maven indexing...");
     }
 
@@ -209,8 +220,15 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
         return indexedRepos;
     }
 
+    /**
+     * Merges the indexes of the indexed repositories into the indexes of the virtual repositories containing them.
+     *
+     * @param updatedRepoKeys Keys of the repositories which index changed since the last merge. Virtual repositories
+     *                        merging the same repositories as in the last merge, none of which changed, are skipped.
+     *                        Null to merge all the virtual repositories.
+     */
     public void mergeVirtualRepoIndexes(@Nonnull Set<? extends RepoDescriptor> includedRepositories,
-            List<RealRepo> indexedRepos) {
+            List<RealRepo> indexedRepos, @Nullable Set<String> updatedRepoKeys) {
         List<VirtualRepo> virtualRepos = getVirtualRepos(indexedRepos.stream().map(RealRepo::getKey).collect(Collectors.toSet()));
         log.info("Virtual repositories to index: {}", virtualRepos);
         //Keep a list of extracted index dirs for all the local repo indexes for merging
@@ -226,6 +244,16 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
                 Set<LocalRepo> localRepos = new HashSet<>();
                 localRepos.addAll(virtualRepo.getResolvedLocalRepos());
                 localRepos.addAll(virtualRepo.getResolvedLocalCachedRepos());
+                Set<String> mergedRepoKeys = indexedRepos.stream()
+                        .filter(indexedRepo -> localRepos.contains(indexedRepo.isLocal() ? indexedRepo :
+                                ((RemoteRepo) indexedRepo).getLocalCacheRepo()))
+                        .map(RealRepo::getKey)
+                        .collect(Collectors.toSet());
+                if (updatedRepoKeys != null && mergedRepoKeys.equals(lastMergedRepoKeys.get(virtualRepo.getKey()))
+                        && Collections.disjoint(mergedRepoKeys, updatedRepoKeys)) {
+                    log.info("Indexes merged into virtual repository '{}' didn't change, skipping.", virtualRepo);
+                    continue;
+                }
                 //Create a temp lucene dir and merge each local into it
                 ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
                 File dir = Files.createRandomDir(artifactoryHome.getTempWorkDir(), "artifactory.merged-index");
@@ -264,7 +292,9 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
                     ResourceStreamHandle properties = tempFileStreamHandlesPair.getSecond();
                     MavenIndexManager mavenIndexManager =
                             new MavenIndexManager(indexer.getRepo(), indexHandle, properties);
-                    mavenIndexManager.saveIndexFiles();
+                    if (mavenIndexManager.saveIndexFiles()) {
+                        lastMergedRepoKeys.put(virtualRepo.getKey(), mergedRepoKeys);
+                    }
                 } finally {
                     if (indexer != null) {
                         indexer.removeTempIndexFiles(dir);
@@ -24,6 +24,13 @@
 
 package org.artifactory.maven.index;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.maven.index.*;
 import org.apache.maven.index.context.IndexCreator;
@@ -36,6 +43,7 @@ import org.apache.maven.index.packer.IndexPackingRequest;
 import org.apache.maven.index.updater.DefaultIndexUpdater;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.RepoResource;
 import org.artifactory.io.TempFileStreamHandle;
 import org.artifactory.maven.index.creator.VfsJarFileContentsIndexCreator;
@@ -57,10 +65,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.util.FieldUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * @author yoavl
@@ -69,11 +81,24 @@ import java.util.*;
 public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListener {
     private static final Logger log = LoggerFactory.getLogger(RepoIndexer.class);
 
+    /**
+     * Matches the names of the incremental index chunks (nexus-maven-repository-index.N.gz)
+     */
+    static final Pattern INDEX_CHUNK_PATTERN =
+            Pattern.compile(Pattern.quote(MavenNaming.NEXUS_INDEX_PREFIX) + "\\.\\d+\\.gz");
+    private static final String INCREMENTAL_CHUNK_PROPERTY_PREFIX = "nexus.index.incremental-";
+
     private final StoringRepo repo;
     private IndexingContext context;
     private IndexPacker packer;
     private final DefaultIndexerEngine defaultIndexerEngine;
     private final ArtifactoryContentScanner scanner;
+    /**
+     * Properties of the previously published index, used to chain the incremental chunks
+     */
+    private File previousProperties;
+    private final Map<String, TempFileStreamHandle> newChunks = new HashMap<>();
+    private final Set<String> publishedChunks = new HashSet<>();
 
     public RepoIndexer(StoringRepo repo) {
         if (repo == null) {
@@ -125,20 +150,39 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
         Thread.yield();
     }
 
+    /**
+     * Indexes the repository. When incremental, the previously published index of the repository is updated with the
+     * artifacts created, modified or deleted since it was created, and the changes are published as an incremental
+     * chunk. Otherwise (or if there is no previous index) the whole repository is scanned.
+     *
+     * @param incremental Whether to update the previous index instead of scanning the whole repository
+     * @return Handles to the index and properties files, null if the previous index is up to date
+     */
+    @Nullable
     @SuppressWarnings({"UnusedDeclaration"})
-    Pair<TempFileStreamHandle, TempFileStreamHandle> index(Date fireTime) throws Exception {
+    Pair<TempFileStreamHandle, TempFileStreamHandle> index(Date fireTime, boolean incremental) throws Exception {
         //Use a file based dir with a temp file to conserve memory
         ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
         // TODO: Should use the temp file of the repo
         File dir = Files.createRandomDir(artifactoryHome.getTempWorkDir(), "artifactory.index." + repo.getKey());
         try {
             createContext(dir);
+            if (incremental && loadPreviousIndex(dir)) {
+                if (!updateIndex()) {
+                    log.debug("Index of {} is up to date.", repo);
+                    return null;
+                }
+                return packIndex();
+            }
             return createIndex(dir, true);
+        } catch (TaskInterruptedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Indexing failed.", e);
         } finally {
             //Remove the temp index dir and files
             removeTempIndexFiles(dir);
+            FileUtils.deleteQuietly(previousProperties);
         }
     }
 
@@ -150,29 +194,175 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
                 scanner.scan(new ScanningRequest(context,
                         new DefaultScannerListener(context, defaultIndexerEngine, true, this), null));
             }
+            return packIndex();
+        } catch (Exception e) {
+            throw new RuntimeException("Index creation failed.", e);
+        }
+    }
+
+    /**
+     * @return The incremental chunks created by the last indexing, by file name
+     */
+    Map<String, TempFileStreamHandle> getNewChunks() {
+        return newChunks;
+    }
+
+    /**
+     * @return The names of all the incremental chunks listed by the last created index properties
+     */
+    Set<String> getPublishedChunks() {
+        return publishedChunks;
+    }
+
+    private Pair<TempFileStreamHandle, TempFileStreamHandle> packIndex() throws IOException {
+        ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
+        File outputFolder = Files.createRandomDir(artifactoryHome.getTempWorkDir(),
+                "artifactory.index." + repo.getKey());
+        outputFolder.deleteOnExit();
+        IndexPackingRequest request = newIndexPackingRequest(outputFolder);
+        //Pack - will create the index files inside the folder
+        packer.packIndex(request);
+        //Return the handle to the zip file (will be remove when the handle is closed)
+        File tmpGz = new File(outputFolder, MavenNaming.NEXUS_INDEX_GZ);
+        if (!tmpGz.exists()) {
+            throw new RuntimeException("Temp index file '" + tmpGz.getAbsolutePath() + "' does not exist.");
+        }
+        File propertiesFile = new File(outputFolder, MavenNaming.NEXUS_INDEX_PROPERTIES);
+        if (!propertiesFile.exists()) {
+            throw new RuntimeException("Temp properties file '" + tmpGz.getAbsolutePath() + "' does not exist.");
+        }
+        collectChunks(outputFolder, propertiesFile);
+        TempFileStreamHandle zipIndexHandle = new TempFileStreamHandle(tmpGz);
+        TempFileStreamHandle propertiesHandle = new TempFileStreamHandle(propertiesFile);
+        return new Pair<>(zipIndexHandle, propertiesHandle);
+    }
+
+    private void collectChunks(File outputFolder, File propertiesFile) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream propertiesStream = new FileInputStream(propertiesFile)) {
+            properties.load(propertiesStream);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(INCREMENTAL_CHUNK_PROPERTY_PREFIX)) {
+                publishedChunks.add(MavenNaming.NEXUS_INDEX_PREFIX + "." + properties.getProperty(name) + ".gz");
+            }
+        }
+        File[] chunks = outputFolder.listFiles((dir, name) -> INDEX_CHUNK_PATTERN.matcher(name).matches());
+        if (chunks != null) {
+            for (File chunk : chunks) {
+                newChunks.put(chunk.getName(), new TempFileStreamHandle(chunk));
+            }
+        }
+    }
 
-            ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
-            File outputFolder = Files.createRandomDir(artifactoryHome.getTempWorkDir(),
-                    "artifactory.index." + repo.getKey());
-            outputFolder.deleteOnExit();
-            IndexPackingRequest request = newIndexPackingRequest(outputFolder);
-            //Pack - will create the index files inside the folder
-            packer.packIndex(request);
-            //Return the handle to the zip file (will be remove when the handle is closed)
-            File tmpGz = new File(outputFolder, MavenNaming.NEXUS_INDEX_GZ);
-            if (!tmpGz.exists()) {
-                throw new RuntimeException("Temp index file '" + tmpGz.getAbsolutePath() + "' does not exist.");
+    /**
+     * Loads the previously published index of the repository into the indexing context.
+     *
+     * @return True if the previous index was loaded, false if the repository has no index to update
+     */
+    private boolean loadPreviousIndex(File indexDir) throws IOException {
+        NullRequestContext indexRequestContext =
+                new NullRequestContext(repo.getRepoPath(MavenNaming.NEXUS_INDEX_GZ_PATH));
+        NullRequestContext propertiesRequestContext =
+                new NullRequestContext(repo.getRepoPath(MavenNaming.NEXUS_INDEX_PROPERTIES_PATH));
+        RepoResource indexRes = repo.getInfo(indexRequestContext);
+        RepoResource propertiesRes = repo.getInfo(propertiesRequestContext);
+        if (!indexRes.isFound() || !propertiesRes.isFound()) {
+            log.debug("No previous index found for repository {}", repo);
+            return false;
+        }
+        ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
+        File previousIndexDir = Files.createRandomDir(artifactoryHome.getTempWorkDir(),
+                "artifactory.previous-index." + repo.getKey());
+        try {
+            try (ResourceStreamHandle handle = repo.getResourceStreamHandle(indexRequestContext, indexRes);
+                 FSDirectory previousIndex = FSDirectory.open(previousIndexDir)) {
+                DefaultIndexUpdater.unpackIndexData(handle.getInputStream(), previousIndex, context);
+                context.replace(previousIndex);
             }
-            File propertiesFile = new File(outputFolder, MavenNaming.NEXUS_INDEX_PROPERTIES);
-            if (!propertiesFile.exists()) {
-                throw new RuntimeException("Temp properties file '" + tmpGz.getAbsolutePath() + "' does not exist.");
+            previousProperties = File.createTempFile(MavenNaming.NEXUS_INDEX_PROPERTIES, null,
+                    artifactoryHome.getTempWorkDir());
+            try (ResourceStreamHandle handle = repo.getResourceStreamHandle(propertiesRequestContext, propertiesRes)) {
+                FileUtils.copyInputStreamToFile(handle.getInputStream(), previousProperties);
             }
-            TempFileStreamHandle zipIndexHandle = new TempFileStreamHandle(tmpGz);
-            TempFileStreamHandle propertiesHandle = new TempFileStreamHandle(propertiesFile);
-            return new Pair<>(zipIndexHandle, propertiesHandle);
         } catch (Exception e) {
-            throw new RuntimeException("Index creation failed.", e);
+            log.warn("Could not load the previous index of repository '{}', indexing the whole repository: {}",
+                    repo.getKey(), e.getMessage());
+            log.debug("Could not load the previous index", e);
+            //Start over with an empty context
+            FileUtils.deleteQuietly(previousProperties);
+            previousProperties = null;
+            closeIndexingContext(context, true);
+            FileUtils.deleteQuietly(indexDir);
+            createContext(indexDir);
+            return false;
+        } finally {
+            FileUtils.deleteQuietly(previousIndexDir);
         }
+        return context.getTimestamp() != null;
+    }
+
+    /**
+     * Applies the artifacts created, modified or deleted since the previous index was created to the indexing
+     * context. Only the changed artifacts are read.
+     *
+     * @return True if any artifact was added, updated or removed
+     */
+    private boolean updateIndex() throws IOException {
+        Date scanStart = new Date();
+        long since = context.getTimestamp().getTime();
+        Set<String> indexedUinfos = getIndexedUinfos();
+        Set<String> foundUinfos = new HashSet<>();
+        IncrementalScannerListener listener = new IncrementalScannerListener();
+        scanner.scanChanges(new ScanningRequest(context, listener, null), since, indexedUinfos, foundUinfos);
+        indexedUinfos.removeAll(foundUinfos);
+        for (String deletedUinfo : indexedUinfos) {
+            removeFromIndex(deletedUinfo);
+        }
+        int updated = listener.getUpdatedCount();
+        log.debug("Incremental indexing of {}: {} artifacts added or updated, {} removed.", repo, updated,
+                indexedUinfos.size());
+        if (updated == 0 && indexedUinfos.isEmpty()) {
+            return false;
+        }
+        context.commit();
+        context.rebuildGroups();
+        //The next incremental indexing picks up anything changed while this one was scanning
+        context.updateTimestamp(true, scanStart);
+        return true;
+    }
+
+    private Set<String> getIndexedUinfos() throws IOException {
+        Set<String> uinfos = new HashSet<>();
+        IndexSearcher searcher = context.acquireIndexSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                if (!reader.isDeleted(i)) {
+                    String uinfo = reader.document(i).get(ArtifactInfo.UINFO);
+                    if (uinfo != null) {
+                        uinfos.add(uinfo);
+                    }
+                }
+            }
+        } finally {
+            context.releaseIndexSearcher(searcher);
+        }
+        return uinfos;
+    }
+
+    /**
+     * Removes an artifact from the index and adds a deletion marker, so consumers of the incremental chunk remove it
+     * as well
+     */
+    private void removeFromIndex(String uinfo) throws IOException {
+        Document deletionMarker = new Document();
+        deletionMarker.add(new Field(ArtifactInfo.DELETED, uinfo, Field.Store.YES, Field.Index.NO));
+        deletionMarker.add(new Field(ArtifactInfo.LAST_MODIFIED, Long.toString(System.currentTimeMillis()),
+                Field.Store.YES, Field.Index.NO));
+        IndexWriter writer = context.getIndexWriter();
+        writer.addDocument(deletionMarker);
+        writer.deleteDocuments(new Term(ArtifactInfo.UINFO, uinfo));
     }
 
     void mergeInto(StoringRepo localRepo, Map<StoringRepo, FSDirectory> extractedRepoIndexes) throws Exception {
@@ -212,7 +402,7 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
              * We have to delete the index dir ourselves because the nexus removal
              *  tool deletes the files, but leaves the dir.
              */
-            org.apache.commons.io.FileUtils.deleteQuietly(dir);
+            FileUtils.deleteQuietly(dir);
         }
     }
 
@@ -231,7 +421,20 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
     private IndexPackingRequest newIndexPackingRequest(File outputFolder) {
         IndexPackingRequest request = new IndexPackingRequest(context, outputFolder);
         request.setCreateChecksumFiles(false);
-        request.setCreateIncrementalChunks(false);
+        if (previousProperties != null) {
+            //The packer chains the chunk to the previous index using the properties in the output folder
+            try {
+                FileUtils.copyFile(previousProperties, new File(outputFolder, MavenNaming.NEXUS_INDEX_PROPERTIES));
+                request.setCreateIncrementalChunks(true);
+                //Older chunks are dropped from the properties and removed when the index is saved
+                request.setMaxIndexChunks(Math.max(1, ConstantValues.mvnIndexerMaxChunks.getInt()));
+            } catch (IOException e) {
+                log.warn("Could not copy the previous index properties of {}: {}", repo, e.getMessage());
+                request.setCreateIncrementalChunks(false);
+            }
+        } else {
+            request.setCreateIncrementalChunks(false);
+        }
         //create new index format
         request.setFormats(Arrays.asList(/*IndexPackingRequest.IndexFormat.FORMAT_LEGACY,*/
                 IndexPackingRequest.IndexFormat.FORMAT_V1));
@@ -266,4 +469,41 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
         }
         return indexDir;
     }
-}
\ No newline at end of file
+
+    /**
+     * Indexes the changed artifacts found by the incremental scan, replacing their previous documents
+     */
+    private class IncrementalScannerListener implements ArtifactScanningListener {
+        private final Set<String> processedUinfos = new HashSet<>();
+
+        @Override
+        public void scanningStarted(IndexingContext ctx) {
+        }
+
+        @Override
+        public void scanningFinished(IndexingContext ctx, ScanningResult result) {
+        }
+
+        @Override
+        public void artifactError(ArtifactContext ac, Exception e) {
+            log.debug("Failed to index artifact " + ac.getArtifactInfo().getUinfo(), e);
+        }
+
+        @Override
+        public void artifactDiscovered(ArtifactContext ac) {
+            //Timestamped snapshots are scanned latest first, keep only the first one
+            if (processedUinfos.add(ac.getArtifactInfo().getUinfo())) {
+                try {
+                    defaultIndexerEngine.update(context, ac);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to update index of " + ac.getArtifactInfo().getUinfo(), e);
+                }
+                RepoIndexer.this.artifactDiscovered(ac);
+            }
+        }
+
+        int getUpdatedCount() {
+            return processedUinfos.size();
+        }
+    }
+}
@@ -20,7 +20,6 @@
 
 package org.artifactory.repo;
 
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import org.apache.commons.io.IOUtils;
@@ -48,6 +47,7 @@ import org.artifactory.api.request.InternalArtifactoryRequest;
 import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.checksum.ChecksumsInfo;
+import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.common.StatusHolder;
 import org.artifactory.descriptor.delegation.ContentSynchronisation;
@@ -67,12 +67,15 @@ import org.artifactory.mime.NamingUtils;
 import org.artifactory.repo.db.DbCacheRepo;
 import org.artifactory.repo.db.DbStoringRepoMixin;
 import org.artifactory.repo.local.ValidDeployPathContext;
+import org.artifactory.repo.remote.PathIndexedCache;
+import org.artifactory.repo.remote.StreamingRemoteDownload;
 import org.artifactory.repo.remote.browse.RemoteItem;
 import org.artifactory.repo.remote.interceptor.RemoteRepoInterceptor;
 import org.artifactory.repo.service.InternalRepositoryService;
 import org.artifactory.request.*;
 import org.artifactory.resource.*;
 import org.artifactory.resource.UnfoundRepoResourceReason.Reason;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.binstore.service.BinaryService;
 import org.artifactory.traffic.TrafficService;
@@ -93,6 +96,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -121,13 +128,18 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     /**
      * Cache of resources not found on the remote machine. Keyed by resource path.
      */
-    private Map<String, RepoResource> missedRetrievalsCache;
+    private PathIndexedCache<RepoResource> missedRetrievalsCache;
 
     /**
      * Cache of remote directories listing.
      */
 
-    private Map<String, List<RemoteItem>> remoteResourceCache;
+    private PathIndexedCache<List<RemoteItem>> remoteResourceCache;
+
+    /**
+     * Downloads currently streamed to clients while being cached. Keyed by the cache repo path.
+     */
+    private final ConcurrentMap<String, StreamingRemoteDownload> streamingDownloads = new ConcurrentHashMap<>();
     private boolean globalOfflineMode;
     // List of interceptors for various download resolution points
     private Collection<RemoteRepoInterceptor> interceptors;
@@ -175,8 +187,8 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     }
 
     protected void initCaches() {
-        missedRetrievalsCache = initCache(500, getDescriptor().getMissedRetrievalCachePeriodSecs(), false);
-        remoteResourceCache = initCache(1000, getDescriptor().getRetrievalCachePeriodSecs(), true);
+        missedRetrievalsCache = new PathIndexedCache<>(500, getDescriptor().getMissedRetrievalCachePeriodSecs(), false);
+        remoteResourceCache = new PathIndexedCache<>(1000, getDescriptor().getRetrievalCachePeriodSecs(), true);
     }
 
     private LockingMap getRemoteDownloaderLockingMap() {
@@ -184,18 +196,6 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
         return haAddon.getLockingMapFactory().getLockingMap(REMOTE_DOWNLOADERS);
     }
 
-    private <V> Map<String, V> initCache(int initialCapacity, long expirationSeconds, boolean softValues) {
-        CacheBuilder cacheBuilder = CacheBuilder.newBuilder().initialCapacity(initialCapacity);
-        if (expirationSeconds >= 0) {
-            cacheBuilder.expireAfterWrite(expirationSeconds, TimeUnit.SECONDS);
-        }
-        if (softValues) {
-            cacheBuilder.softValues();
-        }
-        //noinspection unchecked
-        return cacheBuilder.build().asMap();
-    }
-
     private void logCacheInfo() {
         long retrievalCachePeriodSecs = getDescriptor().getRetrievalCachePeriodSecs();
         if (retrievalCachePeriodSecs > 0) {
@@ -562,6 +562,26 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             // Only 1 remote downloader is allowed
             String pathToLock = cachedResource.getRepoPath().toPath();
 
+            if (isStreamWhileCaching()) {
+                if (StreamingSaves.SLOTS.tryAcquire()) {
+                    try {
+                        RepoRequests.logToContext("Streaming the resource while it is being cached");
+                        return streamWhileCaching(requestContext, remoteResource, cachedResource, pathToLock);
+                    } catch (RejectedExecutionException e) {
+                        log.debug("Streaming save of '{}' was rejected - downloading before serving", pathToLock);
+                        RepoRequests.logToContext("Streaming save was rejected - downloading before serving");
+                    }
+                } else {
+                    StreamingRemoteDownload streaming = streamingDownloads.get(pathToLock);
+                    if (streaming != null) {
+                        return joinStreamingDownload(requestContext, pathToLock, streaming);
+                    }
+                    log.debug("No streaming save slot is available for '{}' - downloading before serving",
+                            pathToLock);
+                    RepoRequests.logToContext("Streaming saves are saturated - downloading before serving");
+                }
+            }
+
             boolean lockAcquired = false;
             try {
                 try {
@@ -675,110 +695,331 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     private RepoResource doDownloadAndSave(InternalRequestContext requestContext, RepoResource remoteResource)
             throws RepoRejectException, IOException {
         RepoRequests.logToContext("Downloading and saving");
-        RepoPath remoteRepoPath = remoteResource.getRepoPath();
-        ResourceStreamHandle handle = null;
+        RemoteDownload download = new RemoteDownload();
         try {
-            beforeResourceDownload(remoteResource, requestContext.getProperties(), requestContext.getRequest());
+            openRemoteDownload(requestContext, remoteResource, download);
+            return saveRemoteDownload(remoteResource, download);
+        } catch (Exception e) {
+            handleDownloadError(remoteResource, download.handle, e);
+            throw e;
+        } finally {
+            Closeables.close(download.handle, false);
+        }
+    }
+
+    /**
+     * Prepares the download of the remote resource: resolves its properties and checksums and opens the content
+     * handle (alternative plugin content, an existing binary with the same checksum or the actual remote stream).
+     */
+    private void openRemoteDownload(InternalRequestContext requestContext, RepoResource remoteResource,
+            RemoteDownload download) throws RepoRejectException, IOException {
+        RepoPath remoteRepoPath = remoteResource.getRepoPath();
+        beforeResourceDownload(remoteResource, requestContext.getProperties(), requestContext.getRequest());
 
-            boolean synchronizeProperties = isSynchronizeProperties();
+        boolean synchronizeProperties = isSynchronizeProperties();
 
-            RepoRequests.logToContext("Remote property synchronization enabled = %s", synchronizeProperties);
+        RepoRequests.logToContext("Remote property synchronization enabled = %s", synchronizeProperties);
 
-            Properties properties = null;
-            if (synchronizeProperties) {
-                // No check for annotate permissions, since sync props is a configuration flag
-                // and file will be deployed here
-                RepoRequests.logToContext("Trying to find remote properties");
-                properties = getRemoteProperties(remoteRepoPath.getPath());
-            }
+        Properties properties = null;
+        if (synchronizeProperties) {
+            // No check for annotate permissions, since sync props is a configuration flag
+            // and file will be deployed here
+            RepoRequests.logToContext("Trying to find remote properties");
+            properties = getRemoteProperties(remoteRepoPath.getPath());
+        }
 
-            RepoResourceInfo remoteInfo = remoteResource.getInfo();
-            Set<ChecksumInfo> remoteChecksums = remoteInfo.getChecksumsInfo().getChecksums();
-            boolean receivedRemoteChecksums = CollectionUtils.notNullOrEmpty(remoteChecksums);
-            if (receivedRemoteChecksums) {
-                RepoRequests.logToContext("Received remote checksums headers - %s", remoteChecksums);
+        RepoResourceInfo remoteInfo = remoteResource.getInfo();
+        Set<ChecksumInfo> remoteChecksums = remoteInfo.getChecksumsInfo().getChecksums();
+        boolean receivedRemoteChecksums = CollectionUtils.notNullOrEmpty(remoteChecksums);
+        if (receivedRemoteChecksums) {
+            RepoRequests.logToContext("Received remote checksums headers - %s", remoteChecksums);
+        } else {
+            RepoRequests.logToContext("Received no remote checksums headers");
+        }
+        //Allow plugins to provide an alternate content
+        download.handle = getAltContent(remoteRepoPath);
+        if (download.handle == null && receivedRemoteChecksums &&
+                shouldSearchForExistingResource(requestContext.getRequest())) {
+            RepoRequests.logToContext("Received no alternative content, received remote checksums headers" +
+                    " and searching for existing resources on download is enabled");
+            download.handle = getExistingResourceByChecksum(remoteChecksums, remoteResource.getSize());
+        }
+        if (!receivedRemoteChecksums) {
+            RepoRequests.logToContext("Trying to find remote checksums");
+            remoteChecksums = getRemoteChecksums(remoteRepoPath.getPath(),remoteResource);
+            if (remoteResource instanceof RemoteRepoResource) {
+                ((RemoteRepoResource) remoteResource).getInfo().setChecksums(remoteChecksums);
             } else {
-                RepoRequests.logToContext("Received no remote checksums headers");
-            }
-            //Allow plugins to provide an alternate content
-            handle = getAltContent(remoteRepoPath);
-            if (handle == null && receivedRemoteChecksums &&
-                    shouldSearchForExistingResource(requestContext.getRequest())) {
-                RepoRequests.logToContext("Received no alternative content, received remote checksums headers" +
-                        " and searching for existing resources on download is enabled");
-                handle = getExistingResourceByChecksum(remoteChecksums, remoteResource.getSize());
-            }
-            long remoteRequestStartTime = 0;
-            if (!receivedRemoteChecksums) {
-                RepoRequests.logToContext("Trying to find remote checksums");
-                remoteChecksums = getRemoteChecksums(remoteRepoPath.getPath(),remoteResource);
-                if (remoteResource instanceof RemoteRepoResource) {
-                    ((RemoteRepoResource) remoteResource).getInfo().setChecksums(remoteChecksums);
-                } else {
-                    // Cannot set the checksums on non remote repo resource
-                    RepoRequests.logToContext("No checksums found on %s and it's not a remote resource!",
-                            remoteResource);
-                }
+                // Cannot set the checksums on non remote repo resource
+                RepoRequests.logToContext("No checksums found on %s and it's not a remote resource!",
+                        remoteResource);
             }
+        }
 
-            if (handle == null) {
+        if (download.handle == null) {
 
-                RepoRequests.logToContext("Received no alternative content or existing resource - " +
-                        "downloading resource");
-                //If we didn't get an alternate handle do the actual download
-                remoteRequestStartTime = System.currentTimeMillis();
-                handle = downloadResource(remoteRepoPath.getPath(), requestContext);
+            RepoRequests.logToContext("Received no alternative content or existing resource - " +
+                    "downloading resource");
+            //If we didn't get an alternate handle do the actual download
+            download.remoteRequestStartTime = System.currentTimeMillis();
+            download.handle = downloadResource(remoteRepoPath.getPath(), requestContext);
+            if (download.handle instanceof HttpRepo.TrafficAwareRemoteResourceStreamHandle) {
+                download.remoteAddress = ((HttpRepo.TrafficAwareRemoteResourceStreamHandle) download.handle)
+                        .getRemoteIp();
             }
+        }
 
-            String etag = remoteResource.getEtag();
-            if (StringUtils.isNotBlank(etag)) {
-                if (properties == null) {
-                    properties = (Properties) InfoFactoryHolder.get().createProperties();
-                }
-                properties.put(DbStoringRepoMixin.ETAG_PROP_KEY, etag);
+        String etag = remoteResource.getEtag();
+        if (StringUtils.isNotBlank(etag)) {
+            if (properties == null) {
+                properties = (Properties) InfoFactoryHolder.get().createProperties();
             }
+            properties.put(DbStoringRepoMixin.ETAG_PROP_KEY, etag);
+        }
+        download.properties = properties;
+    }
 
-            //Create/override the resource in the storage cache
-            RepoRequests.logToContext("Saving resource to " + localCacheRepo);
-            SaveResourceContext saveResourceContext = new SaveResourceContext.Builder(remoteResource, handle)
-                    .properties(properties).build();
-            RepoResource cachedResource = getRepositoryService().saveResource(localCacheRepo, saveResourceContext);
-            if (remoteRequestStartTime > 0) {
-                String remoteAddress;
-                if (handle instanceof HttpRepo.TrafficAwareRemoteResourceStreamHandle) {
-                    remoteAddress = ((HttpRepo.TrafficAwareRemoteResourceStreamHandle) handle).getRemoteIp();
-                } else {
-                    remoteAddress = StringUtils.EMPTY;
+    /**
+     * Saves the content of an opened remote download to the cache repository. The checksum policy is applied while
+     * saving, so the cached resource is committed only if the content matches the remote checksums.
+     */
+    private RepoResource saveRemoteDownload(RepoResource remoteResource, RemoteDownload download)
+            throws RepoRejectException, IOException {
+        //Create/override the resource in the storage cache
+        RepoRequests.logToContext("Saving resource to " + localCacheRepo);
+        SaveResourceContext saveResourceContext = new SaveResourceContext.Builder(remoteResource, download.handle)
+                .properties(download.properties).build();
+        RepoResource cachedResource = getRepositoryService().saveResource(localCacheRepo, saveResourceContext);
+        if (download.remoteRequestStartTime > 0) {
+            // fire upload event only if the resource was downloaded from the remote repository
+            UploadEntry uploadEntry = new UploadEntry(remoteResource.getRepoPath().getId(),
+                    cachedResource.getSize(), System.currentTimeMillis() - download.remoteRequestStartTime,
+                    download.remoteAddress);
+            TrafficService trafficService = ContextHelper.get().beanForType(TrafficService.class);
+            trafficService.handleTrafficEntry(uploadEntry);
+        }
+
+        unexpire(cachedResource);
+        return cachedResource;
+    }
+
+    private void handleDownloadError(RepoResource remoteResource, ResourceStreamHandle handle, Exception e)
+            throws IOException {
+        RepoPath remoteRepoPath = remoteResource.getRepoPath();
+        // set exception here before the remote stream is closed to signal an error
+        Throwable ioCause = ExceptionUtils.getCauseOfTypes(e, IOException.class);
+        if (ioCause != null) {
+            log.error("IO error while trying to download resource '{}': {}: {}", remoteRepoPath,
+                    ioCause.getClass().getName(), HttpClientUtils.getErrorMessage(ioCause));
+            log.debug("IO error while trying to download resource '{}': {}",
+                    remoteRepoPath, ioCause.getMessage(), ioCause);
+            setExceptionOnHandle(handle, e);
+            throw (IOException) ioCause;
+        }
+        //Repo rejected artifact - add to missed retrieval cache
+        if(e instanceof RepoRejectException) {
+            addRejectedResourceToMissedCache(remoteRepoPath, e.getMessage(), ((RepoRejectException) e).getErrorCode());
+        }
+        setExceptionOnHandle(handle, e);
+    }
+
+    /**
+     * Streams the remote resource to the client while it is being saved to the cache repository.
+     * <p/>
+     * The remote stream is opened on the calling thread and saved asynchronously (under the remote downloaders lock)
+     * through a {@link StreamingRemoteDownload} tee, while the returned handle reads the content as it arrives.
+     * Concurrent requests for the same path on this node join the in-flight download instead of waiting for it.
+     * <p/>
+     * The caller must hold a {@link StreamingSaves#SLOTS} permit, which is released once the save is done (or right
+     * away if the request joins an in-flight download or fails before the save started).
+     *
+     * @return A handle on the streamed content, or null if timed-out waiting on a concurrent download
+     * @throws RejectedExecutionException If the save was rejected by the executor, the remote download is closed and
+     *                                    the caller should download the resource before serving it
+     */
+    private ResourceStreamHandle streamWhileCaching(InternalRequestContext requestContext,
+            RepoResource remoteResource, RepoResource cachedResource, String pathToLock)
+            throws IOException, RepoRejectException {
+        StreamingRemoteDownload ownedStreaming = null;
+        boolean saveStarted = false;
+        try {
+            StreamingRemoteDownload streaming = streamingDownloads.get(pathToLock);
+            if (streaming != null) {
+                return joinStreamingDownload(requestContext, pathToLock, streaming);
+            }
+            StreamingRemoteDownload newStreaming = new StreamingRemoteDownload(ArtifactoryHome.get().getTempWorkDir(),
+                    remoteResource.getSize(), getStreamingStallTimeoutMillis());
+            streaming = streamingDownloads.putIfAbsent(pathToLock, newStreaming);
+            if (streaming != null) {
+                return joinStreamingDownload(requestContext, pathToLock, streaming);
+            }
+            ownedStreaming = newStreaming;
+            if (isCachedConcurrently(requestContext, cachedResource)) {
+                RepoRequests.logToContext("Found completed concurrent download - using cached resource");
+                streamingDownloads.remove(pathToLock, newStreaming);
+                newStreaming.completed();
+                return localCacheRepo.getResourceStreamHandle(requestContext,
+                        getLocalCacheRepo().getInfo(requestContext));
+            }
+            ResourceStreamHandle reader = startStreamingDownload(requestContext, remoteResource, pathToLock,
+                    newStreaming);
+            saveStarted = true;
+            return reader;
+        } finally {
+            if (!saveStarted) {
+                StreamingSaves.SLOTS.release();
+                if (ownedStreaming != null && streamingDownloads.remove(pathToLock, ownedStreaming)) {
+                    // don't leave joined readers waiting on a download that will never start
+                    ownedStreaming.failed(new IOException("Streaming download of '" + pathToLock + "' failed"));
                 }
-                // fire upload event only if the resource was downloaded from the remote repository
-                UploadEntry uploadEntry = new UploadEntry(remoteResource.getRepoPath().getId(),
-                        cachedResource.getSize(), System.currentTimeMillis() - remoteRequestStartTime, remoteAddress);
-                TrafficService trafficService = ContextHelper.get().beanForType(TrafficService.class);
-                trafficService.handleTrafficEntry(uploadEntry);
             }
+        }
+    }
 
-            unexpire(cachedResource);
-            return cachedResource;
+    /**
+     * Opens the remote download and submits its save to the {@link CachedThreadPoolTaskExecutor}, which binds the
+     * context, home and authentication of the request to the saving thread. The save releases the streaming save slot
+     * once done.
+     *
+     * @return A handle on the streamed content
+     */
+    private ResourceStreamHandle startStreamingDownload(InternalRequestContext requestContext,
+            RepoResource remoteResource, String pathToLock, StreamingRemoteDownload newStreaming)
+            throws IOException, RepoRejectException {
+        RemoteDownload download = new RemoteDownload();
+        ResourceStreamHandle reader;
+        try {
+            RepoRequests.logToContext("Found no cached resource - starting streaming download");
+            openRemoteDownload(requestContext, remoteResource, download);
+            download.remoteHandle = download.handle;
+            download.handle = newStreaming.tee(download.remoteHandle);
+            reader = newStreaming.newReader();
         } catch (Exception e) {
-            // set exception here before the remote stream is closed to signal an error
-            Throwable ioCause = ExceptionUtils.getCauseOfTypes(e, IOException.class);
-            if (ioCause != null) {
-                log.error("IO error while trying to download resource '{}': {}: {}", remoteRepoPath,
-                        ioCause.getClass().getName(), HttpClientUtils.getErrorMessage(ioCause));
-                log.debug("IO error while trying to download resource '{}': {}",
-                        remoteResource.getRepoPath(), ioCause.getMessage(), ioCause);
-                setExceptionOnHandle(handle, e);
-                throw (IOException) ioCause;
+            streamingDownloads.remove(pathToLock, newStreaming);
+            newStreaming.failed(e);
+            try {
+                handleDownloadError(remoteResource, download.getRemoteHandle(), e);
+            } finally {
+                Closeables.close(download.handle, true);
             }
-            //Repo rejected artifact - add to missed retrieval cache
-            if(e instanceof RepoRejectException) {
-                addRejectedResourceToMissedCache(remoteRepoPath, e.getMessage(), ((RepoRejectException) e).getErrorCode());
+            throw e;
+        }
+
+        Runnable save = () -> {
+            try {
+                saveStreamingDownload(remoteResource, pathToLock, download, newStreaming);
+            } finally {
+                StreamingSaves.SLOTS.release();
             }
-            setExceptionOnHandle(handle, e);
+        };
+        try {
+            ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class).execute(save);
+        } catch (RejectedExecutionException e) {
+            streamingDownloads.remove(pathToLock, newStreaming);
+            newStreaming.failed(e);
+            Closeables.close(reader, true);
+            Closeables.close(download.handle, true);
             throw e;
+        }
+        return reader;
+    }
+
+    private ResourceStreamHandle joinStreamingDownload(InternalRequestContext requestContext, String pathToLock,
+            StreamingRemoteDownload streaming) throws IOException, RepoRejectException {
+        RepoRequests.logToContext("Joining in-flight download of '%s'", pathToLock);
+        StreamingRemoteDownload.State state;
+        try {
+            state = streaming.awaitStreaming(
+                    TimeUnit.SECONDS.toMillis(ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Interrupted on concurrent download of '{}'", pathToLock);
+            RepoRequests.logToContext("Interrupted on concurrent download of '" + pathToLock + "'");
+            return null;
+        }
+        if (state == StreamingRemoteDownload.State.PENDING) {
+            log.info("Timed-out waiting on concurrent download of '{}' in '{}'.", pathToLock, this);
+            RepoRequests.logToContext("Timed-out waiting on concurrent download.");
+            return null;
+        }
+        ResourceStreamHandle reader = streaming.newReader();
+        if (reader != null) {
+            return reader;
+        }
+        RepoRequests.logToContext("Found completed concurrent download - using cached resource");
+        return localCacheRepo.getResourceStreamHandle(requestContext, getLocalCacheRepo().getInfo(requestContext));
+    }
+
+    private void saveStreamingDownload(RepoResource remoteResource, String pathToLock, RemoteDownload download,
+            StreamingRemoteDownload streaming) {
+        boolean lockAcquired = false;
+        Throwable failure = null;
+        try {
+            lockAcquired = getRemoteDownloaderLockingMap().tryAddAndLock(pathToLock,
+                    ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong(), TimeUnit.SECONDS);
+            if (!lockAcquired) {
+                throw new IOException("Timed-out waiting on concurrent download of '" + pathToLock + "'");
+            }
+            saveRemoteDownload(remoteResource, download);
+            notifyInterceptorsOnAfterRemoteDownload(remoteResource);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (Exception e) {
+            failure = e;
+            try {
+                handleDownloadError(remoteResource, download.getRemoteHandle(), e);
+            } catch (IOException ignored) {
+                // already logged, the failure is reported to the readers
+            }
         } finally {
-            Closeables.close(handle, false);
+            try {
+                Closeables.close(download.handle, true);
+            } catch (IOException ignored) {
+                // swallowed by Closeables
+            }
+            if (lockAcquired) {
+                getRemoteDownloaderLockingMap().removeAndUnlock(pathToLock);
+            }
+            streamingDownloads.remove(pathToLock, streaming);
+            if (failure == null) {
+                streaming.completed();
+            } else {
+                streaming.failed(failure);
+            }
+        }
+    }
+
+    /**
+     * Checks again (under the same conditions that triggered the download) whether a concurrent download has already
+     * cached the resource.
+     */
+    private boolean isCachedConcurrently(InternalRequestContext requestContext, RepoResource cachedResource) {
+        RepoResource newCachedResource = getLocalCacheRepo().getInfo(requestContext);
+        if (cachedResource.isExpired()) {
+            return newCachedResource.isFound() && !newCachedResource.isExpired();
         }
+        return !cachedResource.isFound() && newCachedResource.isFound();
+    }
+
+    private boolean isStreamWhileCaching() {
+        return ConstantValues.remoteStreamWhileCaching.getBoolean();
+    }
+
+    private long getStreamingStallTimeoutMillis() {
+        return TimeUnit.SECONDS.toMillis(ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong());
+    }
+
+    /**
+     * Bound of the streaming cache saves, shared by all the remote repositories. Each save holds an async executor
+     * thread for the whole remote transfer, so the number of concurrent saves is bounded by {@link #SLOTS} (and kept
+     * to half of the async pool) and downloads that can't get a slot use the non-streaming path.
+     */
+    private static final class StreamingSaves {
+        private static final int MAX_SAVES = Math.max(1,
+                Math.min(ConstantValues.remoteStreamWhileCachingMaxSaves.getInt(),
+                        ConstantValues.asyncCorePoolSize.getInt() / 2));
+        private static final Semaphore SLOTS = new Semaphore(MAX_SAVES);
     }
 
     UnfoundRepoResource addRejectedResourceToMissedCache(RepoPath remoteRepoPath, String message, int errorCode) {
@@ -1268,33 +1509,40 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
         return null;
     }
 
-    private void clearCaches(Map<String, ?>... caches) {
-        for (Map<String, ?> cache : caches) {
+    private void clearCaches(PathIndexedCache<?>... caches) {
+        for (PathIndexedCache<?> cache : caches) {
             if (cache != null) {
                 cache.clear();
             }
         }
     }
 
-    private void removeFromCaches(String path, boolean removeSubPaths, Map<String, ?>... caches) {
-        for (Map<String, ?> cache : caches) {
+    private void removeFromCaches(String path, boolean removeSubPaths, PathIndexedCache<?>... caches) {
+        for (PathIndexedCache<?> cache : caches) {
             if (cache != null && !cache.isEmpty()) {
-                cache.remove(path);
                 if (removeSubPaths) {
-                    removeSubPathsFromCache(path, cache);
+                    cache.removeByPrefix(path);
+                } else {
+                    cache.remove(path);
                 }
             }
         }
     }
 
-    private void removeSubPathsFromCache(String basePath, Map<String, ?> cache) {
-        Iterator<String> cachedPaths = cache.keySet().iterator();
-        while (cachedPaths.hasNext()) {
-            String key = cachedPaths.next();
-            if (key.startsWith(basePath)) {
-                cachedPaths.remove();
-            }
-        }
+    /**
+     * @return The cache of resources not found on the remote machine, null if the repository is not initialized
+     */
+    @Nullable
+    public PathIndexedCache<RepoResource> getMissedRetrievalsCache() {
+        return missedRetrievalsCache;
+    }
+
+    /**
+     * @return The cache of remote directories listing, null if the repository is not initialized
+     */
+    @Nullable
+    public PathIndexedCache<List<RemoteItem>> getRemoteResourceCache() {
+        return remoteResourceCache;
     }
 
     /**
@@ -1351,4 +1599,22 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     protected final boolean isResourceUnavailable(StatusLine status) {
         return offlineStatusCodes.contains(Integer.valueOf(status.getStatusCode()));
     }
+
+    /**
+     * The state of a remote download between opening its content handle and saving it to the cache
+     */
+    private static class RemoteDownload {
+        private ResourceStreamHandle handle;
+        /**
+         * The original remote handle when {@link #handle} wraps it (i.e. streaming while caching)
+         */
+        private ResourceStreamHandle remoteHandle;
+        private Properties properties;
+        private long remoteRequestStartTime;
+        private String remoteAddress = StringUtils.EMPTY;
+
+        private ResourceStreamHandle getRemoteHandle() {
+            return remoteHandle != null ? remoteHandle : handle;
+        }
+    }
 }
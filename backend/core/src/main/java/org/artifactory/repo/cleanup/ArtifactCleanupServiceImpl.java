@@ -23,13 +23,15 @@ package org.artifactory.repo.cleanup;
 import com.google.common.collect.Lists;
 import org.artifactory.api.common.BasicStatusHolder;
 import org.artifactory.api.config.CentralConfigService;
-import org.artifactory.api.search.ItemSearchResults;
-import org.artifactory.api.search.SearchService;
-import org.artifactory.api.search.stats.StatsSearchControls;
-import org.artifactory.api.search.stats.StatsSearchResult;
+import org.artifactory.aql.AqlService;
+import org.artifactory.aql.api.domain.sensitive.AqlApiItem;
+import org.artifactory.aql.result.rows.AqlItem;
+import org.artifactory.aql.util.AqlUtils;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.cleanup.CleanupConfigDescriptor;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
 import org.artifactory.descriptor.repo.LocalCacheRepoDescriptor;
+import org.artifactory.fs.StatsInfo;
 import org.artifactory.repo.LocalRepo;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.repo.service.InternalRepositoryService;
@@ -50,10 +52,15 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.artifactory.aql.api.internal.AqlBase.and;
+import static org.artifactory.aql.api.internal.AqlBase.or;
 
 /**
  * The main implementation of the clean-up service
@@ -77,7 +84,10 @@ public class ArtifactCleanupServiceImpl implements InternalArtifactCleanupServic
     private InternalRepositoryService repositoryService;
 
     @Autowired
-    private SearchService searchService;
+    private AqlService aqlService;
+
+    @Autowired
+    private FolderPruningService pruneService;
 
     @Override
     public void init() {
@@ -205,45 +215,151 @@ public class ArtifactCleanupServiceImpl implements InternalArtifactCleanupServic
 
     private void doClean(String repoKey, long periodMillis) {
         log.info("Auto-clean has begun on the repository '{}' with period of {} millis.", repoKey, periodMillis);
+        long start = System.currentTimeMillis();
 
         //Calculate unused artifact expiry
-        long expiryMillis = (System.currentTimeMillis() - periodMillis);
-
-        //Perform a metadata search on the given repo. Look for artifacts that have lastDownloaded stats
-        StatsSearchControls searchControls = new StatsSearchControls();
-        searchControls.setLimitSearchResults(false);
-        searchControls.addRepoToSearch(repoKey);
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(expiryMillis);
-        searchControls.setDownloadedSince(calendar);
-        ItemSearchResults<StatsSearchResult> metadataSearchResults =
-                searchService.searchArtifactsNotDownloadedSince(searchControls);
-
-        int iterationCount = 0;
+        long expiryMillis = (start - periodMillis);
+
+        // Page through the unused artifacts by their node id, deleting each page in its own transaction. Deleted
+        // artifacts are gone from the next page and the ones which couldn't be deleted or were downloaded since the
+        // statistics were flushed are skipped by the cursor.
+        int batchSize = Math.max(1, ConstantValues.artifactCleanupBatchSize.getInt());
+        InternalArtifactCleanupService transactionalMe =
+                InternalContextHelper.get().beanForType(InternalArtifactCleanupService.class);
+        Set<RepoPath> foldersToPrune = new HashSet<>();
+        long lastNodeId = 0;
         int cleanedArtifactsCount = 0;
-        for (StatsSearchResult searchResult : metadataSearchResults.getResults()) {
-            if ((++iterationCount % 10 == 0) && TaskUtils.pauseOrBreak()) {
+        int batchCount = 0;
+        List<AqlItem> batch;
+        do {
+            if (TaskUtils.pauseOrBreak()) {
                 throw new TaskInterruptedException();
             }
-            RepoPath repoPath = searchResult.getItemInfo().getRepoPath();
-            long lastDownloaded = searchResult.getLastDownloaded();
-
-            //If the artifact wasn't downloaded within the expiry window, remove it
-            if (expiryMillis > lastDownloaded) {
-                try {
-                    repositoryService.undeploy(repoPath,
-                            false);  // no need for maven metadata calculation on cache repos
+            batch = findUnusedArtifacts(repoKey, expiryMillis, lastNodeId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastNodeId = batch.get(batch.size() - 1).getNodeId();
+            List<RepoPath> repoPaths = batch.stream().map(AqlUtils::fromAql)
+                    .filter(repoPath -> !isDownloadedSince(repoPath, expiryMillis))
+                    .collect(Collectors.toList());
+            if (!repoPaths.isEmpty()) {
+                cleanedArtifactsCount += undeployBatch(transactionalMe, repoPaths);
+            }
+            repoPaths.stream().map(RepoPath::getParent).filter(parent -> !parent.isRoot())
+                    .forEach(foldersToPrune::add);
+            if (++batchCount % 10 == 0) {
+                log.info("Auto-clean on the repository '{}' cleaned {} artifact(s) so far ({}).", repoKey,
+                        cleanedArtifactsCount, throughput(cleanedArtifactsCount, start));
+            } else {
+                log.debug("Auto-clean on the repository '{}' cleaned {} artifact(s) up to node id {}.", repoKey,
+                        cleanedArtifactsCount, lastNodeId);
+            }
+        } while (batch.size() == batchSize);
+
+        if (ConstantValues.artifactCleanupPruneEmptyFolders.getBoolean()) {
+            pruneDeepestFolders(foldersToPrune);
+        }
+        log.info("Auto-clean on the repository '{}' has ended. {} artifact(s) were cleaned in {} ms ({}).",
+                repoKey, cleanedArtifactsCount, System.currentTimeMillis() - start,
+                throughput(cleanedArtifactsCount, start));
+    }
+
+    /**
+     * Looks for the next page of artifacts that were neither downloaded nor remotely downloaded since the expiry, and
+     * were created before it.
+     */
+    private List<AqlItem> findUnusedArtifacts(String repoKey, long expiryMillis, long afterNodeId, int limit) {
+        AqlApiItem query = AqlApiItem.create().filter(
+                and(
+                        AqlApiItem.repo().equal(repoKey),
+                        AqlApiItem.type().equal("file"),
+                        AqlApiItem.itemId().greater(afterNodeId),
+                        or(
+                                AqlApiItem.statistic().downloaded().less(expiryMillis),
+                                AqlApiItem.statistic().downloaded().equals(null)
+                        ),
+                        or(
+                                AqlApiItem.statistic().remoteDownloaded().less(expiryMillis),
+                                AqlApiItem.statistic().remoteDownloaded().equals(null)
+                        ),
+                        AqlApiItem.created().less(expiryMillis)
+                ))
+                .include(AqlApiItem.repo(), AqlApiItem.path(), AqlApiItem.name(), AqlApiItem.itemId())
+                .addSortElement(AqlApiItem.itemId()).asc()
+                .limit(limit);
+        return aqlService.executeQueryEager(query).getResults();
+    }
+
+    /**
+     * Checks the download statistics of the artifact including the download events that are not flushed yet, since
+     * the artifact might have been downloaded after the statistics were flushed at the beginning of the cleanup.
+     */
+    private boolean isDownloadedSince(RepoPath repoPath, long expiryMillis) {
+        StatsInfo stats = statsService.getStats(repoPath);
+        if (stats != null && (stats.getLastDownloaded() >= expiryMillis ||
+                stats.getRemoteLastDownloaded() >= expiryMillis)) {
+            log.debug("Skipping auto-clean of '{}': it was downloaded since the expiry.", repoPath);
+            return true;
+        }
+        return false;
+    }
+
+    private int undeployBatch(InternalArtifactCleanupService transactionalMe, List<RepoPath> repoPaths) {
+        try {
+            return transactionalMe.cleanBatch(repoPaths);
+        } catch (Exception e) {
+            log.warn("Could not auto-clean a batch of {} artifact(s), retrying one by one: {}", repoPaths.size(),
+                    e.getMessage());
+            log.debug("Could not auto-clean a batch of artifacts", e);
+        }
+        int cleanedArtifactsCount = 0;
+        for (RepoPath repoPath : repoPaths) {
+            try {
+                // no need for maven metadata calculation on cache repos
+                if (!repositoryService.undeploy(repoPath, false).isError()) {
                     cleanedArtifactsCount++;
-                } catch (Exception e) {
-                    log.error(String.format("Could not auto-clean artifact '%s'.", repoPath.getId()), e);
                 }
+            } catch (Exception e) {
+                log.error(String.format("Could not auto-clean artifact '%s'.", repoPath.getId()), e);
+            }
+        }
+        return cleanedArtifactsCount;
+    }
+
+    @Override
+    public int cleanBatch(List<RepoPath> repoPaths) {
+        int cleanedArtifactsCount = 0;
+        for (RepoPath repoPath : repoPaths) {
+            // no need for maven metadata calculation on cache repos
+            BasicStatusHolder status = repositoryService.undeploy(repoPath, false);
+            if (status.isError()) {
+                log.error("Could not auto-clean artifact '{}': {}", repoPath.getId(), status.getStatusMsg());
             } else {
-                log.warn("Querying for unused artifacts returned a used one " + repoPath);
+                cleanedArtifactsCount++;
             }
         }
+        return cleanedArtifactsCount;
+    }
+
+    /**
+     * Queues the folders of the cleaned artifacts for pruning. Pruning an empty folder prunes its parents too, so
+     * only the deepest folders of each cleaned subtree are queued.
+     */
+    private void pruneDeepestFolders(Set<RepoPath> folders) {
+        Set<RepoPath> ancestors = new HashSet<>();
+        for (RepoPath folder : folders) {
+            RepoPath parent = folder.getParent();
+            while (parent != null && !parent.isRoot() && ancestors.add(parent)) {
+                parent = parent.getParent();
+            }
+        }
+        folders.stream().filter(folder -> !ancestors.contains(folder)).forEach(pruneService::prune);
+    }
 
-        log.info("Auto-clean on the repository '{}' has ended. {} artifact(s) were cleaned",
-                repoKey, cleanedArtifactsCount);
+    private String throughput(int count, long start) {
+        long elapsedMillis = Math.max(1, System.currentTimeMillis() - start);
+        return String.format("%.1f artifacts/sec", count * 1000d / elapsedMillis);
     }
 
     /**
@@ -21,8 +21,12 @@
 package org.artifactory.repo.cleanup;
 
 import org.artifactory.api.repo.cleanup.ArtifactCleanupService;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.sapi.common.Lock;
 import org.artifactory.spring.ReloadableBean;
 
+import java.util.List;
+
 /**
  * The main internal interface of the clean-up service
  *
@@ -34,4 +38,13 @@ public interface InternalArtifactCleanupService extends ArtifactCleanupService,
      * Cleans the remote repository's cache from artifacts that hasn't been used in the configured time period
      */
     void clean();
+
+    /**
+     * Undeploys the given unused cached artifacts in a single transaction
+     *
+     * @param repoPaths The cached artifacts to undeploy
+     * @return Number of undeployed artifacts
+     */
+    @Lock
+    int cleanBatch(List<RepoPath> repoPaths);
 }
@@ -62,6 +62,10 @@ public abstract class DbExportBase extends DbRepoImportExportBase {
     protected ExportSettings settings;
     protected MutableStatusHolder status;
     protected final ImportExportAccumulator accumulator;
+    /**
+     * Start time of the last successful export into the same directory, 0 if unknown
+     */
+    private long previousHighWaterMark;
 
     protected DbExportBase(ImportExportAccumulator accumulator) {
         this.accumulator = accumulator;
@@ -73,6 +77,14 @@ public abstract class DbExportBase extends DbRepoImportExportBase {
         this.status = settings.getStatusHolder();
     }
 
+    protected long getPreviousHighWaterMark() {
+        return previousHighWaterMark;
+    }
+
+    protected void setPreviousHighWaterMark(long previousHighWaterMark) {
+        this.previousHighWaterMark = previousHighWaterMark;
+    }
+
     protected void exportFile(FileInfo sourceFile) {
         status.debug("Exporting file '" + sourceFile.getRepoPath() + "'...", log);
 
@@ -136,6 +148,11 @@ public abstract class DbExportBase extends DbRepoImportExportBase {
             return true;
         }
         if (settings.isIncremental() && targetFile.exists()) {
+            if (sourceFile.getLastUpdated() < previousHighWaterMark) {
+                // not updated in storage since the last successful export, regardless of the target file timestamp
+                log.debug("Skipping file {} not updated since the last export", sourceFile.getRepoPath());
+                return true;
+            }
             // incremental export - only export the file if it is newer
             log.trace("Source file last modified {} vs target file last modified {}", sourceFile.getLastModified(),
                     targetFile.lastModified());
@@ -21,12 +21,18 @@
 package org.artifactory.repo.db.importexport;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.AbstractFileFilter;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.NotFileFilter;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.repo.RepositoryService;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.*;
 import org.artifactory.md.Properties;
 import org.artifactory.model.common.RepoPathImpl;
@@ -41,18 +47,32 @@ import org.artifactory.util.RepoPathUtils;
 import org.jfrog.client.util.PathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.io.File;
-import java.io.FileFilter;
-import java.io.IOException;
+import java.io.*;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.repo.db.importexport.ImportExportAccumulator.ProgressAccumulatorType.EXPORT;
 
 /**
  * Controls the exporting of entire db repository.
+ * <p>
+ * A full export reads the nodes of the repository in pages ordered by path ({@link ConstantValues#exportPageSize}),
+ * while an incremental export walks the repository folder by folder since it needs the children of each folder to
+ * clean up items deleted since the last export. When parallel export is enabled
+ * ({@link ConstantValues#exportParallelWorkers}) the files are exported by a pool of workers while the nodes are
+ * listed.
+ * <p>
+ * After a successful export, a manifest with the export start time is written next to the repository metadata. The
+ * next incremental export into the same directory uses it as a high-water mark: files not updated since then are
+ * already in the backup directory.
  *
  * @author Yossi Shaul
  */
@@ -60,12 +80,28 @@ import static org.artifactory.repo.db.importexport.ImportExportAccumulator.Progr
 public class DbRepoExportHandler extends DbExportBase {
     private static final Logger log = LoggerFactory.getLogger(DbRepoExportHandler.class);
 
+    private static final String MANIFEST_FILE_NAME = "export-manifest.properties";
+    private static final String MANIFEST_REPO_KEY = "repoKey";
+    private static final String MANIFEST_TYPE = "type";
+    private static final String MANIFEST_HIGH_WATER_MARK = "highWaterMark";
+    private static final String MANIFEST_PREVIOUS_HIGH_WATER_MARK = "previousHighWaterMark";
+    private static final String MANIFEST_FILES = "files";
+    private static final String MANIFEST_FOLDERS = "folders";
+
     private final StoringRepo repo;
+    private final int parallelWorkers;
+    private final int maxInFlightFiles;
+    private final int pageSize;
+    private ExecutorService workers;
+    private Semaphore inFlightFiles;
 
     public DbRepoExportHandler(StoringRepo repo, ExportSettings settings) {
         super(new ImportExportAccumulator(repo.getKey(), EXPORT));
         this.repo = repo;
         setExportSettings(settings);
+        parallelWorkers = ConstantValues.exportParallelWorkers.getInt();
+        maxInFlightFiles = Math.max(1, ConstantValues.exportParallelMaxInFlightFiles.getInt());
+        pageSize = Math.max(1, ConstantValues.exportPageSize.getInt());
     }
 
     public void export() {
@@ -79,9 +115,25 @@ public class DbRepoExportHandler extends DbExportBase {
         } catch (IOException e) {
             throw new RuntimeException("Failed to create export directory '" + targetExportFolder + "'.", e);
         }
+        long exportStartTime = System.currentTimeMillis();
+        if (settings.isIncremental()) {
+            setPreviousHighWaterMark(readManifestHighWaterMark());
+        }
         ItemInfo rootFolder = getFileService().loadItem(new RepoPathImpl(repo.getKey(), ""));
-        exportRecursive(rootFolder);
+        startWorkers();
+        try {
+            if (settings.isIncremental()) {
+                exportRecursive(rootFolder);
+            } else {
+                exportSubtree((FolderInfo) rootFolder);
+            }
+        } finally {
+            awaitWorkers();
+        }
         accumulator.finished();
+        if (!status.isError()) {
+            writeManifest(exportStartTime);
+        }
         status.status(String.format("%s export finished with: %s Items exported (%s files and %s folders), " +
                 "%s Item skipped: (%s files and %s folders).Duration: %s IPS: %s Target: '%s'",
                 repo.getKey(), accumulator.getSuccessfulItemsCount(), accumulator.getSuccessfulFilesCount(),
@@ -90,6 +142,63 @@ public class DbRepoExportHandler extends DbExportBase {
                 accumulator.getDurationString(), accumulator.getItemsPerSecond(), targetExportFolder), log);
     }
 
+    /**
+     * Exports all the items of the repository page by page. Each page is read with its own query, so no database
+     * cursor is held while the export is paused or the files are copied. Folders are listed before their children so
+     * their target directories are created first.
+     */
+    private void exportSubtree(FolderInfo rootFolder) {
+        TaskService taskService = InternalContextHelper.get().getTaskService();
+        try {
+            exportFolderContent(rootFolder, settings.getBaseDir());
+            RepoPath after = null;
+            List<ItemInfo> page;
+            do {
+                page = getFileService().loadSubtreePage(rootFolder.getRepoPath(), after, pageSize);
+                for (ItemInfo item : page) {
+                    if (taskService.pauseOrBreak()) {
+                        status.error("Export of " + repo.getKey() + " was stopped.", log);
+                        return;
+                    }
+                    if (isStorablePath(item)) {
+                        exportItem(item);
+                    }
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getRepoPath();
+                }
+            } while (page.size() == pageSize);
+        } catch (Exception e) {
+            status.error("Export of " + repo.getKey() + " failed: " + e.getMessage(), e, log);
+        }
+    }
+
+    /**
+     * @return True if the item and all its parent folders are storable (the walk doesn't descend into non storable
+     * folders)
+     */
+    private boolean isStorablePath(ItemInfo item) {
+        boolean storable = item.isFolder() ? isStorableFolder(item.getName()) : isStorableFile(item.getName());
+        RepoPath parent = item.getRepoPath().getParent();
+        while (storable && parent != null && !parent.isRoot()) {
+            storable = isStorableFolder(parent.getName());
+            parent = parent.getParent();
+        }
+        return storable;
+    }
+
+    private void exportItem(ItemInfo sourceItem) {
+        try {
+            if (sourceItem.isFolder()) {
+                exportFolderContent((FolderInfo) sourceItem, new File(settings.getBaseDir(), sourceItem.getRelPath()));
+            } else {
+                submitFileExport((FileInfo) sourceItem);
+            }
+        } catch (Exception e) {
+            onExportError(sourceItem, e);
+        }
+    }
+
     private void exportRecursive(ItemInfo sourceItem) {
         TaskService taskService = InternalContextHelper.get().getTaskService();
         //Check if we need to break/pause
@@ -106,32 +215,113 @@ public class DbRepoExportHandler extends DbExportBase {
                 }
             } else {
                 if (isStorableFile(sourceItem.getName())) {
-                    exportFile((FileInfo) sourceItem);
+                    submitFileExport((FileInfo) sourceItem);
                 }
             }
         } catch (Exception e) {
-            //If a child export fails, we collect the error but not fail the whole export
-            File exportDir = settings.getBaseDir();
-            String msg = String.format("Export error: from: %s to: %s reason: %s", sourceItem.getRepoPath(),
-                    exportDir != null ? exportDir.getPath() : "null", e.getMessage());
-            if (sourceItem.isFolder()) {
-                accumulator.accumulateSkippedFolder();
-            } else {
-                accumulator.accumulateSkippedFile();
+            onExportError(sourceItem, e);
+        }
+    }
+
+    private void onExportError(ItemInfo sourceItem, Exception e) {
+        //If a child export fails, we collect the error but not fail the whole export
+        File exportDir = settings.getBaseDir();
+        String msg = String.format("Export error: from: %s to: %s reason: %s", sourceItem.getRepoPath(),
+                exportDir != null ? exportDir.getPath() : "null", e.getMessage());
+        if (sourceItem.isFolder()) {
+            accumulator.accumulateSkippedFolder();
+        } else {
+            accumulator.accumulateSkippedFile();
+        }
+        status.error(msg, e, log);
+    }
+
+    private void startWorkers() {
+        if (parallelWorkers <= 1) {
+            return;
+        }
+        log.debug("{}: Exporting with {} parallel workers", repo.getKey(), parallelWorkers);
+        inFlightFiles = new Semaphore(maxInFlightFiles);
+        workers = Executors.newFixedThreadPool(parallelWorkers, new ThreadFactoryBuilder()
+                .setNameFormat("art-export-" + repo.getKey() + "-%s").setDaemon(true).build());
+    }
+
+    /**
+     * Exports the file on the export workers if enabled, blocking while the max number of files are waiting to be
+     * exported. Otherwise exports the file on the current thread.
+     */
+    private void submitFileExport(FileInfo sourceFile) throws InterruptedException {
+        if (workers == null) {
+            exportFile(sourceFile);
+            return;
+        }
+        inFlightFiles.acquire();
+        ArtifactoryContext context = ContextHelper.get();
+        ArtifactoryHome artifactoryHome = ArtifactoryHome.get();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        try {
+            workers.execute(() -> {
+                ArtifactoryContextThreadBinder.bind(context);
+                ArtifactoryHome.bind(artifactoryHome);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                try {
+                    exportFile(sourceFile);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    ArtifactoryHome.unbind();
+                    ArtifactoryContextThreadBinder.unbind();
+                    inFlightFiles.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightFiles.release();
+            throw e;
+        }
+    }
+
+    private void awaitWorkers() {
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("{}: Waiting for the export workers to finish", repo.getKey());
             }
-            status.error(msg, e, log);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            status.error("Export of " + repo.getKey() + " was interrupted.", log);
+        } finally {
+            workers = null;
         }
     }
 
-    private void exportFolder(FolderInfo sourceFolder) throws IOException {
+    private void exportFolder(FolderInfo sourceFolder) throws IOException, InterruptedException {
         File targetDir = new File(settings.getBaseDir(), sourceFolder.getRelPath());
-        status.debug("Exporting directory '" + sourceFolder.getRepoPath() + "'...", log);
         // Insure that the source folder still exists.
         boolean sourceFolderExists = getFileService().exists(sourceFolder.getRepoPath());
         if (!sourceFolderExists) {
             log.info("Skipping folder export : '{}', the source folder doesn't exists.", sourceFolder.getRepoPath());
             return;
         }
+        exportFolderContent(sourceFolder, targetDir);
+
+        List<ItemInfo> children = getRepositoryService().getChildren(sourceFolder.getRepoPath());
+        for (ItemInfo child : children) {
+            exportRecursive(child);
+        }
+
+        if (settings.isIncremental()) {
+            cleanupIncrementalBackupDirectory(sourceFolder, children, targetDir);
+        }
+    }
+
+    /**
+     * Creates the target directory of the folder and exports its metadata
+     */
+    private void exportFolderContent(FolderInfo sourceFolder, File targetDir) throws IOException {
+        status.debug("Exporting directory '" + sourceFolder.getRepoPath() + "'...", log);
         FileUtils.forceMkdir(targetDir);
 
         targetDir.setLastModified(sourceFolder.getLastModified());
@@ -141,14 +331,49 @@ public class DbRepoExportHandler extends DbExportBase {
         }
 
         accumulator.accumulateSuccessfulFolder();
+    }
 
-        List<ItemInfo> children = getRepositoryService().getChildren(sourceFolder.getRepoPath());
-        for (ItemInfo child : children) {
-            exportRecursive(child);
+    private File getManifestFile() {
+        return new File(getMetadataContainerFolder(settings.getBaseDir()), MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * @return The high-water mark of the last successful export into the export directory, or 0 if unknown
+     */
+    private long readManifestHighWaterMark() {
+        File manifestFile = getManifestFile();
+        if (!manifestFile.exists()) {
+            return 0;
         }
+        java.util.Properties manifest = new java.util.Properties();
+        try (InputStream is = new BufferedInputStream(new FileInputStream(manifestFile))) {
+            manifest.load(is);
+            return Long.parseLong(manifest.getProperty(MANIFEST_HIGH_WATER_MARK, "0"));
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to read the export manifest '{}': {}", manifestFile.getAbsolutePath(), e.getMessage());
+            return 0;
+        }
+    }
 
-        if (settings.isIncremental()) {
-            cleanupIncrementalBackupDirectory(sourceFolder, children, targetDir);
+    private void writeManifest(long highWaterMark) {
+        java.util.Properties manifest = new java.util.Properties();
+        manifest.setProperty(MANIFEST_REPO_KEY, repo.getKey());
+        manifest.setProperty(MANIFEST_TYPE, settings.isIncremental() ? "incremental" : "full");
+        manifest.setProperty(MANIFEST_HIGH_WATER_MARK, String.valueOf(highWaterMark));
+        if (getPreviousHighWaterMark() > 0) {
+            manifest.setProperty(MANIFEST_PREVIOUS_HIGH_WATER_MARK, String.valueOf(getPreviousHighWaterMark()));
+        }
+        manifest.setProperty(MANIFEST_FILES, String.valueOf(accumulator.getSuccessfulFilesCount()));
+        manifest.setProperty(MANIFEST_FOLDERS, String.valueOf(accumulator.getSuccessfulFoldersCount()));
+        File manifestFile = getManifestFile();
+        try {
+            FileUtils.forceMkdir(manifestFile.getParentFile());
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(manifestFile))) {
+                manifest.store(os, "Export manifest of " + repo.getKey());
+            }
+        } catch (IOException e) {
+            status.warn("Failed to write the export manifest '" + manifestFile.getAbsolutePath() + "': " +
+                    e.getMessage(), log);
         }
     }
 
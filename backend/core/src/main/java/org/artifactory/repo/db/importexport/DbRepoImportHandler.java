@@ -21,16 +21,21 @@
 package org.artifactory.repo.db.importexport;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.yum.YumAddon;
 import org.artifactory.api.config.ImportSettingsImpl;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.maven.MavenMetadataService;
 import org.artifactory.api.maven.MavenMetadataWorkItem;
 import org.artifactory.api.repo.exception.RepoRejectException;
 import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.MutableStatusHolder;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoType;
@@ -58,6 +63,7 @@ import org.artifactory.schedule.TaskService;
 import org.artifactory.security.AccessLogger;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.BinaryInsertRetryException;
+import org.artifactory.storage.binstore.service.BinaryInfo;
 import org.artifactory.storage.binstore.service.BinaryService;
 import org.artifactory.storage.spring.ArtifactoryStorageContext;
 import org.artifactory.storage.spring.StorageContextHelper;
@@ -71,11 +77,14 @@ import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -84,6 +93,12 @@ import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.artifactory.repo.db.importexport.ImportExportAccumulator.ProgressAccumulatorType.IMPORT;
 
@@ -91,6 +106,11 @@ import static org.artifactory.repo.db.importexport.ImportExportAccumulator.Progr
  * Imports a single repository from the file system while managing transactions.
  * This handler is used in two phases: import and finalize. Import does the actual import, after which there might be
  * recoverable failures that can be retried. This breakdown allows the import to be externally synchronized.
+ * <p>
+ * When parallel import is enabled ({@link ConstantValues#importParallelWorkers}), the importing thread walks the
+ * file system and hands each file to a pool of workers which read its metadata and add its content to the binary
+ * store. The importing thread keeps creating the folders and the file nodes (which reuse the binaries added by the
+ * workers) in its batched transactions, since storage sessions are bound to the transaction thread.
  *
  * @author Yossi Shaul
  */
@@ -102,6 +122,11 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
     private final ImportSettings settings;
     private final String parentTaskToken;
     private final String extFilestoreDir;
+    private final BinaryService binaryService;
+    private final int parallelWorkers;
+    private final int maxInFlightFiles;
+    private CompletionService<PreparedFile> preparedFiles;
+    private int inFlightFiles;
     private ImportExportAccumulator progressAccumulator;
     private MutableStatusHolder status;
     private TransactionStatus transactionStatus;
@@ -115,9 +140,11 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         this.settings = settings;
         status = settings.getStatusHolder();
         this.parentTaskToken = parentTaskToken;
-        BinaryService binaryService = StorageContextHelper.get().beanForType(BinaryService.class);
+        binaryService = StorageContextHelper.get().beanForType(BinaryService.class);
         BinaryProvidersInfo<Map<String, String>> binaryProvidersInfo = binaryService.getBinaryProvidersInfo();
         extFilestoreDir = getFirstExternalFileStoreDirInternal(binaryProvidersInfo.rootTreeElement);
+        parallelWorkers = ConstantValues.importParallelWorkers.getInt();
+        maxInFlightFiles = Math.max(1, ConstantValues.importParallelMaxInFlightFiles.getInt());
     }
 
     /**
@@ -187,14 +214,36 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
 
     private void executeRecursiveImport(File fileSystemBaseDir) {
         RepoPath rootRepoPath = InternalRepoPathFactory.repoRootPath(repo.getKey());
+        ExecutorService workers = createImportWorkers();
+        if (workers != null) {
+            preparedFiles = new ExecutorCompletionService<>(workers);
+        }
         startTransaction();
         try {
             importRecursive(fileSystemBaseDir, rootRepoPath);
+            if (preparedFiles != null) {
+                importPreparedFiles(0);
+            }
         } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+                preparedFiles = null;
+                inFlightFiles = 0;
+            }
             commitTransaction(transactionStatus);
         }
     }
 
+    @Nullable
+    private ExecutorService createImportWorkers() {
+        if (parallelWorkers <= 1) {
+            return null;
+        }
+        log.debug("{}: Importing with {} parallel workers", repo.getKey(), parallelWorkers);
+        return Executors.newFixedThreadPool(parallelWorkers, new ThreadFactoryBuilder()
+                .setNameFormat("art-import-" + repo.getKey() + "-%s").setDaemon(true).build());
+    }
+
     private void reportEndOfImport(File fileSystemBaseDir) {
         status.status(String.format("%s import finished with: %s Items imported: (%s files %s folders). " +
                         "Duration: %s IPS: %s Target: '%s'",
@@ -229,7 +278,7 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             itemsToRetry.remove(toRetry);
             startTransaction();
             try {
-                importFile(toRetry.getSource(), toRetry.getDestination());
+                importFile(toRetry.getSource(), toRetry.getDestination(), null);
             } finally {
                 commitTransaction(transactionStatus);
             }
@@ -252,12 +301,12 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             File fileInfoMetadata = new File(
                     fileToImport.getAbsolutePath() + METADATA_FOLDER + "/" + FileInfo.ROOT + ".xml");
             if (fileInfoMetadata.exists() && isStorableFile(fileToImport.getName())) {
-                importFile(fileToImport, target);
+                importOrSubmitFile(fileToImport, target);
             } else {
                 status.warn("File/metadata not found: " + fileToImport.getAbsolutePath(), log);
             }
         } else if (fileToImport.isFile() && isStorableFile(fileToImport.getName())) {
-            importFile(fileToImport, target);
+            importOrSubmitFile(fileToImport, target);
         } else if (isStorableFolder(fileToImport.getName())) {
             boolean folderExistAfterImport = importFolderMetaData(fileToImport, target);
             if (!folderExistAfterImport) {
@@ -310,7 +359,124 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return fileNames;
     }
 
-    private void importFile(final File fileToImport, final RepoPath target) {
+    private void importOrSubmitFile(File fileToImport, RepoPath target) {
+        if (preparedFiles == null) {
+            importFile(fileToImport, target, null);
+            return;
+        }
+        if (inFlightFiles >= maxInFlightFiles) {
+            // the workers are ahead of the transaction, import files until there's room for another one
+            importPreparedFiles(maxInFlightFiles - 1);
+        }
+        ArtifactoryContext context = ContextHelper.get();
+        ArtifactoryHome artifactoryHome = ArtifactoryHome.get();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        preparedFiles.submit(() -> {
+            ArtifactoryContextThreadBinder.bind(context);
+            ArtifactoryHome.bind(artifactoryHome);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            try {
+                return prepareFile(fileToImport, target);
+            } finally {
+                SecurityContextHolder.clearContext();
+                ArtifactoryHome.unbind();
+                ArtifactoryContextThreadBinder.unbind();
+            }
+        });
+        inFlightFiles++;
+        importReadyPreparedFiles();
+    }
+
+    /**
+     * Runs in the import workers: reads the metadata of the file and adds its content to the binary store (unless
+     * the binary already exists), so only the node creation is left for the importing thread. A file that could not
+     * be prepared is marked as failed and imported from scratch by the importing thread.
+     */
+    private PreparedFile prepareFile(File fileToImport, RepoPath target) {
+        List<MetadataEntryInfo> metadataEntries = null;
+        BinaryInfo binaryInfo = null;
+        try {
+            String expectedSha1 = null;
+            if (settings.isIncludeMetadata()) {
+                metadataEntries = getMetadataEntryInfos(fileToImport);
+                expectedSha1 = readExpectedSha1(metadataEntries);
+            }
+            if (fileToImport.isFile() && !settings.isExcludeContent() && (!ChecksumType.sha1.isValid(expectedSha1)
+                    || binaryService.findBinary(expectedSha1) == null)) {
+                try (InputStream is = new BufferedInputStream(new FileInputStream(fileToImport))) {
+                    binaryInfo = binaryService.addBinary(is);
+                }
+            }
+        } catch (Exception e) {
+            // the file will be fully imported by the importing thread which reports the errors
+            log.debug("Could not prepare import of {} as {}: {}", fileToImport, target, e.getMessage(), e);
+            return PreparedFile.failed(fileToImport, target);
+        }
+        return new PreparedFile(fileToImport, target, metadataEntries, binaryInfo);
+    }
+
+    /**
+     * Reads the sha1 of the file info metadata without reporting errors, which are reported when the file is imported
+     */
+    @Nullable
+    private String readExpectedSha1(@Nullable List<MetadataEntryInfo> metadataEntries) throws Exception {
+        if (metadataEntries != null) {
+            for (MetadataEntryInfo entry : metadataEntries) {
+                if (FileInfo.ROOT.equals(entry.getMetadataName())) {
+                    MetadataDefinition definition = getMetadataDefinitionService()
+                            .getMetadataDefinition(FileInfo.ROOT, true);
+                    FileInfo fileInfo = (FileInfo) definition.getXmlProvider().fromXml(entry.getXmlContent());
+                    return fileInfo != null ? fileInfo.getSha1() : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Imports the files prepared by the workers which are already done, without waiting for the others
+     */
+    private void importReadyPreparedFiles() {
+        Future<PreparedFile> prepared;
+        while ((prepared = preparedFiles.poll()) != null) {
+            importPreparedFile(prepared);
+        }
+    }
+
+    /**
+     * Imports the files prepared by the workers, waiting for them to be prepared, until at most the given number of
+     * files is left in flight
+     */
+    private void importPreparedFiles(int maxLeftInFlight) {
+        while (inFlightFiles > maxLeftInFlight) {
+            try {
+                importPreparedFile(preparedFiles.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                status.error("Import of " + repo.getKey() + " was interrupted", e, log);
+                return;
+            }
+        }
+    }
+
+    private void importPreparedFile(Future<PreparedFile> preparedFuture) {
+        inFlightFiles--;
+        PreparedFile prepared;
+        try {
+            prepared = preparedFuture.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // prepareFile doesn't throw, the future was cancelled on shutdown
+            log.debug("Prepared import file is not available", e);
+            return;
+        }
+        if (shouldStartNewTransaction()) {
+            commitTransaction(transactionStatus);
+            startTransaction();
+        }
+        importFile(prepared.getSource(), prepared.getDestination(), prepared.isFailed() ? null : prepared);
+    }
+
+    private void importFile(final File fileToImport, final RepoPath target, @Nullable PreparedFile prepared) {
         log.debug("Importing '{}'.", target);
         if (!settings.isIncludeMetadata() && !fileToImport.exists()) {
             addErrorMessage(fileToImport, target, "Cannot import non existent file (metadata is excluded): " +
@@ -318,7 +484,7 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             return;
         }
         if (isDeployPathValid(fileToImport, target)) {
-            deployImportedFile(fileToImport, target);
+            deployImportedFile(fileToImport, target, prepared);
         }
     }
 
@@ -341,12 +507,12 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return true;
     }
 
-    private void deployImportedFile(File fileToImport, RepoPath target) {
+    private void deployImportedFile(File fileToImport, RepoPath target, @Nullable PreparedFile prepared) {
         ArtifactoryStorageContext context = StorageContextHelper.get();
         MutableVfsFile mutableFile = null;
         try {
             mutableFile = repo.createOrGetFile(target);
-            importFileFrom(fileToImport, mutableFile);
+            importFileFrom(fileToImport, mutableFile, prepared);
 
             context.beanForType(ImportInterceptors.class).afterImport(mutableFile, status);
             log.debug("Imported '{}'.", target);
@@ -380,12 +546,15 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         }
     }
 
-    private void importFileFrom(File sourceFile, MutableVfsFile mutableFile) throws IOException, RepoRejectException {
+    private void importFileFrom(File sourceFile, MutableVfsFile mutableFile, @Nullable PreparedFile prepared)
+            throws IOException, RepoRejectException {
         updateMutableFileBasicData(sourceFile, mutableFile);
         FileInfo importedFileInfo = null;
         RepoPath targetRepoPath = mutableFile.getRepoPath();
         if (settings.isIncludeMetadata()) {
-            importedFileInfo = importFileMetadata(sourceFile, mutableFile, targetRepoPath);
+            List<MetadataEntryInfo> metadataEntries = prepared != null ? prepared.getMetadataEntries() :
+                    getMetadataEntryInfos(sourceFile);
+            importedFileInfo = importFileMetadata(sourceFile, mutableFile, targetRepoPath, metadataEntries);
         }
         if (importedFileInfo == null && !sourceFile.exists()) {
             throw new FileNotFoundException("Cannot import non existent file " + sourceFile.getAbsolutePath()
@@ -403,6 +572,12 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             }
             binaryInfoExists = tryUsingExistingBinary(sourceFile, mutableFile, importedFileInfo);
         }
+        if (!binaryInfoExists && prepared != null && prepared.getBinaryInfo() != null) {
+            // the content was already added to the binary store by an import worker
+            BinaryInfo binaryInfo = prepared.getBinaryInfo();
+            binaryInfoExists = mutableFile.tryUsingExistingBinary(binaryInfo.getSha1(), binaryInfo.getMd5(),
+                    binaryInfo.getLength());
+        }
         if (!binaryInfoExists) {
             fillBinaryDataFromFile(sourceFile, mutableFile);
         }
@@ -417,10 +592,9 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         }
     }
 
-    private FileInfo importFileMetadata(File sourceFile, MutableVfsFile mutableFile,
-                                                              RepoPath targetRepoPath) {
+    private FileInfo importFileMetadata(File sourceFile, MutableVfsFile mutableFile, RepoPath targetRepoPath,
+                                        List<MetadataEntryInfo> metadataEntries) {
         FileInfo importedFileInfo;
-        List<MetadataEntryInfo> metadataEntries = getMetadataEntryInfos(sourceFile);
         importedFileInfo = (FileInfo) readItemInfoMetadata(
                 FileInfo.ROOT, sourceFile, targetRepoPath, metadataEntries);
         if (importedFileInfo != null) {
@@ -627,7 +801,8 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         }
     }
 
-    private MetadataReader findBestMatchMetadataReader(ImportSettings importSettings, File metadataFolder) {
+    private synchronized MetadataReader findBestMatchMetadataReader(ImportSettings importSettings,
+                                                                    File metadataFolder) {
         ImportSettingsImpl settings = (ImportSettingsImpl) importSettings;
         MetadataReader metadataReader = settings.getMetadataReader();
         if (metadataReader == null) {
@@ -665,6 +840,51 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return (AbstractPlatformTransactionManager) ContextHelper.get().getBean("artifactoryTransactionManager");
     }
 
+    /**
+     * An importable file which metadata was read, and which content was added to the binary store if needed, by an
+     * import worker
+     */
+    private static class PreparedFile extends ImportItem {
+        private final List<MetadataEntryInfo> metadataEntries;
+        private final BinaryInfo binaryInfo;
+        private final boolean failed;
+
+        PreparedFile(File source, RepoPath destination, @Nullable List<MetadataEntryInfo> metadataEntries,
+                     @Nullable BinaryInfo binaryInfo) {
+            this(source, destination, metadataEntries, binaryInfo, false);
+        }
+
+        private PreparedFile(File source, RepoPath destination, @Nullable List<MetadataEntryInfo> metadataEntries,
+                             @Nullable BinaryInfo binaryInfo, boolean failed) {
+            super(source, destination);
+            this.metadataEntries = metadataEntries;
+            this.binaryInfo = binaryInfo;
+            this.failed = failed;
+        }
+
+        static PreparedFile failed(File source, RepoPath destination) {
+            return new PreparedFile(source, destination, null, null, true);
+        }
+
+        /**
+         * @return True if the worker failed to prepare the file, which should then be imported without the prepared
+         * data so its metadata is read again and the errors are reported
+         */
+        public boolean isFailed() {
+            return failed;
+        }
+
+        @Nullable
+        public List<MetadataEntryInfo> getMetadataEntries() {
+            return metadataEntries;
+        }
+
+        @Nullable
+        public BinaryInfo getBinaryInfo() {
+            return binaryInfo;
+        }
+    }
+
     /**
      * Represents an importable item of source (file) and destination (repo path)
      */
@@ -29,7 +29,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 
 /**
- * Progress notifier, logs out import export progress.
+ * Progress notifier, logs out import export progress. Safe for use by concurrent import and export workers.
  *
  * @author Gidi Shabat
  */
@@ -59,23 +59,23 @@ public class ImportExportAccumulator {
         this.startTime = System.nanoTime();
     }
 
-    public void accumulateSuccessfulFile() {
+    public synchronized void accumulateSuccessfulFile() {
         successfulFilesCount++;
         printProgress();
     }
 
-    public void accumulateSkippedFile() {
+    public synchronized void accumulateSkippedFile() {
         skippedFilesCount++;
         printProgress();
     }
 
 
-    public void accumulateSuccessfulFolder() {
+    public synchronized void accumulateSuccessfulFolder() {
         successfulFoldersCount++;
         printProgress();
     }
 
-    public void accumulateSkippedFolder() {
+    public synchronized void accumulateSkippedFolder() {
         skippedFoldersCount++;
         printProgress();
     }
@@ -103,27 +103,27 @@ public class ImportExportAccumulator {
         }
     }
 
-    public int getSuccessfulItemsCount() {
+    public synchronized int getSuccessfulItemsCount() {
         return getSuccessfulFilesCount() + getSuccessfulFoldersCount();
     }
 
-    public int getSkippedItemsCount() {
+    public synchronized int getSkippedItemsCount() {
         return getSkippedFilesCount() + getSkippedFoldersCount();
     }
 
-    public int getSkippedFilesCount() {
+    public synchronized int getSkippedFilesCount() {
         return skippedFilesCount;
     }
 
-    public int getSkippedFoldersCount() {
+    public synchronized int getSkippedFoldersCount() {
         return skippedFoldersCount;
     }
 
-    public int getSuccessfulFilesCount() {
+    public synchronized int getSuccessfulFilesCount() {
         return successfulFilesCount;
     }
 
-    public int getSuccessfulFoldersCount() {
+    public synchronized int getSuccessfulFoldersCount() {
         return successfulFoldersCount;
     }
 
@@ -134,7 +134,7 @@ public class ImportExportAccumulator {
     /**
      * @return A string with the number of items imported per second
      */
-    public String getItemsPerSecond() {
+    public synchronized String getItemsPerSecond() {
         long duration = getDurationNanos();
         double durationSecs = duration / 1_000_000_000.0;
         double itemsPerSecond = (successfulFilesCount + successfulFoldersCount) / durationSecs;
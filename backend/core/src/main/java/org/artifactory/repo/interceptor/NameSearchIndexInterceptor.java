@@ -0,0 +1,83 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.interceptor;
+
+import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.md.Properties;
+import org.artifactory.repo.interceptor.storage.StorageInterceptorAdapter;
+import org.artifactory.sapi.fs.VfsItem;
+import org.artifactory.sapi.interceptor.DeleteContext;
+import org.artifactory.sapi.interceptor.ImportInterceptor;
+import org.artifactory.search.name.NameSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps the name search index up to date with the created, imported, copied, moved and deleted files.
+ *
+ * @see NameSearchService
+ */
+public class NameSearchIndexInterceptor extends StorageInterceptorAdapter implements ImportInterceptor {
+
+    @Autowired
+    private NameSearchService nameSearchService;
+
+    @Override
+    public void afterCreate(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        fileAdded(fsItem);
+    }
+
+    @Override
+    public void afterImport(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        fileAdded(fsItem);
+    }
+
+    @Override
+    public void afterCopy(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        fileAdded(targetItem);
+    }
+
+    @Override
+    public void afterMove(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        removed(sourceItem);
+        fileAdded(targetItem);
+    }
+
+    @Override
+    public void afterDelete(VfsItem fsItem, MutableStatusHolder statusHolder, DeleteContext ctx) {
+        removed(fsItem);
+    }
+
+    private void fileAdded(VfsItem fsItem) {
+        if (fsItem.isFile()) {
+            nameSearchService.fileCreated(fsItem.getRepoPath());
+        }
+    }
+
+    private void removed(VfsItem fsItem) {
+        if (fsItem.isFile()) {
+            nameSearchService.fileDeleted(fsItem.getRepoPath());
+        } else {
+            nameSearchService.folderDeleted(fsItem.getRepoPath());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.interceptor;
+
+import org.artifactory.common.ConstantValues;
+import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.md.Properties;
+import org.artifactory.repo.interceptor.storage.StorageInterceptorAdapter;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.repo.virtual.VirtualRepo;
+import org.artifactory.repo.virtual.VirtualRepoDownloadStrategy;
+import org.artifactory.sapi.fs.VfsItem;
+import org.artifactory.sapi.interceptor.DeleteContext;
+import org.artifactory.sapi.interceptor.ImportInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Invalidates the serving members the virtual repositories remember for the created, imported, copied, moved and
+ * deleted items, so that a change in a member (e.g. a deploy to a member of higher priority) is resolved through the
+ * members chain again.
+ *
+ * @see VirtualRepoDownloadStrategy
+ */
+public class VirtualServingMembersInterceptor extends StorageInterceptorAdapter implements ImportInterceptor {
+
+    @Autowired
+    private InternalRepositoryService repositoryService;
+
+    @Override
+    public void afterCreate(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        changed(fsItem);
+    }
+
+    @Override
+    public void afterImport(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        changed(fsItem);
+    }
+
+    @Override
+    public void afterCopy(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        changed(targetItem);
+    }
+
+    @Override
+    public void afterMove(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        changed(sourceItem);
+        changed(targetItem);
+    }
+
+    @Override
+    public void afterDelete(VfsItem fsItem, MutableStatusHolder statusHolder, DeleteContext ctx) {
+        changed(fsItem);
+    }
+
+    private void changed(VfsItem fsItem) {
+        if (ConstantValues.virtualServingMemberCacheSize.getLong() <= 0) {
+            return;
+        }
+        String path = fsItem.getRepoPath().getPath();
+        for (VirtualRepo virtualRepo : repositoryService.getVirtualRepositories()) {
+            if (fsItem.isFile()) {
+                virtualRepo.getDownloadStrategy().invalidateServingMember(path);
+            } else {
+                virtualRepo.getDownloadStrategy().invalidateServingMembers(path);
+            }
+        }
+    }
+}
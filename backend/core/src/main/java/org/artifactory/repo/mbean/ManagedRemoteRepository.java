@@ -0,0 +1,114 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.artifactory.repo.mbean;
+
+import com.google.common.cache.CacheStats;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.repo.RemoteRepo;
+import org.artifactory.repo.RemoteRepoBase;
+import org.artifactory.repo.remote.PathIndexedCache;
+import org.artifactory.repo.service.InternalRepositoryService;
+
+import javax.annotation.Nullable;
+import java.util.function.Function;
+
+/**
+ * An MBean to expose the retrieval caches data of a remote repository. The remote repository is looked up on each call
+ * since it is recreated whenever the configuration changes.
+ */
+public class ManagedRemoteRepository implements ManagedRemoteRepositoryMBean {
+    private final String repoKey;
+    private final InternalRepositoryService repositoryService;
+
+    public ManagedRemoteRepository(String repoKey) {
+        this.repoKey = repoKey;
+        repositoryService = ContextHelper.get().beanForType(InternalRepositoryService.class);
+    }
+
+    @Override
+    public String getRepositoryKey() {
+        return repoKey;
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheSize() {
+        PathIndexedCache<?> cache = getCache(RemoteRepoBase::getMissedRetrievalsCache);
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheHits() {
+        CacheStats stats = getStats(RemoteRepoBase::getMissedRetrievalsCache);
+        return stats == null ? 0 : stats.hitCount();
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheMisses() {
+        CacheStats stats = getStats(RemoteRepoBase::getMissedRetrievalsCache);
+        return stats == null ? 0 : stats.missCount();
+    }
+
+    @Override
+    public long getMissedRetrievalsCacheEvictions() {
+        CacheStats stats = getStats(RemoteRepoBase::getMissedRetrievalsCache);
+        return stats == null ? 0 : stats.evictionCount();
+    }
+
+    @Override
+    public long getRemoteResourceCacheSize() {
+        PathIndexedCache<?> cache = getCache(RemoteRepoBase::getRemoteResourceCache);
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getRemoteResourceCacheHits() {
+        CacheStats stats = getStats(RemoteRepoBase::getRemoteResourceCache);
+        return stats == null ? 0 : stats.hitCount();
+    }
+
+    @Override
+    public long getRemoteResourceCacheMisses() {
+        CacheStats stats = getStats(RemoteRepoBase::getRemoteResourceCache);
+        return stats == null ? 0 : stats.missCount();
+    }
+
+    @Override
+    public long getRemoteResourceCacheEvictions() {
+        CacheStats stats = getStats(RemoteRepoBase::getRemoteResourceCache);
+        return stats == null ? 0 : stats.evictionCount();
+    }
+
+    @Nullable
+    private CacheStats getStats(Function<RemoteRepoBase<?>, PathIndexedCache<?>> cacheGetter) {
+        PathIndexedCache<?> cache = getCache(cacheGetter);
+        return cache == null ? null : cache.stats();
+    }
+
+    @Nullable
+    private PathIndexedCache<?> getCache(Function<RemoteRepoBase<?>, PathIndexedCache<?>> cacheGetter) {
+        RemoteRepo remoteRepo = repositoryService.remoteRepositoryByKey(repoKey);
+        if (remoteRepo instanceof RemoteRepoBase) {
+            return cacheGetter.apply((RemoteRepoBase<?>) remoteRepo);
+        }
+        return null;
+    }
+}
@@ -23,8 +23,11 @@ package org.artifactory.repo.mbean;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.storage.fs.lock.LockingTracer;
 import org.artifactory.storage.fs.service.FileService;
 
+import java.util.function.ToLongFunction;
+
 /**
  * An MBean to expose repository data.
  *
@@ -33,10 +36,12 @@ import org.artifactory.storage.fs.service.FileService;
 public class ManagedRepository implements ManagedRepositoryMBean {
     private final LocalRepoDescriptor descriptor;
     private final FileService fileService;
+    private final LockingTracer lockingTracer;
 
     public ManagedRepository(LocalRepoDescriptor descriptor) {
         this.descriptor = descriptor;
         fileService = ContextHelper.get().beanForType(FileService.class);
+        lockingTracer = ContextHelper.get().beanForType(LockingTracer.class);
     }
 
     @Override
@@ -53,4 +58,54 @@ public class ManagedRepository implements ManagedRepositoryMBean {
     public long getArtifactsTotalSize() {
         return fileService.getFilesTotalSize(new RepoPathImpl(descriptor.getKey(), ""));
     }
+
+    @Override
+    public long getLockAcquisitions() {
+        return getLockStat(stats -> stats.getWaitTimes().getCount());
+    }
+
+    @Override
+    public long getLockContendedAcquisitions() {
+        return getLockStat(LockingTracer.RepoLockStats::getContendedCount);
+    }
+
+    @Override
+    public long getLockTimeouts() {
+        return getLockStat(LockingTracer.RepoLockStats::getTimeoutsCount);
+    }
+
+    @Override
+    public long getLockWaitAverageMillis() {
+        return getLockStat(stats -> stats.getWaitTimes().getAverageMillis());
+    }
+
+    @Override
+    public long getLockWait99thPercentileMillis() {
+        return getLockStat(stats -> stats.getWaitTimes().getPercentileMillis(99));
+    }
+
+    @Override
+    public long getLockWaitMaxMillis() {
+        return getLockStat(stats -> stats.getWaitTimes().getMaxMillis());
+    }
+
+    @Override
+    public long getLockHoldAverageMillis() {
+        return getLockStat(stats -> stats.getHoldTimes().getAverageMillis());
+    }
+
+    @Override
+    public long getLockHold99thPercentileMillis() {
+        return getLockStat(stats -> stats.getHoldTimes().getPercentileMillis(99));
+    }
+
+    @Override
+    public long getLockHoldMaxMillis() {
+        return getLockStat(stats -> stats.getHoldTimes().getMaxMillis());
+    }
+
+    private long getLockStat(ToLongFunction<LockingTracer.RepoLockStats> stat) {
+        LockingTracer.RepoLockStats stats = lockingTracer.getRepoStats(descriptor.getKey());
+        return stats == null ? 0 : stat.applyAsLong(stats);
+    }
 }
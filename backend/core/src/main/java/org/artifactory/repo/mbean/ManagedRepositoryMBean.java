@@ -34,4 +34,22 @@ public interface ManagedRepositoryMBean {
 
     public long getArtifactsTotalSize();
 
+    public long getLockAcquisitions();
+
+    public long getLockContendedAcquisitions();
+
+    public long getLockTimeouts();
+
+    public long getLockWaitAverageMillis();
+
+    public long getLockWait99thPercentileMillis();
+
+    public long getLockWaitMaxMillis();
+
+    public long getLockHoldAverageMillis();
+
+    public long getLockHold99thPercentileMillis();
+
+    public long getLockHoldMaxMillis();
+
 }
@@ -0,0 +1,68 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.mbean;
+
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.repo.virtual.VirtualRepo;
+import org.artifactory.repo.virtual.VirtualRepoDownloadStrategy;
+
+/**
+ * An MBean to expose virtual repository resolution data. The virtual repository is looked up on each call since it is
+ * recreated whenever the configuration changes.
+ */
+public class ManagedVirtualRepository implements ManagedVirtualRepositoryMBean {
+    private final String repoKey;
+    private final InternalRepositoryService repositoryService;
+
+    public ManagedVirtualRepository(String repoKey) {
+        this.repoKey = repoKey;
+        repositoryService = ContextHelper.get().beanForType(InternalRepositoryService.class);
+    }
+
+    @Override
+    public String getRepositoryKey() {
+        return repoKey;
+    }
+
+    @Override
+    public long getServingMemberCacheHits() {
+        VirtualRepoDownloadStrategy strategy = getDownloadStrategy();
+        return strategy == null ? 0 : strategy.getServingMemberCacheHits();
+    }
+
+    @Override
+    public long getServingMemberCacheMisses() {
+        VirtualRepoDownloadStrategy strategy = getDownloadStrategy();
+        return strategy == null ? 0 : strategy.getServingMemberCacheMisses();
+    }
+
+    @Override
+    public long getServingMemberCacheSize() {
+        VirtualRepoDownloadStrategy strategy = getDownloadStrategy();
+        return strategy == null ? 0 : strategy.getServingMemberCacheSize();
+    }
+
+    private VirtualRepoDownloadStrategy getDownloadStrategy() {
+        VirtualRepo virtualRepo = repositoryService.virtualRepositoryByKey(repoKey);
+        return virtualRepo == null ? null : virtualRepo.getDownloadStrategy();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.mbean;
+
+/**
+ * An MBean to expose virtual repository resolution data.
+ */
+@SuppressWarnings("UnusedDeclaration")  // mbean
+public interface ManagedVirtualRepositoryMBean {
+
+    public String getRepositoryKey();
+
+    public long getServingMemberCacheHits();
+
+    public long getServingMemberCacheMisses();
+
+    public long getServingMemberCacheSize();
+
+}
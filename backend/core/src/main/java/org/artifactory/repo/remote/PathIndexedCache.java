@@ -0,0 +1,145 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+
+import javax.annotation.Nullable;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache keyed by repository paths that supports removing all the paths under a prefix without scanning the whole
+ * cache.
+ * <p/>
+ * Entries are held by a Guava cache (which handles expiry, soft values and statistics), while the keys are also kept
+ * in a sorted set so the keys starting with a prefix are found with a range lookup. The sorted set may briefly hold
+ * keys that were already evicted from the cache, but never misses a key that is in the cache: keys removed from the
+ * cache are queued by the removal listener and dropped from the index only after verifying they were not put again.
+ */
+public class PathIndexedCache<V> {
+
+    private final Cache<String, V> cache;
+    private final NavigableSet<String> index = new ConcurrentSkipListSet<>();
+    private final Queue<String> removedKeys = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param initialCapacity   Initial capacity of the cache
+     * @param expirationSeconds Time after which entries expire, negative for no expiry
+     * @param softValues        Whether to hold the values with soft references
+     */
+    public PathIndexedCache(int initialCapacity, long expirationSeconds, boolean softValues) {
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().initialCapacity(initialCapacity)
+                .recordStats();
+        if (expirationSeconds >= 0) {
+            cacheBuilder.expireAfterWrite(expirationSeconds, TimeUnit.SECONDS);
+        }
+        if (softValues) {
+            cacheBuilder.softValues();
+        }
+        cache = cacheBuilder.<String, V>removalListener(notification -> {
+            if (notification.getCause() != RemovalCause.REPLACED) {
+                removedKeys.add(notification.getKey());
+            }
+        }).build();
+    }
+
+    @Nullable
+    public V get(String path) {
+        return cache.getIfPresent(path);
+    }
+
+    public boolean containsKey(String path) {
+        return cache.asMap().containsKey(path);
+    }
+
+    public void put(String path, V value) {
+        cache.put(path, value);
+        index.add(path);
+        drainRemovedKeys();
+    }
+
+    public void remove(String path) {
+        cache.invalidate(path);
+        drainRemovedKeys();
+    }
+
+    /**
+     * Removes all the entries which paths start with the given prefix (including the prefix itself).
+     */
+    public void removeByPrefix(String prefix) {
+        for (String path : index.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            cache.invalidate(path);
+        }
+        drainRemovedKeys();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        drainRemovedKeys();
+    }
+
+    public boolean isEmpty() {
+        return cache.size() == 0;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Evicts expired entries and drops the keys of the removed entries from the index
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+        drainRemovedKeys();
+    }
+
+    /**
+     * @return Number of keys in the index, for testing
+     */
+    int indexSize() {
+        return index.size();
+    }
+
+    private void drainRemovedKeys() {
+        String path;
+        while ((path = removedKeys.poll()) != null) {
+            if (!cache.asMap().containsKey(path)) {
+                index.remove(path);
+                // the key might have been put again after the check, in which case it must stay indexed
+                if (cache.asMap().containsKey(path)) {
+                    index.add(path);
+                }
+            }
+        }
+    }
+}
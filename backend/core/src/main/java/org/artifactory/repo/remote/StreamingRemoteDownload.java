@@ -0,0 +1,396 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote;
+
+import org.apache.commons.io.IOUtils;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * A remote download that is being saved to the cache repository while its content is streamed to the requesting
+ * clients.
+ * <p/>
+ * The remote stream is wrapped by a tee (see {@link #tee(ResourceStreamHandle)}) that is consumed by the cache save.
+ * Every byte read by the save is also appended to a spool file, from which any number of readers (the requesting
+ * client and any concurrent requests for the same path) can read as the bytes arrive.
+ * <p/>
+ * Readers never see a clean end of stream before the save is {@link #completed()}: if the save fails (for example
+ * on checksum mismatch) readers get an {@link IOException} instead, so a client can't mistake a rejected download
+ * for a complete one. A reader waiting longer than the stall timeout for new content (e.g. when the remote stalls
+ * without closing the connection) gets an {@link IOException} too. The spool file is deleted once the download is
+ * done and the last reader is closed.
+ */
+public class StreamingRemoteDownload {
+    private static final Logger log = LoggerFactory.getLogger(StreamingRemoteDownload.class);
+
+    public enum State {
+        /**
+         * No content was received yet
+         */
+        PENDING,
+        /**
+         * Content is being received and saved
+         */
+        STREAMING,
+        /**
+         * Content was fully received and the cached resource was saved
+         */
+        COMPLETED,
+        /**
+         * The download or the save failed
+         */
+        FAILED
+    }
+
+    private final File spoolDir;
+    private final long size;
+    private final long stallTimeoutMillis;
+    private File spoolFile;
+    private long bytesSpooled;
+    private long lastProgressMillis = System.currentTimeMillis();
+    private State state = State.PENDING;
+    private Throwable failure;
+    private int openReaders;
+    private boolean released;
+
+    /**
+     * @param spoolDir           Directory to create the spool file in
+     * @param size               The expected size of the content or -1 if unknown
+     * @param stallTimeoutMillis Max time a reader waits for new content before failing
+     */
+    public StreamingRemoteDownload(File spoolDir, long size, long stallTimeoutMillis) {
+        this.spoolDir = spoolDir;
+        this.size = size;
+        this.stallTimeoutMillis = stallTimeoutMillis;
+    }
+
+    /**
+     * Wraps the given remote handle so that everything read from it is also spooled for the readers of this download.
+     * Closing the returned handle closes the remote handle.
+     */
+    public ResourceStreamHandle tee(ResourceStreamHandle remoteHandle) throws IOException {
+        File file = File.createTempFile("remote-stream-", ".spool", spoolDir);
+        OutputStream spoolOut = new FileOutputStream(file);
+        synchronized (this) {
+            spoolFile = file;
+        }
+        return new TeeResourceStreamHandle(remoteHandle, spoolOut);
+    }
+
+    /**
+     * Waits until the first bytes of the content are spooled or the download is done.
+     *
+     * @return The state of the download when the wait ended. {@link State#PENDING} means the wait timed-out
+     */
+    public synchronized State awaitStreaming(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (state == State.PENDING) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            wait(remaining);
+        }
+        return state;
+    }
+
+    /**
+     * Opens a new reader on the spooled content. The reader follows the download and blocks until more content is
+     * spooled or the download is done.
+     *
+     * @return A handle on the spooled content, or null if the download was already done and its spool released (the
+     * content should then be read from the cache)
+     * @throws IOException If the download failed
+     */
+    @Nullable
+    public synchronized ResourceStreamHandle newReader() throws IOException {
+        if (state == State.FAILED) {
+            throw toIOException(failure);
+        }
+        if (released || spoolFile == null) {
+            return null;
+        }
+        RandomAccessFile file = new RandomAccessFile(spoolFile, "r");
+        openReaders++;
+        return new SpoolReaderHandle(file);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    @Nullable
+    public synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Marks the cached resource as saved. Readers reaching the end of the spooled content get end of stream.
+     */
+    public synchronized void completed() {
+        if (isDone()) {
+            return;
+        }
+        state = State.COMPLETED;
+        notifyAll();
+        releaseIfUnused();
+    }
+
+    /**
+     * Marks the download as failed. Pending and future reads get an {@link IOException} with the given cause.
+     */
+    public synchronized void failed(Throwable cause) {
+        if (isDone()) {
+            return;
+        }
+        failure = cause;
+        state = State.FAILED;
+        notifyAll();
+        releaseIfUnused();
+    }
+
+    private boolean isDone() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    private synchronized void spooled(int count) {
+        bytesSpooled += count;
+        lastProgressMillis = System.currentTimeMillis();
+        if (state == State.PENDING) {
+            state = State.STREAMING;
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return The number of bytes available for reading beyond the given position, or -1 on end of stream
+     * @throws IOException If the download failed or no content was spooled within the stall timeout
+     */
+    private synchronized long awaitContent(long position) throws IOException {
+        while (true) {
+            if (state == State.FAILED) {
+                throw toIOException(failure);
+            }
+            if (bytesSpooled > position) {
+                return bytesSpooled - position;
+            }
+            if (state == State.COMPLETED) {
+                return -1;
+            }
+            long remaining = lastProgressMillis + stallTimeoutMillis - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Timed-out after " + stallTimeoutMillis +
+                        " ms waiting on remote download content");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting on remote download content");
+            }
+        }
+    }
+
+    private synchronized void readerClosed() {
+        openReaders--;
+        releaseIfUnused();
+    }
+
+    private void releaseIfUnused() {
+        if (!released && isDone() && openReaders <= 0) {
+            released = true;
+            if (spoolFile != null && !spoolFile.delete() && spoolFile.exists()) {
+                log.warn("Could not delete remote download spool file '{}'", spoolFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private IOException toIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return new IOException(cause.getMessage(), cause);
+        }
+        return new IOException("Remote download failed: " + (cause != null ? cause.getMessage() : "unknown error"),
+                cause);
+    }
+
+    private class TeeResourceStreamHandle implements ResourceStreamHandle {
+        private final ResourceStreamHandle remoteHandle;
+        private final OutputStream spoolOut;
+        private InputStream teeStream;
+
+        private TeeResourceStreamHandle(ResourceStreamHandle remoteHandle, OutputStream spoolOut) {
+            this.remoteHandle = remoteHandle;
+            this.spoolOut = spoolOut;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            if (teeStream == null) {
+                teeStream = new TeeInputStream(remoteHandle.getInputStream(), spoolOut);
+            }
+            return teeStream;
+        }
+
+        @Override
+        public long getSize() {
+            return remoteHandle.getSize();
+        }
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(spoolOut);
+            remoteHandle.close();
+        }
+    }
+
+    private class TeeInputStream extends FilterInputStream {
+        private final OutputStream spoolOut;
+
+        private TeeInputStream(InputStream in, OutputStream spoolOut) {
+            super(in);
+            this.spoolOut = spoolOut;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                spoolOut.write(b);
+                spooled(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                spoolOut.write(b, off, count);
+                spooled(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes must still reach the spool
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (count < 0) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private class SpoolReaderHandle implements ResourceStreamHandle {
+        private final SpoolInputStream inputStream;
+
+        private SpoolReaderHandle(RandomAccessFile file) {
+            inputStream = new SpoolInputStream(file);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    private class SpoolInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private long position;
+        private boolean closed;
+
+        private SpoolInputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return count == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            long available = awaitContent(position);
+            if (available < 0) {
+                return -1;
+            }
+            file.seek(position);
+            int count = file.read(b, off, (int) Math.min(len, available));
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                file.close();
+            } finally {
+                readerClosed();
+            }
+        }
+    }
+}
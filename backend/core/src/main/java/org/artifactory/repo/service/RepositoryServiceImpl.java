@@ -94,7 +94,9 @@ import org.artifactory.repo.db.importexport.DbRepoExportSearchHandler;
 import org.artifactory.repo.interceptor.StorageInterceptors;
 import org.artifactory.repo.local.PathDeletionContext;
 import org.artifactory.repo.local.ValidDeployPathContext;
+import org.artifactory.repo.mbean.ManagedRemoteRepository;
 import org.artifactory.repo.mbean.ManagedRepository;
+import org.artifactory.repo.mbean.ManagedVirtualRepository;
 import org.artifactory.repo.service.flexible.context.MoveCopyContext;
 import org.artifactory.repo.service.flexible.interfaces.FlatMoveCopyService;
 import org.artifactory.repo.service.mover.*;
@@ -169,6 +171,8 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
     private static final Logger log = LoggerFactory.getLogger(RepositoryServiceImpl.class);
 
     private static final String REPOSITORIES_MBEAN_TYPE = "Repositories";
+    private static final String REMOTE_REPOSITORIES_MBEAN_TYPE = "Remote Repositories";
+    private static final String VIRTUAL_REPOSITORIES_MBEAN_TYPE = "Virtual Repositories";
 
     @Autowired
     private AclService aclService;
@@ -272,6 +276,9 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
 
     private void cleanAndPromote() {
         cache.get().remoteRepositoriesMap.values().forEach(RemoteRepo::cleanupResources);
+        // the members chain of the virtual repositories may have changed
+        cache.get().virtualRepositoriesMap.values()
+                .forEach(virtualRepo -> virtualRepo.getDownloadStrategy().invalidateServingMembers());
         cache.promoteDbVersion();
     }
 
@@ -2292,6 +2299,16 @@ public class RepositoryServiceImpl implements InternalRepositoryService {
             registrationService.register(new ManagedRepository(descriptor), REPOSITORIES_MBEAN_TYPE,
                     descriptor.getKey());
         }
+        registrationService.unregisterAll(REMOTE_REPOSITORIES_MBEAN_TYPE);
+        for (RemoteRepoDescriptor descriptor : getRemoteRepoDescriptors()) {
+            registrationService.register(new ManagedRemoteRepository(descriptor.getKey()),
+                    REMOTE_REPOSITORIES_MBEAN_TYPE, descriptor.getKey());
+        }
+        registrationService.unregisterAll(VIRTUAL_REPOSITORIES_MBEAN_TYPE);
+        for (VirtualRepoDescriptor descriptor : getVirtualRepoDescriptors()) {
+            registrationService.register(new ManagedVirtualRepository(descriptor.getKey()),
+                    VIRTUAL_REPOSITORIES_MBEAN_TYPE, descriptor.getKey());
+        }
     }
 
     private class RepositoriesCacheBuilder {
@@ -20,7 +20,11 @@
 
 package org.artifactory.repo.virtual;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
 import org.artifactory.addon.AddonsManager;
@@ -32,6 +36,7 @@ import org.artifactory.api.module.ModuleInfo;
 import org.artifactory.api.repo.exception.FileExpectedException;
 import org.artifactory.api.repo.exception.RepoRejectException;
 import org.artifactory.api.request.TranslatedArtifactoryRequest;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.descriptor.repo.RemoteRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoLayout;
@@ -44,11 +49,18 @@ import org.artifactory.repo.service.InternalRepositoryService;
 import org.artifactory.request.*;
 import org.artifactory.resource.ResourceStreamHandle;
 import org.artifactory.resource.UnfoundRepoResource;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Default download strategy of a virtual repository.
@@ -64,6 +76,12 @@ public class VirtualRepoDownloadStrategy {
 
     private final VirtualRepo virtualRepo;
     private LayoutsCoreAddon layoutsCoreAddon;
+    /**
+     * Key of the member that served each path, null if disabled
+     */
+    private final Cache<String, String> servingMembers;
+    private final AtomicLong servingMemberHits = new AtomicLong();
+    private final AtomicLong servingMemberMisses = new AtomicLong();
 
     public VirtualRepoDownloadStrategy(VirtualRepo virtualRepo) {
         this.virtualRepo = virtualRepo;
@@ -72,6 +90,11 @@ public class VirtualRepoDownloadStrategy {
         repositoryService = artifactoryContext.beanForType(InternalRepositoryService.class);
         AddonsManager addonsManager = artifactoryContext.beanForType(AddonsManager.class);
         layoutsCoreAddon = addonsManager.addonByType(LayoutsCoreAddon.class);
+        long servingMembersCacheSize = ConstantValues.virtualServingMemberCacheSize.getLong();
+        servingMembers = servingMembersCacheSize <= 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(servingMembersCacheSize)
+                .expireAfterWrite(ConstantValues.virtualServingMemberCacheTtlSecs.getLong(), TimeUnit.SECONDS)
+                .build();
     }
 
     public RepoResource getInfo(InternalRequestContext context) {
@@ -250,57 +273,65 @@ public class VirtualRepoDownloadStrategy {
      */
     private RepoResource processStandard(InternalRequestContext context, RepoPath repoPath, List<RealRepo> repositories,
             boolean validModuleInfo) throws IOException {
+        RepoResource servingMemberResource = getInfoFromServingMember(context, repoPath, repositories);
+        if (servingMemberResource != null) {
+            return servingMemberResource;
+        }
         // save forbidden unfound response
         UnfoundRepoResource forbidden = null;
         //Locate the resource matching the request
         RepoResource closestMatch = null;
+        String path = repoPath.getPath();
+        MemberLookups lookups = new MemberLookups(context, true);
+        try {
+            for (int i = 0; i < repositories.size(); i++) {
+                RealRepo repo = repositories.get(i);
+                RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
+                // Since we are in process standard, repositories that does not process releases should be skipped.
+                // Now, checksums are always considered standard, even if executed against a snapshot repository.
+                // So, we should not skip snapshots repositories for checksums.
+                if (isSkippedForReleases(repo, path, validModuleInfo)) {
+                    RepoRequests.logToContext("Skipping %s - doesn't handle releases", repo.getKey());
+                    continue;
+                }
 
-        for (RealRepo repo : repositories) {
-            RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
-            // Since we are in process standard, repositories that does not process releases should be skipped.
-            // Now, checksums are always considered standard, even if executed against a snapshot repository.
-            // So, we should not skip snapshots repositories for checksums.
-            String path = repoPath.getPath();
-            if (validModuleInfo && !repo.isHandleReleases() && !NamingUtils.isChecksum(path)) {
-                RepoRequests.logToContext("Skipping %s - doesn't handle releases", repo.getKey());
-                continue;
-            }
-
-            if (closestMatch != null && isNotSynchronizeProperties(repo)) {
-                continue;
-            }
-
-            InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
-            if (translatedContext instanceof TranslatedArtifactoryRequest) {
-                RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
-                        translatedContext.getResourcePath());
-            }
-            RepoResource res = repo.getInfo(translatedContext);
-
-            //Retry the original path if the path was translated and failed (RTFACT-4329)
-            if (!res.isFound() && !translatedContext.getResourcePath().equals(context.getResourcePath())) {
-                RepoRequests.logToContext("Unable to find the resource in the translated path - " +
-                        "retrying with the original");
-                res = repo.getInfo(context);
-            }
+                if (closestMatch != null && isNotSynchronizeProperties(repo)) {
+                    continue;
+                }
 
-            if (res.isFound()) {
-                RepoRequests.logToContext("Resource was found in %s", repo.getKey());
-                updateResponseRepoPath(repo, res);
-                if (res.isExactQueryMatch()) {
-                    //return the exact match
-                    RepoRequests.logToContext("Resource is an exact match - returning");
-                    return res;
-                } else {
-                    RepoRequests.logToContext("Resource is not an exact match - keeping as closest match");
-                    closestMatch = res;
+                if (!repo.isLocal() && !lookups.isRemotesStarted()) {
+                    List<RealRepo> remotes = Lists.newArrayList();
+                    for (RealRepo remaining : repositories.subList(i, repositories.size())) {
+                        if (!remaining.isLocal() && !isSkippedForReleases(remaining, path, validModuleInfo) &&
+                                !(closestMatch != null && isNotSynchronizeProperties(remaining))) {
+                            remotes.add(remaining);
+                        }
+                    }
+                    lookups.startRemotes(remotes);
                 }
-            } else if (forbidden == null) {
-                forbidden = checkIfForbidden(res);
-                if (forbidden != null) {
-                    RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                RepoResource res = lookups.getInfo(repo);
+
+                if (res.isFound()) {
+                    RepoRequests.logToContext("Resource was found in %s", repo.getKey());
+                    updateResponseRepoPath(repo, res);
+                    if (res.isExactQueryMatch()) {
+                        //return the exact match
+                        RepoRequests.logToContext("Resource is an exact match - returning");
+                        cacheServingMember(path, repo);
+                        return res;
+                    } else {
+                        RepoRequests.logToContext("Resource is not an exact match - keeping as closest match");
+                        closestMatch = res;
+                    }
+                } else if (forbidden == null) {
+                    forbidden = checkIfForbidden(res);
+                    if (forbidden != null) {
+                        RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                    }
                 }
             }
+        } finally {
+            lookups.cancelPending();
         }
 
         //If we didn't find an exact match return the first found resource (closest match)
@@ -331,53 +362,63 @@ public class VirtualRepoDownloadStrategy {
         //Traverse the local, caches and remote repositories and search for the newest snapshot
         //Make sure local repos are always searched first
 
-        for (RealRepo repo : repositories) {
-            RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
-            if (shouldSkipSnapshotRepo(repo)) {
-                RepoRequests.logToContext("Skipping %s", repo.getKey());
-                continue;
-            }
-            InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
-            String translatedPath = translatedContext.getResourcePath();
-            if (translatedContext instanceof TranslatedArtifactoryRequest) {
-                RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
-                        translatedPath);
-            }
-
-            final RepoResource res = repo.getInfo(translatedContext);
-            if (res.isFound()) {
-                RepoRequests.logToContext("Resource last modified time - %s",
-                        centralConfig.format(res.getLastModified()));
-
-                boolean firstFoundResource = latestRes == null;
-                boolean currentResourceIsAnExactMatchAndLatterFoundIsNot = !firstFoundResource &&
-                        !latestRes.isExactQueryMatch() && res.isExactQueryMatch();
-                boolean currentResourceWasModifiedLater = !firstFoundResource &&
-                        (res.getLastModified() > latestRes.getLastModified());
-
-                RepoRequests.logToContext("Current found resource is the first candidate = %s, is an exact match " +
-                                "query while the former candidate isn't = %s, has later modified time than former = %s",
-                        firstFoundResource, currentResourceIsAnExactMatchAndLatterFoundIsNot,
-                        currentResourceWasModifiedLater
-                );
-
-                //If we haven't found one yet
-                if (firstFoundResource ||
-                        //or this one is a better match
-                        currentResourceIsAnExactMatchAndLatterFoundIsNot
-                        //or newer than the one found
-                        || currentResourceWasModifiedLater) {
-                    RepoRequests.logToContext("Selecting current found resource as best candidate");
-                    //take it
-                    updateResponseRepoPath(repo, res);
-                    latestRes = res;
+        MemberLookups lookups = new MemberLookups(context, false);
+        try {
+            for (int i = 0; i < repositories.size(); i++) {
+                RealRepo repo = repositories.get(i);
+                RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
+                if (shouldSkipSnapshotRepo(repo)) {
+                    RepoRequests.logToContext("Skipping %s", repo.getKey());
+                    continue;
                 }
-            } else if (forbidden == null) {
-                forbidden = checkIfForbidden(res);
-                if (forbidden != null) {
-                    RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                if (!repo.isLocal() && !lookups.isRemotesStarted()) {
+                    List<RealRepo> remotes = Lists.newArrayList();
+                    for (RealRepo remaining : repositories.subList(i, repositories.size())) {
+                        if (!remaining.isLocal() && remaining.isHandleSnapshots() && !remaining.isCache()) {
+                            remotes.add(remaining);
+                        }
+                    }
+                    lookups.startRemotes(remotes);
+                }
+
+                final RepoResource res = lookups.getInfo(repo);
+                if (res.isFound()) {
+                    RepoRequests.logToContext("Resource last modified time - %s",
+                            centralConfig.format(res.getLastModified()));
+
+                    boolean firstFoundResource = latestRes == null;
+                    boolean currentResourceIsAnExactMatchAndLatterFoundIsNot = !firstFoundResource &&
+                            !latestRes.isExactQueryMatch() && res.isExactQueryMatch();
+                    boolean currentResourceWasModifiedLater = !firstFoundResource &&
+                            (res.getLastModified() > latestRes.getLastModified());
+
+                    RepoRequests.logToContext("Current found resource is the first candidate = %s, is an exact " +
+                                    "match query while the former candidate isn't = %s, has later modified time " +
+                                    "than former = %s",
+                            firstFoundResource, currentResourceIsAnExactMatchAndLatterFoundIsNot,
+                            currentResourceWasModifiedLater
+                    );
+
+                    //If we haven't found one yet
+                    if (firstFoundResource ||
+                            //or this one is a better match
+                            currentResourceIsAnExactMatchAndLatterFoundIsNot
+                            //or newer than the one found
+                            || currentResourceWasModifiedLater) {
+                        RepoRequests.logToContext("Selecting current found resource as best candidate");
+                        //take it
+                        updateResponseRepoPath(repo, res);
+                        latestRes = res;
+                    }
+                } else if (forbidden == null) {
+                    forbidden = checkIfForbidden(res);
+                    if (forbidden != null) {
+                        RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                    }
                 }
             }
+        } finally {
+            lookups.cancelPending();
         }
 
         String resourcePath = repoPath.getPath();
@@ -399,6 +440,113 @@ public class VirtualRepoDownloadStrategy {
         return latestRes;
     }
 
+    /**
+     * Looks up the resource in the member that served the same path last time, to skip searching the whole members
+     * chain on repeated requests.
+     *
+     * @return The resource if it is still an exact match in the serving member, null otherwise
+     */
+    private RepoResource getInfoFromServingMember(InternalRequestContext context, RepoPath repoPath,
+            List<RealRepo> repositories) {
+        if (servingMembers == null) {
+            return null;
+        }
+        String path = repoPath.getPath();
+        String memberKey = servingMembers.getIfPresent(path);
+        if (memberKey != null) {
+            for (RealRepo repo : repositories) {
+                if (repo.getKey().equals(memberKey)) {
+                    RepoRequests.logToContext("Searching for the resource within %s - last served this path",
+                            memberKey);
+                    RepoResource res = lookupInfo(context, repo, true);
+                    if (res.isFound() && res.isExactQueryMatch()) {
+                        servingMemberHits.incrementAndGet();
+                        updateResponseRepoPath(repo, res);
+                        return res;
+                    }
+                    break;
+                }
+            }
+            servingMembers.invalidate(path);
+        }
+        servingMemberMisses.incrementAndGet();
+        return null;
+    }
+
+    private void cacheServingMember(String path, RealRepo repo) {
+        if (servingMembers != null) {
+            servingMembers.put(path, repo.getKey());
+        }
+    }
+
+    /**
+     * Searches the resource in a single member, translating the request path to the layout of the member if needed.
+     *
+     * @param retryOriginalPath Whether to search the original path if the translated path was not found
+     */
+    private RepoResource lookupInfo(InternalRequestContext context, RealRepo repo, boolean retryOriginalPath) {
+        InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
+        if (translatedContext instanceof TranslatedArtifactoryRequest) {
+            RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
+                    translatedContext.getResourcePath());
+        }
+        RepoResource res = repo.getInfo(translatedContext);
+
+        //Retry the original path if the path was translated and failed (RTFACT-4329)
+        if (retryOriginalPath && !res.isFound() &&
+                !translatedContext.getResourcePath().equals(context.getResourcePath())) {
+            RepoRequests.logToContext("Unable to find the resource in the translated path - " +
+                    "retrying with the original");
+            res = repo.getInfo(context);
+        }
+        return res;
+    }
+
+    private boolean isSkippedForReleases(RealRepo repo, String path, boolean validModuleInfo) {
+        return validModuleInfo && !repo.isHandleReleases() && !NamingUtils.isChecksum(path);
+    }
+
+    /**
+     * Forgets the member that served the given path, to resolve it again through the members chain.
+     */
+    public void invalidateServingMember(String path) {
+        if (servingMembers != null) {
+            servingMembers.invalidate(path);
+        }
+    }
+
+    /**
+     * Forgets the members that served the given folder and any path under it.
+     */
+    public void invalidateServingMembers(String folderPath) {
+        if (servingMembers != null) {
+            String prefix = folderPath + "/";
+            servingMembers.invalidate(folderPath);
+            servingMembers.asMap().keySet().removeIf(path -> path.startsWith(prefix));
+        }
+    }
+
+    /**
+     * Forgets the members that served any path.
+     */
+    public void invalidateServingMembers() {
+        if (servingMembers != null) {
+            servingMembers.invalidateAll();
+        }
+    }
+
+    public long getServingMemberCacheHits() {
+        return servingMemberHits.get();
+    }
+
+    public long getServingMemberCacheMisses() {
+        return servingMemberMisses.get();
+    }
+
+    public long getServingMemberCacheSize() {
+        return servingMembers == null ? 0 : servingMembers.size();
+    }
+
     //Skip repos that don't handle snapshots and cache repos to allow their remotes' logic to discover newer versions
     //see RTFACT-7095
     private boolean shouldSkipSnapshotRepo(RealRepo repo) {
@@ -468,4 +616,73 @@ public class VirtualRepoDownloadStrategy {
     private boolean isNotSynchronizeProperties(RealRepo repo) {
         return !repo.isLocal() && !((RemoteRepoDescriptor) repo.getDescriptor()).isSynchronizeProperties();
     }
+
+    /**
+     * Lookups of the resource in the members of a single request. When parallel resolution is enabled, all the remote
+     * members that are about to be searched are queried concurrently, while their results are still consumed in the
+     * members order so the configured priority decides which member serves the resource.
+     */
+    private class MemberLookups {
+        private final InternalRequestContext context;
+        private final boolean retryOriginalPath;
+        private final Map<String, Future<RepoResource>> pendingRemotes = Maps.newHashMap();
+        private boolean remotesStarted;
+
+        private MemberLookups(InternalRequestContext context, boolean retryOriginalPath) {
+            this.context = context;
+            this.retryOriginalPath = retryOriginalPath;
+        }
+
+        private boolean isRemotesStarted() {
+            return remotesStarted;
+        }
+
+        private void startRemotes(List<RealRepo> remotes) {
+            remotesStarted = true;
+            if (!ConstantValues.virtualParallelResolution.getBoolean() || remotes.size() < 2) {
+                return;
+            }
+            RepoRequests.logToContext("Searching for the resource within %s remote repositories concurrently",
+                    remotes.size());
+            CachedThreadPoolTaskExecutor executor = ContextHelper.get().beanForType(
+                    CachedThreadPoolTaskExecutor.class);
+            for (RealRepo remote : remotes) {
+                try {
+                    pendingRemotes.put(remote.getKey(),
+                            executor.submit(() -> lookupInfo(context, remote, retryOriginalPath)));
+                } catch (TaskRejectedException e) {
+                    log.debug("Concurrent lookup of '{}' in {} was rejected, searching serially: {}",
+                            context.getResourcePath(), remote.getKey(), e.getMessage());
+                    break;
+                }
+            }
+        }
+
+        private RepoResource getInfo(RealRepo repo) {
+            Future<RepoResource> pending = pendingRemotes.remove(repo.getKey());
+            if (pending == null) {
+                return lookupInfo(context, repo, retryOriginalPath);
+            }
+            try {
+                return pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new UnfoundRepoResource(repo.getRepoPath(context.getResourcePath()),
+                        "Interrupted while searching for the resource");
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        /**
+         * Cancels the lookups that are no longer needed. Lookups that already started are left to complete, the
+         * remote repositories keep their results in their retrieval caches.
+         */
+        private void cancelPending() {
+            for (Future<RepoResource> pending : pendingRemotes.values()) {
+                pending.cancel(false);
+            }
+            pendingRemotes.clear();
+        }
+    }
 }
@@ -23,6 +23,8 @@ package org.artifactory.search;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.api.repo.exception.ItemNotFoundRuntimeException;
 import org.artifactory.api.search.ItemSearchResults;
 import org.artifactory.api.search.artifact.ArtifactSearchControls;
 import org.artifactory.api.search.artifact.ArtifactSearchResult;
@@ -35,7 +37,12 @@ import org.artifactory.sapi.search.VfsQuery;
 import org.artifactory.sapi.search.VfsQueryResult;
 import org.artifactory.sapi.search.VfsQueryResultType;
 import org.artifactory.sapi.search.VfsQueryRow;
+import org.artifactory.search.name.NameSearchIndex;
+import org.artifactory.search.name.NameSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.List;
@@ -45,6 +52,7 @@ import java.util.Map;
  * User: freds Date: Jul 27, 2008 Time: 6:04:39 PM
  */
 public class ArtifactSearcher extends SearcherBase<ArtifactSearchControls, ArtifactSearchResult> {
+    private static final Logger log = LoggerFactory.getLogger(ArtifactSearcher.class);
 
     @Override
     public ItemSearchResults<ArtifactSearchResult> doSearch(ArtifactSearchControls controls) {
@@ -53,6 +61,13 @@ public class ArtifactSearcher extends SearcherBase<ArtifactSearchControls, Artif
         List<ArtifactSearchResult> results = Lists.newArrayList();
         int limit = getLimit(controls);
 
+        if (StringUtils.isBlank(relativePath)) {
+            ItemSearchResults<ArtifactSearchResult> indexResults = searchNameIndex(controls, limit);
+            if (indexResults != null) {
+                return indexResults;
+            }
+        }
+
         VfsQuery query = createQuery(controls);
         if (StringUtils.isNotBlank(relativePath)) {
             query.addPathFilter(relativePath);
@@ -73,6 +88,39 @@ public class ArtifactSearcher extends SearcherBase<ArtifactSearchControls, Artif
         return new ItemSearchResults<>(results, queryResult.getCount());
     }
 
+    /**
+     * Serves contains and suffix name searches from the name search index, which unlike the database query doesn't
+     * scan all the nodes.
+     *
+     * @return The search results, null if the index cannot serve the search
+     */
+    @Nullable
+    private ItemSearchResults<ArtifactSearchResult> searchNameIndex(ArtifactSearchControls controls, int limit) {
+        NameSearchService nameSearchService = ContextHelper.get().beanForType(NameSearchService.class);
+        if (!nameSearchService.canSearch(controls.getQuery())) {
+            return null;
+        }
+        List<String> repoKeys = controls.isSpecificRepoSearch() ? controls.getSelectedRepoForSearch() : null;
+        NameSearchIndex.NameSearchResults found = nameSearchService.search(controls.getQuery(), repoKeys,
+                this::isResultAcceptable, limit);
+        if (found == null) {
+            return null;
+        }
+        List<ArtifactSearchResult> results = Lists.newArrayList();
+        for (RepoPath repoPath : found.getRepoPaths()) {
+            try {
+                ItemInfo item = getRepoService().getItemInfo(repoPath);
+                if (!item.isFolder()) {
+                    results.add(new ArtifactSearchResult(item));
+                }
+            } catch (ItemNotFoundRuntimeException e) {
+                // the index may briefly hold files deleted by other nodes or in rolled back transactions
+                log.debug("Skipping indexed file '{}' which no longer exists", repoPath);
+            }
+        }
+        return new ItemSearchResults<>(results, found.getCandidatesCount());
+    }
+
     /**
      * Searches for artifacts by their checksum values
      *
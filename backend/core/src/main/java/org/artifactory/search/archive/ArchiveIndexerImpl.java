@@ -22,12 +22,17 @@ package org.artifactory.search.archive;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.HaAddon;
 import org.artifactory.addon.ha.HaCommonAddon;
 import org.artifactory.addon.ha.semaphore.SemaphoreWrapper;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
 import org.artifactory.api.context.ContextHelper;
+import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.fs.FileInfo;
@@ -49,24 +54,29 @@ import org.artifactory.schedule.*;
 import org.artifactory.schedule.quartz.QuartzCommand;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.db.DbService;
-import org.artifactory.storage.fs.VfsArchiveFile;
 import org.artifactory.storage.fs.VfsItemNotFoundException;
 import org.artifactory.storage.fs.service.ArchiveEntriesService;
 import org.artifactory.storage.fs.service.FileService;
 import org.artifactory.storage.fs.service.TasksService;
 import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemTree;
+import org.artifactory.util.ZipUtils;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.schedule.StopStrategy.IMPOSSIBLE;
@@ -80,6 +90,8 @@ import static org.artifactory.schedule.StopStrategy.IMPOSSIBLE;
 public class ArchiveIndexerImpl implements InternalArchiveIndexer {
     private static final Logger log = LoggerFactory.getLogger(ArchiveIndexerImpl.class);
 
+    private static final int MAX_PARALLEL_INDEX_ATTEMPTS = 3;
+
     @Autowired
     private TasksService tasksService;
 
@@ -104,6 +116,8 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
     // a semaphore to guard against parallel indexing
     private SemaphoreWrapper indexingSemaphore;
 
+    private final ArchiveIndexingMetrics metrics = new ArchiveIndexingMetrics();
+
     @PostConstruct
     protected void start() {
         TaskBase reindexTask = TaskUtils.createRepeatingTask(ArchiveIndexJob.class,
@@ -143,10 +157,11 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
 
             // start indexing ...
             log.info("Indexing archive: {}", vfsFile);
-            try (VfsArchiveFile archive = new VfsArchiveFile(vfsFile)) {
-                List<? extends ArchiveEntry> entries = archive.entries();
+            // the entries are converted while streaming the archive, so only their paths are kept in memory
+            try (ArchiveInputStream archiveStream = ZipUtils.getArchiveInputStream(vfsFile)) {
                 Set<ZipEntryInfo> zipEntryInfos = Sets.newHashSet();
-                for (ArchiveEntry zipEntry : entries) {
+                ArchiveEntry zipEntry;
+                while ((zipEntry = archiveStream.getNextEntry()) != null) {
                     if (!zipEntry.isDirectory()) {
                         zipEntryInfos.add(new ArchiveEntryImpl(zipEntry));
                     }
@@ -183,26 +198,116 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
             if (indexingQueue.isEmpty()) {
                 return;
             }
-            log.debug("Indexing {} queued items", indexingQueue.size());
+            int workersCount = Math.max(1, Math.min(ConstantValues.archiveIndexerWorkers.getInt(),
+                    indexingQueue.size()));
+            log.debug("Indexing {} queued items with {} workers", indexingQueue.size(), workersCount);
+            metrics.runStarted(indexingQueue.size(), workersCount);
 
             final InternalArchiveIndexer advisedMe = getAdvisedMe();
-            for (RepoPath repoPath : indexingQueue) {
-                try {
+            if (workersCount == 1) {
+                for (RepoPath repoPath : indexingQueue) {
                     if (shouldStop()) {
                         break;  // stop execution if the context is not ready (shutting down, refreshing conf etc.)
                     }
-                    advisedMe.index(repoPath);
-                } catch (Exception e) {
-                    log.error("Exception indexing " + repoPath, e);
-                    forceArchiveIndexerTaskDeletion(repoPath);
+                    indexQueued(advisedMe, repoPath, 1);
                 }
+            } else {
+                indexInParallel(advisedMe, indexingQueue, workersCount);
             }
-            log.debug("Finished indexing {} queued items", indexingQueue.size());
+            metrics.runFinished();
+            log.debug("Finished indexing {} queued items ({} archives/s)", indexingQueue.size(),
+                    String.format("%.2f", metrics.getIndexingRate()));
         } finally {
             getIndexingSemaphore().release();
         }
     }
 
+    /**
+     * Hands each queued archive to exactly one of the indexing workers. The queue is dispatched from the calling task
+     * thread, which is the only one that can check whether the task was paused or stopped, and no more archives than
+     * workers are handed at a time so a stop request doesn't wait for the whole queue.
+     */
+    private void indexInParallel(InternalArchiveIndexer advisedMe, List<RepoPath> indexingQueue, int workersCount) {
+        ExecutorService workers = Executors.newFixedThreadPool(workersCount, new ThreadFactoryBuilder()
+                .setNameFormat("art-archive-indexer-%s").setDaemon(true).build());
+        Semaphore idleWorkers = new Semaphore(workersCount);
+        ArtifactoryContext context = ContextHelper.get();
+        ArtifactoryHome artifactoryHome = ArtifactoryHome.get();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        try {
+            for (RepoPath repoPath : indexingQueue) {
+                if (shouldStop()) {
+                    break;  // stop execution if the context is not ready (shutting down, refreshing conf etc.)
+                }
+                idleWorkers.acquire();
+                try {
+                    workers.execute(() -> {
+                        ArtifactoryContextThreadBinder.bind(context);
+                        ArtifactoryHome.bind(artifactoryHome);
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                        try {
+                            indexQueued(advisedMe, repoPath, MAX_PARALLEL_INDEX_ATTEMPTS);
+                        } finally {
+                            SecurityContextHolder.clearContext();
+                            ArtifactoryHome.unbind();
+                            ArtifactoryContextThreadBinder.unbind();
+                            idleWorkers.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    idleWorkers.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("Archive indexing was interrupted");
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.debug("Waiting for the archive indexing workers to finish");
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Indexes a queued archive, removing it from the queue even if indexing fails.
+     *
+     * @param maxAttempts Number of times to try indexing the archive. Parallel workers retry since archives with the
+     *                    same checksum or entries may be inserted concurrently by another worker's transaction.
+     */
+    private void indexQueued(InternalArchiveIndexer advisedMe, RepoPath repoPath, int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (advisedMe.index(repoPath)) {
+                    metrics.archiveIndexed();
+                } else {
+                    metrics.archiveSkipped();
+                }
+                return;
+            } catch (Exception e) {
+                if (attempt < maxAttempts) {
+                    log.debug("Attempt {} to index {} failed: {}", attempt, repoPath, e.getMessage());
+                } else {
+                    log.error("Exception indexing " + repoPath, e);
+                    metrics.archiveFailed();
+                    forceArchiveIndexerTaskDeletion(repoPath);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public ArchiveIndexingMetrics getMetrics() {
+        return metrics;
+    }
+
     private boolean shouldStop() {
         return !InternalContextHelper.get().isReady() || taskService.pauseOrBreak();
     }
@@ -236,7 +341,7 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
         }
         for (RepoPath repoPath : toIndex) {
             ItemTree itemTree = new ItemTree(repoPath, item -> item.isFolder() || isIndexSupported(item.getRepoPath()));
-            ItemNode rootNode = itemTree.getRootNode();
+            ItemNode rootNode = itemTree.buildTree();
             if (rootNode != null) {
                 log.info("Recursively marking paths under '{}' for archive indexing", repoPath);
                 addIndexTaskRecursively(rootNode);
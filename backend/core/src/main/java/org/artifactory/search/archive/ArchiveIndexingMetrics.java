@@ -0,0 +1,133 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.artifactory.search.archive;
+
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the archive indexing queue runs: how many archives were indexed, skipped or failed, how many are still
+ * waiting in the current run, and the indexing rate of the last run.
+ */
+public class ArchiveIndexingMetrics {
+
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong runIndexed = new AtomicLong();
+    private volatile long runStartTime;
+    private volatile long runEndTime;
+    private volatile int workers;
+
+    /**
+     * Starts a new run of the indexing queue.
+     *
+     * @param queueSize Number of archives queued for indexing
+     * @param workers   Number of archives indexed in parallel
+     */
+    void runStarted(int queueSize, int workers) {
+        this.workers = workers;
+        backlog.set(queueSize);
+        runIndexed.set(0);
+        runStartTime = System.currentTimeMillis();
+        runEndTime = 0;
+    }
+
+    void runFinished() {
+        backlog.set(0);
+        runEndTime = System.currentTimeMillis();
+    }
+
+    void archiveIndexed() {
+        indexed.incrementAndGet();
+        runIndexed.incrementAndGet();
+        backlog.decrementAndGet();
+    }
+
+    void archiveSkipped() {
+        skipped.incrementAndGet();
+        backlog.decrementAndGet();
+    }
+
+    void archiveFailed() {
+        failed.incrementAndGet();
+        backlog.decrementAndGet();
+    }
+
+    public long getIndexedCount() {
+        return indexed.get();
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return Number of queued archives the current run didn't process yet, zero if no run is active
+     */
+    public long getBacklog() {
+        return Math.max(0, backlog.get());
+    }
+
+    /**
+     * @return Archives indexed per second by the current run, or by the last one if no run is active
+     */
+    public double getIndexingRate() {
+        long start = runStartTime;
+        if (start == 0) {
+            return 0;
+        }
+        long end = runEndTime == 0 ? System.currentTimeMillis() : runEndTime;
+        return runIndexed.get() * 1000d / Math.max(1, end - start);
+    }
+
+    public String report() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        long start = runStartTime;
+        long end = runEndTime;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Archive indexing report\n");
+        sb.append("Report time: ").append(sdf.format(System.currentTimeMillis())).append("\n");
+        sb.append("Totals: indexed=").append(getIndexedCount())
+                .append(", skipped=").append(getSkippedCount())
+                .append(", failed=").append(getFailedCount()).append("\n");
+        if (start == 0) {
+            sb.append("No indexing run since startup\n");
+        } else {
+            sb.append(end == 0 ? "Current run: " : "Last run: ").append(sdf.format(start))
+                    .append(end == 0 ? "" : " - " + sdf.format(end))
+                    .append(" (").append(TimeUnit.MILLISECONDS.toSeconds((end == 0 ? System.currentTimeMillis() : end)
+                    - start)).append(" s)\n");
+            sb.append("  workers=").append(workers)
+                    .append(", indexed=").append(runIndexed.get())
+                    .append(", backlog=").append(getBacklog())
+                    .append(", rate=").append(String.format("%.2f", getIndexingRate())).append(" archives/s\n");
+        }
+        return sb.toString();
+    }
+}
@@ -41,4 +41,9 @@ public interface InternalArchiveIndexer extends ArchiveIndexer {
     boolean index(RepoPath archiveRepoPath);
 
     void triggerQueueIndexing();
+
+    /**
+     * @return Counters of the indexed archives and the indexing rate and backlog of the queue runs
+     */
+    ArchiveIndexingMetrics getMetrics();
 }
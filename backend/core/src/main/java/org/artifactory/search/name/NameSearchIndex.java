@@ -0,0 +1,322 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.search.name;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Version;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.RepoPathFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A Lucene index of the file names, used to answer name searches with a leading wildcard (contains and suffix
+ * searches) which no database index can serve.
+ * <p/>
+ * Each file is indexed with the trigrams (3 characters substrings) of its name. A search looks up the files holding
+ * all the trigrams of the literal parts of the pattern, and verifies the candidates against the full pattern, so the
+ * results are exact. Matching is case sensitive, like the database name searches.
+ * <p/>
+ * The index keeps only the repo paths of the files, the items themselves are always read from the database.
+ */
+public class NameSearchIndex implements Closeable {
+
+    static final String KEY = "key";
+    static final String REPO = "repo";
+    static final String PATH = "path";
+    static final String NAME = "name";
+    static final String TRIGRAM = "trigram";
+
+    private static final int TRIGRAM_LENGTH = 3;
+    private static final int MAX_QUERY_TRIGRAMS = 32;
+    private static final int MAX_REPO_CLAUSES = 512;
+    private static final int PAGE_SIZE = 500;
+
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    /**
+     * Opens the index in the given directory, creating it if it doesn't exist.
+     */
+    public NameSearchIndex(File indexDir) throws IOException {
+        directory = FSDirectory.open(indexDir);
+        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_36, new KeywordAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, true, null);
+    }
+
+    /**
+     * @return True if the pattern can be searched with the index: it starts with a wildcard and has at least one
+     * literal part long enough to hold a trigram
+     */
+    public static boolean isSupported(String pattern) {
+        return pattern != null && !pattern.isEmpty() && isWildcard(pattern.charAt(0))
+                && !patternTrigrams(pattern).isEmpty();
+    }
+
+    /**
+     * Adds a file to the index, or updates it if it is already indexed.
+     */
+    public void add(RepoPath repoPath) throws IOException {
+        Document doc = new Document();
+        doc.add(new Field(KEY, toKey(repoPath), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+        doc.add(new Field(REPO, repoPath.getRepoKey(), Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS));
+        doc.add(new Field(PATH, repoPath.getPath(), Field.Store.YES, Field.Index.NO));
+        String name = repoPath.getName();
+        doc.add(new Field(NAME, name, Field.Store.YES, Field.Index.NO));
+        for (String trigram : trigrams(name, new HashSet<>())) {
+            Field field = new Field(TRIGRAM, trigram, Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS);
+            field.setIndexOptions(FieldInfo.IndexOptions.DOCS_ONLY);
+            doc.add(field);
+        }
+        writer.updateDocument(new Term(KEY, toKey(repoPath)), doc);
+    }
+
+    public void remove(RepoPath repoPath) throws IOException {
+        writer.deleteDocuments(new Term(KEY, toKey(repoPath)));
+    }
+
+    /**
+     * Removes all the files under the given folder.
+     */
+    public void removeSubtree(RepoPath folderRepoPath) throws IOException {
+        String prefix = folderRepoPath.isRoot() ? folderRepoPath.getRepoKey() + ":" : toKey(folderRepoPath) + "/";
+        writer.deleteDocuments(new PrefixQuery(new Term(KEY, prefix)));
+    }
+
+    public void removeRepo(String repoKey) throws IOException {
+        writer.deleteDocuments(new Term(REPO, repoKey));
+    }
+
+    /**
+     * Commits the pending changes to the disk.
+     */
+    public void commit() throws IOException {
+        writer.commit();
+    }
+
+    /**
+     * @return Number of files indexed in the given repository
+     */
+    public int count(String repoKey) throws IOException {
+        searcherManager.maybeRefresh();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TotalHitCountCollector collector = new TotalHitCountCollector();
+            searcher.search(new TermQuery(new Term(REPO, repoKey)), collector);
+            return collector.getTotalHits();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * @return Keys of the repositories that have (or recently had) indexed files
+     */
+    public Set<String> getRepoKeys() throws IOException {
+        searcherManager.maybeRefresh();
+        IndexSearcher searcher = searcherManager.acquire();
+        Set<String> repoKeys = new HashSet<>();
+        try {
+            TermEnum terms = searcher.getIndexReader().terms(new Term(REPO, ""));
+            try {
+                do {
+                    Term term = terms.term();
+                    if (term == null || !REPO.equals(term.field())) {
+                        break;
+                    }
+                    repoKeys.add(term.text());
+                } while (terms.next());
+            } finally {
+                terms.close();
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        return repoKeys;
+    }
+
+    /**
+     * Searches the files which names match the given pattern.
+     *
+     * @param pattern  Name pattern, where '*' and '%' match any sequence and '?' and '_' match a single character
+     * @param repoKeys Repositories to search in, null or empty for all
+     * @param filter   Filter applied on the matching files, only accepted files count towards the limit
+     * @param limit    Max number of files to return
+     * @return The accepted files and the number of files holding the pattern trigrams
+     * @see #isSupported(String)
+     */
+    public NameSearchResults search(String pattern, @Nullable Collection<String> repoKeys,
+            Predicate<RepoPath> filter, int limit) throws IOException {
+        Set<String> trigrams = patternTrigrams(pattern);
+        if (trigrams.isEmpty()) {
+            throw new IllegalArgumentException("Pattern '" + pattern + "' has no literal part to search by");
+        }
+        boolean filterRepos = repoKeys != null && !repoKeys.isEmpty();
+        BooleanQuery query = new BooleanQuery();
+        for (String trigram : trigrams) {
+            query.add(new TermQuery(new Term(TRIGRAM, trigram)), BooleanClause.Occur.MUST);
+        }
+        if (filterRepos && repoKeys.size() <= MAX_REPO_CLAUSES) {
+            BooleanQuery reposQuery = new BooleanQuery();
+            for (String repoKey : repoKeys) {
+                reposQuery.add(new TermQuery(new Term(REPO, repoKey)), BooleanClause.Occur.SHOULD);
+            }
+            query.add(reposQuery, BooleanClause.Occur.MUST);
+        }
+        Query constantScoreQuery = new ConstantScoreQuery(query);
+        Pattern namePattern = toRegex(pattern);
+
+        searcherManager.maybeRefresh();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            List<RepoPath> results = new ArrayList<>();
+            ScoreDoc after = null;
+            TopDocs page;
+            do {
+                page = searcher.searchAfter(after, constantScoreQuery, PAGE_SIZE);
+                for (ScoreDoc scoreDoc : page.scoreDocs) {
+                    after = scoreDoc;
+                    Document doc = searcher.doc(scoreDoc.doc);
+                    String repoKey = doc.get(REPO);
+                    if (!namePattern.matcher(doc.get(NAME)).matches() || (filterRepos && !repoKeys.contains(repoKey))) {
+                        continue;
+                    }
+                    RepoPath repoPath = RepoPathFactory.create(repoKey, doc.get(PATH));
+                    if (filter.test(repoPath)) {
+                        results.add(repoPath);
+                        if (results.size() >= limit) {
+                            return new NameSearchResults(results, page.totalHits);
+                        }
+                    }
+                }
+            } while (page.scoreDocs.length == PAGE_SIZE);
+            return new NameSearchResults(results, page.totalHits);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            searcherManager.close();
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+
+    static Set<String> patternTrigrams(String pattern) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (isWildcard(c)) {
+                trigrams(literal, trigrams);
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        trigrams(literal, trigrams);
+        if (trigrams.size() > MAX_QUERY_TRIGRAMS) {
+            // candidates are verified against the full pattern anyway
+            return new LinkedHashSet<>(new ArrayList<>(trigrams).subList(0, MAX_QUERY_TRIGRAMS));
+        }
+        return trigrams;
+    }
+
+    static Pattern toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (isWildcard(c)) {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' || c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static Set<String> trigrams(CharSequence text, Set<String> trigrams) {
+        for (int i = 0; i + TRIGRAM_LENGTH <= text.length(); i++) {
+            trigrams.add(text.subSequence(i, i + TRIGRAM_LENGTH).toString());
+        }
+        return trigrams;
+    }
+
+    private static boolean isWildcard(char c) {
+        return c == '*' || c == '?' || c == '%' || c == '_';
+    }
+
+    private static String toKey(RepoPath repoPath) {
+        return repoPath.getRepoKey() + ":" + repoPath.getPath();
+    }
+
+    /**
+     * Files found by a name search
+     */
+    public static class NameSearchResults {
+        private final List<RepoPath> repoPaths;
+        private final int candidatesCount;
+
+        NameSearchResults(List<RepoPath> repoPaths, int candidatesCount) {
+            this.repoPaths = repoPaths;
+            this.candidatesCount = candidatesCount;
+        }
+
+        public List<RepoPath> getRepoPaths() {
+            return repoPaths;
+        }
+
+        /**
+         * @return Number of indexed files holding all the trigrams of the pattern, before verifying and filtering them
+         */
+        public int getCandidatesCount() {
+            return candidatesCount;
+        }
+    }
+}
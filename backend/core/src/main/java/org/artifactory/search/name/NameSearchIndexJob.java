@@ -0,0 +1,56 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.search.name;
+
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.schedule.JobCommand;
+import org.artifactory.schedule.TaskUser;
+import org.artifactory.schedule.quartz.QuartzCommand;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/**
+ * A quartz command job that periodically checks the name search index against the database and repairs it. When
+ * started manually with the {@link #REPO_KEYS} attribute it rebuilds the index of these repositories instead.
+ *
+ * @see NameSearchService#checkIndex()
+ * @see NameSearchService#callManualIndexRebuild
+ */
+@JobCommand(singleton = true,
+        schedulerUser = TaskUser.SYSTEM,
+        manualUser = TaskUser.SYSTEM,
+        description = "Name Search Index Check Job",
+        runOnlyOnPrimary = false)
+public class NameSearchIndexJob extends QuartzCommand {
+
+    public static final String REPO_KEYS = "repoKeys";
+
+    @Override
+    protected void onExecute(JobExecutionContext callbackContext) throws JobExecutionException {
+        NameSearchService nameSearchService = ContextHelper.get().beanForType(NameSearchService.class);
+        String[] repoKeys = (String[]) callbackContext.getJobDetail().getJobDataMap().get(REPO_KEYS);
+        if (repoKeys != null) {
+            nameSearchService.rebuildIndex(repoKeys);
+        } else {
+            nameSearchService.checkIndex();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.search.name;
+
+import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.spring.ReloadableBean;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Maintains the {@link NameSearchIndex} of the local and cache repositories files, and serves the name searches
+ * with a leading wildcard from it.
+ *
+ * @see org.artifactory.common.ConstantValues#searchNameIndexEnabled
+ */
+public interface NameSearchService extends ReloadableBean {
+
+    /**
+     * @return True if the index is enabled and can serve searches of the given name pattern
+     */
+    boolean canSearch(String namePattern);
+
+    /**
+     * Searches the files which names match the given pattern.
+     *
+     * @param repoKeys Repositories to search in, null or empty for all
+     * @param filter   Filter applied on the matching files, only accepted files count towards the limit
+     * @return The found files, null if the index could not be searched and the caller should query the database
+     */
+    @Nullable
+    NameSearchIndex.NameSearchResults search(String namePattern, @Nullable Collection<String> repoKeys,
+            Predicate<RepoPath> filter, int limit);
+
+    void fileCreated(RepoPath repoPath);
+
+    void fileDeleted(RepoPath repoPath);
+
+    /**
+     * Removes all the files under a deleted or moved folder
+     */
+    void folderDeleted(RepoPath repoPath);
+
+    /**
+     * Compares the number of indexed files of each repository with the database and reindexes the repositories
+     * that stay inconsistent between two checks. Called periodically by the {@link NameSearchIndexJob}.
+     */
+    void checkIndex();
+
+    /**
+     * Schedules a manual {@link NameSearchIndexJob} that rebuilds the index of the given repositories
+     *
+     * @param repoKeys Repositories to reindex, empty for all the indexed repositories
+     * @return The token of the started task, null if it could not be started
+     */
+    @Nullable
+    String callManualIndexRebuild(MutableStatusHolder statusHolder, List<String> repoKeys);
+
+    /**
+     * Drops the index of the given repositories (all of them if none given) and indexes their files again. Called by
+     * the {@link NameSearchIndexJob} when started by {@link #callManualIndexRebuild}.
+     */
+    void rebuildIndex(String... repoKeys);
+}
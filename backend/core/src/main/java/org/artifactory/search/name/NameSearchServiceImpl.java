@@ -0,0 +1,314 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.search.name;
+
+import org.apache.http.HttpStatus;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.descriptor.config.CentralConfigDescriptor;
+import org.artifactory.descriptor.repo.LocalRepoDescriptor;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.RepoPathFactory;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.repo.trash.TrashService;
+import org.artifactory.schedule.TaskBase;
+import org.artifactory.schedule.TaskService;
+import org.artifactory.schedule.TaskUtils;
+import org.artifactory.spring.Reloadable;
+import org.artifactory.storage.fs.service.FileService;
+import org.artifactory.version.CompoundVersionDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the name search index under the data folder. The storage interceptor updates the index on every file change
+ * done by this node, and the {@link NameSearchIndexJob} repairs what it missed (e.g. changes done by other cluster
+ * nodes or rolled back transactions). Searches are served from the index only after the first check completed.
+ *
+ * @see NameSearchIndex
+ */
+@Service
+@Reloadable(beanClass = NameSearchService.class,
+        initAfter = {TaskService.class, InternalRepositoryService.class})
+public class NameSearchServiceImpl implements NameSearchService {
+    private static final Logger log = LoggerFactory.getLogger(NameSearchServiceImpl.class);
+
+    private static final String INDEX_DIR_NAME = "nameindex";
+
+    @Autowired
+    private InternalRepositoryService repositoryService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private TaskService taskService;
+
+    private volatile NameSearchIndex index;
+    private volatile boolean ready;
+    /**
+     * Repositories which counts didn't match on the last check
+     */
+    private Set<String> suspectRepos = new HashSet<>();
+    private final Semaphore maintenanceSemaphore = new Semaphore(1);
+
+    @Override
+    public void init() {
+        if (!ConstantValues.searchNameIndexEnabled.getBoolean()) {
+            return;
+        }
+        File indexDir = new File(ArtifactoryHome.get().getDataDir(), INDEX_DIR_NAME);
+        try {
+            index = new NameSearchIndex(indexDir);
+        } catch (IOException e) {
+            log.error("Could not open the name search index at '{}', name searches will query the database: {}",
+                    indexDir.getAbsolutePath(), e.getMessage());
+            log.debug("Could not open the name search index", e);
+            return;
+        }
+        long intervalMillis = TimeUnit.SECONDS.toMillis(ConstantValues.searchNameIndexCheckIntervalSecs.getLong());
+        TaskBase checkTask = TaskUtils.createRepeatingTask(NameSearchIndexJob.class, intervalMillis,
+                TimeUnit.MINUTES.toMillis(1));
+        taskService.startTask(checkTask, false);
+    }
+
+    @Override
+    public void reload(CentralConfigDescriptor oldDescriptor) {
+    }
+
+    @Override
+    public void destroy() {
+        NameSearchIndex currentIndex = index;
+        index = null;
+        ready = false;
+        if (currentIndex != null) {
+            try {
+                currentIndex.close();
+            } catch (IOException e) {
+                log.warn("Could not close the name search index: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void convert(CompoundVersionDetails source, CompoundVersionDetails target) {
+    }
+
+    @Override
+    public boolean canSearch(String namePattern) {
+        return ready && index != null && NameSearchIndex.isSupported(namePattern);
+    }
+
+    @Override
+    @Nullable
+    public NameSearchIndex.NameSearchResults search(String namePattern, @Nullable Collection<String> repoKeys,
+            Predicate<RepoPath> filter, int limit) {
+        NameSearchIndex currentIndex = index;
+        if (currentIndex == null) {
+            return null;
+        }
+        try {
+            return currentIndex.search(namePattern, repoKeys, filter, limit);
+        } catch (IOException e) {
+            log.warn("Could not search the name search index for '{}': {}", namePattern, e.getMessage());
+            log.debug("Could not search the name search index", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void fileCreated(RepoPath repoPath) {
+        NameSearchIndex currentIndex = index;
+        if (currentIndex != null && isIndexedRepo(repoPath.getRepoKey())) {
+            try {
+                currentIndex.add(repoPath);
+            } catch (IOException e) {
+                log.warn("Could not add '{}' to the name search index: {}", repoPath, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void fileDeleted(RepoPath repoPath) {
+        NameSearchIndex currentIndex = index;
+        if (currentIndex != null) {
+            try {
+                currentIndex.remove(repoPath);
+            } catch (IOException e) {
+                log.warn("Could not remove '{}' from the name search index: {}", repoPath, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void folderDeleted(RepoPath repoPath) {
+        NameSearchIndex currentIndex = index;
+        if (currentIndex != null) {
+            try {
+                currentIndex.removeSubtree(repoPath);
+            } catch (IOException e) {
+                log.warn("Could not remove '{}' from the name search index: {}", repoPath, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void checkIndex() {
+        NameSearchIndex currentIndex = index;
+        if (currentIndex == null) {
+            return;
+        }
+        if (!maintenanceSemaphore.tryAcquire()) {
+            log.debug("Name search index check requested, but the index is already being checked or rebuilt.");
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            currentIndex.commit();
+            Set<String> repoKeys = getIndexedRepoKeys();
+            for (String indexedRepoKey : currentIndex.getRepoKeys()) {
+                if (!repoKeys.contains(indexedRepoKey) && currentIndex.count(indexedRepoKey) > 0) {
+                    log.debug("Removing files of the no longer existing repository '{}' from the name search index",
+                            indexedRepoKey);
+                    currentIndex.removeRepo(indexedRepoKey);
+                }
+            }
+            Set<String> inconsistentRepos = new HashSet<>();
+            List<String> reposToRebuild = new ArrayList<>();
+            for (String repoKey : repoKeys) {
+                int dbCount = fileService.getFilesCount(RepoPathFactory.create(repoKey, ""));
+                int indexCount = currentIndex.count(repoKey);
+                if (dbCount != indexCount) {
+                    // a single mismatch may come from changes in progress, only rebuild when it stays inconsistent
+                    if (indexCount == 0 || suspectRepos.contains(repoKey)) {
+                        reposToRebuild.add(repoKey);
+                    } else {
+                        inconsistentRepos.add(repoKey);
+                    }
+                }
+            }
+            suspectRepos = inconsistentRepos;
+            for (String repoKey : reposToRebuild) {
+                indexRepo(currentIndex, repoKey);
+            }
+            currentIndex.commit();
+            ready = true;
+            log.debug("Name search index checked in {} ms, {} repositories reindexed",
+                    System.currentTimeMillis() - start, reposToRebuild.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not check the name search index: {}", e.getMessage());
+            log.debug("Could not check the name search index", e);
+        } finally {
+            maintenanceSemaphore.release();
+        }
+    }
+
+    @Override
+    public String callManualIndexRebuild(MutableStatusHolder statusHolder, List<String> repoKeys) {
+        if (index == null) {
+            statusHolder.error("The name search index is disabled", HttpStatus.SC_CONFLICT, log);
+            return null;
+        }
+        taskService.checkCanStartManualTask(NameSearchIndexJob.class, statusHolder);
+        if (!statusHolder.isError()) {
+            try {
+                log.info("Rebuilding the name search index of {} manually",
+                        repoKeys.isEmpty() ? "all the repositories" : repoKeys);
+                TaskBase task = TaskUtils.createManualTask(NameSearchIndexJob.class, 0L);
+                task.addAttribute(NameSearchIndexJob.REPO_KEYS, repoKeys.toArray(new String[repoKeys.size()]));
+                return taskService.startTask(task, true, true);
+            } catch (Exception e) {
+                statusHolder.error("Error scheduling the name search index rebuild", e, log);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void rebuildIndex(String... repoKeys) {
+        NameSearchIndex currentIndex = index;
+        if (currentIndex == null) {
+            return;
+        }
+        try {
+            maintenanceSemaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            Collection<String> reposToRebuild = repoKeys.length > 0 ? Arrays.asList(repoKeys) : getIndexedRepoKeys();
+            for (String repoKey : reposToRebuild) {
+                indexRepo(currentIndex, repoKey);
+            }
+            currentIndex.commit();
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not rebuild the name search index: {}", e.getMessage());
+            log.debug("Could not rebuild the name search index", e);
+        } finally {
+            maintenanceSemaphore.release();
+        }
+    }
+
+    private void indexRepo(NameSearchIndex currentIndex, String repoKey) throws IOException {
+        log.info("Indexing the files of '{}' for name searches", repoKey);
+        currentIndex.removeRepo(repoKey);
+        try {
+            fileService.visitSubtree(RepoPathFactory.create(repoKey, ""), item -> {
+                if (!item.isFolder()) {
+                    try {
+                        currentIndex.add(item.getRepoPath());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Set<String> getIndexedRepoKeys() {
+        Set<String> repoKeys = new HashSet<>();
+        for (LocalRepoDescriptor descriptor : repositoryService.getLocalAndCachedRepoDescriptors()) {
+            if (isIndexedRepo(descriptor.getKey())) {
+                repoKeys.add(descriptor.getKey());
+            }
+        }
+        return repoKeys;
+    }
+
+    private boolean isIndexedRepo(String repoKey) {
+        return !TrashService.TRASH_KEY.equals(repoKey);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.security.service.AclCache;
+import org.artifactory.util.CompiledPathMatcher;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Permission decisions state that is valid for a single version of the {@link AclCache}:
+ * <ul>
+ * <li>The include/exclude patterns of every permission target, compiled once into a {@link CompiledPathMatcher}</li>
+ * <li>A bounded memo of repo path permission decisions, keyed by the checked sids, repo path and permission</li>
+ * </ul>
+ * A new instance must be created whenever the ACL cache or the repositories configuration (which affects the
+ * logical "any local/remote" repo keys) changes.
+ */
+class PermissionDecisionCache {
+
+    private final AclCache aclCache;
+    private final ConcurrentMap<String, CompiledPathMatcher> matchers = new ConcurrentHashMap<>();
+    private final Cache<DecisionKey, Boolean> decisions;
+
+    /**
+     * @param aclCache     The ACL cache this instance is valid for
+     * @param maxDecisions Maximum number of memoized decisions, 0 to disable decisions memoization
+     */
+    PermissionDecisionCache(AclCache aclCache, long maxDecisions) {
+        this.aclCache = aclCache;
+        this.decisions = maxDecisions > 0 ? CacheBuilder.newBuilder().maximumSize(maxDecisions).build() : null;
+    }
+
+    AclCache getAclCache() {
+        return aclCache;
+    }
+
+    boolean isValidFor(AclCache currentAclCache) {
+        return aclCache == currentAclCache;
+    }
+
+    /**
+     * @return The compiled include/exclude patterns of the permission target
+     */
+    CompiledPathMatcher getMatcher(PermissionTargetInfo permissionTarget) {
+        return matchers.computeIfAbsent(permissionTarget.getName(),
+                name -> CompiledPathMatcher.compile(permissionTarget.getIncludes(), permissionTarget.getExcludes()));
+    }
+
+    /**
+     * Returns the memoized decision for the sids, repo path and permission, or computes and memoizes it.
+     */
+    boolean isGranted(Set<ArtifactorySid> sids, RepoPath repoPath, ArtifactoryPermission permission,
+            BooleanSupplier decision) {
+        if (decisions == null) {
+            return decision.getAsBoolean();
+        }
+        DecisionKey key = new DecisionKey(sids, repoPath, permission);
+        Boolean granted = decisions.getIfPresent(key);
+        if (granted == null) {
+            granted = decision.getAsBoolean();
+            decisions.put(key, granted);
+        }
+        return granted;
+    }
+
+    long size() {
+        return decisions == null ? 0 : decisions.size();
+    }
+
+    private static class DecisionKey {
+        private final Set<ArtifactorySid> sids;
+        private final String repoKey;
+        private final String path;
+        private final boolean folder;
+        private final ArtifactoryPermission permission;
+        private final int hashCode;
+
+        private DecisionKey(Set<ArtifactorySid> sids, RepoPath repoPath, ArtifactoryPermission permission) {
+            this.sids = sids;
+            this.repoKey = repoPath.getRepoKey();
+            this.path = repoPath.getPath();
+            this.folder = repoPath.isFolder();
+            this.permission = permission;
+            int result = sids.hashCode();
+            result = 31 * result + repoKey.hashCode();
+            result = 31 * result + path.hashCode();
+            result = 31 * result + (folder ? 1 : 0);
+            result = 31 * result + permission.hashCode();
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DecisionKey that = (DecisionKey) o;
+            return hashCode == that.hashCode && folder == that.folder && permission == that.permission &&
+                    repoKey.equals(that.repoKey) && path.equals(that.path) && sids.equals(that.sids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -179,6 +179,8 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     private TreeSet<SecurityListener> securityListeners = new TreeSet<>();
 
+    private volatile PermissionDecisionCache permissionDecisionCache;
+
     /**
      * @param user The authentication token.
      * @return An array of sids of the current user and all it's groups.
@@ -207,10 +209,6 @@ public class SecurityServiceImpl implements InternalSecurityService {
         return (SimpleUser) authentication.getPrincipal();
     }
 
-    private static boolean matches(PermissionTargetInfo aclPermissionTarget, String path, boolean folder) {
-        return PathMatcher.matches(path, aclPermissionTarget.getIncludes(), aclPermissionTarget.getExcludes(), folder);
-    }
-
     private static XStream getXstream() {
         return InfoFactoryHolder.get().getSecurityXStream();
     }
@@ -250,10 +248,16 @@ public class SecurityServiceImpl implements InternalSecurityService {
         taskService.startTask(passwordExpireNotificationJob, false);
 
         initResetPasswordCache(getPasswordResetPolicy(centralConfig.getDescriptor()));
+
+        if (ConstantValues.securityPrincipalCacheWarmUp.getBoolean()) {
+            userGroupStoreService.warmUpPrincipalCache();
+        }
     }
 
     @Override
     public void reload(CentralConfigDescriptor oldDescriptor) {
+        // Repositories might have changed, invalidate the permission decisions
+        permissionDecisionCache = null;
         // Need to check if security conf changed then clear security caches
         if (!centralConfig.getDescriptor().getSecurity().equals(oldDescriptor.getSecurity())) {
             clearSecurityListeners();
@@ -1964,6 +1968,69 @@ public class SecurityServiceImpl implements InternalSecurityService {
         return bestScore;
     }
 
+    @Override
+    public Map<String, PermissionHeuristicScore> getReadPermissionScores(Collection<String> repoKeys) {
+        Map<String, PermissionHeuristicScore> scores = new HashMap<>();
+        Authentication authentication = AuthenticationHelper.getAuthentication();
+        // Same order of checks as hasPermission(repoPath, permission)
+        boolean noAccess = !isAuthenticated(authentication);
+        boolean admin = !noAccess && isAdmin(authentication);
+        noAccess |= !admin && isAnonymous() && !isAnonAccessEnabled();
+        PermissionDecisionCache decisionCache = getPermissionDecisionCache();
+        Set<ArtifactorySid> sids = noAccess || admin ? Collections.emptySet() :
+                getUserEffectiveSids(getSimpleUser(authentication));
+        for (String repoKey : repoKeys) {
+            if (admin) {
+                scores.put(repoKey, PermissionHeuristicScore.admin);
+            } else if (noAccess || TrashService.TRASH_KEY.equals(repoKey)) {
+                scores.put(repoKey, PermissionHeuristicScore.readNotAllowed);
+            } else {
+                scores.put(repoKey, getReadPermissionScore(decisionCache, repoKey, sids));
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Goes over the same acls as {@link #getAndCheckAllUserAcls} would for any path in the repository: the repository
+     * is readable as a whole if one of the acls granting read on it matches all the paths.
+     */
+    private PermissionHeuristicScore getReadPermissionScore(PermissionDecisionCache decisionCache, String repoKey,
+            Set<ArtifactorySid> sids) {
+        String aclCompatibleRepoKey = makeRemoteRepoKeyAclCompatible(repoKey);
+        String[] checkedRepos = {repoKey, PermissionTargetInfo.ANY_LOCAL_REPO, PermissionTargetInfo.ANY_REMOTE_REPO,
+                PermissionTargetInfo.ANY_REPO};
+        PermissionHeuristicScore score = PermissionHeuristicScore.readNotAllowed;
+        for (ArtifactorySid sid : sids) {
+            Map<String, Set<AclInfo>> repoSidAcls =
+                    getAclCacheRelevantMap(decisionCache.getAclCache(), sid).get(sid.getPrincipal());
+            if (repoSidAcls == null) {
+                continue;
+            }
+            for (String checkedRepo : checkedRepos) {
+                Collection<AclInfo> acls = repoSidAcls.get(checkedRepo);
+                if (acls == null) {
+                    acls = repoSidAcls.get(makeRemoteRepoKeyAclCompatible(checkedRepo));
+                }
+                if (acls == null) {
+                    continue;
+                }
+                for (AclInfo acl : acls) {
+                    PermissionTargetInfo permissionTarget = acl.getPermissionTarget();
+                    if ((isPermissionTargetIncludesRepoKey(repoKey, permissionTarget)
+                            || isPermissionTargetIncludesRepoKey(aclCompatibleRepoKey, permissionTarget))
+                            && isGranted(acl, ArtifactoryPermission.READ, sid)) {
+                        if (decisionCache.getMatcher(permissionTarget).isMatchAll()) {
+                            return PermissionHeuristicScore.readAll;
+                        }
+                        score = PermissionHeuristicScore.readWithExclusion;
+                    }
+                }
+            }
+        }
+        return score;
+    }
+
     /**
      * Aggregate all aclInfo of a repo + Any_Repo + Any_Local_Repo into one set
      */
@@ -2135,40 +2202,65 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     private boolean isGranted(
             RepoPath repoPath, ArtifactoryPermission permission, Set<ArtifactorySid> sids) {
-        AclCache aclCache = aclStoreService.getAclCache();
+        PermissionDecisionCache decisionCache = getPermissionDecisionCache();
+        return decisionCache.isGranted(sids, repoPath, permission,
+                () -> isGranted(decisionCache, repoPath, permission, sids));
+    }
+
+    private boolean isGranted(PermissionDecisionCache decisionCache, RepoPath repoPath,
+            ArtifactoryPermission permission, Set<ArtifactorySid> sids) {
+        AclCache aclCache = decisionCache.getAclCache();
         for (ArtifactorySid sid : sids) {
             Map<String, Map<String, Set<AclInfo>>> map = getAclCacheRelevantMap(aclCache, sid);
-            if (getAndCheckAllUserAcls(repoPath, permission, sid, map)) {
+            if (getAndCheckAllUserAcls(decisionCache, repoPath, permission, sid, map)) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean getAndCheckAllUserAcls(RepoPath repoPath, ArtifactoryPermission permission, ArtifactorySid sid,
-            Map<String, Map<String, Set<AclInfo>>> map) {
+    /**
+     * Returns the permission decisions state of the current ACL cache version, creating a new one if the ACL cache
+     * changed since it was created. Configuration changes (which may add or remove repositories) discard it on reload.
+     */
+    private PermissionDecisionCache getPermissionDecisionCache() {
+        AclCache aclCache = aclStoreService.getAclCache();
+        PermissionDecisionCache current = permissionDecisionCache;
+        if (current == null || !current.isValidFor(aclCache)) {
+            current = new PermissionDecisionCache(aclCache,
+                    ConstantValues.securityPermissionDecisionCacheSize.getLong());
+            permissionDecisionCache = current;
+        }
+        return current;
+    }
+
+    private boolean getAndCheckAllUserAcls(PermissionDecisionCache decisionCache, RepoPath repoPath,
+            ArtifactoryPermission permission, ArtifactorySid sid, Map<String, Map<String, Set<AclInfo>>> map) {
         Map<String, Set<AclInfo>> repoSidAcls = map.get(sid.getPrincipal());
         if (repoSidAcls != null) {
-            if (getAndCheckAcl(repoPath.getRepoKey(), repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(decisionCache, repoPath.getRepoKey(), repoSidAcls, repoPath, permission, sid)) {
                 return true;
             }
             // check if user has any local repo permission
-            if (getAndCheckAcl(PermissionTargetInfo.ANY_LOCAL_REPO, repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(decisionCache, PermissionTargetInfo.ANY_LOCAL_REPO, repoSidAcls, repoPath, permission,
+                    sid)) {
                 return true;
             }
             // check if user has any remote repo permission
-            if (getAndCheckAcl(PermissionTargetInfo.ANY_REMOTE_REPO, repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(decisionCache, PermissionTargetInfo.ANY_REMOTE_REPO, repoSidAcls, repoPath, permission,
+                    sid)) {
                 return true;
             }
-            if (getAndCheckAcl(PermissionTargetInfo.ANY_REPO, repoSidAcls, repoPath, permission, sid)) {
+            if (getAndCheckAcl(decisionCache, PermissionTargetInfo.ANY_REPO, repoSidAcls, repoPath, permission, sid)) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean getAndCheckAcl(String checkedRepo, Map<String, Set<AclInfo>> repoSidAcls, RepoPath repoPath,
-            ArtifactoryPermission permission, ArtifactorySid sid) {
+    private boolean getAndCheckAcl(PermissionDecisionCache decisionCache, String checkedRepo,
+            Map<String, Set<AclInfo>> repoSidAcls, RepoPath repoPath, ArtifactoryPermission permission,
+            ArtifactorySid sid) {
         Collection<AclInfo> allItemAcls = repoSidAcls.get(checkedRepo);
         // cached remote repos can still produce null maps (RTFACT-6939). check on remote compatible repos instead.
         if (allItemAcls == null) {
@@ -2176,15 +2268,22 @@ public class SecurityServiceImpl implements InternalSecurityService {
             allItemAcls = repoSidAcls.get(remoteRepoKey);
         }
         if (allItemAcls != null) {
-            if (permissionCheckOnAcl(allItemAcls, repoPath, permission, sid)) {
+            if (permissionCheckOnAcl(decisionCache, allItemAcls, repoPath, permission, sid)) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean permissionCheckOnAcl(Collection<AclInfo> allAcls, RepoPath repoPath,
-            ArtifactoryPermission permission, ArtifactorySid sid) {
+    private boolean permissionCheckOnAcl(PermissionDecisionCache decisionCache, Collection<AclInfo> allAcls,
+            RepoPath repoPath, ArtifactoryPermission permission, ArtifactorySid sid) {
+        String repoKey = repoPath.getRepoKey();
+        String aclCompatibleRepoKey = makeRemoteRepoKeyAclCompatible(repoKey);  //acl compatible key for remotes
+        String path = repoPath.getPath();
+        boolean folder = repoPath.isFolder();
+        boolean checkPartialPath = (permission.getMask() &
+                (ArtifactoryPermission.READ.getMask() | ArtifactoryPermission.DEPLOY.getMask())) != 0;
+        boolean behaveAsFolder = folder && checkPartialPath;
         for (AclInfo acl : allAcls) {
 
             if (!(acl instanceof ImmutableAclInfo)) {
@@ -2193,17 +2292,10 @@ public class SecurityServiceImpl implements InternalSecurityService {
                                 + " should use only immutable security objects not " + acl.getClass());
                 log.error(runtimeException.getMessage(), runtimeException);
             }
-            String repoKey = repoPath.getRepoKey();
-            String aclCompatibleRepoKey = makeRemoteRepoKeyAclCompatible(repoKey);  //acl compatible key for remotes
-            String path = repoPath.getPath();
-            boolean folder = repoPath.isFolder();
             PermissionTargetInfo aclPermissionTarget = acl.getPermissionTarget();
             if (isPermissionTargetIncludesRepoKey(repoKey, aclPermissionTarget)
                     || isPermissionTargetIncludesRepoKey(aclCompatibleRepoKey, aclPermissionTarget)) {
-                boolean checkPartialPath = (permission.getMask() &
-                        (ArtifactoryPermission.READ.getMask() | ArtifactoryPermission.DEPLOY.getMask())) != 0;
-                boolean behaveAsFolder = folder && checkPartialPath;
-                boolean match = matches(aclPermissionTarget, path, behaveAsFolder);
+                boolean match = decisionCache.getMatcher(aclPermissionTarget).matches(path, behaveAsFolder);
                 if (match) {
                     if (isGranted(acl, permission, sid)) {
                         return true;
@@ -105,10 +105,7 @@ public class StatsDelegatingServiceImpl extends AbstractStatsService implements
     public synchronized void fileDownloaded(RepoPath repoPath, String downloadedBy, long downloadedTime) {
         log.debug("Queuing downloaded delegation for resource '{}' by '{}' at '{}'", repoPath, downloadedBy, downloadedTime);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, null));
-        }
+        StatsEvent statsEvent = getOrCreateStatsEvent(repoPath, key -> new StatsEvent(key, null));
         statsEvent.update(downloadedBy, null, null, downloadedTime, 1);
     }
 
@@ -130,10 +127,7 @@ public class StatsDelegatingServiceImpl extends AbstractStatsService implements
         log.debug("Queuing download delegation for resource '{}' downloaded remotely by '{}', at '{}', from {}, count: '{}'",
                 repoPath, downloadedBy, downloadedTime, origin, count);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, origin));
-        }
+        StatsEvent statsEvent = getOrCreateStatsEvent(repoPath, key -> new StatsEvent(key, origin));
         statsEvent.update(downloadedBy, origin, path, downloadedTime, count);
     }
 
@@ -6,6 +6,7 @@
 
 package org.artifactory.work.queue;
 
+import com.google.common.collect.MapMaker;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.HaAddon;
 import org.artifactory.addon.ha.HaLocking;
@@ -16,17 +17,31 @@ import org.jfrog.storage.common.LockingMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
+ * A work queue which coalesces identical work items.
+ * <p>
+ * Pending work items are kept by their unique key in insertion order. A work item identical to a pending one is
+ * associated to the pending entry instead of being queued again, so adding, promoting and removing work are constant
+ * time operations regardless of the number of duplicates. Work items added while an identical item is running are
+ * kept pending and executed after the running one is done.
+ * <p>
+ * Threads waiting for a work item subscribe to the completion future shared by all the items of the entry.
+ *
  * @author Gidi Shabat
  * @author Dan Feldman
  */
@@ -34,9 +49,25 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
     private static final Logger log = LoggerFactory.getLogger(NonBlockingOnWriteQueue.class);
 
     private final LockingMap lockingMap;
-    private final ConcurrentLinkedQueue<T> pendingQueue;
-    private final Set<WorkQueuePromotedItem<T>> promotedWorkItems;
-    private boolean running = true;
+    /**
+     * Pending entries by work item unique key, in insertion order. Guarded by itself.
+     */
+    private final LinkedHashMap<String, WorkQueuePromotedItem<T>> pending = new LinkedHashMap<>();
+    /**
+     * Entries promoted by this node by work item unique key
+     */
+    private final Map<String, WorkQueuePromotedItem<T>> promotedWorkItems = new ConcurrentHashMap<>();
+    /**
+     * Completion futures of the pending and running work items. Weak keys are compared by identity, which is what's
+     * needed here since waiters wait for the exact work item they added.
+     */
+    private final ConcurrentMap<T, CompletableFuture<Void>> completions = new MapMaker().weakKeys().makeMap();
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong promotedCount = new AtomicLong();
+    private final AtomicLong totalQueueLatencyNanos = new AtomicLong();
+    private final AtomicLong maxQueueLatencyNanos = new AtomicLong();
+    private volatile boolean running = true;
 
     /**
      * Constructor package limited
@@ -46,12 +77,10 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
     NonBlockingOnWriteQueue(String name) {
         lockingMap = ContextHelper.get().beanForType(AddonsManager.class).addonByType(HaAddon.class)
                 .getLockingMapFactory().getLockingMap(name);
-        pendingQueue = new ConcurrentLinkedQueue<>();
-        promotedWorkItems = new CopyOnWriteArraySet<>();
     }
 
     /**
-     * Adds new Item to queue. (pending)
+     * Adds new Item to queue (pending). An item identical to a pending one is coalesced into the pending entry.
      */
     boolean addToPending(T workItem) {
         if (!running) {
@@ -59,115 +88,150 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
             return false;
         }
         log.trace("adding {}: to queue", workItem);
-        boolean result = pendingQueue.add(workItem);
-        log.trace("added {} to queue, success: {}", workItem, result);
-        return result;
+        enqueuedCount.incrementAndGet();
+        synchronized (pending) {
+            WorkQueuePromotedItem<T> entry = pending.get(workItem.getUniqueKey());
+            if (entry == null) {
+                entry = new WorkQueuePromotedItem<>(workItem);
+                pending.put(entry.getKey(), entry);
+            } else {
+                entry.pendingWorkItemsAssociated.add(workItem);
+                coalescedCount.incrementAndGet();
+                log.trace("coalesced {} with pending work", workItem);
+            }
+            completions.put(workItem, entry.completion);
+        }
+        log.trace("added {} to queue", workItem);
+        return true;
     }
 
     /**
-     * Changes the workItem state from pending to running
+     * Changes the state of the next pending work from pending to running
      */
     public WorkQueuePromotedItem<T> promote() {
         if (!running) {
             log.debug("Trying to promote a queue item when queue being stopped");
             return null;
         }
-        T workItem = acquireLockOnKey();
-        //TODO [by dan]: propagate event to all HA nodes to clear the workItem from their own queue
-        //TODO or if lock couldn't be acquired clear current work item from queue (+ notify)?
-        if (workItem != null) {
-            log.trace("promoting  {}: workItem", workItem);
-            WorkQueuePromotedItem<T> promotedItem = new WorkQueuePromotedItem<>(workItem,
-                    pendingQueue.stream().filter(pendingItem -> pendingItem.equals(workItem))
-                            .collect(Collectors.toList()));
-            if (!promotedWorkItems.add(promotedItem)) {
-                // There should be only one promoted item with the same key
-                // Removing lock to make sure it does not leak
-                lockingMap.removeAndUnlock(workItem.getUniqueKey());
-                throw new IllegalStateException("There can be only one process running work for " + workItem);
+        // Some of the work items might be locked by other nodes. Those are returned to the end of the queue, and each
+        // pending entry is tried at most once.
+        int attempts;
+        synchronized (pending) {
+            attempts = pending.size();
+        }
+        for (int i = 0; i < attempts && running; i++) {
+            WorkQueuePromotedItem<T> promotedItem = pollPending();
+            if (promotedItem == null) {
+                return null;
             }
-            pendingQueue.removeIf(t -> {
-                if (t.equals(workItem)) {
-                    // Be aware that ref equality is what's needed here
-                    for (T t1 : promotedItem.pendingWorkItemsAssociated) {
-                        if (t == t1) {
-                            return true;
-                        }
-                    }
+            //TODO [by dan]: propagate event to all HA nodes to clear the workItem from their own queue
+            if (acquireLockOnKey(promotedItem.getKey())) {
+                log.trace("promoting  {}: workItem", promotedItem.workItem);
+                if (promotedWorkItems.putIfAbsent(promotedItem.getKey(), promotedItem) != null) {
+                    // There should be only one promoted item with the same key
+                    // Removing lock to make sure it does not leak
+                    lockingMap.removeAndUnlock(promotedItem.getKey());
+                    throw new IllegalStateException(
+                            "There can be only one process running work for " + promotedItem.workItem);
                 }
-                return false;
-            });
-            return promotedItem;
+                recordPromotion(promotedItem);
+                return promotedItem;
+            }
+            returnToPending(promotedItem);
         }
         return null;
     }
 
     /**
-     * The method tries to acquire lock on one of the queue workItems
+     * Removes and returns the first pending entry which is not already running on this node
      */
-    private T acquireLockOnKey() {
-        if (!running) {
-            log.debug("Trying to acquire lock on a queue item when queue being stopped");
+    @Nullable
+    private WorkQueuePromotedItem<T> pollPending() {
+        synchronized (pending) {
+            Iterator<WorkQueuePromotedItem<T>> entries = pending.values().iterator();
+            while (entries.hasNext()) {
+                WorkQueuePromotedItem<T> entry = entries.next();
+                // identical work already running here, it will be promoted after the running one is removed
+                if (!promotedWorkItems.containsKey(entry.getKey())) {
+                    entries.remove();
+                    return entry;
+                }
+            }
             return null;
         }
-        // Some of the workItems might be temporary locked by other workers
-        // Try to acquire lock on one of the workItems in pendingQueue
-        for (T workItem : pendingQueue) {
-            boolean acquired = false;
-            try {
-                long leasetTimeout = ConstantValues.workItemMaxLockLeaseTime.getLong();
-                if (lockingMap instanceof HaLocking) {
-                    // For HA env, we have lease timeout.
-                    acquired = lockingMap.tryAddAndLock(workItem.getUniqueKey(), 0, SECONDS, leasetTimeout, MINUTES);
-                } else {
-                    acquired = lockingMap.tryAddAndLock(workItem.getUniqueKey(), 0, SECONDS);
-                }
-            } catch (InterruptedException e) {
-                log.error("Failed to acquire lock for workItem {}", workItem);
+    }
+
+    /**
+     * Returns an entry that couldn't be promoted to the end of the queue, merging items added meanwhile
+     */
+    private void returnToPending(WorkQueuePromotedItem<T> entry) {
+        synchronized (pending) {
+            WorkQueuePromotedItem<T> added = pending.remove(entry.getKey());
+            if (added != null) {
+                entry.pendingWorkItemsAssociated.addAll(added.pendingWorkItemsAssociated);
+                added.pendingWorkItemsAssociated.forEach(workItem -> completions.put(workItem, entry.completion));
+                entry.completion.whenComplete((result, error) -> added.completion.complete(null));
             }
-            // Successfully acquire lock on workItem the return the workItem else try another workItem
-            if (acquired) {
-                return workItem;
+            pending.put(entry.getKey(), entry);
+        }
+    }
+
+    /**
+     * The method tries to acquire lock on the key of a work item
+     */
+    private boolean acquireLockOnKey(String key) {
+        try {
+            long leasetTimeout = ConstantValues.workItemMaxLockLeaseTime.getLong();
+            if (lockingMap instanceof HaLocking) {
+                // For HA env, we have lease timeout.
+                return lockingMap.tryAddAndLock(key, 0, SECONDS, leasetTimeout, MINUTES);
+            } else {
+                return lockingMap.tryAddAndLock(key, 0, SECONDS);
             }
+        } catch (InterruptedException e) {
+            log.error("Failed to acquire lock for workItem {}", key);
+            return false;
+        }
+    }
+
+    private void recordPromotion(WorkQueuePromotedItem<T> promotedItem) {
+        promotedCount.incrementAndGet();
+        long latency = System.nanoTime() - promotedItem.enqueuedNanos;
+        totalQueueLatencyNanos.addAndGet(latency);
+        long max;
+        while (latency > (max = maxQueueLatencyNanos.get()) && !maxQueueLatencyNanos.compareAndSet(max, latency)) {
+            // retry until this latency is recorded as the max or a bigger one was recorded
         }
-        return null;
     }
 
     /**
      * Remove workItem from queue
      */
     public boolean remove(WorkQueuePromotedItem<T> promotedItem) {
-        try {
-            promotedWorkItems.remove(promotedItem);
-            finishedWithPromotedWorkItem(promotedItem);
-        } catch (Exception e) {
-            log.info("Exception while notifying work item  waiters " + promotedItem.workItem + " on remove: " +
-                    e.getMessage(), e);
-        }
+        promotedWorkItems.remove(promotedItem.getKey(), promotedItem);
+        boolean unlocked;
         try {
             log.trace("removing workItem {}.", promotedItem.workItem);
-            lockingMap.removeAndUnlock(promotedItem.workItem.getUniqueKey());
+            lockingMap.removeAndUnlock(promotedItem.getKey());
             log.trace("removed workItem {}.", promotedItem.workItem);
-            return true;
+            unlocked = true;
         } catch (Exception e) {
             log.info("Exception while unlocking work item " + promotedItem.workItem + " on remove: " + e.getMessage(),
                     e);
-            return false;
+            unlocked = false;
         }
+        finishedWithPromotedWorkItem(promotedItem);
+        return unlocked;
     }
 
     /**
-     * {@param promotedWorkItem} may contain identical work items, each of them may have threads polling on them to
-     * complete.
-     * This method notifies all polling threads on any work item that is marked as being polled on.
+     * {@param promotedWorkItem} may contain identical work items, each of them may have threads waiting on them to
+     * complete. This method completes the future all the waiting threads subscribed to.
      */
     private void finishedWithPromotedWorkItem(WorkQueuePromotedItem<T> promotedWorkItem) {
         promotedWorkItem.pendingWorkItemsAssociated
-                .forEach(polledWorkItem -> {
-                    synchronized (polledWorkItem) {
-                        polledWorkItem.notifyAll();
-                    }
-                });
+                .forEach(workItem -> completions.remove(workItem, promotedWorkItem.completion));
+        promotedWorkItem.completion.complete(null);
     }
 
     /**
@@ -175,8 +239,13 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
      */
     public void stop() {
         running = false;
-        pendingQueue.clear();
-        List<WorkQueuePromotedItem<T>> list = new ArrayList<>(promotedWorkItems);
+        List<WorkQueuePromotedItem<T>> pendingEntries;
+        synchronized (pending) {
+            pendingEntries = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        pendingEntries.forEach(this::finishedWithPromotedWorkItem);
+        List<WorkQueuePromotedItem<T>> list = new ArrayList<>(promotedWorkItems.values());
         for (WorkQueuePromotedItem<T> promotedItem : list) {
             remove(promotedItem);
         }
@@ -185,9 +254,8 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
     /**
      * Returns the running size of the queue
      *
-     * BEWARE: This method calls non-constant time operations on the queue and the locking map, in HA scenarios the
-     * results from the locking map reflect tasks running on this node and others as well as well as the pending tasks
-     * on this node alone - refrain from using this outside of tests!
+     * BEWARE: This method calls non-constant time operations on the locking map, in HA scenarios the results from the
+     * locking map reflect tasks running on this node and others as well - refrain from using this outside of tests!
      */
     public int getRunningSize() {
         int result;
@@ -198,92 +266,70 @@ public class NonBlockingOnWriteQueue<T extends WorkItem> {
     }
 
     /**
-     * Returns the pending size of the queue
-     *
-     * BEWARE: This method calls non-constant time operations on the queue and the locking map, in HA scenarios the
-     * results from the locking map reflect tasks running on this node and others as well as well as the pending tasks
-     * on this node alone - refrain from using this outside of tests!
+     * Returns the number of pending work entries on this node (identical work items are counted once)
      */
     public int getQueueSize() {
-        return pendingQueue.size();
+        synchronized (pending) {
+            return pending.size();
+        }
     }
 
     /**
      * Check if a specific work item is in pending or working queue
      *
      * @param workItem the exact work item by Java reference
-     * @return true if pending, false otherwise
+     * @return true if pending or running, false otherwise
      */
     public boolean contains(T workItem) {
         if (!running) {
             log.debug("Trying to check for contains a queue item when queue being stopped");
             return false;
         }
-        for (T item : pendingQueue) {
-            // Be aware that ref equality is what's needed here
-            if (item == workItem) {
-                return true;
-            }
-        }
-        // The lock is used to make sure a promotion is not half in process
-        if (lockingMap.isLocked(workItem.getUniqueKey())) {
-            PromotedFoundItems promotedFoundItems = new PromotedFoundItems(workItem).invoke();
-            if (!promotedFoundItems.isFoundCurrentWork()) {
-                // Lock but no promoted entry, means still not inserted in promoted map
-                Thread.yield();
-                if (lockingMap.isLocked(workItem.getUniqueKey())) {
-                    // Try one more time only
-                    promotedFoundItems = new PromotedFoundItems(workItem).invoke();
-                    return promotedFoundItems.isFoundExactWorkItem();
-                } else {
-                    // Work done
-                    return false;
-                }
-            }
-            if (promotedFoundItems.isFoundExactWorkItem()) {
-                return true;
-            }
-        }
-        return false;
+        return completions.containsKey(workItem);
     }
 
-    private class PromotedFoundItems {
-        private boolean foundCurrentWork = false;
-        private boolean foundExactWorkItem = false;
+    /**
+     * @param workItem the exact work item by Java reference
+     * @return Future completed when the work item is done, null if the work item is not pending or running
+     */
+    @Nullable
+    public CompletableFuture<Void> getCompletion(T workItem) {
+        return completions.get(workItem);
+    }
 
-        public PromotedFoundItems(T workItem) {
-            for (WorkQueuePromotedItem<T> promotedItem : promotedWorkItems) {
-                // Be aware that here it's unique key equality. There should be only one here
-                if (promotedItem.workItem.equals(workItem)) {
-                    foundCurrentWork = true;
-                    // Be aware that ref equality is what's needed here
-                    if (promotedItem.workItem == workItem) {
-                        foundExactWorkItem = true;
-                    } else {
-                        // Find in associated work items
-                        for (T item : promotedItem.pendingWorkItemsAssociated) {
-                            if (item == workItem) {
-                                foundExactWorkItem = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * @return Number of work items added to the queue
+     */
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
 
-        public boolean isFoundCurrentWork() {
-            return foundCurrentWork;
-        }
+    /**
+     * @return Number of work items which were coalesced with an identical pending work item
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
 
-        public boolean isFoundExactWorkItem() {
-            return foundExactWorkItem;
-        }
+    /**
+     * @return Number of work entries promoted to running
+     */
+    public long getPromotedCount() {
+        return promotedCount.get();
+    }
 
-        public PromotedFoundItems invoke() {
-            foundCurrentWork = false;
-            foundExactWorkItem = false;
-            return this;
-        }
+    /**
+     * @return Average time in milliseconds between adding work and its promotion
+     */
+    public long getAverageQueueLatencyMillis() {
+        long promoted = promotedCount.get();
+        return promoted == 0 ? 0 : NANOSECONDS.toMillis(totalQueueLatencyNanos.get() / promoted);
+    }
+
+    /**
+     * @return Max time in milliseconds between adding work and its promotion
+     */
+    public long getMaxQueueLatencyMillis() {
+        return NANOSECONDS.toMillis(maxQueueLatencyNanos.get());
     }
 }
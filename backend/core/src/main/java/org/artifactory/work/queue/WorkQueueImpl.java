@@ -13,7 +13,11 @@ import org.artifactory.work.queue.mbean.WorkQueueMBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -139,20 +143,46 @@ public class WorkQueueImpl<T extends WorkItem> implements WorkQueue<T>, WorkQueu
         return name;
     }
 
+    @Override
+    public long getEnqueuedCount() {
+        return queue.getEnqueuedCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return queue.getCoalescedCount();
+    }
+
+    @Override
+    public long getPromotedCount() {
+        return queue.getPromotedCount();
+    }
+
+    @Override
+    public long getAverageQueueLatencyMillis() {
+        return queue.getAverageQueueLatencyMillis();
+    }
+
+    @Override
+    public long getMaxQueueLatencyMillis() {
+        return queue.getMaxQueueLatencyMillis();
+    }
+
     @Override
     public void waitForItemDone(T workItem) {
-        if (queue.contains(workItem)) {
+        // Pending or running => Wait on work item
+        CompletableFuture<Void> completion = queue.getCompletion(workItem);
+        if (completion != null) {
             long timeout = ConstantValues.workQueueSyncExecutionTimeoutMillis.getLong();
-            // Pending or running => Wait on work item
-            synchronized (workItem) {
-                if (queue.contains(workItem)) {
-                    try {
-                        workItem.wait(timeout);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(
-                                "Work Item " + workItem + " did not finished completion in " + timeout + "ms", e);
-                    }
-                }
+            try {
+                completion.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(
+                        "Work Item " + workItem + " did not finished completion in " + timeout + "ms", e);
+            } catch (TimeoutException e) {
+                log.debug("{}: work item {} did not finish in {}ms", name, workItem, timeout);
+            } catch (ExecutionException e) {
+                log.debug("{}: work item {} completed exceptionally", name, workItem, e);
             }
         }
     }
@@ -2,16 +2,18 @@ package org.artifactory.work.queue;
 
 import org.artifactory.api.repo.WorkItem;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A promoted item signifies a work queue item that has been promoted from 'pending' to 'executing'.
  * It also holds a list of all other identical work items that have threads polling on them for the execution to finish.
- * The duplicates were collected during the change in state and have been deleted from the pending items queue so that
- * no duplicates remain when calculation of the item has started.
+ * Identical work items are coalesced into the same entry when they are added to the pending items, so that no
+ * duplicates remain when calculation of the item has started.
  *
- * At the end of the execution notifyAll() is called on each item in the 'polled' list.
+ * At the end of the execution the completion future shared by all the associated items is completed.
  *
  * @author Gidi Shabat
  * @author Dan Feldman
@@ -19,11 +21,24 @@ import java.util.Objects;
 class WorkQueuePromotedItem<T extends WorkItem> {
 
     final T workItem;
+    /**
+     * All the identical work items, including the first one. Modified only while the entry is pending.
+     */
     final List<T> pendingWorkItemsAssociated;
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    /**
+     * Time the first work item was added to the queue
+     */
+    final long enqueuedNanos = System.nanoTime();
 
-    WorkQueuePromotedItem(T workItem, List<T> pendingWorkItemsAssociated) {
+    WorkQueuePromotedItem(T workItem) {
         this.workItem = Objects.requireNonNull(workItem, "Work item cannot be null");
-        this.pendingWorkItemsAssociated = pendingWorkItemsAssociated;
+        this.pendingWorkItemsAssociated = new ArrayList<>();
+        this.pendingWorkItemsAssociated.add(workItem);
+    }
+
+    String getKey() {
+        return workItem.getUniqueKey();
     }
 
     @Override
@@ -14,4 +14,9 @@ public interface WorkQueueMBean {
     int getNumberOfWorkers();
     int getMaxNumberOfWorkers();
     String getName();
+    long getEnqueuedCount();
+    long getCoalescedCount();
+    long getPromotedCount();
+    long getAverageQueueLatencyMillis();
+    long getMaxQueueLatencyMillis();
 }
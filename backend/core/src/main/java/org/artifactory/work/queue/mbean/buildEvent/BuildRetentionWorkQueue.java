@@ -32,4 +32,29 @@ public class BuildRetentionWorkQueue implements BuildRetentionWorkQueueMBean {
     public String getName() {
         return workQueueMBean.getName();
     }
-}
\ No newline at end of file
+
+    @Override
+    public long getEnqueuedCount() {
+        return workQueueMBean.getEnqueuedCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
+    @Override
+    public long getPromotedCount() {
+        return workQueueMBean.getPromotedCount();
+    }
+
+    @Override
+    public long getAverageQueueLatencyMillis() {
+        return workQueueMBean.getAverageQueueLatencyMillis();
+    }
+
+    @Override
+    public long getMaxQueueLatencyMillis() {
+        return workQueueMBean.getMaxQueueLatencyMillis();
+    }
+}
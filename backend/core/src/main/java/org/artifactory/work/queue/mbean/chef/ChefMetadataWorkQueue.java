@@ -36,4 +36,29 @@ public class ChefMetadataWorkQueue implements ChefMetadataWorkQueueMBean {
         return workQueueMBean.getName();
     }
 
+
+    @Override
+    public long getEnqueuedCount() {
+        return workQueueMBean.getEnqueuedCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
+    @Override
+    public long getPromotedCount() {
+        return workQueueMBean.getPromotedCount();
+    }
+
+    @Override
+    public long getAverageQueueLatencyMillis() {
+        return workQueueMBean.getAverageQueueLatencyMillis();
+    }
+
+    @Override
+    public long getMaxQueueLatencyMillis() {
+        return workQueueMBean.getMaxQueueLatencyMillis();
+    }
 }
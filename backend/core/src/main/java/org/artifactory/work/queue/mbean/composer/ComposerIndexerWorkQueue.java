@@ -32,4 +32,29 @@ public class ComposerIndexerWorkQueue implements ComposerIndexerWorkQueueMBean {
     public String getName() {
         return workQueueMBean.getName();
     }
+
+    @Override
+    public long getEnqueuedCount() {
+        return workQueueMBean.getEnqueuedCount();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return workQueueMBean.getCoalescedCount();
+    }
+
+    @Override
+    public long getPromotedCount() {
+        return workQueueMBean.getPromotedCount();
+    }
+
+    @Override
+    public long getAverageQueueLatencyMillis() {
+        return workQueueMBean.getAverageQueueLatencyMillis();
+    }
+
+    @Override
+    public long getMaxQueueLatencyMillis() {
+        return workQueueMBean.getMaxQueueLatencyMillis();
+    }
 }
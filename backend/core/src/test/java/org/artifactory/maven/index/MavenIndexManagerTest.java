@@ -0,0 +1,361 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.maven.index;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+import org.apache.maven.index.updater.DefaultIndexUpdater;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.fs.MutableFileInfo;
+import org.artifactory.fs.MutableFolderInfo;
+import org.artifactory.fs.RepoResource;
+import org.artifactory.io.SimpleResourceStreamHandle;
+import org.artifactory.maven.index.creator.VfsMinimalArtifactInfoIndexCreator;
+import org.artifactory.mime.MavenNaming;
+import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.LocalRepo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.request.InternalRequestContext;
+import org.artifactory.schedule.TaskService;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.storage.fs.VfsItemNotFoundException;
+import org.artifactory.storage.fs.service.ArchiveEntriesService;
+import org.artifactory.storage.fs.service.FileService;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.artifactory.util.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the incremental maven indexing of a local repository: {@link RepoIndexer} updates the previously saved index
+ * and {@link MavenIndexManager} saves the incremental chunks and removes the ones past the retention limit.
+ */
+@Test
+public class MavenIndexManagerTest extends ArtifactoryHomeBoundTest {
+    private static final String REPO_KEY = "libs";
+    private static final String INDEX_GZ = MavenNaming.NEXUS_INDEX_GZ_PATH;
+    private static final String INDEX_PROPERTIES = MavenNaming.NEXUS_INDEX_PROPERTIES_PATH;
+
+    private File tempDir;
+    /**
+     * The items of the repository by path, as returned by the file service
+     */
+    private Map<RepoPath, ItemInfo> items;
+    /**
+     * The content of the files saved by the index manager by path
+     */
+    private Map<String, byte[]> savedFiles;
+    private LocalRepo repo;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        tempDir = java.nio.file.Files.createTempDirectory("maven-index-test").toFile();
+        items = new HashMap<>();
+        savedFiles = new TreeMap<>();
+        addFolder(new RepoPathImpl(REPO_KEY, ""));
+        repo = createRepo();
+        bindContext();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ArtifactoryContextThreadBinder.unbind();
+        FileUtils.deleteQuietly(tempDir);
+    }
+
+    public void fullIndexWhenNoPreviousIndex() throws Exception {
+        addArtifact("a", past());
+        addArtifact("b", past());
+
+        assertTrue(index());
+
+        assertEquals(indexedArtifacts(), set("a", "b"));
+        assertTrue(savedChunks().isEmpty());
+        assertTrue(listedChunks().isEmpty());
+    }
+
+    public void unchangedIndexIsNotSaved() throws Exception {
+        addArtifact("a", past());
+        assertTrue(index());
+        byte[] previousIndex = savedFiles.get(INDEX_GZ);
+
+        assertFalse(index(), "The index should be skipped when nothing changed");
+
+        assertSame(savedFiles.get(INDEX_GZ), previousIndex);
+        assertTrue(savedChunks().isEmpty());
+    }
+
+    public void removedArtifactIsRemovedFromIndex() throws Exception {
+        addArtifact("a", past());
+        addArtifact("b", past());
+        assertTrue(index());
+
+        removeArtifact("b");
+        assertTrue(index());
+
+        assertEquals(indexedArtifacts(), set("a"));
+        assertEquals(savedChunks().size(), 1, "The removal should be published as a chunk");
+        assertEquals(listedChunks(), savedChunks());
+    }
+
+    public void addedArtifactIsAddedToIndex() throws Exception {
+        addArtifact("a", past());
+        assertTrue(index());
+
+        addArtifact("b", now());
+        assertTrue(index());
+
+        assertEquals(indexedArtifacts(), set("a", "b"));
+        assertEquals(savedChunks().size(), 1);
+    }
+
+    public void chunksPastRetentionAreRemoved() throws Exception {
+        homeStub.setProperty(ConstantValues.mvnIndexerMaxChunks, "2");
+        addArtifact("a", past());
+        assertTrue(index());
+
+        addArtifact("b", now());
+        assertTrue(index());
+        Set<String> firstChunks = savedChunks();
+        assertEquals(firstChunks.size(), 1);
+        String firstChunk = firstChunks.iterator().next();
+
+        addArtifact("c", now());
+        assertTrue(index());
+        assertEquals(savedChunks().size(), 2);
+        assertTrue(savedChunks().contains(firstChunk));
+
+        addArtifact("d", now());
+        assertTrue(index());
+        assertEquals(savedChunks().size(), 2, "Only the last 2 chunks should be kept");
+        assertFalse(savedChunks().contains(firstChunk), "The oldest chunk should be removed");
+        assertEquals(listedChunks(), savedChunks());
+        assertEquals(indexedArtifacts(), set("a", "b", "c", "d"));
+    }
+
+    public void corruptPreviousIndexIsRebuilt() throws Exception {
+        addArtifact("a", past());
+        addArtifact("b", past());
+        savedFiles.put(INDEX_GZ, "not an index".getBytes());
+        savedFiles.put(INDEX_PROPERTIES, "not properties".getBytes());
+
+        assertTrue(index());
+
+        assertEquals(indexedArtifacts(), set("a", "b"));
+        assertTrue(savedChunks().isEmpty(), "A rebuilt index has no incremental chunks");
+    }
+
+    private boolean index() {
+        MavenIndexManager indexManager = new MavenIndexManager(repo);
+        indexManager.createLocalIndex(new Date(), false);
+        return indexManager.saveIndexFiles();
+    }
+
+    private long past() {
+        return System.currentTimeMillis() - 60000;
+    }
+
+    /**
+     * @return The current time, after the last indexing time
+     */
+    private long now() throws InterruptedException {
+        Thread.sleep(10);
+        return System.currentTimeMillis();
+    }
+
+    private void addArtifact(String artifactId, long created) {
+        RepoPath versionFolder = new RepoPathImpl(REPO_KEY, "org/acme/" + artifactId + "/1.0");
+        for (RepoPath folder = versionFolder; !folder.isRoot(); folder = folder.getParent()) {
+            if (!items.containsKey(folder)) {
+                addFolder(folder);
+            }
+        }
+        MutableFileInfo file = InfoFactoryHolder.get().createFileInfo(
+                new RepoPathImpl(versionFolder, artifactId + "-1.0.jar"));
+        file.setCreated(created);
+        file.setLastModified(created);
+        file.setSize(10);
+        items.put(file.getRepoPath(), file);
+    }
+
+    private void removeArtifact(String artifactId) {
+        items.remove(new RepoPathImpl(REPO_KEY, "org/acme/" + artifactId + "/1.0/" + artifactId + "-1.0.jar"));
+    }
+
+    private void addFolder(RepoPath repoPath) {
+        MutableFolderInfo folder = InfoFactoryHolder.get().createFolderInfo(repoPath);
+        folder.setCreated(past());
+        items.put(repoPath, folder);
+    }
+
+    private static Set<String> set(String... artifactIds) {
+        return new HashSet<>(Arrays.asList(artifactIds));
+    }
+
+    /**
+     * @return The artifact ids found in the saved index
+     */
+    private Set<String> indexedArtifacts() throws Exception {
+        RepoIndexer verifier = new RepoIndexer(repo);
+        File verifyDir = Files.createRandomDir(tempDir, "verify");
+        List<IndexCreator> creators = Collections.singletonList(new VfsMinimalArtifactInfoIndexCreator());
+        IndexingContext context = verifier.createIndexingContext("verify", "verify", new File(verifyDir, "repo"),
+                new File(verifyDir, "context"), null, null, true, true, creators);
+        Set<String> artifactIds = new HashSet<>();
+        try (FSDirectory unpacked = FSDirectory.open(new File(verifyDir, "unpacked"))) {
+            DefaultIndexUpdater.unpackIndexData(new ByteArrayInputStream(savedFiles.get(INDEX_GZ)), unpacked,
+                    context);
+            IndexReader reader = IndexReader.open(unpacked);
+            try {
+                for (int i = 0; i < reader.maxDoc(); i++) {
+                    String uinfo = reader.isDeleted(i) ? null : reader.document(i).get(ArtifactInfo.UINFO);
+                    if (uinfo != null) {
+                        artifactIds.add(uinfo.split("\\|")[1]);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            verifier.closeIndexingContext(context, true);
+        }
+        return artifactIds;
+    }
+
+    /**
+     * @return The names of the chunk files saved in the index folder
+     */
+    private Set<String> savedChunks() {
+        return savedFiles.keySet().stream()
+                .filter(path -> path.startsWith(MavenNaming.NEXUS_INDEX_DIR + "/"))
+                .map(path -> path.substring(MavenNaming.NEXUS_INDEX_DIR.length() + 1))
+                .filter(name -> RepoIndexer.INDEX_CHUNK_PATTERN.matcher(name).matches())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return The names of the chunk files listed by the saved index properties
+     */
+    private Set<String> listedChunks() throws Exception {
+        Properties properties = new Properties();
+        properties.load(new StringReader(new String(savedFiles.get(INDEX_PROPERTIES), "ISO-8859-1")));
+        return properties.stringPropertyNames().stream()
+                .filter(name -> name.startsWith("nexus.index.incremental-"))
+                .map(name -> MavenNaming.NEXUS_INDEX_PREFIX + "." + properties.getProperty(name) + ".gz")
+                .collect(Collectors.toSet());
+    }
+
+    private List<ItemInfo> childrenOf(RepoPath folder) {
+        return items.values().stream()
+                .filter(item -> folder.equals(item.getRepoPath().getParent()))
+                .collect(Collectors.toList());
+    }
+
+    private LocalRepo createRepo() throws Exception {
+        LocalRepo localRepo = createNiceMock(LocalRepo.class);
+        expect(localRepo.getKey()).andReturn(REPO_KEY).anyTimes();
+        expect(localRepo.isLocal()).andReturn(true).anyTimes();
+        expect(localRepo.getRepoPath(anyObject(String.class)))
+                .andAnswer(() -> new RepoPathImpl(REPO_KEY, (String) getCurrentArguments()[0])).anyTimes();
+        expect(localRepo.getInfo(anyObject(InternalRequestContext.class))).andAnswer(() -> {
+            String path = ((InternalRequestContext) getCurrentArguments()[0]).getResourcePath();
+            RepoResource resource = createNiceMock(RepoResource.class);
+            expect(resource.isFound()).andReturn(savedFiles.containsKey(path)).anyTimes();
+            replay(resource);
+            return resource;
+        }).anyTimes();
+        expect(localRepo.getResourceStreamHandle(anyObject(InternalRequestContext.class), anyObject(RepoResource.class)))
+                .andAnswer(() -> {
+                    String path = ((InternalRequestContext) getCurrentArguments()[0]).getResourcePath();
+                    return new SimpleResourceStreamHandle(new ByteArrayInputStream(savedFiles.get(path)));
+                }).anyTimes();
+        replay(localRepo);
+        return localRepo;
+    }
+
+    private void bindContext() throws Exception {
+        FileService fileService = createNiceMock(FileService.class);
+        expect(fileService.loadItem(anyObject(RepoPath.class))).andAnswer(() -> {
+            ItemInfo item = items.get((RepoPath) getCurrentArguments()[0]);
+            if (item == null) {
+                throw new VfsItemNotFoundException("Not found: " + getCurrentArguments()[0]);
+            }
+            return item;
+        }).anyTimes();
+        expect(fileService.loadChildren(anyObject(RepoPath.class)))
+                .andAnswer(() -> childrenOf((RepoPath) getCurrentArguments()[0])).anyTimes();
+
+        ArchiveEntriesService archiveEntriesService = createNiceMock(ArchiveEntriesService.class);
+        expect(archiveEntriesService.getArchiveEntries(anyString())).andReturn(Collections.emptySet()).anyTimes();
+
+        InternalRepositoryService repositoryService = createNiceMock(InternalRepositoryService.class);
+        repositoryService.saveFileInternal(anyObject(RepoPath.class), anyObject(InputStream.class));
+        expectLastCall().andAnswer(() -> {
+            RepoPath repoPath = (RepoPath) getCurrentArguments()[0];
+            savedFiles.put(repoPath.getPath(), IOUtils.toByteArray((InputStream) getCurrentArguments()[1]));
+            return null;
+        }).anyTimes();
+        expect(repositoryService.getChildrenNames(anyObject(RepoPath.class))).andAnswer(() -> {
+            String folderPath = ((RepoPath) getCurrentArguments()[0]).getPath() + "/";
+            return savedFiles.keySet().stream()
+                    .filter(path -> path.startsWith(folderPath))
+                    .map(path -> path.substring(folderPath.length()))
+                    .collect(Collectors.toList());
+        }).anyTimes();
+        expect(repositoryService.undeploy(anyObject(RepoPath.class), eq(false), eq(false))).andAnswer(() -> {
+            savedFiles.remove(((RepoPath) getCurrentArguments()[0]).getPath());
+            return null;
+        }).anyTimes();
+
+        ArtifactoryHome artifactoryHome = createNiceMock(ArtifactoryHome.class);
+        expect(artifactoryHome.getTempWorkDir()).andReturn(tempDir).anyTimes();
+
+        InternalArtifactoryContext context = createNiceMock(InternalArtifactoryContext.class);
+        expect(context.beanForType(FileService.class)).andReturn(fileService).anyTimes();
+        expect(context.beanForType(ArchiveEntriesService.class)).andReturn(archiveEntriesService).anyTimes();
+        expect(context.beanForType(InternalRepositoryService.class)).andReturn(repositoryService).anyTimes();
+        expect(context.getTaskService()).andReturn(createNiceMock(TaskService.class)).anyTimes();
+        expect(context.getArtifactoryHome()).andReturn(artifactoryHome).anyTimes();
+        replay(fileService, archiveEntriesService, repositoryService, artifactoryHome, context);
+        ArtifactoryContextThreadBinder.bind(context);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo;
+
+import com.google.common.collect.Sets;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.addon.AddonsManager;
+import org.artifactory.addon.HaAddon;
+import org.artifactory.addon.debian.DebianAddon;
+import org.artifactory.addon.plugin.PluginsAddon;
+import org.artifactory.api.context.ArtifactoryContext;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.checksum.ChecksumInfo;
+import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.descriptor.repo.HttpRepoDescriptor;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.fs.MutableFileInfo;
+import org.artifactory.fs.RepoResource;
+import org.artifactory.io.SimpleResourceStreamHandle;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.request.InternalRequestContext;
+import org.artifactory.request.Request;
+import org.artifactory.request.RequestContext;
+import org.artifactory.resource.FileResource;
+import org.artifactory.resource.RemoteRepoResource;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.artifactory.resource.UnfoundRepoResource;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.artifactory.traffic.TrafficService;
+import org.artifactory.util.RepoLayoutUtils;
+import org.easymock.EasyMock;
+import org.jfrog.storage.common.core.JvmLockingMapFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the streaming of remote resources while they are being cached ({@link ConstantValues#remoteStreamWhileCaching})
+ * through {@link RemoteRepoBase#downloadAndSave(InternalRequestContext, RepoResource)}.
+ */
+public class RemoteRepoBaseStreamingTest extends ArtifactoryHomeBoundTest {
+    private static final String PATH = "test/test/1.0/test-1.0.jar";
+
+    private final InternalArtifactoryContext context = EasyMock.createNiceMock(InternalArtifactoryContext.class);
+    private final AddonsManager addonsManager = EasyMock.createNiceMock(AddonsManager.class);
+    private final HaAddon haAddon = EasyMock.createNiceMock(HaAddon.class);
+    private final DebianAddon debianAddon = EasyMock.createNiceMock(DebianAddon.class);
+    private final PluginsAddon pluginsAddon = EasyMock.createNiceMock(PluginsAddon.class);
+    private final TrafficService trafficService = EasyMock.createNiceMock(TrafficService.class);
+    private final InternalRepositoryService internalRepoService =
+            EasyMock.createNiceMock(InternalRepositoryService.class);
+    private final LocalCacheRepo localCacheRepo = EasyMock.createNiceMock(LocalCacheRepo.class);
+    private final InternalRequestContext requestContext = EasyMock.createNiceMock(InternalRequestContext.class);
+    private final Request request = EasyMock.createNiceMock(Request.class);
+
+    private final RepoPath remoteRepoPath = InternalRepoPathFactory.create("remote-repo", PATH);
+    private final RepoPath cacheRepoPath = InternalRepoPathFactory.create("remote-repo-cache", PATH);
+    private final byte[] content = new byte[100000];
+
+    // the cache content and where it was saved from
+    private final AtomicReference<byte[]> cached = new AtomicReference<>();
+    private final AtomicReference<Thread> savingThread = new AtomicReference<>();
+    private final AtomicReference<ArtifactoryContext> savingContext = new AtomicReference<>();
+
+    private CachedThreadPoolTaskExecutor poolExecutor;
+    private CachedThreadPoolTaskExecutor rejectingExecutor;
+    private volatile CachedThreadPoolTaskExecutor executor;
+    private HttpRepo httpRepo;
+
+    @BeforeClass
+    public void setup() throws Exception {
+        bindArtifactoryHome();
+        new Random().nextBytes(content);
+        ArtifactoryContextThreadBinder.bind(context);
+        poolExecutor = new CachedThreadPoolTaskExecutor();
+        rejectingExecutor = new CachedThreadPoolTaskExecutor() {
+            @Override
+            public void execute(Runnable task) {
+                throw new TaskRejectedException("Executor is saturated");
+            }
+        };
+
+        EasyMock.expect(context.beanForType(AddonsManager.class)).andReturn(addonsManager).anyTimes();
+        EasyMock.expect(context.beanForType(TrafficService.class)).andReturn(trafficService).anyTimes();
+        EasyMock.expect(context.beanForType(CachedThreadPoolTaskExecutor.class)).andAnswer(() -> executor).anyTimes();
+        EasyMock.expect(context.getArtifactoryHome()).andAnswer(() -> homeStub).anyTimes();
+        EasyMock.expect(context.isReady()).andReturn(true).anyTimes();
+        EasyMock.expect(addonsManager.addonByType(HaAddon.class)).andReturn(haAddon).anyTimes();
+        EasyMock.expect(addonsManager.addonByType(DebianAddon.class)).andReturn(debianAddon).anyTimes();
+        EasyMock.expect(addonsManager.addonByType(PluginsAddon.class)).andReturn(pluginsAddon).anyTimes();
+        EasyMock.expect(haAddon.getLockingMapFactory()).andReturn(new JvmLockingMapFactory()).anyTimes();
+
+        EasyMock.expect(requestContext.getResourcePath()).andReturn(PATH).anyTimes();
+        EasyMock.expect(requestContext.getRequest()).andReturn(request).anyTimes();
+        EasyMock.expect(localCacheRepo.getKey()).andReturn(cacheRepoPath.getRepoKey()).anyTimes();
+        EasyMock.expect(localCacheRepo.getInfo(requestContext))
+                .andReturn(new UnfoundRepoResource(cacheRepoPath, "Not cached")).anyTimes();
+        EasyMock.expect(localCacheRepo.getResourceStreamHandle(EasyMock.eq(requestContext), EasyMock.anyObject()))
+                .andAnswer(this::readFromCache).anyTimes();
+        EasyMock.expect(internalRepoService.saveResource(EasyMock.eq(localCacheRepo), EasyMock.anyObject()))
+                .andAnswer(this::saveToCache).anyTimes();
+        EasyMock.replay(context, addonsManager, haAddon, debianAddon, pluginsAddon, trafficService,
+                internalRepoService, localCacheRepo, requestContext, request);
+
+        HttpRepoDescriptor httpRepoDescriptor = new HttpRepoDescriptor();
+        httpRepoDescriptor.setKey(remoteRepoPath.getRepoKey());
+        httpRepoDescriptor.setRepoLayout(RepoLayoutUtils.MAVEN_2_DEFAULT);
+        httpRepo = new HttpRepo(httpRepoDescriptor, internalRepoService, false, null) {
+            @Override
+            public ResourceStreamHandle downloadResource(String relPath, RequestContext downloadContext) {
+                return new SimpleResourceStreamHandle(new ByteArrayInputStream(content), content.length);
+            }
+        };
+        ReflectionTestUtils.setField(httpRepo, "localCacheRepo", localCacheRepo);
+        ReflectionTestUtils.setField(httpRepo, "interceptors", Collections.emptyList());
+    }
+
+    @AfterClass
+    public void tearDown() {
+        poolExecutor.destroy();
+        rejectingExecutor.destroy();
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    @BeforeMethod
+    public void clearCache() {
+        homeStub.setProperty(ConstantValues.remoteStreamWhileCaching, "true");
+        homeStub.setProperty(ConstantValues.searchForExistingResourceOnRemoteRequest, "false");
+        cached.set(null);
+        savingThread.set(null);
+        savingContext.set(null);
+    }
+
+    /**
+     * The save of a streamed download runs on the async executor, with the context of the request bound to it
+     */
+    @Test
+    public void testStreamingSaveIsCachedByTheExecutor() throws Exception {
+        executor = poolExecutor;
+        assertEquals(download(), content);
+        assertEquals(cached.get(), content, "The streamed resource should be cached");
+        assertNotSame(savingThread.get(), Thread.currentThread(), "The resource should be saved by the executor");
+        assertSame(savingContext.get(), context, "The saving thread should be bound to the Artifactory context");
+    }
+
+    /**
+     * A streamed download rejected by the executor is downloaded before being served, and releases its save slot
+     */
+    @Test
+    public void testRejectedStreamingSaveDownloadsBeforeServing() throws Exception {
+        executor = rejectingExecutor;
+        // more than the available save slots, which would be exhausted if rejected saves didn't release them
+        for (int i = 0; i <= ConstantValues.asyncCorePoolSize.getInt(); i++) {
+            cached.set(null);
+            assertEquals(download(), content);
+            assertEquals(cached.get(), content, "The downloaded resource should be cached");
+            assertSame(savingThread.get(), Thread.currentThread(), "The resource should be saved by the request");
+        }
+
+        executor = poolExecutor;
+        cached.set(null);
+        assertEquals(download(), content);
+        assertNotSame(savingThread.get(), Thread.currentThread(), "The resource should be streamed while cached");
+    }
+
+    private byte[] download() throws Exception {
+        ChecksumInfo sha1 = new ChecksumInfo(ChecksumType.sha1, DigestUtils.sha1Hex(content), null);
+        RemoteRepoResource remoteResource = new RemoteRepoResource(remoteRepoPath, System.currentTimeMillis(), null,
+                content.length, Sets.newHashSet(sha1), null);
+        ResourceStreamHandle handle = httpRepo.downloadAndSave(requestContext, remoteResource);
+        assertNotNull(handle);
+        try {
+            return IOUtils.toByteArray(handle.getInputStream());
+        } finally {
+            handle.close();
+        }
+    }
+
+    private RepoResource saveToCache() throws IOException {
+        SaveResourceContext saveContext = (SaveResourceContext) EasyMock.getCurrentArguments()[1];
+        savingThread.set(Thread.currentThread());
+        savingContext.set(ContextHelper.get());
+        byte[] saved = IOUtils.toByteArray(saveContext.getInputStream());
+        cached.set(saved);
+        MutableFileInfo fileInfo = InfoFactoryHolder.get().createFileInfo(cacheRepoPath);
+        fileInfo.setSize(saved.length);
+        return new FileResource(fileInfo);
+    }
+
+    private ResourceStreamHandle readFromCache() throws FileNotFoundException {
+        byte[] saved = cached.get();
+        if (saved == null) {
+            throw new FileNotFoundException(cacheRepoPath.toPath());
+        }
+        return new SimpleResourceStreamHandle(new ByteArrayInputStream(saved), saved.length);
+    }
+}
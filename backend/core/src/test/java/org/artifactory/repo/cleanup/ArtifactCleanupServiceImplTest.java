@@ -0,0 +1,237 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.cleanup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.artifactory.api.common.BasicStatusHolder;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.aql.AqlService;
+import org.artifactory.aql.api.domain.sensitive.AqlApiItem;
+import org.artifactory.aql.model.AqlPhysicalFieldEnum;
+import org.artifactory.aql.result.AqlEagerResult;
+import org.artifactory.aql.result.rows.AqlBaseFullRowImpl;
+import org.artifactory.aql.result.rows.AqlItem;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.descriptor.repo.HttpRepoDescriptor;
+import org.artifactory.descriptor.repo.LocalCacheRepoDescriptor;
+import org.artifactory.fs.StatsInfo;
+import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.LocalRepo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.schedule.TaskService;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.storage.service.StatsServiceImpl;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+
+/**
+ * Tests the paging, the batch fallback and the folder pruning of the {@link ArtifactCleanupServiceImpl}
+ */
+@Test
+public class ArtifactCleanupServiceImplTest extends ArtifactoryHomeBoundTest {
+    private static final String REPO_KEY = "remote-cache";
+
+    private ArtifactCleanupServiceImpl cleanupService;
+    private InternalRepositoryService repositoryService;
+    private StatsServiceImpl statsService;
+    private AqlService aqlService;
+    private FolderPruningService pruneService;
+    private InternalArtifactCleanupService transactionalService;
+
+    @BeforeMethod
+    public void setUp() {
+        repositoryService = createMock(InternalRepositoryService.class);
+        statsService = createMock(StatsServiceImpl.class);
+        aqlService = createMock(AqlService.class);
+        pruneService = createMock(FolderPruningService.class);
+        transactionalService = createMock(InternalArtifactCleanupService.class);
+
+        cleanupService = new ArtifactCleanupServiceImpl();
+        ReflectionTestUtils.setField(cleanupService, "repositoryService", repositoryService);
+        ReflectionTestUtils.setField(cleanupService, "statsService", statsService);
+        ReflectionTestUtils.setField(cleanupService, "aqlService", aqlService);
+        ReflectionTestUtils.setField(cleanupService, "pruneService", pruneService);
+
+        InternalArtifactoryContext context = createNiceMock(InternalArtifactoryContext.class);
+        expect(context.beanForType(InternalArtifactCleanupService.class)).andReturn(transactionalService).anyTimes();
+        expect(context.getTaskService()).andReturn(createNiceMock(TaskService.class)).anyTimes();
+        replay(context);
+        ArtifactoryContextThreadBinder.bind(context);
+
+        expectCacheRepo();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    public void cleanPagesThroughUnusedArtifacts() {
+        homeStub.setProperty(ConstantValues.artifactCleanupBatchSize, "2");
+        homeStub.setProperty(ConstantValues.artifactCleanupPruneEmptyFolders, "false");
+        expectPages(
+                Arrays.asList(row(1, "org/a", "a.jar"), row(2, "org/b", "b.jar")),
+                Collections.singletonList(row(3, "org/c", "c.jar")));
+        expect(statsService.getStats(anyObject(RepoPath.class))).andReturn(null).anyTimes();
+        expect(transactionalService.cleanBatch(paths("org/a/a.jar", "org/b/b.jar"))).andReturn(2);
+        expect(transactionalService.cleanBatch(paths("org/c/c.jar"))).andReturn(1);
+        replayAll();
+
+        cleanupService.clean();
+
+        verifyAll();
+    }
+
+    public void cleanStopsAfterFullLastPage() {
+        homeStub.setProperty(ConstantValues.artifactCleanupBatchSize, "2");
+        homeStub.setProperty(ConstantValues.artifactCleanupPruneEmptyFolders, "false");
+        expectPages(
+                Arrays.asList(row(1, "org/a", "a.jar"), row(2, "org/b", "b.jar")),
+                Collections.emptyList());
+        expect(statsService.getStats(anyObject(RepoPath.class))).andReturn(null).anyTimes();
+        expect(transactionalService.cleanBatch(paths("org/a/a.jar", "org/b/b.jar"))).andReturn(2);
+        replayAll();
+
+        cleanupService.clean();
+
+        verifyAll();
+    }
+
+    public void cleanFallsBackToSingleUndeploysWhenBatchFails() {
+        homeStub.setProperty(ConstantValues.artifactCleanupPruneEmptyFolders, "false");
+        expectPages(Arrays.asList(row(1, "org/a", "a.jar"), row(2, "org/b", "b.jar")));
+        expect(statsService.getStats(anyObject(RepoPath.class))).andReturn(null).anyTimes();
+        expect(transactionalService.cleanBatch(paths("org/a/a.jar", "org/b/b.jar")))
+                .andThrow(new RuntimeException("Deadlock"));
+        BasicStatusHolder error = new BasicStatusHolder();
+        error.error("Could not delete", LoggerFactory.getLogger(ArtifactCleanupServiceImplTest.class));
+        expect(repositoryService.undeploy(path("org/a/a.jar"), false)).andReturn(error);
+        expect(repositoryService.undeploy(path("org/b/b.jar"), false)).andReturn(new BasicStatusHolder());
+        replayAll();
+
+        cleanupService.clean();
+
+        verifyAll();
+    }
+
+    public void cleanSkipsArtifactsDownloadedSinceStatsFlush() {
+        homeStub.setProperty(ConstantValues.artifactCleanupPruneEmptyFolders, "false");
+        expectPages(Arrays.asList(row(1, "org/a", "a.jar"), row(2, "org/b", "b.jar"), row(3, "org/c", "c.jar")));
+        expect(statsService.getStats(path("org/a/a.jar"))).andReturn(null);
+        expect(statsService.getStats(path("org/b/b.jar"))).andReturn(stats(System.currentTimeMillis(), 0));
+        expect(statsService.getStats(path("org/c/c.jar"))).andReturn(stats(0, System.currentTimeMillis()));
+        expect(transactionalService.cleanBatch(paths("org/a/a.jar"))).andReturn(1);
+        replayAll();
+
+        cleanupService.clean();
+
+        verifyAll();
+    }
+
+    public void cleanPrunesOnlyDeepestFolders() {
+        expectPages(Arrays.asList(row(1, "org/a/1.0", "a.jar"), row(2, "org/a", "maven-metadata.xml"),
+                row(3, "org/b", "b.jar"), row(4, ".", "root.jar")));
+        expect(statsService.getStats(anyObject(RepoPath.class))).andReturn(null).anyTimes();
+        expect(transactionalService.cleanBatch(anyObject())).andReturn(4);
+        pruneService.prune(path("org/a/1.0"));
+        pruneService.prune(path("org/b"));
+        replayAll();
+
+        cleanupService.clean();
+
+        verifyAll();
+    }
+
+    private void expectCacheRepo() {
+        HttpRepoDescriptor remoteRepo = new HttpRepoDescriptor();
+        remoteRepo.setUnusedArtifactsCleanupPeriodHours(1);
+        LocalCacheRepoDescriptor cacheRepo = new LocalCacheRepoDescriptor();
+        cacheRepo.setKey(REPO_KEY);
+        cacheRepo.setRemoteRepo(remoteRepo);
+        LocalRepo storingRepo = createNiceMock(LocalRepo.class);
+        expect(storingRepo.isCache()).andReturn(true).anyTimes();
+        replay(storingRepo);
+
+        statsService.flushStats();
+        expect(repositoryService.getCachedRepoDescriptors()).andReturn(Collections.singletonList(cacheRepo));
+        expect(repositoryService.localOrCachedRepositoryByKey(REPO_KEY)).andReturn(storingRepo);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private final void expectPages(List<AqlItem>... pages) {
+        for (List<AqlItem> page : pages) {
+            AqlEagerResult<AqlItem> result = createMock(AqlEagerResult.class);
+            expect(result.getResults()).andReturn(page);
+            replay(result);
+            expect(aqlService.executeQueryEager(anyObject(AqlApiItem.class))).andReturn(result);
+        }
+    }
+
+    private AqlItem row(long nodeId, String path, String name) {
+        return new AqlBaseFullRowImpl(new HashMap<>(ImmutableMap.of(
+                AqlPhysicalFieldEnum.itemId, nodeId,
+                AqlPhysicalFieldEnum.itemRepo, REPO_KEY,
+                AqlPhysicalFieldEnum.itemPath, path,
+                AqlPhysicalFieldEnum.itemName, name)));
+    }
+
+    private StatsInfo stats(long lastDownloaded, long remoteLastDownloaded) {
+        StatsInfo stats = createNiceMock(StatsInfo.class);
+        expect(stats.getLastDownloaded()).andReturn(lastDownloaded).anyTimes();
+        expect(stats.getRemoteLastDownloaded()).andReturn(remoteLastDownloaded).anyTimes();
+        replay(stats);
+        return stats;
+    }
+
+    private RepoPath path(String path) {
+        return new RepoPathImpl(REPO_KEY, path);
+    }
+
+    private List<RepoPath> paths(String... paths) {
+        List<RepoPath> repoPaths = Lists.newArrayList();
+        for (String path : paths) {
+            repoPaths.add(path(path));
+        }
+        return repoPaths;
+    }
+
+    private void replayAll() {
+        replay(repositoryService, statsService, aqlService, pruneService, transactionalService);
+    }
+
+    private void verifyAll() {
+        verify(repositoryService, statsService, aqlService, pruneService, transactionalService);
+    }
+}
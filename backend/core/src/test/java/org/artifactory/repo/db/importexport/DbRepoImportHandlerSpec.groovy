@@ -29,6 +29,7 @@ import org.artifactory.api.context.ArtifactoryContextThreadBinder
 import org.artifactory.api.maven.MavenMetadataService
 import org.artifactory.api.security.AuthorizationService
 import org.artifactory.common.ArtifactoryHome
+import org.artifactory.common.ConstantValues
 import org.artifactory.descriptor.repo.LocalRepoDescriptor
 import org.artifactory.mime.MimeTypes
 import org.artifactory.mime.MimeTypesReader
@@ -37,14 +38,17 @@ import org.artifactory.repo.LocalRepo
 import org.artifactory.repo.interceptor.ImportInterceptors
 import org.artifactory.repo.interceptor.StorageAggregationInterceptors
 import org.artifactory.repo.service.InternalRepositoryService
+import org.artifactory.sapi.fs.MetadataReader
 import org.artifactory.sapi.fs.MutableVfsFile
 import org.artifactory.sapi.fs.MutableVfsFolder
 import org.artifactory.schedule.TaskService
 import org.artifactory.spring.InternalArtifactoryContext
 import org.artifactory.storage.BinaryInsertRetryException
+import org.artifactory.storage.binstore.service.BinaryService
 import org.artifactory.storage.db.binstore.service.BinaryInfoImpl
 import org.artifactory.test.ArtifactoryHomeStub
 import org.artifactory.util.ResourceUtils
+import org.jfrog.storage.binstore.ifc.model.BinaryProvidersInfo
 import org.joda.time.DateTimeUtils
 import org.joda.time.Duration
 import org.springframework.transaction.support.AbstractPlatformTransactionManager
@@ -53,6 +57,7 @@ import spock.lang.Ignore
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  *
@@ -64,6 +69,7 @@ class DbRepoImportHandlerSpec extends Specification {
     public static final String EMPTY_FILE_MD5 = 'd41d8cd98f00b204e9800998ecf8427e'
     File repoRoot
     MimeTypes mimeTypes
+    private ArtifactoryHomeStub artifactoryHomeStub
     private InternalRepositoryService repositoryService
     private mavenMetadataService
     private transactionManager
@@ -74,6 +80,7 @@ class DbRepoImportHandlerSpec extends Specification {
     private importInterceptors
     private aggregationInterceptors
     private artifactoryContext
+    private binaryService
 
     def setup() {
         repoRoot = Files.createTempDir()
@@ -247,6 +254,66 @@ class DbRepoImportHandlerSpec extends Specification {
         !importSettings.getStatusHolder().isError()
     }
 
+    def "Parallel import reports files which metadata could not be prepared"() {
+        setup:
+
+        artifactoryHomeStub.setProperty(ConstantValues.importParallelWorkers, "2")
+        def names = ["good.jar", "bad.jar", "flaky.jar"]
+        makeFiles(*names)
+        names.each { new File(repoRoot, it + ".artifactory-metadata").mkdir() }
+
+        // the bad metadata can never be read, the flaky one only fails in the import worker
+        def flakyReads = new AtomicInteger()
+        def metadataReader = Mock(MetadataReader)
+        metadataReader.getMetadataEntries(_, _) >> { File folder, status ->
+            if (folder.name.startsWith("bad.jar") ||
+                    (folder.name.startsWith("flaky.jar") && flakyReads.getAndIncrement() == 0)) {
+                throw new IllegalStateException("Corrupt metadata in " + folder)
+            }
+            []
+        }
+        def importSettings = new RepositoryImportSettingsImpl(repoRoot)
+        importSettings.metadataReader = metadataReader
+
+        def localRepo = Mock(LocalRepo)
+
+        def repoName = "test-repo"
+        def rootPath = InternalRepoPathFactory.repoRootPath(repoName)
+        localRepo.getKey() >> repoName
+        localRepo.getDescriptor() >> Mock(LocalRepoDescriptor)
+        localRepo.isCache() >> false
+        localRepo.toString() >> "Mock for local repo 'test-repo'"
+
+        def vfsFolder = Mock(MutableVfsFolder)
+        localRepo.createOrGetFolder(rootPath) >> vfsFolder
+        vfsFolder.getRepoPath() >> rootPath
+
+        def vfsFiles = names.collectEntries { name ->
+            def fileRepoPath = InternalRepoPathFactory.create(rootPath, name)
+            def vfsFile = Mock(MutableVfsFile)
+            vfsFile.getRepoPath() >> fileRepoPath
+            localRepo.createOrGetFile(fileRepoPath) >> vfsFile
+            [(name): vfsFile]
+        }
+        binaryService.addBinary(_) >> new BinaryInfoImpl(EMPTY_FILE_SHA1, EMPTY_FILE_MD5, 0)
+
+        def handler = new DbRepoImportHandler(localRepo, importSettings, "")
+
+        when:
+
+        handler.executeImport()
+
+        then:
+
+        1 * vfsFiles["bad.jar"].markError()
+        0 * vfsFiles["good.jar"].markError()
+        0 * vfsFiles["flaky.jar"].markError()
+        flakyReads.get() == 2
+        def errors = importSettings.getStatusHolder().getErrors()
+        errors.size() == 1
+        errors[0].message.contains("bad.jar")
+    }
+
     @Ignore
     def "Test termination if parent task terminates"() {}
 
@@ -254,7 +321,7 @@ class DbRepoImportHandlerSpec extends Specification {
         artifactoryContext = Mock(InternalArtifactoryContext)
         ArtifactoryContextThreadBinder.bind(artifactoryContext)
 
-        def artifactoryHomeStub = new ArtifactoryHomeStub()
+        artifactoryHomeStub = new ArtifactoryHomeStub()
         artifactoryHomeStub.mimeTypes = mimeTypes
         ArtifactoryHome.bind(artifactoryHomeStub)
 
@@ -289,6 +356,10 @@ class DbRepoImportHandlerSpec extends Specification {
 
         aggregationInterceptors = Mock(StorageAggregationInterceptors)
         context.beanForType(StorageAggregationInterceptors.class) >> this.aggregationInterceptors
+
+        binaryService = Mock(BinaryService)
+        context.beanForType(BinaryService.class) >> this.binaryService
+        this.binaryService.getBinaryProvidersInfo() >> Mock(BinaryProvidersInfo)
     }
 
     def makeFiles(String... filenames) {
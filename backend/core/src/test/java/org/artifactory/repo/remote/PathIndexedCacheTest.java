@@ -0,0 +1,99 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.artifactory.repo.remote;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link PathIndexedCache}.
+ */
+@Test
+public class PathIndexedCacheTest {
+
+    public void removeByPrefix() {
+        PathIndexedCache<String> cache = new PathIndexedCache<>(10, -1, false);
+        cache.put("org/jfrog", "a");
+        cache.put("org/jfrog/lib/1.0/lib-1.0.jar", "b");
+        cache.put("org/jfrogx/lib", "c");
+        cache.put("org/apache/lib", "d");
+        cache.put("com/jfrog", "e");
+
+        cache.removeByPrefix("org/jfrog");
+        // same semantics as the previous startsWith scan
+        assertNull(cache.get("org/jfrog"));
+        assertNull(cache.get("org/jfrog/lib/1.0/lib-1.0.jar"));
+        assertNull(cache.get("org/jfrogx/lib"));
+        assertEquals(cache.get("org/apache/lib"), "d");
+        assertEquals(cache.get("com/jfrog"), "e");
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.indexSize(), 2);
+    }
+
+    public void removeSinglePath() {
+        PathIndexedCache<String> cache = new PathIndexedCache<>(10, -1, false);
+        cache.put("org/jfrog", "a");
+        cache.put("org/jfrog/lib", "b");
+        cache.remove("org/jfrog");
+        assertNull(cache.get("org/jfrog"));
+        assertEquals(cache.get("org/jfrog/lib"), "b");
+        assertEquals(cache.indexSize(), 1);
+    }
+
+    public void replacedValueStaysIndexed() {
+        PathIndexedCache<String> cache = new PathIndexedCache<>(10, -1, false);
+        cache.put("org/jfrog", "a");
+        cache.put("org/jfrog", "b");
+        assertEquals(cache.get("org/jfrog"), "b");
+        cache.removeByPrefix("org");
+        assertNull(cache.get("org/jfrog"));
+        assertTrue(cache.isEmpty());
+    }
+
+    public void expiredEntriesLeaveTheIndex() {
+        PathIndexedCache<String> cache = new PathIndexedCache<>(10, 0, false);
+        cache.put("org/jfrog", "a");
+        assertNull(cache.get("org/jfrog"));
+        cache.cleanUp();
+        assertEquals(cache.indexSize(), 0);
+        assertEquals(cache.stats().evictionCount(), 1);
+    }
+
+    public void clear() {
+        PathIndexedCache<String> cache = new PathIndexedCache<>(10, -1, true);
+        cache.put("org/jfrog", "a");
+        cache.put("com/jfrog", "b");
+        cache.clear();
+        assertTrue(cache.isEmpty());
+        assertEquals(cache.indexSize(), 0);
+    }
+
+    public void statistics() {
+        PathIndexedCache<String> cache = new PathIndexedCache<>(10, -1, false);
+        cache.put("org/jfrog", "a");
+        cache.get("org/jfrog");
+        cache.get("org/apache");
+        assertEquals(cache.stats().hitCount(), 1);
+        assertEquals(cache.stats().missCount(), 1);
+    }
+}
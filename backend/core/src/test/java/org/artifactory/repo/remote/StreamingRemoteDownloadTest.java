@@ -0,0 +1,157 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.repo.remote;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.io.SimpleResourceStreamHandle;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link StreamingRemoteDownload}.
+ */
+@Test
+public class StreamingRemoteDownloadTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private File spoolDir;
+
+    @BeforeMethod
+    public void setUp() {
+        spoolDir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(spoolDir);
+    }
+
+    public void readersFollowTheSave() throws Exception {
+        byte[] content = content(100000);
+        StreamingRemoteDownload download = new StreamingRemoteDownload(spoolDir, content.length, TIMEOUT);
+        ResourceStreamHandle tee = download.tee(new SimpleResourceStreamHandle(new ByteArrayInputStream(content)));
+        ResourceStreamHandle reader = download.newReader();
+        assertNotNull(reader);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> read = executor.submit((Callable<byte[]>) () -> IOUtils.toByteArray(reader.getInputStream()));
+            byte[] saved = IOUtils.toByteArray(tee.getInputStream());
+            tee.close();
+            assertFalse(read.isDone(), "Reader should not reach end of stream before the save is completed");
+            download.completed();
+            assertEquals(read.get(10, TimeUnit.SECONDS), content);
+            assertEquals(saved, content);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(download.getState(), StreamingRemoteDownload.State.COMPLETED);
+        reader.close();
+        assertEquals(spoolDir.list().length, 0, "Spool file should be deleted after the last reader is closed");
+    }
+
+    public void lateReaderGetsTheWholeContent() throws Exception {
+        byte[] content = content(5000);
+        StreamingRemoteDownload download = new StreamingRemoteDownload(spoolDir, content.length, TIMEOUT);
+        ResourceStreamHandle tee = download.tee(new SimpleResourceStreamHandle(new ByteArrayInputStream(content)));
+        ResourceStreamHandle firstReader = download.newReader();
+        IOUtils.toByteArray(tee.getInputStream());
+        tee.close();
+        assertEquals(download.awaitStreaming(0), StreamingRemoteDownload.State.STREAMING);
+
+        ResourceStreamHandle lateReader = download.newReader();
+        download.completed();
+        assertEquals(IOUtils.toByteArray(lateReader.getInputStream()), content);
+        lateReader.close();
+        firstReader.close();
+        assertNull(download.newReader(), "A released download should redirect readers to the cache");
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Checksum mismatch")
+    public void failedSaveFailsReaders() throws Exception {
+        byte[] content = content(1000);
+        StreamingRemoteDownload download = new StreamingRemoteDownload(spoolDir, content.length, TIMEOUT);
+        ResourceStreamHandle tee = download.tee(new SimpleResourceStreamHandle(new ByteArrayInputStream(content)));
+        ResourceStreamHandle reader = download.newReader();
+        IOUtils.toByteArray(tee.getInputStream());
+        tee.close();
+        download.failed(new IOException("Checksum mismatch"));
+        try (InputStream in = reader.getInputStream()) {
+            IOUtils.toByteArray(in);
+        } finally {
+            reader.close();
+            assertEquals(spoolDir.list().length, 0);
+        }
+    }
+
+    public void emptyContent() throws Exception {
+        StreamingRemoteDownload download = new StreamingRemoteDownload(spoolDir, 0, TIMEOUT);
+        ResourceStreamHandle tee = download.tee(new SimpleResourceStreamHandle(new ByteArrayInputStream(new byte[0])));
+        ResourceStreamHandle reader = download.newReader();
+        IOUtils.toByteArray(tee.getInputStream());
+        tee.close();
+        assertEquals(download.awaitStreaming(10), StreamingRemoteDownload.State.PENDING);
+        download.completed();
+        assertEquals(IOUtils.toByteArray(reader.getInputStream()).length, 0);
+        reader.close();
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Timed-out.*")
+    public void stalledDownloadFailsReaders() throws Exception {
+        byte[] content = content(1000);
+        StreamingRemoteDownload download = new StreamingRemoteDownload(spoolDir, content.length * 2, 200);
+        ResourceStreamHandle tee = download.tee(new SimpleResourceStreamHandle(new ByteArrayInputStream(content)));
+        ResourceStreamHandle reader = download.newReader();
+        // the remote stream stalls after the first bytes without being closed or failed
+        IOUtils.toByteArray(tee.getInputStream());
+        try (InputStream in = reader.getInputStream()) {
+            IOUtils.toByteArray(in);
+        } finally {
+            reader.close();
+            tee.close();
+        }
+    }
+
+    private byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+}
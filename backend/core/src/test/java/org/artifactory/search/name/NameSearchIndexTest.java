@@ -0,0 +1,128 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.search.name;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.RepoPathFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link NameSearchIndex}.
+ */
+@Test
+public class NameSearchIndexTest {
+
+    private File indexDir;
+    private NameSearchIndex index;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        indexDir = Files.createTempDir();
+        index = new NameSearchIndex(indexDir);
+        index.add(path("libs", "org/jfrog/lib/1.0/lib-1.0.jar"));
+        index.add(path("libs", "org/jfrog/lib/1.0/lib-1.0.pom"));
+        index.add(path("libs", "org/jfrog/lib/1.0/lib-1.0-sources.jar"));
+        index.add(path("other", "com/acme/lib-2.0.jar"));
+        index.add(path("other", "com/acme/LIB-2.0.zip"));
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        index.close();
+        FileUtils.deleteDirectory(indexDir);
+    }
+
+    public void supportedPatterns() {
+        assertTrue(NameSearchIndex.isSupported("*lib*"));
+        assertTrue(NameSearchIndex.isSupported("*.jar"));
+        assertTrue(NameSearchIndex.isSupported("?ib-1.0*"));
+        // served by the database index on the name
+        assertFalse(NameSearchIndex.isSupported("lib*"));
+        // no trigram to look up
+        assertFalse(NameSearchIndex.isSupported("*li*"));
+        assertFalse(NameSearchIndex.isSupported("*"));
+    }
+
+    public void containsAndSuffixSearches() throws IOException {
+        assertEquals(search("*lib*").size(), 4);
+        assertEquals(search("*.jar").size(), 3);
+        assertEquals(search("*sources.jar"), ImmutableList.of(path("libs", "org/jfrog/lib/1.0/lib-1.0-sources.jar")));
+        assertEquals(search("*-?.0.jar").size(), 2);
+        assertEquals(search("*b-2?0.jar"), ImmutableList.of(path("other", "com/acme/lib-2.0.jar")));
+        // matches are verified against the whole pattern and are case sensitive
+        assertTrue(search("*.jar.pom").isEmpty());
+        assertEquals(search("*LIB*"), ImmutableList.of(path("other", "com/acme/LIB-2.0.zip")));
+    }
+
+    public void filterReposAndLimit() throws IOException {
+        List<RepoPath> found = index.search("*.jar", Sets.newHashSet("other"), repoPath -> true, 10)
+                .getRepoPaths();
+        assertEquals(found, ImmutableList.of(path("other", "com/acme/lib-2.0.jar")));
+        found = index.search("*.jar", null, repoPath -> !repoPath.getName().contains("sources"), 10).getRepoPaths();
+        assertEquals(found.size(), 2);
+        NameSearchIndex.NameSearchResults limited = index.search("*.jar", null, repoPath -> true, 1);
+        assertEquals(limited.getRepoPaths().size(), 1);
+    }
+
+    public void removeAndCount() throws IOException {
+        assertEquals(index.count("libs"), 3);
+        assertEquals(index.getRepoKeys(), Sets.newHashSet("libs", "other"));
+        index.remove(path("libs", "org/jfrog/lib/1.0/lib-1.0.pom"));
+        assertEquals(index.count("libs"), 2);
+        index.removeSubtree(path("libs", "org/jfrog/lib"));
+        assertEquals(index.count("libs"), 0);
+        index.removeRepo("other");
+        assertTrue(search("*lib*").isEmpty());
+    }
+
+    public void updateIsIdempotent() throws IOException {
+        index.add(path("libs", "org/jfrog/lib/1.0/lib-1.0.jar"));
+        assertEquals(index.count("libs"), 3);
+    }
+
+    public void persistedOnCommit() throws IOException {
+        index.commit();
+        index.close();
+        index = new NameSearchIndex(indexDir);
+        assertEquals(index.count("libs"), 3);
+        assertEquals(search("*.pom").size(), 1);
+    }
+
+    private List<RepoPath> search(String pattern) throws IOException {
+        return index.search(pattern, null, repoPath -> true, 100).getRepoPaths();
+    }
+
+    private static RepoPath path(String repoKey, String path) {
+        return RepoPathFactory.create(repoKey, path);
+    }
+}
@@ -21,6 +21,7 @@
 package org.artifactory.security;
 
 import junit.framework.AssertionFailedError;
+import org.artifactory.api.security.PermissionHeuristicScore;
 import org.artifactory.api.security.ResetPasswordException;
 import org.artifactory.api.security.SecurityListener;
 import org.artifactory.api.security.SecurityService;
@@ -29,6 +30,8 @@ import org.artifactory.common.ConstantValues;
 import org.artifactory.config.InternalCentralConfigService;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
 import org.artifactory.descriptor.config.MutableCentralConfigDescriptor;
+import org.artifactory.descriptor.repo.HttpRepoDescriptor;
+import org.artifactory.descriptor.repo.LocalCacheRepoDescriptor;
 import org.artifactory.descriptor.security.*;
 import org.artifactory.descriptor.security.ldap.LdapSetting;
 import org.artifactory.exception.InvalidNameException;
@@ -36,6 +39,7 @@ import org.artifactory.factory.InfoFactoryHolder;
 import org.artifactory.model.xstream.security.UserImpl;
 import org.artifactory.repo.*;
 import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.repo.trash.TrashService;
 import org.artifactory.security.exceptions.PasswordChangeException;
 import org.artifactory.security.interceptor.ApiKeysEncryptor;
 import org.artifactory.security.interceptor.BintrayAuthEncryptor;
@@ -964,6 +968,132 @@ public class SecurityServiceImplTest extends ArtifactoryHomeBoundTest {
         ReflectionTestUtils.setField(service, "securityListeners", null);
     }
 
+    public void readPermissionScoreOfAnonymousWithAnonAccessDisabled() {
+        setSimpleUserAuthentication(UserInfo.ANONYMOUS);
+        expectAnonAccess(false);
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("multi1", PermissionHeuristicScore.readNotAllowed, "org/a.jar");
+    }
+
+    public void readPermissionScoreOfAnonymousWithAnonAccessEnabled() {
+        setSimpleUserAuthentication(UserInfo.ANONYMOUS);
+        expectAnonAccess(true);
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("multi1", PermissionHeuristicScore.readAll, "org/a.jar");
+        assertReadScoreMatchesCanRead("testRepo1", PermissionHeuristicScore.readNotAllowed, "org/a.jar");
+    }
+
+    public void readPermissionScoreOfTrash() {
+        setSimpleUserAuthentication("anyRepoReader", "anyRepoReadersGroup");
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("testRepo1", PermissionHeuristicScore.readAll, "org/a.jar");
+        assertReadScoreMatchesCanRead(TrashService.TRASH_KEY, PermissionHeuristicScore.readNotAllowed,
+                "testRepo1/org/a.jar");
+    }
+
+    public void readPermissionScoreOfAnyLocalOnLocalAndCacheRepos() {
+        setSimpleUserAuthentication("anyLocalReader");
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("local1", PermissionHeuristicScore.readAll, "org/a.jar");
+        assertReadScoreMatchesCanRead("testRemote-cache", PermissionHeuristicScore.readNotAllowed, "org/a.jar");
+        assertReadScoreMatchesCanRead("testRemote", PermissionHeuristicScore.readNotAllowed, "org/a.jar");
+    }
+
+    public void readPermissionScoreOfAnyRemoteOnLocalAndCacheRepos() {
+        setSimpleUserAuthentication("anyRemoteUser");
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("testRemote-cache", PermissionHeuristicScore.readAll, "org/a.jar");
+        assertReadScoreMatchesCanRead("local1", PermissionHeuristicScore.readNotAllowed, "org/a.jar");
+    }
+
+    public void readPermissionScoreOfRemoteRepoKey() {
+        // the acl of user is defined on the acl compatible key of the remote repository
+        setSimpleUserAuthentication("user");
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("testRemote", PermissionHeuristicScore.readAll, "org/a.jar");
+        assertReadScoreMatchesCanRead("testRemote-cache", PermissionHeuristicScore.readAll, "org/a.jar");
+    }
+
+    public void readPermissionScoreWithExcludePattern() {
+        setSimpleUserAuthentication("excludedSourcesReader");
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("excluded-repo", PermissionHeuristicScore.readWithExclusion);
+        assertTrue(service.canRead(InternalRepoPathFactory.create("excluded-repo", "org/a.jar")));
+        assertFalse(service.canRead(InternalRepoPathFactory.create("excluded-repo", "org/a-sources.jar")));
+    }
+
+    public void readPermissionScoreWithIncludePattern() {
+        setSimpleUserAuthentication("shay");
+        expectReadPermissionChecks();
+
+        assertReadScoreMatchesCanRead("specific-repo", PermissionHeuristicScore.readWithExclusion);
+        assertTrue(service.canRead(InternalRepoPathFactory.create("specific-repo", "com/acme/a.jar")));
+        assertFalse(service.canRead(InternalRepoPathFactory.create("specific-repo", "org/a.jar")));
+    }
+
+    public void readPermissionScoresOfUserWithoutAcls() {
+        setSimpleUserAuthentication("nopermissionsuser");
+        expectReadPermissionChecks();
+
+        Map<String, PermissionHeuristicScore> scores = service.getReadPermissionScores(
+                Arrays.asList("testRepo1", "multi1", "testRemote", "testRemote-cache"));
+        assertEquals(scores.size(), 4);
+        for (Map.Entry<String, PermissionHeuristicScore> score : scores.entrySet()) {
+            assertReadScoreMatchesCanRead(score.getKey(), PermissionHeuristicScore.readNotAllowed, "org/a.jar");
+        }
+    }
+
+    /**
+     * Checks the read score of the repository, and that all the given paths are readable if the repository is
+     * readable as a whole and not readable if it is not readable at all.
+     */
+    private void assertReadScoreMatchesCanRead(String repoKey, PermissionHeuristicScore expectedScore,
+            String... paths) {
+        PermissionHeuristicScore score =
+                service.getReadPermissionScores(Collections.singletonList(repoKey)).get(repoKey);
+        assertEquals(score, expectedScore, "Unexpected read score of " + repoKey);
+        for (String path : paths) {
+            assertEquals(service.canRead(InternalRepoPathFactory.create(repoKey, path)),
+                    expectedScore == PermissionHeuristicScore.readAll,
+                    "Read score of " + repoKey + " doesn't match the read permission of " + path);
+        }
+    }
+
+    /**
+     * testRemote is a remote repository cached in testRemote-cache, the other repositories are local
+     */
+    private void expectReadPermissionChecks() {
+        expectGetAllAclsCall();
+        expect(repositoryServiceMock.localOrCachedRepositoryByKey(anyString())).andAnswer(() -> {
+            String repoKey = (String) getCurrentArguments()[0];
+            if ("testRemote".equals(repoKey)) {
+                return null;
+            }
+            return repoKey.endsWith(LocalCacheRepoDescriptor.PATH_SUFFIX) ? cacheRepoMock : localRepoMock;
+        }).anyTimes();
+        expect(repositoryServiceMock.remoteRepoDescriptorByKey(anyString()))
+                .andAnswer(() -> "testRemote".equals(getCurrentArguments()[0]) ? new HttpRepoDescriptor() : null)
+                .anyTimes();
+        replay(aclStoreServiceMock, repositoryServiceMock);
+    }
+
+    private void expectAnonAccess(boolean enabled) {
+        SecurityDescriptor securityDescriptor = new SecurityDescriptor();
+        securityDescriptor.setAnonAccessEnabled(enabled);
+        CentralConfigDescriptor configDescriptor = createMock(CentralConfigDescriptor.class);
+        expect(configDescriptor.getSecurity()).andReturn(securityDescriptor).anyTimes();
+        replay(configDescriptor);
+        expect(centralConfigServiceMock.getDescriptor()).andReturn(configDescriptor).anyTimes();
+        replay(centralConfigServiceMock);
+    }
+
     private void expectAclScan() {
         expect(aclStoreServiceMock.getAllAcls()).andReturn(testAcls).anyTimes();
         expect(aclStoreServiceMock.getAclCache()).andReturn(aclCache).anyTimes();
@@ -80,6 +80,18 @@ class SecurityServiceImplTestHelper {
                 factory.createAce("anyRemoteUser", false, ArtifactoryPermission.READ.getMask());
         addAceWithPathToAclCache(anyRemoteAce, PermissionTargetInfo.ANY_REMOTE_REPO);
 
+        MutableAceInfo anyLocalReaderAce =
+                factory.createAce("anyLocalReader", false, ArtifactoryPermission.READ.getMask());
+        addAceWithPathToAclCache(anyLocalReaderAce, PermissionTargetInfo.ANY_LOCAL_REPO);
+
+        // acl with excluded paths with read permissions to user
+        MutablePermissionTargetInfo excludedSourcesTarget = InfoFactoryHolder.get().createPermissionTarget(
+                "excludedSourcesTarget", Collections.singletonList("excluded-repo"));
+        excludedSourcesTarget.setExcludes(Collections.singletonList("**/*-sources.jar"));
+        MutableAceInfo excludedSourcesAce =
+                factory.createAce("excludedSourcesReader", false, ArtifactoryPermission.READ.getMask());
+        addAceWithPathToAclCache(excludedSourcesAce, "excluded-repo", excludedSourcesTarget);
+
         // create the AclCache
         return new AclCache(groupToRepoToAclMap, userToRepoToAclMap);
     }
@@ -0,0 +1,84 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.util;
+
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Verifies {@link CompiledPathMatcher} always gives the same result as {@link PathMatcher}.
+ */
+@Test
+public class CompiledPathMatcherTest extends ArtifactoryHomeBoundTest {
+
+    private static final List<String> PATHS = Arrays.asList("", "apath", "apath/", "apat", "apath2", "apath/deep",
+            "apath/sub", "apath/sub/1", "apath/some", "apath/some2", "apath1", "apath1/sub", "apath1/sub1",
+            "apath1/sub1/t", "apath1/sub1/toto/tutu/", "apath1/toto-sources.jar", "apath1/sub/toto-sources.jar.md5",
+            "apath1/toto-1.0.jar", "ap/x", "public", "public/i", "public/in/the/public.jar", "public2",
+            "this/is/my/test/path", "this/is/my/test/path/andmore", "commons-codec", "commons-lang", "main.123",
+            "main/x", "org", "org/apache/bla", "org/codesulting", "com", "com/acme/x", "com/test/123", "a/",
+            "a/*/b", "/apath", " apath");
+
+    @DataProvider
+    public Object[][] patterns() {
+        List<String> none = Collections.emptyList();
+        return new Object[][]{
+                {Arrays.asList("**"), Arrays.asList("")},
+                {Arrays.asList(""), Arrays.asList("**")},
+                {Arrays.asList("apath/*", "**/my/test/path", "public/in/**"), Arrays.asList("")},
+                {Arrays.asList("apath/some/other/*", "*p/x/y", "a?/x", "?p*/?", "*/x/t"), none},
+                {Arrays.asList("com/some/other/*", "com/acme/***", "com/toto/*"), none},
+                {none, Arrays.asList("apath", "**/my/test/path", "commons-*", "main/*")},
+                {Arrays.asList("org/**", "com/**", "net/**"), Arrays.asList("org/apache/**", "commons-*")},
+                {Arrays.asList("**", "apath/sub/1"), Arrays.asList("apath/**")},
+                {Arrays.asList("apath1/sub1/**", "apath1/sub2/**", "apath2/sub1/**"), null},
+                {Arrays.asList("**/*-sources.jar*"), null},
+                {Arrays.asList("/apath/**", " apath/**", "a/{b}/c", "public/in/the/public.jar"), Arrays.asList("a/*/b")}
+        };
+    }
+
+    @Test(dataProvider = "patterns")
+    public void sameResultAsPathMatcher(List<String> includes, List<String> excludes) {
+        CompiledPathMatcher matcher = CompiledPathMatcher.compile(includes, excludes);
+        for (String path : PATHS) {
+            for (boolean folder : new boolean[]{false, true}) {
+                assertEquals(matcher.matches(path, folder), PathMatcher.matches(path, includes, excludes, folder),
+                        "Different result for '" + path + "' (folder: " + folder + ") with includes " + includes +
+                                " and excludes " + excludes);
+            }
+        }
+    }
+
+    public void matchAll() {
+        assertTrue(CompiledPathMatcher.compile(Arrays.asList("**/*"), null).isMatchAll());
+        assertTrue(CompiledPathMatcher.compile(null, Collections.emptyList()).isMatchAll());
+        assertFalse(CompiledPathMatcher.compile(Arrays.asList("**"), Arrays.asList("org/**")).isMatchAll());
+    }
+}
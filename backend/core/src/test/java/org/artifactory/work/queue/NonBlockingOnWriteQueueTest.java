@@ -12,6 +12,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -71,4 +72,45 @@ public class NonBlockingOnWriteQueueTest extends WorkQueueTestBase {
         Assert.assertTrue(counter.get() <= 1000);
         System.out.println("Number of successful promotions (removals): " + counter.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void identicalItemsCoalescedTest() {
+        NonBlockingOnWriteQueue<IntegerWorkItem> queue = new NonBlockingOnWriteQueue<>(QUEUE_NAME + " coalesce");
+        IntegerWorkItem first = new IntegerWorkItem(1);
+        IntegerWorkItem duplicate = new IntegerWorkItem(1);
+        IntegerWorkItem other = new IntegerWorkItem(2);
+        queue.addToPending(first);
+        queue.addToPending(other);
+        queue.addToPending(duplicate);
+        Assert.assertEquals(queue.getQueueSize(), 2);
+        Assert.assertEquals(queue.getEnqueuedCount(), 3);
+        Assert.assertEquals(queue.getCoalescedCount(), 1);
+
+        WorkQueuePromotedItem<IntegerWorkItem> promoted = queue.promote();
+        Assert.assertSame(promoted.workItem, first);
+        Assert.assertEquals(promoted.pendingWorkItemsAssociated.size(), 2);
+        CompletableFuture<Void> completion = queue.getCompletion(duplicate);
+        Assert.assertNotNull(completion);
+        Assert.assertFalse(completion.isDone());
+
+        // identical item added while running must wait for the running one to be removed
+        IntegerWorkItem addedWhileRunning = new IntegerWorkItem(1);
+        queue.addToPending(addedWhileRunning);
+        WorkQueuePromotedItem<IntegerWorkItem> next = queue.promote();
+        Assert.assertSame(next.workItem, other);
+        Assert.assertNull(queue.promote());
+
+        queue.remove(promoted);
+        Assert.assertTrue(completion.isDone());
+        Assert.assertFalse(queue.contains(duplicate));
+        Assert.assertTrue(queue.contains(addedWhileRunning));
+        queue.remove(next);
+
+        WorkQueuePromotedItem<IntegerWorkItem> last = queue.promote();
+        Assert.assertSame(last.workItem, addedWhileRunning);
+        queue.remove(last);
+        Assert.assertFalse(queue.contains(addedWhileRunning));
+        Assert.assertEquals(queue.getQueueSize(), 0);
+        Assert.assertEquals(queue.getPromotedCount(), 3);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.api.module;
+
+import com.google.common.collect.Lists;
+import org.artifactory.api.module.regex.NamedPattern;
+import org.artifactory.descriptor.repo.RepoLayout;
+import org.artifactory.util.RepoLayoutUtils;
+import org.artifactory.util.layouts.token.BaseTokenFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A repository layout path pattern translated to a regular expression and compiled once.
+ * <p/>
+ * The token of each capturing group, and the filter of the token, are resolved at compile time so parsing a path
+ * reads the groups by index instead of building a map of named groups. When a token appears more than once in the
+ * pattern the value of its last group is used, same as {@link org.artifactory.api.module.regex.NamedMatcher#namedGroups()}.
+ * Instances are immutable and thread safe.
+ */
+class CompiledLayoutPattern {
+    private static final Logger log = LoggerFactory.getLogger(CompiledLayoutPattern.class);
+
+    /**
+     * Null if the regular expression uses unnamed capturing groups, in which case no path matches
+     */
+    private final Pattern pattern;
+    /**
+     * Distinct token names in order of first appearance
+     */
+    private final String[] tokenNames;
+    /**
+     * Index of the last capturing group of each token
+     */
+    private final int[] groupIndexes;
+    /**
+     * Filter of each token, null if the token has no filter
+     */
+    private final BaseTokenFilter[] tokenFilters;
+
+    private CompiledLayoutPattern(Pattern pattern, String[] tokenNames, int[] groupIndexes,
+            BaseTokenFilter[] tokenFilters) {
+        this.pattern = pattern;
+        this.tokenNames = tokenNames;
+        this.groupIndexes = groupIndexes;
+        this.tokenFilters = tokenFilters;
+    }
+
+    static CompiledLayoutPattern compile(RepoLayout repoLayout, String layoutPattern, boolean supportVersionsTokens) {
+        String regExp = RepoLayoutUtils.generateRegExpFromPattern(repoLayout, layoutPattern, false,
+                supportVersionsTokens);
+        NamedPattern namedPattern = NamedPattern.compile(regExp);
+        List<String> groupNames = namedPattern.groupNames();
+        Pattern pattern = Pattern.compile(namedPattern.standardPattern());
+        if (pattern.matcher("").groupCount() != groupNames.size()) {
+            log.error("Regular expression '" + regExp + "' uses unnamed capturing group!");
+            return new CompiledLayoutPattern(null, new String[0], new int[0], new BaseTokenFilter[0]);
+        }
+
+        List<String> distinctNames = Lists.newArrayList();
+        List<Integer> lastIndexes = Lists.newArrayList();
+        for (int i = 0; i < groupNames.size(); i++) {
+            String groupName = groupNames.get(i);
+            int tokenIndex = distinctNames.indexOf(groupName);
+            if (tokenIndex < 0) {
+                distinctNames.add(groupName);
+                lastIndexes.add(i + 1);
+            } else {
+                lastIndexes.set(tokenIndex, i + 1);
+            }
+        }
+        String[] tokenNames = distinctNames.toArray(new String[distinctNames.size()]);
+        int[] groupIndexes = new int[tokenNames.length];
+        BaseTokenFilter[] tokenFilters = new BaseTokenFilter[tokenNames.length];
+        for (int i = 0; i < tokenNames.length; i++) {
+            groupIndexes[i] = lastIndexes.get(i);
+            tokenFilters[i] = RepoLayoutUtils.TOKEN_FILTERS.get(tokenNames[i]);
+        }
+        return new CompiledLayoutPattern(pattern, tokenNames, groupIndexes, tokenFilters);
+    }
+
+    /**
+     * @return Module info of the given path, an invalid module info if the path doesn't match the pattern
+     */
+    ModuleInfo parse(String itemPath) {
+        if (pattern == null) {
+            return new ModuleInfo();
+        }
+        Matcher matcher = pattern.matcher(itemPath);
+        if (!matcher.matches()) {
+            return new ModuleInfo();
+        }
+        ModuleInfoBuilder moduleInfoBuilder = new ModuleInfoBuilder();
+        for (int i = 0; i < tokenNames.length; i++) {
+            String tokenValue = matcher.group(groupIndexes[i]);
+            if (tokenFilters[i] != null) {
+                tokenValue = tokenFilters[i].fromPath(tokenValue);
+            }
+            ModuleInfoUtils.setTokenValue(moduleInfoBuilder, tokenNames[i], tokenValue);
+        }
+        return moduleInfoBuilder.build();
+    }
+}
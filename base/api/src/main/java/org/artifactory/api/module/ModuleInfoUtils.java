@@ -20,10 +20,10 @@
 
 package org.artifactory.api.module;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
-import org.artifactory.api.module.regex.NamedMatcher;
-import org.artifactory.api.module.regex.NamedPattern;
 import org.artifactory.descriptor.repo.RepoLayout;
 import org.artifactory.util.RepoLayoutUtils;
 import org.artifactory.util.layouts.token.BaseTokenFilter;
@@ -32,7 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * @author Noam Y. Tenne
@@ -41,6 +43,13 @@ public abstract class ModuleInfoUtils {
 
     private static final Logger log = LoggerFactory.getLogger(ModuleInfoUtils.class);
 
+    /**
+     * Compiled path patterns by layout instance. Layouts are compared by identity and weakly referenced, so the
+     * layouts of a replaced configuration are dropped with their patterns.
+     */
+    private static final Cache<RepoLayout, CompiledLayout> compiledLayouts = CacheBuilder.newBuilder()
+            .weakKeys().build();
+
     private ModuleInfoUtils() {
     }
 
@@ -321,59 +330,26 @@ public abstract class ModuleInfoUtils {
             throw new IllegalArgumentException("Cannot construct a module info object from a null repository layout.");
         }
 
-        String pattern;
-        if (descriptor && repoLayout.isDistinctiveDescriptorPathPattern()) {
-            pattern = repoLayout.getDescriptorPathPattern();
-        } else {
-            pattern = repoLayout.getArtifactPathPattern();
-        }
-
-        return moduleInfoFromPattern(itemPath, repoLayout, pattern, supportVersionsTokens);
-    }
-
-    private static ModuleInfo moduleInfoFromPattern(String itemPath, RepoLayout repoLayout, String pattern,
-            boolean supportVersionsTokens) {
-        String itemPathPatternRegExp = RepoLayoutUtils.generateRegExpFromPattern(repoLayout, pattern, false,
-                supportVersionsTokens);
-        //TODO: [by yl] Cache the patterns
-        NamedPattern itemPathRegExPattern = NamedPattern.compile(itemPathPatternRegExp);
-        NamedMatcher itemPathMatcher = itemPathRegExPattern.matcher(itemPath);
-        ModuleInfo moduleInfo;
-        if (!itemPathMatcher.matches()) {
-            moduleInfo = new ModuleInfo();
-        } else {
-            moduleInfo = createModuleInfo(itemPathMatcher);
-        }
+        boolean useDescriptorPattern = descriptor && repoLayout.isDistinctiveDescriptorPathPattern();
+        ModuleInfo moduleInfo = getCompiledPattern(repoLayout, useDescriptorPattern, supportVersionsTokens)
+                .parse(itemPath);
         if (!moduleInfo.isValid()) {
             log.debug("Could not transform {} to a valid module info.", itemPath);
         }
         return moduleInfo;
     }
 
-    private static ModuleInfo createModuleInfo(NamedMatcher itemPathMatcher) {
-        Map<String, String> namedGroups = itemPathMatcher.namedGroups();
-        ModuleInfoBuilder moduleInfoBuilder = new ModuleInfoBuilder();
-        for (Map.Entry<String, String> namedGroupEntry : namedGroups.entrySet()) {
-            String groupName = namedGroupEntry.getKey();
-            String groupValue = namedGroupEntry.getValue();
-
-            /**
-             * Check if the group name (token name) has a filter registered to it before checking for token aliases
-             * since the filter might be registered to the alias
-             */
-            if (RepoLayoutUtils.tokenHasFilter(groupName)) {
-                BaseTokenFilter tokenFilter = RepoLayoutUtils.TOKEN_FILTERS.get(groupName);
-                if (tokenFilter != null) {
-                    groupValue = tokenFilter.fromPath(groupValue);
-                }
-            }
-            setTokenValue(moduleInfoBuilder, groupName, groupValue);
+    private static CompiledLayoutPattern getCompiledPattern(RepoLayout repoLayout, boolean descriptor,
+            boolean supportVersionsTokens) {
+        CompiledLayout compiledLayout = compiledLayouts.getIfPresent(repoLayout);
+        if (compiledLayout == null || !compiledLayout.isUpToDate(repoLayout)) {
+            compiledLayout = new CompiledLayout(repoLayout);
+            compiledLayouts.put(repoLayout, compiledLayout);
         }
-
-        return moduleInfoBuilder.build();
+        return compiledLayout.getPattern(descriptor, supportVersionsTokens);
     }
 
-    private static void setTokenValue(ModuleInfoBuilder moduleInfoBuilder, String tokenName, String tokenValue) {
+    static void setTokenValue(ModuleInfoBuilder moduleInfoBuilder, String tokenName, String tokenValue) {
         if (RepoLayoutUtils.ORGANIZATION.equals(tokenName)) {
             moduleInfoBuilder.organization(tokenValue);
         } else if (RepoLayoutUtils.ORGANIZATION_PATH.equals(tokenName)) {
@@ -396,4 +372,41 @@ public abstract class ModuleInfoUtils {
             moduleInfoBuilder.customField(tokenName, tokenValue);
         }
     }
+
+    /**
+     * The compiled path patterns of a layout, compiled on first use from a copy of the layout so they always match
+     * the layout values they are checked against.
+     */
+    private static class CompiledLayout {
+        private final RepoLayout snapshot;
+        /**
+         * Artifact and descriptor patterns, each with and without support for version tokens
+         */
+        private final AtomicReferenceArray<CompiledLayoutPattern> patterns = new AtomicReferenceArray<>(4);
+
+        private CompiledLayout(RepoLayout repoLayout) {
+            snapshot = new RepoLayout(repoLayout);
+        }
+
+        private boolean isUpToDate(RepoLayout repoLayout) {
+            return Objects.equals(snapshot.getArtifactPathPattern(), repoLayout.getArtifactPathPattern()) &&
+                    Objects.equals(snapshot.getDescriptorPathPattern(), repoLayout.getDescriptorPathPattern()) &&
+                    Objects.equals(snapshot.getFolderIntegrationRevisionRegExp(),
+                            repoLayout.getFolderIntegrationRevisionRegExp()) &&
+                    Objects.equals(snapshot.getFileIntegrationRevisionRegExp(),
+                            repoLayout.getFileIntegrationRevisionRegExp());
+        }
+
+        private CompiledLayoutPattern getPattern(boolean descriptor, boolean supportVersionsTokens) {
+            int index = (descriptor ? 2 : 0) + (supportVersionsTokens ? 1 : 0);
+            CompiledLayoutPattern pattern = patterns.get(index);
+            if (pattern == null) {
+                // concurrent callers might compile the same pattern, any of the equal results can be kept
+                pattern = CompiledLayoutPattern.compile(snapshot, descriptor ? snapshot.getDescriptorPathPattern() :
+                        snapshot.getArtifactPathPattern(), supportVersionsTokens);
+                patterns.set(index, pattern);
+            }
+            return pattern;
+        }
+    }
 }
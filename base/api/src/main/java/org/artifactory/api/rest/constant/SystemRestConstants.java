@@ -36,6 +36,7 @@ public interface SystemRestConstants {
     String PATH_VERSION = "version";
     String PATH_PING = "ping";
     String PATH_METRICS = PATH_ROOT + "/metrics";
+    String PATH_NAME_SEARCH_INDEX = PATH_ROOT + "/nameSearchIndex";
     String PATH_ENCRYPT = "encrypt";
     String PATH_DECRYPT = "decrypt";
     // Artifactory license
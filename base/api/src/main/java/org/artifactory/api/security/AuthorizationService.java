@@ -26,6 +26,8 @@ import org.artifactory.security.GroupInfo;
 import org.artifactory.security.UserInfo;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * These are the usage of security data and logged in user methods.
@@ -195,4 +197,14 @@ public interface AuthorizationService {
      * Rating is by the readability of the repo based on the current user permissions.
      */
     PermissionHeuristicScore getStrongestReadPermissionTarget(String repoKey);
+
+    /**
+     * Rates the readability of each of the given local or cache repositories for the current user, taking into
+     * account the same permission targets {@link #canRead(RepoPath)} checks for the items of the repository.
+     * A repository rated {@link PermissionHeuristicScore#readNotAllowed} has no readable item, and all the items of a
+     * repository rated {@link PermissionHeuristicScore#readAll} or above are readable.
+     *
+     * @return Score per repository key
+     */
+    Map<String, PermissionHeuristicScore> getReadPermissionScores(Collection<String> repoKeys);
 }
@@ -40,6 +40,13 @@ public interface AqlService {
      */
     AqlLazyResult executeQueryLazy(String query);
 
+    /**
+     * Same as {@link #executeQueryLazy(String)}, but the rows are also fetched from the database in chunks while the
+     * result is consumed, so memory stays constant regardless of the result size.
+     * The result holds a database connection until closed, consume and close it promptly.
+     */
+    AqlLazyResult executeQueryStreaming(String query);
+
     /**
      * Parse the input AQL query and merge it with the extensionQuery using the operatorEnum operator.
      *
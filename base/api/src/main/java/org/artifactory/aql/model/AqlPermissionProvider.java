@@ -20,8 +20,13 @@
 
 package org.artifactory.aql.model;
 
+import org.artifactory.api.security.PermissionHeuristicScore;
 import org.artifactory.repo.RepoPath;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * @author Gidi Shabat
  */
@@ -31,4 +36,15 @@ public interface AqlPermissionProvider {
     boolean isAdmin();
 
     boolean isOss();
+
+    /**
+     * Rates the readability of the given repositories for the current user, used to filter the items of the
+     * unreadable repositories in the database rather than checking each item with {@link #canRead(RepoPath)}.
+     *
+     * @return Score per repository key, null if unknown and every item should be checked
+     */
+    @Nullable
+    default Map<String, PermissionHeuristicScore> getReadPermissionScores(Collection<String> repoKeys) {
+        return null;
+    }
 }
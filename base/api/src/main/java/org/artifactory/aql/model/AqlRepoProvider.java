@@ -36,4 +36,6 @@ public interface AqlRepoProvider {
     List<String> getVirtualRepoKeys();
 
     List<String> getVirtualResolvedLocalAndCacheRepoKeys(String virtualRepoKey);
+
+    List<String> getLocalAndCacheRepoKeys();
 }
@@ -0,0 +1,131 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.api.module;
+
+import org.artifactory.api.module.regex.NamedMatcher;
+import org.artifactory.api.module.regex.NamedPattern;
+import org.artifactory.descriptor.repo.RepoLayout;
+import org.artifactory.descriptor.repo.RepoLayoutBuilder;
+import org.artifactory.util.RepoLayoutUtils;
+import org.artifactory.util.layouts.token.BaseTokenFilter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link CompiledLayoutPattern} parses paths exactly like matching the named groups of the layout regular
+ * expression, and that {@link ModuleInfoUtils} recompiles the patterns of a modified layout.
+ */
+@Test
+public class CompiledLayoutPatternTest {
+
+    private static final RepoLayout NPM_LAYOUT = new RepoLayoutBuilder()
+            .name(RepoLayoutUtils.NPM_DEFAULT_NAME)
+            .artifactPathPattern("[orgPath]/[module]/[module]-[baseRev](-[fileItegRev]).tgz")
+            .distinctiveDescriptorPathPattern(false)
+            .folderIntegrationRevisionRegExp(".*")
+            .fileIntegrationRevisionRegExp(".*")
+            .build();
+
+    @DataProvider
+    public Object[][] layoutPaths() {
+        return new Object[][]{
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/1.0/test-1.0.jar"},
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/1.0/test-1.0-sources.jar"},
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/1.0-SNAPSHOT/test-1.0-20170102.030405-6.jar"},
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/1.0-SNAPSHOT/test-1.0-SNAPSHOT-tests.jar"},
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/1.0/test-1.0.pom"},
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/1.0/other-1.0.jar"},
+                {RepoLayoutUtils.MAVEN_2_DEFAULT, "org/jfrog/test/maven-metadata.xml"},
+                {RepoLayoutUtils.IVY_DEFAULT, "org.jfrog/test/1.0/jars/test-1.0.jar"},
+                {RepoLayoutUtils.IVY_DEFAULT, "org.jfrog/test/1.0-20170102030405/jars/test-src-1.0-20170102030405.jar"},
+                {RepoLayoutUtils.IVY_DEFAULT, "org.jfrog/test/1.0/ivys/ivy-1.0.xml"},
+                {RepoLayoutUtils.GRADLE_DEFAULT, "org.jfrog/test/1.0/test-1.0-javadoc.jar"},
+                {RepoLayoutUtils.GRADLE_DEFAULT, "org.jfrog/test/ivy-1.0-20170102030405.xml"},
+                {NPM_LAYOUT, "@jfrog/test/test-1.0.0.tgz"},
+                {NPM_LAYOUT, "test/test-1.0.0-beta.1.tgz"},
+                {NPM_LAYOUT, "test/-/test-1.0.0.tgz"},
+        };
+    }
+
+    @Test(dataProvider = "layoutPaths")
+    public void parseMatchesNamedGroups(RepoLayout repoLayout, String path) {
+        for (boolean supportVersionsTokens : new boolean[]{false, true}) {
+            String artifactPattern = repoLayout.getArtifactPathPattern();
+            assertEquals(CompiledLayoutPattern.compile(repoLayout, artifactPattern, supportVersionsTokens).parse(path),
+                    parseWithNamedGroups(repoLayout, artifactPattern, supportVersionsTokens, path));
+            if (repoLayout.isDistinctiveDescriptorPathPattern()) {
+                String descriptorPattern = repoLayout.getDescriptorPathPattern();
+                assertEquals(
+                        CompiledLayoutPattern.compile(repoLayout, descriptorPattern, supportVersionsTokens).parse(path),
+                        parseWithNamedGroups(repoLayout, descriptorPattern, supportVersionsTokens, path));
+            }
+        }
+    }
+
+    public void duplicateTokenUsesLastGroup() {
+        RepoLayout layout = new RepoLayoutBuilder().name("dup").artifactPathPattern("[module]/[baseRev]/[module].[ext]")
+                .folderIntegrationRevisionRegExp(".*").fileIntegrationRevisionRegExp(".*").build();
+        ModuleInfo moduleInfo = CompiledLayoutPattern.compile(layout, layout.getArtifactPathPattern(), false)
+                .parse("first/1.0/second.jar");
+        assertEquals(moduleInfo.getModule(), "second");
+        assertEquals(moduleInfo.getBaseRevision(), "1.0");
+    }
+
+    public void modifiedLayoutIsRecompiled() {
+        RepoLayout layout = new RepoLayout(RepoLayoutUtils.GRADLE_DEFAULT);
+        String path = "org.jfrog/test/1.0/test-1.0.jar";
+        ModuleInfo moduleInfo = ModuleInfoUtils.moduleInfoFromArtifactPath(path, layout);
+        assertTrue(moduleInfo.isValid());
+        assertEquals(moduleInfo.getOrganization(), "org.jfrog");
+
+        layout.setArtifactPathPattern("[orgPath]/[module]/[baseRev]/[module]-[baseRev]-bin.[ext]");
+        moduleInfo = ModuleInfoUtils.moduleInfoFromArtifactPath("org/jfrog/test/1.0/test-1.0-bin.jar", layout);
+        assertTrue(moduleInfo.isValid());
+        assertEquals(moduleInfo.getOrganization(), "org.jfrog");
+        assertFalse(ModuleInfoUtils.moduleInfoFromArtifactPath(path, layout).isValid());
+    }
+
+    /**
+     * Parses the path the way it was done before the patterns were compiled once
+     */
+    private ModuleInfo parseWithNamedGroups(RepoLayout repoLayout, String pattern, boolean supportVersionsTokens,
+            String path) {
+        NamedMatcher matcher = NamedPattern.compile(RepoLayoutUtils.generateRegExpFromPattern(repoLayout, pattern,
+                false, supportVersionsTokens)).matcher(path);
+        if (!matcher.matches()) {
+            return new ModuleInfo();
+        }
+        ModuleInfoBuilder moduleInfoBuilder = new ModuleInfoBuilder();
+        for (Map.Entry<String, String> namedGroup : matcher.namedGroups().entrySet()) {
+            String value = namedGroup.getValue();
+            BaseTokenFilter tokenFilter = RepoLayoutUtils.TOKEN_FILTERS.get(namedGroup.getKey());
+            if (tokenFilter != null) {
+                value = tokenFilter.fromPath(value);
+            }
+            ModuleInfoUtils.setTokenValue(moduleInfoBuilder, namedGroup.getKey(), value);
+        }
+        return moduleInfoBuilder.build();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.util;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang.StringUtils;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pre-compiled form of {@link PathMatcher#matches(String, Collection, Collection, boolean)} for a fixed pair of
+ * include/exclude patterns.
+ * <p/>
+ * Patterns are indexed in a trie by their leading literal path segments (the segments before the first wildcard), so
+ * matching a path evaluates only the patterns that can possibly match it. Includes that match everything are
+ * answered without any pattern matching at all. The remaining candidates are evaluated exactly as by
+ * {@link PathMatcher}, so both always give the same result.
+ */
+public class CompiledPathMatcher {
+
+    private static final CompiledPathMatcher MATCH_ALL = new CompiledPathMatcher(null, null);
+
+    /**
+     * Null if there are no excludes
+     */
+    private final PatternTrie excludes;
+    /**
+     * Null if everything is included
+     */
+    private final PatternTrie includes;
+
+    private CompiledPathMatcher(@Nullable PatternTrie includes, @Nullable PatternTrie excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    public static CompiledPathMatcher compile(@Nullable Collection<String> includes,
+            @Nullable Collection<String> excludes) {
+        PatternTrie excludesTrie = CollectionUtils.notNullOrEmpty(excludes) ? new PatternTrie(excludes) : null;
+        PatternTrie includesTrie = null;
+        if (CollectionUtils.notNullOrEmpty(includes) && includes.stream().noneMatch(PathMatcher::isIncludeAll)) {
+            includesTrie = new PatternTrie(includes);
+        }
+        if (excludesTrie == null && includesTrie == null) {
+            return MATCH_ALL;
+        }
+        return new CompiledPathMatcher(includesTrie, excludesTrie);
+    }
+
+    /**
+     * @return True if this matcher accepts any path (no excludes and include all patterns)
+     */
+    public boolean isMatchAll() {
+        return includes == null && excludes == null;
+    }
+
+    public boolean matches(String path, boolean useStartMatch) {
+        if (isMatchAll()) {
+            return true;
+        }
+        String[] segments = StringUtils.split(path, '/');
+        if (excludes != null && excludes.anyCandidateMatches(segments, false,
+                exclude -> PathMatcher.excludeMatch(path, exclude))) {
+            return false;
+        }
+        return includes == null || includes.anyCandidateMatches(segments, useStartMatch,
+                include -> PathMatcher.includeMatch(path, useStartMatch, include));
+    }
+
+    private interface PatternPredicate {
+        boolean matches(String pattern);
+    }
+
+    /**
+     * Trie of patterns keyed by their leading literal path segments.
+     */
+    private static class PatternTrie {
+        private final Node root = new Node();
+        private final List<String> allPatterns;
+
+        private PatternTrie(Collection<String> patterns) {
+            allPatterns = ImmutableList.copyOf(patterns);
+            for (String pattern : allPatterns) {
+                Node node = root;
+                for (String segment : StringUtils.split(pattern, '/')) {
+                    if (!isLiteral(segment)) {
+                        break;
+                    }
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+                }
+                node.patterns.add(pattern);
+            }
+        }
+
+        /**
+         * Evaluates the given predicate on every pattern that can match the path. A pattern can match only if its
+         * literal segments are a prefix of the path segments, or (when start matching) if the path segments are a
+         * prefix of its literal segments.
+         */
+        private boolean anyCandidateMatches(String[] segments, boolean useStartMatch, PatternPredicate predicate) {
+            for (String segment : segments) {
+                if (!isLiteral(segment)) {
+                    // let the Ant matcher handle whatever we can't index
+                    return anyMatches(allPatterns, predicate);
+                }
+            }
+            Node node = root;
+            if (anyMatches(node.patterns, predicate)) {
+                return true;
+            }
+            for (String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    return false;
+                }
+                if (anyMatches(node.patterns, predicate)) {
+                    return true;
+                }
+            }
+            return useStartMatch && anyDescendantMatches(node, predicate);
+        }
+
+        private boolean anyDescendantMatches(Node node, PatternPredicate predicate) {
+            for (Node child : node.children.values()) {
+                if (anyMatches(child.patterns, predicate) || anyDescendantMatches(child, predicate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean anyMatches(List<String> patterns, PatternPredicate predicate) {
+            for (String pattern : patterns) {
+                if (predicate.matches(pattern)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * A segment is literal if it contains no Ant wildcards or URI template variables, and no surrounding
+         * whitespace (which the Ant matcher may trim).
+         */
+        private static boolean isLiteral(String segment) {
+            if (segment.isEmpty() || Character.isWhitespace(segment.charAt(0)) ||
+                    Character.isWhitespace(segment.charAt(segment.length() - 1))) {
+                return false;
+            }
+            return StringUtils.containsNone(segment, "*?{");
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>(4);
+        private final List<String> patterns = new ArrayList<>(1);
+    }
+}
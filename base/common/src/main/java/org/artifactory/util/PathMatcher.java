@@ -53,8 +53,7 @@ public abstract class PathMatcher {
             @Nullable Collection<String> excludes, boolean useStartMatch) {
         if (CollectionUtils.notNullOrEmpty(excludes)) {
             for (String exclude : excludes) {
-                if (antPathMatcher.match(exclude, path)) {
-                    log.debug("excludes pattern ({}) rejected path '{}'.", exclude, path);
+                if (excludeMatch(path, exclude)) {
                     return false;
                 }
             }
@@ -72,10 +71,21 @@ public abstract class PathMatcher {
         return false;
     }
 
-    private static boolean includeMatch(String path, boolean useStartMatch, String include) {
-        return "**/*".equals(include)
-                || "**".equals(include)
+    static boolean excludeMatch(String path, String exclude) {
+        if (antPathMatcher.match(exclude, path)) {
+            log.debug("excludes pattern ({}) rejected path '{}'.", exclude, path);
+            return true;
+        }
+        return false;
+    }
+
+    static boolean includeMatch(String path, boolean useStartMatch, String include) {
+        return isIncludeAll(include)
                 || (useStartMatch && antPathMatcher.matchStart(include, path))
                 || antPathMatcher.match(include, path);
     }
+
+    static boolean isIncludeAll(String include) {
+        return "**/*".equals(include) || "**".equals(include);
+    }
 }
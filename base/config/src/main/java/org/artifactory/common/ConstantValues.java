@@ -50,10 +50,17 @@ public enum ConstantValues {
     logsViewRefreshRateSecs("logs.viewRefreshRateSecs", 10),
     locksTimeoutSecs("locks.timeoutSecs", 120),
     locksDebugTimeouts("locks.debugTimeouts", FALSE),
+    locksStriped("locks.striped", FALSE),
+    locksStripesCount("locks.stripesCount", 1024),
+    locksTracingMaxHotPaths("locks.tracing.maxHotPaths", 1000),
     taskCompletionLockTimeoutRetries("task.completionLockTimeoutRetries", 100),
     substituteRepoKeys("repo.key.subst."),
     repoConcurrentDownloadSyncTimeoutSecs("repo.concurrentDownloadSyncTimeoutSecs", Seconds.MINUTE * 15),
     downloadStatsEnabled("repo.downloadStatsEnabled", TRUE),
+    folderDownloadPrefetchCount("folderDownload.prefetchCount", 4),
+    treeBulkLoadMaxNodes("tree.bulkLoad.maxNodes", 200000),
+    folderDownloadStoredExtensions("folderDownload.storedExtensions",
+            "zip,jar,war,ear,apk,nupkg,whl,gz,tgz,bz2,xz,7z,rar,rpm,deb,png,jpg,jpeg,gif"),
     disableGlobalRepoAccess("repo.global.disabled", TRUE),
     fsItemCacheIdleTimeSecs("fsitem.cache.idleTimeSecs", Seconds.MINUTE * 20),
     dockerTokensCacheIdleTimeSecs("docker.tokens.cache.idleTimeSecs", Seconds.MINUTE * 4),
@@ -65,6 +72,8 @@ public enum ConstantValues {
     searchMaxFragmentsSize("search.content.maxFragmentsSize", 5000),
     searchArchiveMinQueryLength("search.archive.minQueryLength", 3),
     searchPatternTimeoutSecs("search.pattern.timeoutSecs", 30),
+    searchNameIndexEnabled("search.nameIndex.enabled", FALSE),
+    searchNameIndexCheckIntervalSecs("search.nameIndex.checkIntervalSecs", Seconds.HOUR),
     gcUseIndex("gc.useIndex", FALSE),
     gcIntervalSecs("gc.intervalSecs", Seconds.DAY),
     gcDelaySecs("gc.delaySecs", Seconds.HOUR * 2),
@@ -76,9 +85,14 @@ public enum ConstantValues {
     gcMaxCacheEntries("gc.maxCacheEntries", 10000),
     gcReadersMaxTimeSecs("gc.readersMaxTimeSecs", Seconds.HOUR * 3),
     gcFailCountThreshold("gc.failCount.threshold", 3),
+    gcBatchSize("gc.batch.size", 500),
+    gcBinaryProviderDeleteThreads("gc.binaryProvider.deleteThreads", 4),
     trafficCollectionActive("traffic.collectionActive", FALSE),
     securityAuthenticationCacheInitSize("security.authentication.cache.initSize", 100),
     securityAuthenticationCacheIdleTimeSecs("security.authentication.cache.idleTimeSecs", Seconds.MINUTE * 5),
+    securityPrincipalCacheMaxUsers("security.principalCache.maxUsers", 50000),
+    securityPrincipalCacheExpirySecs("security.principalCache.expirySecs", Seconds.MINUTE),
+    securityPrincipalCacheWarmUp("security.principalCache.warmUp", FALSE),
     userLastAccessUpdatesResolutionSecs("security.userLastAccessUpdatesResolutionSecs", 5),
     securityMasterKeyLocation("security.master.key", "security/artifactory.key"),
     securityMasterKeyNumOfFallbackKeys("security.master.key.numOfFallbackKeys", 3),
@@ -87,8 +101,13 @@ public enum ConstantValues {
     ldapDisableGroupSearchAttributesLimitation("security.ldap.disable.group.search.attributes.limitation", FALSE),
     ldapGroupNamesSearchFilterThreshold("security.ldap.group.search.filterThreshold", 0),
     enableAqlReadCommitted("enable.aql.read.committed", FALSE),
+    aqlStreamingFetchSize("aql.streaming.fetchSize", 1000),
+    aqlPermissionsPushDown("aql.permissions.pushDown", TRUE),
+    aqlParseCacheSize("aql.parseCache.size", 1000),
     mvnCentralHostPattern("mvn.central.hostPattern", ".maven.org"),
     mvnCentralIndexerMaxQueryIntervalSecs("mvn.central.indexerMaxQueryIntervalSecs", Seconds.DAY),
+    mvnIndexerIncremental("mvn.indexer.incremental", TRUE),
+    mvnIndexerMaxChunks("mvn.indexer.maxChunks", 30),
     mvnMetadataPluginCalculationWorkers("mvn.metadata.plugin.calculation.workers", 2),
     mvnMetadataCalculationWorkers("mvn.metadata.calculation.workers", 8),
     mvnMetadataVersionsComparator("mvn.metadataVersionsComparatorFqn"),
@@ -101,6 +120,7 @@ public enum ConstantValues {
     npmTagLatestByPublish("npm.tag.tagLatestByPublish", FALSE),
     buildMaxFoldersToScanForDeletionWarnings("build.maxFoldersToScanForDeletionWarnings", 2),
     missingBuildChecksumCacheIdeTimeSecs("build.checksum.cache.idleTimeSecs", Seconds.MINUTE * 5),
+    buildInfoJsonCompress("build.info.json.compress", TRUE),
     artifactoryUpdatesRefreshIntervalSecs("updates.refreshIntervalSecs", Seconds.HOUR * 4),
     artifactoryUpdatesUrl("updates.url", "http://service.jfrog.org/artifactory/updates"),
     artifactoryRequestsToGlobalCanRetrieveRemoteArtifacts("artifactoryRequestsToGlobalCanRetrieveRemoteArtifacts", FALSE),
@@ -176,11 +196,18 @@ public enum ConstantValues {
     integrationCleanupQuietPeriodSecs("integrationCleanup.quietPeriodSecs", 60),
     folderPruningIntervalSecs("folderPruning.intervalSecs", 300),
     folderPruningQuietPeriodSecs("folderPruning.quietPeriodSecs", 60),
+    artifactCleanupBatchSize("artifactCleanup.batchSize", 100),
+    artifactCleanupPruneEmptyFolders("artifactCleanup.pruneEmptyFolders", TRUE),
     virtualCleanupMaxAgeHours("repo.virtualCacheCleanup.maxAgeHours", 168),
     virtualCleanupNamePattern("repo.virtualCacheCleanup.pattern", "*.pom"),
+    virtualParallelResolution("repo.virtual.parallelResolution", FALSE),
+    virtualServingMemberCacheSize("repo.virtual.servingMemberCache.size", 0),
+    virtualServingMemberCacheTtlSecs("repo.virtual.servingMemberCache.ttlSecs", 300),
     defaultSaltValue("security.authentication.password.salt", "CAFEBABEEBABEFAC"),
     dbIdGeneratorFetchAmount("db.idGenerator.fetch.amount", 2000),
     dbIdGeneratorMaxUpdateRetries("db.idGenerator.max.update.retries", 50),
+    dbMultiRowInsertMaxRows("db.multiRowInsert.maxRows", 200),
+    dbStreamingFetchSize("db.streaming.fetchSize", 1000),
     gemsLocalIndexTaskIntervalSecs("gems.localIndexTaskIntervalSecs", 30),
     gemsVirtualIndexTaskIntervalSecs("gems.virtualIndexTaskIntervalSecs", 300),
     gemsIndexTaskQueueLimit("gems.gemsIndexTaskQueueLimit", 20000),
@@ -189,6 +216,7 @@ public enum ConstantValues {
     securityCrowdMaxGroupResults("security.authentication.crowd.group.maxResults", 9999),
     uiHideChecksums("ui.hideChecksums", FALSE),
     archiveIndexerTaskIntervalSecs("archive.indexer.intervalSecs", 60),
+    archiveIndexerWorkers("archive.indexer.workers", 1),
     xrayIndexerTaskIntervalSecs("xray.indexer.intervalSecs", 60),
     xrayForceReindex("xray.force.reindex", false),
     xrayScanBuildMaxConnections("xray.scanBuild.httpClient.max.connections", 30),
@@ -205,6 +233,11 @@ public enum ConstantValues {
     npmIndexQuietPeriodSecs("npm.index.quietPeriodSecs", 60),
     npmIndexCycleSecs("npm.index.cycleSecs", 60),
     importMaxParallelRepos("import.max.parallelRepos", Runtime.getRuntime().availableProcessors() - 1),
+    importParallelWorkers("import.parallelWorkers", 0),
+    importParallelMaxInFlightFiles("import.parallelMaxInFlightFiles", 1000),
+    exportParallelWorkers("export.parallelWorkers", 0),
+    exportParallelMaxInFlightFiles("export.parallelMaxInFlightFiles", 1000),
+    exportPageSize("export.pageSize", 1000),
     debianDistributionPath("debian.distribution.path", "dists"),
     opkgIndexQuietPeriodSecs("opkg.index.quietPeriodSecs", 60),
     opkgIndexCycleSecs("opkg.index.cycleSecs", 2),
@@ -269,7 +302,12 @@ public enum ConstantValues {
     watchAggregationTimeWindowSecs("aggregation.time.window.secs", 60),
     mostDownloadedCacheIdleTimeSecs("most.downloaded.cache.idleTimeSecs", TimeUnit.MINUTES.toSeconds(15)),
     buildRetentionWorkers("build.retention.workers", 10),
-    buildRetentionAlwaysAsync("build.retention.always.async", false);
+    buildRetentionAlwaysAsync("build.retention.always.async", false),
+    remoteStreamWhileCaching("repo.remote.streamWhileCaching", FALSE),
+    remoteStreamWhileCachingMaxSaves("repo.remote.streamWhileCaching.maxSaves", 20),
+    securityPermissionDecisionCacheSize("security.permissions.decisionCacheSize", 100000),
+    aclCacheDeltaUpdates("acl.cache.deltaUpdates", TRUE),
+    aclCacheConsistencyCheckIntervalSecs("acl.cache.consistencyCheckIntervalSecs", 300);
 
     public static final String SYS_PROP_PREFIX = "artifactory.";
 
@@ -48,6 +48,7 @@ public class GarbageCollectorInfo {
     public long totalSizeCleaned;
     public int archivePathsCleaned; // the amount of unique archive paths cleaned
     public int archiveNamesCleaned; // the amount of unique archive names cleaned
+    public int batchesProcessed; // the amount of candidate batches processed by a batched collection
 
     public GarbageCollectorInfo() {
         gcStartTime = System.currentTimeMillis();
@@ -66,7 +67,8 @@ public class GarbageCollectorInfo {
                 "Candidates for deletion: ").append(formatLong(candidatesForDeletion)).append("\n").append(
                 "Checksums deleted:       ").append(formatLong(checksumsCleaned)).append("\n").append(
                 "Binaries deleted:        ").append(formatLong(binariesCleaned)).append("\n").append(
-                "Total size freed:        ").append(StorageUnit.toReadableString(totalSizeCleaned));
+                "Total size freed:        ").append(StorageUnit.toReadableString(totalSizeCleaned)).append("\n").append(
+                "Checksums per second:    ").append(formatLong(getChecksumsPerSecond(gcEndTime)));
 
         if (log.isDebugEnabled()) {
             msg.append("\n").append("Unique paths deleted:    ").append(formatLong(archivePathsCleaned));
@@ -79,4 +81,23 @@ public class GarbageCollectorInfo {
 
         log.info(msg.toString());
     }
+
+    /**
+     * Prints the progress of a running collection to the log
+     */
+    public void printProgress() {
+        long now = System.currentTimeMillis();
+        log.info("Storage garbage collector progress: {} batches, {} candidates, {} checksums deleted, " +
+                        "{} binaries deleted, {} freed ({} checksums per second)", formatLong(batchesProcessed),
+                formatLong(candidatesForDeletion), formatLong(checksumsCleaned), formatLong(binariesCleaned),
+                StorageUnit.toReadableString(totalSizeCleaned), formatLong(getChecksumsPerSecond(now)));
+    }
+
+    /**
+     * @return The average number of checksums deleted per second from the start of the collection until the given time
+     */
+    public long getChecksumsPerSecond(long until) {
+        long durationMillis = until - gcStartTime;
+        return durationMillis > 0 ? checksumsCleaned * 1000L / durationMillis : checksumsCleaned;
+    }
 }
\ No newline at end of file
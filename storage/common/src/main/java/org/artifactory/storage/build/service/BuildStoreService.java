@@ -28,6 +28,7 @@ import org.artifactory.checksum.ChecksumType;
 import org.jfrog.build.api.Build;
 import org.jfrog.build.api.release.PromotionStatus;
 
+import javax.annotation.Nullable;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Set;
@@ -58,6 +59,15 @@ public interface BuildStoreService {
 
     Set<BuildRun> findBuildsByName(String buildName);
 
+    /**
+     * Finds the latest build run of the given name by build number order, without loading every run of the name.
+     *
+     * @param releaseStatus Status of the latest promotion the run must have, null for any run
+     * @return The latest build run, null if none found
+     */
+    @Nullable
+    BuildRun getLatestBuildRun(String buildName, @Nullable String releaseStatus);
+
     Set<BuildRun> findBuildsByNameAndNumber(String buildName, String buildNumber);
 
     List<String> getAllBuildNames();
@@ -82,6 +92,16 @@ public interface BuildStoreService {
 
     Build getBuildJson(BuildRun buildRun);
 
+    /**
+     * Reads only the given top level fields of the build info (e.g. "modules", "issues" or "statuses") by streaming
+     * the stored JSON, which is much cheaper than {@link #getBuildJson(BuildRun)} for large builds.
+     *
+     * @param fieldNames The JSON names of the build info fields to read
+     * @return A build holding only the requested fields, null if the build was not found
+     */
+    @Nullable
+    Build getBuildJsonFields(BuildRun buildRun, String... fieldNames);
+
     void renameBuild(BuildRun originalBuildRun, Build renamedBuild, String currentUser);
 
     void addPromotionStatus(Build build, PromotionStatus promotion, String currentUser);
@@ -0,0 +1,49 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock;
+
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.lock.provider.StripedLockProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Items vault which locks through a {@link StripedLockProvider}. Lock objects exist only while locked so there is
+ * nothing to cache, and the same provider may be shared by the vaults of all the repositories.
+ */
+public class FsItemsVaultStripedImpl implements FsItemsVault {
+    private static final Logger log = LoggerFactory.getLogger(FsItemsVaultStripedImpl.class);
+
+    private final StripedLockProvider lockProvider;
+
+    public FsItemsVaultStripedImpl(StripedLockProvider lockProvider) {
+        this.lockProvider = lockProvider;
+    }
+
+    @Override
+    @Nonnull
+    public LockEntryId getLock(RepoPath repoPath) {
+        log.trace("Getting lock for {}", repoPath);
+        return new LockEntryId(lockProvider.getLock(repoPath), repoPath);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of lock times (wait or hold). Samples are counted in buckets with fixed millisecond upper
+ * bounds so recording is a couple of atomic increments and the memory doesn't grow with the number of samples.
+ */
+public class LockTimeHistogram {
+
+    /**
+     * Upper bounds (exclusive) of the buckets in milliseconds. The last bucket counts everything above the last bound.
+     */
+    static final long[] BUCKET_BOUNDS_MILLIS = {1, 5, 10, 50, 100, 500, 1000, 5000, 30000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && millis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry until this sample is recorded as the max or a bigger one was recorded
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getAverageMillis() {
+        long samples = count.get();
+        return samples == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / samples);
+    }
+
+    public long getMaxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return The upper bound in milliseconds of the bucket holding the given percentile, or the max time if it falls
+     * in the last bucket
+     */
+    public long getPercentileMillis(double percentile) {
+        long samples = count.get();
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(samples * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], Math.max(getMaxMillis(), 1));
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return The number of samples in each bucket, the last element counts the samples above the last bound
+     */
+    public long[] getBuckets() {
+        long[] result = new long[buckets.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buckets.get(i);
+        }
+        return result;
+    }
+
+    void appendTo(StringBuilder sb) {
+        sb.append("count=").append(getCount())
+                .append(", avg=").append(getAverageMillis()).append("ms")
+                .append(", p99<=").append(getPercentileMillis(99)).append("ms")
+                .append(", max=").append(getMaxMillis()).append("ms")
+                .append(", buckets=[");
+        long[] counts = getBuckets();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            if (i < BUCKET_BOUNDS_MILLIS.length) {
+                sb.append("<").append(BUCKET_BOUNDS_MILLIS[i]).append("ms:");
+            } else {
+                sb.append(">=").append(BUCKET_BOUNDS_MILLIS[i - 1]).append("ms:");
+            }
+            sb.append(counts[i]);
+        }
+        sb.append("]");
+    }
+}
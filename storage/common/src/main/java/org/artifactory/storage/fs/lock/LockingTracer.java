@@ -0,0 +1,275 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.repo.RepoPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.text.SimpleDateFormat;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Collects lock contention telemetry of the storage item locks: per repository histograms of the lock wait and hold
+ * times, and the paths which had to wait the most for their lock. Only contended acquisitions are tracked per path,
+ * and the number of tracked paths is bounded, so the memory used doesn't depend on the number of locked paths.
+ */
+@Component
+public class LockingTracer {
+    private static final Logger log = LoggerFactory.getLogger(LockingTracer.class);
+
+    private final int maxTrackedPaths;
+    private final ConcurrentHashMap<String, RepoLockStats> reposStats = new ConcurrentHashMap<>();
+    private volatile Cache<RepoPath, PathContention> hotPaths;
+    /**
+     * Time tracing has begun in milliseconds
+     */
+    private volatile long traceStartTime = System.currentTimeMillis();
+
+    public LockingTracer() {
+        this(ConstantValues.locksTracingMaxHotPaths.getInt());
+    }
+
+    /**
+     * @param maxTrackedPaths Max number of contended paths to track
+     */
+    public LockingTracer(int maxTrackedPaths) {
+        this.maxTrackedPaths = maxTrackedPaths;
+        hotPaths = createHotPathsCache();
+    }
+
+    /**
+     * Records a successful lock acquisition.
+     *
+     * @param repoPath  The locked path
+     * @param waitNanos Time spent waiting for the lock, zero if the lock was free
+     */
+    public void lockAcquired(RepoPath repoPath, long waitNanos) {
+        RepoLockStats repoStats = getOrCreateRepoStats(repoPath.getRepoKey());
+        repoStats.waitTimes.record(waitNanos);
+        if (waitNanos > 0) {
+            repoStats.contended.incrementAndGet();
+            getOrCreateContention(repoPath).record(waitNanos, false);
+        }
+    }
+
+    /**
+     * Records a lock acquisition that timed out.
+     *
+     * @param repoPath  The path that failed to lock
+     * @param waitNanos Time spent waiting for the lock
+     */
+    public void lockTimedOut(RepoPath repoPath, long waitNanos) {
+        RepoLockStats repoStats = getOrCreateRepoStats(repoPath.getRepoKey());
+        repoStats.timeouts.incrementAndGet();
+        getOrCreateContention(repoPath).record(waitNanos, true);
+    }
+
+    /**
+     * Records the release of a lock by its holder.
+     *
+     * @param repoPath  The unlocked path
+     * @param holdNanos Time the lock was held since it was first acquired by the holder
+     */
+    public void lockReleased(RepoPath repoPath, long holdNanos) {
+        getOrCreateRepoStats(repoPath.getRepoKey()).holdTimes.record(holdNanos);
+    }
+
+    /**
+     * @return The locking statistics of the given repository, null if nothing was locked in it since the last reset
+     */
+    @Nullable
+    public RepoLockStats getRepoStats(String repoKey) {
+        return reposStats.get(repoKey);
+    }
+
+    /**
+     * @param limit Max number of paths to return
+     * @return The tracked paths ordered by the total time spent waiting for their lock
+     */
+    public List<PathContention> getHottestPaths(int limit) {
+        return hotPaths.asMap().values().stream()
+                .sorted(Comparator.comparingLong(PathContention::getTotalWaitNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resets any tracing information.
+     */
+    public void resetTracing() {
+        reposStats.clear();
+        hotPaths = createHotPathsCache();
+        traceStartTime = System.currentTimeMillis();
+    }
+
+    public String report(int hottestPathsLimit) {
+        long reportTime = System.currentTimeMillis();
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        sb.append("Storage locks report\n");
+        sb.append("Report time: ").append(sdf.format(reportTime)).append("\n")
+                .append("Period: ")
+                .append(sdf.format(traceStartTime)).append(" - ")
+                .append(sdf.format(reportTime))
+                .append(" (").append(reportTime - traceStartTime).append(" ms)\n");
+        sb.append("Repositories ordered by number of contended acquisitions:\n");
+        reposStats.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, RepoLockStats> e) -> e.getValue().getContendedCount()).reversed())
+                .forEach(e -> {
+                    RepoLockStats stats = e.getValue();
+                    sb.append("  ").append(e.getKey()).append(": contended=").append(stats.getContendedCount())
+                            .append(", timeouts=").append(stats.getTimeoutsCount()).append("\n");
+                    sb.append("    wait: ");
+                    stats.getWaitTimes().appendTo(sb);
+                    sb.append("\n    hold: ");
+                    stats.getHoldTimes().appendTo(sb);
+                    sb.append("\n");
+                });
+        sb.append("Top paths ordered by total wait time:\n");
+        getHottestPaths(hottestPathsLimit).forEach(p -> sb.append(String.format(
+                "  %,10d ms %,8d waits %,6d timeouts %,8d ms max  %s%n",
+                TimeUnit.NANOSECONDS.toMillis(p.getTotalWaitNanos()), p.getWaitsCount(), p.getTimeoutsCount(),
+                TimeUnit.NANOSECONDS.toMillis(p.getMaxWaitNanos()), p.getRepoPath())));
+
+        String report = sb.toString();
+        log.debug(report);
+        return report;
+    }
+
+    private RepoLockStats getOrCreateRepoStats(String repoKey) {
+        RepoLockStats stats = reposStats.get(repoKey);
+        if (stats == null) {
+            stats = new RepoLockStats();
+            RepoLockStats existing = reposStats.putIfAbsent(repoKey, stats);
+            if (existing != null) {
+                stats = existing;   // someone else added the stats
+            }
+        }
+        return stats;
+    }
+
+    private PathContention getOrCreateContention(RepoPath repoPath) {
+        Cache<RepoPath, PathContention> paths = hotPaths;
+        PathContention contention = paths.getIfPresent(repoPath);
+        if (contention == null) {
+            contention = new PathContention(repoPath);
+            PathContention existing = paths.asMap().putIfAbsent(repoPath, contention);
+            if (existing != null) {
+                contention = existing;
+            }
+        }
+        return contention;
+    }
+
+    private Cache<RepoPath, PathContention> createHotPathsCache() {
+        return CacheBuilder.newBuilder().maximumSize(maxTrackedPaths).build();
+    }
+
+    /**
+     * Lock wait and hold times of a single repository
+     */
+    public static class RepoLockStats {
+        private final LockTimeHistogram waitTimes = new LockTimeHistogram();
+        private final LockTimeHistogram holdTimes = new LockTimeHistogram();
+        private final AtomicLong contended = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+
+        public LockTimeHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        public LockTimeHistogram getHoldTimes() {
+            return holdTimes;
+        }
+
+        /**
+         * @return Number of acquisitions that had to wait for another holder to release the lock
+         */
+        public long getContendedCount() {
+            return contended.get();
+        }
+
+        public long getTimeoutsCount() {
+            return timeouts.get();
+        }
+    }
+
+    /**
+     * Contention counters of a single path
+     */
+    public static class PathContention {
+        private final RepoPath repoPath;
+        private final AtomicLong waits = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        PathContention(RepoPath repoPath) {
+            this.repoPath = repoPath;
+        }
+
+        void record(long waitNanos, boolean timedOut) {
+            if (timedOut) {
+                timeouts.incrementAndGet();
+            } else {
+                waits.incrementAndGet();
+            }
+            totalWaitNanos.addAndGet(waitNanos);
+            long max;
+            while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+                // retry until this wait is recorded as the max or a longer one was recorded
+            }
+        }
+
+        public RepoPath getRepoPath() {
+            return repoPath;
+        }
+
+        public long getWaitsCount() {
+            return waits.get();
+        }
+
+        public long getTimeoutsCount() {
+            return timeouts.get();
+        }
+
+        public long getTotalWaitNanos() {
+            return totalWaitNanos.get();
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos.get();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock.provider;
+
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.lock.LockingTracer;
+import org.artifactory.storage.fs.lock.MonitoringReentrantLock;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lock provider backed by a fixed table of stripes, selected by the hash of the repo path.
+ * <p/>
+ * Each stripe keeps the locks of the paths which are currently locked or waited on, and drops a path lock as soon as
+ * it has no holder and no waiters. Writers still lock per path (two paths of the same stripe don't block each
+ * other), while the memory is bounded by the number of stripes and the number of in-flight locks instead of
+ * depending on a cache of soft referenced lock objects.
+ * <p/>
+ * The returned {@link LockWrapper}s are lightweight handles that resolve the path lock from its stripe on each call,
+ * and report the wait and hold times to the {@link LockingTracer}.
+ */
+public class StripedLockProvider implements LockProvider {
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LockingTracer tracer;
+
+    /**
+     * @param stripesCount Number of stripes, rounded up to a power of two
+     * @param tracer       Tracer to report the lock times to
+     */
+    public StripedLockProvider(int stripesCount, LockingTracer tracer) {
+        int size = stripesCount <= 1 ? 1 : Integer.highestOneBit(stripesCount - 1) << 1;
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = size - 1;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public LockWrapper getLock(RepoPath repoPath) {
+        return new StripedLockWrapper(repoPath, stripeFor(repoPath));
+    }
+
+    /**
+     * @return Number of path locks currently held or waited on
+     */
+    public int getActiveLocksCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    int getStripesCount() {
+        return stripes.length;
+    }
+
+    private Stripe stripeFor(RepoPath repoPath) {
+        int hash = repoPath.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static class Stripe {
+        private final Map<RepoPath, PathLock> locks = new HashMap<>();
+
+        /**
+         * Returns the lock of the path, creating it if needed, and marks it as referenced by the caller until
+         * {@link #release(RepoPath, PathLock)} is called
+         */
+        synchronized PathLock reference(RepoPath repoPath) {
+            PathLock pathLock = locks.computeIfAbsent(repoPath, path -> new PathLock());
+            pathLock.references++;
+            return pathLock;
+        }
+
+        synchronized void release(RepoPath repoPath, PathLock pathLock) {
+            if (--pathLock.references == 0) {
+                locks.remove(repoPath);
+            }
+        }
+
+        synchronized PathLock get(RepoPath repoPath) {
+            return locks.get(repoPath);
+        }
+
+        synchronized int size() {
+            return locks.size();
+        }
+    }
+
+    private static class PathLock {
+        private final MonitoringReentrantLock lock = new MonitoringReentrantLock();
+        /**
+         * Number of acquisitions held plus the number of threads trying to acquire. Guarded by the stripe.
+         */
+        private int references;
+        /**
+         * Time the current holder first acquired the lock. Written and read only by the holder.
+         */
+        private long acquiredNanos;
+    }
+
+    private class StripedLockWrapper implements LockWrapper {
+        private final RepoPath repoPath;
+        private final Stripe stripe;
+
+        private StripedLockWrapper(RepoPath repoPath, Stripe stripe) {
+            this.repoPath = repoPath;
+            this.stripe = stripe;
+        }
+
+        @Override
+        public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+            PathLock pathLock = stripe.reference(repoPath);
+            boolean locked = false;
+            try {
+                long waitNanos = 0;
+                locked = pathLock.lock.tryLock();
+                if (!locked) {
+                    long start = System.nanoTime();
+                    locked = pathLock.lock.tryLock(timeout, unit);
+                    waitNanos = Math.max(1, System.nanoTime() - start);
+                    if (!locked) {
+                        tracer.lockTimedOut(repoPath, waitNanos);
+                        return false;
+                    }
+                }
+                if (pathLock.lock.getHoldCount() == 1) {
+                    pathLock.acquiredNanos = System.nanoTime();
+                }
+                tracer.lockAcquired(repoPath, waitNanos);
+                return true;
+            } finally {
+                if (!locked) {
+                    stripe.release(repoPath, pathLock);
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            PathLock pathLock = stripe.get(repoPath);
+            if (pathLock == null) {
+                throw new IllegalMonitorStateException("Lock on " + repoPath + " is not held");
+            }
+            boolean lastHold = pathLock.lock.getHoldCount() == 1;
+            long acquiredNanos = pathLock.acquiredNanos;
+            pathLock.lock.unlock();
+            stripe.release(repoPath, pathLock);
+            if (lastHold) {
+                tracer.lockReleased(repoPath, System.nanoTime() - acquiredNanos);
+            }
+        }
+
+        @Override
+        public boolean isLocked() {
+            PathLock pathLock = stripe.get(repoPath);
+            return pathLock != null && pathLock.lock.isLocked();
+        }
+
+        @Override
+        public boolean isHeldByCurrentThread() {
+            PathLock pathLock = stripe.get(repoPath);
+            return pathLock != null && pathLock.lock.isHeldByCurrentThread();
+        }
+
+        @Override
+        public Collection<Thread> getQueuedThreads() {
+            PathLock pathLock = stripe.get(repoPath);
+            return pathLock == null ? Collections.emptyList() : pathLock.lock.getQueuedThreads();
+        }
+
+        @Override
+        public void destroy() {
+            //noop
+        }
+
+        @Override
+        public String toString() {
+            PathLock pathLock = stripe.get(repoPath);
+            return pathLock == null ? "Unlocked " + repoPath : pathLock.lock.toString();
+        }
+    }
+}
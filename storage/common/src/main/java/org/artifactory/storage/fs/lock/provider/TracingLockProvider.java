@@ -0,0 +1,121 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock.provider;
+
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.lock.LockingTracer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lock provider that reports the wait and hold times of the locks of another provider to the {@link LockingTracer},
+ * the same way the {@link StripedLockProvider} does, so that both lock vaults can be compared.
+ */
+public class TracingLockProvider implements LockProvider {
+
+    private final LockProvider delegate;
+    private final LockingTracer tracer;
+
+    public TracingLockProvider(LockProvider delegate, LockingTracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public LockWrapper getLock(RepoPath repoPath) {
+        return new TracingLockWrapper(repoPath, delegate.getLock(repoPath));
+    }
+
+    private class TracingLockWrapper implements LockWrapper {
+        private final RepoPath repoPath;
+        private final LockWrapper lock;
+        /**
+         * Hold count and first acquisition time of the current holder. Written and read only by the holder.
+         */
+        private int holdCount;
+        private long acquiredNanos;
+
+        private TracingLockWrapper(RepoPath repoPath, LockWrapper lock) {
+            this.repoPath = repoPath;
+            this.lock = lock;
+        }
+
+        @Override
+        public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+            long waitNanos = 0;
+            boolean locked = lock.tryLock(0, unit);
+            if (!locked) {
+                long start = System.nanoTime();
+                locked = lock.tryLock(timeout, unit);
+                waitNanos = Math.max(1, System.nanoTime() - start);
+                if (!locked) {
+                    tracer.lockTimedOut(repoPath, waitNanos);
+                    return false;
+                }
+            }
+            if (++holdCount == 1) {
+                acquiredNanos = System.nanoTime();
+            }
+            tracer.lockAcquired(repoPath, waitNanos);
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            boolean heldByCurrentThread = lock.isHeldByCurrentThread();
+            boolean lastHold = heldByCurrentThread && holdCount == 1;
+            long holdNanos = System.nanoTime() - acquiredNanos;
+            if (heldByCurrentThread) {
+                holdCount--;
+            }
+            lock.unlock();
+            if (lastHold) {
+                tracer.lockReleased(repoPath, holdNanos);
+            }
+        }
+
+        @Override
+        public boolean isLocked() {
+            return lock.isLocked();
+        }
+
+        @Override
+        public boolean isHeldByCurrentThread() {
+            return lock.isHeldByCurrentThread();
+        }
+
+        @Override
+        public Collection<Thread> getQueuedThreads() {
+            return lock.getQueuedThreads();
+        }
+
+        @Override
+        public void destroy() {
+            lock.destroy();
+        }
+
+        @Override
+        public String toString() {
+            return lock.toString();
+        }
+    }
+}
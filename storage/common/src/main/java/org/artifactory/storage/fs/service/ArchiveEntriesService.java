@@ -23,6 +23,7 @@ package org.artifactory.storage.fs.service;
 import org.artifactory.fs.ZipEntryInfo;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -59,6 +60,12 @@ public interface ArchiveEntriesService {
      */
     boolean deleteArchiveEntries(String archiveSha1);
 
+    /**
+     * @param archiveSha1s The checksums to delete entries for
+     * @return Number of entries deleted
+     */
+    int deleteArchiveEntries(Collection<String> archiveSha1s);
+
     /**
      * Deletes all the unreferenced archive entry paths. Archive entry paths used in a many-to-many relationship and
      * should be cleaned up periodically.
@@ -34,8 +34,10 @@ import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.artifactory.storage.fs.repo.StoringRepo;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * @author Yossi Shaul
@@ -58,8 +60,53 @@ public interface FileService {
 
     int getNodesCount(RepoPath repoPath) throws VfsException;
 
+    /**
+     * @param repoPath Repo path of the folder
+     * @param maxDepth Max depth of the counted items relative to the folder (1 for the direct children)
+     * @return The number of items under the folder (excluding the folder itself) up to the given depth
+     */
+    int getNodesCount(RepoPath repoPath, int maxDepth) throws VfsException;
+
     List<ItemInfo> loadChildren(RepoPath repoPath) throws VfsException;
 
+    /**
+     * Loads all the items under the given folder (excluding the folder itself) with a single query.
+     *
+     * @param repoPath Repo path of the folder
+     * @return The items under the folder ordered by path. Empty if the folder doesn't exist or has no children.
+     */
+    List<ItemInfo> loadSubtree(RepoPath repoPath) throws VfsException;
+
+    /**
+     * Loads a page of the items under the given folder (excluding the folder itself). Pages are read with separate
+     * queries, so no database resources are held while the caller processes a page.
+     *
+     * @param repoPath Repo path of the folder
+     * @param after    Repo path of the last item of the previous page, null for the first page
+     * @param limit    Maximum number of items to return
+     * @return The items of the page ordered by path, folders before their children
+     */
+    List<ItemInfo> loadSubtreePage(RepoPath repoPath, @Nullable RepoPath after, int limit) throws VfsException;
+
+    /**
+     * Streams all the items under the given folder (excluding the folder itself) to the visitor while they are read
+     * from the database, without loading the whole subtree to memory.
+     *
+     * @param repoPath Repo path of the folder
+     * @param visitor  Receives the items ordered by path, folders before their children
+     */
+    void visitSubtree(RepoPath repoPath, Consumer<ItemInfo> visitor) throws VfsException;
+
+    /**
+     * Streams the items under the given folder up to the given depth to the visitor.
+     *
+     * @param repoPath Repo path of the folder
+     * @param maxDepth Max depth of the visited items relative to the folder (1 for the direct children)
+     * @param visitor  Receives the items ordered by path, folders before their children
+     * @see #visitSubtree(RepoPath, Consumer)
+     */
+    void visitSubtree(RepoPath repoPath, int maxDepth, Consumer<ItemInfo> visitor) throws VfsException;
+
     VfsItem loadVfsItem(StoringRepo storingRepo, RepoPath repoPath) throws VfsItemNotFoundException, VfsException;
 
     long createFolder(FolderInfo folder) throws VfsException;
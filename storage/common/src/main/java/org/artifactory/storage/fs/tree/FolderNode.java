@@ -144,6 +144,13 @@ public class FolderNode extends ItemNode{
         }
     }
 
+    /**
+     * Sets the children of this folder, already filtered and sorted, when the tree is loaded in bulk
+     */
+    void setCachedChildren(List<ItemNode> childrenNodes) {
+        updateCachedChildrenNodes(childrenNodes);
+    }
+
     @Override
     public List<ItemInfo> getChildrenInfo() {
         List<ItemNode> children = getChildren();
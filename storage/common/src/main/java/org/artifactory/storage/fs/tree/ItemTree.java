@@ -21,6 +21,7 @@
 package org.artifactory.storage.fs.tree;
 
 import org.artifactory.api.context.ContextHelper;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.FileInfo;
 import org.artifactory.fs.FolderInfo;
 import org.artifactory.fs.ItemInfo;
@@ -30,7 +31,15 @@ import org.artifactory.storage.fs.service.FileService;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * A tree representation of the vfs file system. The item tree holds no storage locks and represents the state of the
@@ -100,26 +109,202 @@ public class ItemTree {
      */
     @Nullable
     public ItemNode buildTree() {
+        return buildTree(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builds the tree up to the given depth and caches the nodes. Children caching must be enabled (true by default).
+     * <p>
+     * The nodes are loaded with a single query and the criteria filters are applied as the rows are read. If the
+     * subtree has more nodes than {@link ConstantValues#treeBulkLoadMaxNodes} up to the max depth, it is loaded folder
+     * by folder instead so it doesn't have to fit in memory at once. A tree of depth 1 is always loaded with a single
+     * children query, without counting the nodes first. Folders at the max depth load their children on demand.
+     *
+     * @param maxDepth Max depth of the loaded nodes relative to the root (1 for the direct children)
+     * @return The root node of the tree
+     */
+    @Nullable
+    public ItemNode buildTree(int maxDepth) {
         if (!criteria.isCacheChildren()) {
             throw new IllegalStateException("Can't build tree for " + rootRepoPath
                     + " with children caching off");
         }
         ItemNode rootNode = getRootNode();
-        buildTree(rootNode);
+        if (rootNode == null || !rootNode.isFolder() || maxDepth <= 0) {
+            return rootNode;
+        }
+        FileService fileService = ContextHelper.get().beanForType(FileService.class);
+        int maxNodes = ConstantValues.treeBulkLoadMaxNodes.getInt();
+        if (maxDepth == 1 || maxNodes <= 0 || countNodes(fileService, maxDepth) > maxNodes) {
+            buildTree(rootNode, maxDepth);
+        } else {
+            SubtreeBuilder subtreeBuilder = new SubtreeBuilder((FolderNode) rootNode, maxDepth);
+            fileService.visitSubtree(rootRepoPath, maxDepth, subtreeBuilder);
+            subtreeBuilder.cacheChildren();
+        }
         return rootNode;
     }
 
-    private void buildTree(ItemNode currentNode) {
-        if (currentNode == null) {
+    private int countNodes(FileService fileService, int maxDepth) {
+        return maxDepth == Integer.MAX_VALUE ? fileService.getNodesCount(rootRepoPath) :
+                fileService.getNodesCount(rootRepoPath, maxDepth);
+    }
+
+    /**
+     * Loads all the files under the root with a single query instead of browsing the tree folder by folder. The
+     * criteria filters are applied as when browsing the tree: a file is accepted only if it and all the folders above
+     * it (up to the root) are accepted. The criteria comparator is ignored.
+     *
+     * @return The accepted files ordered by path, the root itself if it is a file, or an empty list if the root doesn't
+     * exist
+     */
+    public List<FileInfo> getAcceptedFiles() {
+        ItemNode rootNode = getRootNode();
+        if (rootNode == null) {
+            return Collections.emptyList();
+        }
+        if (!rootNode.isFolder()) {
+            return Collections.singletonList((FileInfo) rootNode.getItemInfo());
+        }
+        FolderNode rootFolder = (FolderNode) rootNode;
+        List<ItemInfo> subtree = ContextHelper.get().beanForType(FileService.class).loadSubtree(rootRepoPath);
+        // parents are always evaluated before their children, regardless of the order returned by the database
+        List<ItemInfo> folders = new ArrayList<>();
+        for (ItemInfo item : subtree) {
+            if (item.isFolder()) {
+                folders.add(item);
+            }
+        }
+        folders.sort(Comparator.comparingInt(folder -> folder.getRepoPath().getPath().split("/").length));
+        Set<RepoPath> rejectedFolders = new HashSet<>();
+        for (ItemInfo folder : folders) {
+            if (!isAccepted(rootFolder, folder, rejectedFolders)) {
+                rejectedFolders.add(folder.getRepoPath());
+            }
+        }
+        List<FileInfo> files = new ArrayList<>();
+        for (ItemInfo item : subtree) {
+            if (!item.isFolder() && isAccepted(rootFolder, item, rejectedFolders)) {
+                files.add((FileInfo) item);
+            }
+        }
+        return files;
+    }
+
+    private boolean isAccepted(FolderNode rootFolder, ItemInfo item, Set<RepoPath> rejectedFolders) {
+        RepoPath parent = item.getRepoPath().getParent();
+        return !rejectedFolders.contains(parent) && rootFolder.accepts(item).isAccepted();
+    }
+
+    private void buildTree(ItemNode currentNode, int depthLeft) {
+        if (currentNode == null || depthLeft <= 0) {
             return;
         }
 
         if (currentNode.itemInfo.isFolder()) {
             List<ItemNode> children = currentNode.getChildren();
             for (ItemNode child : children) {
-                buildTree(child);
+                buildTree(child, depthLeft - 1);
             }
         }
     }
 
+    /**
+     * Builds the tree nodes from the subtree items as they are read from the database. An item is added only if its
+     * parent folder was added and the criteria filters accept it. The database returns folders before their children,
+     * but items arriving before their parent are kept aside until the parent arrives.
+     */
+    private class SubtreeBuilder implements Consumer<ItemInfo> {
+        private final FolderNode rootNode;
+        private final int maxDepth;
+        private final int rootDepth;
+        private final Map<RepoPath, FolderNode> folders = new HashMap<>();
+        private final Map<RepoPath, List<ItemNode>> children = new HashMap<>();
+        private final Map<RepoPath, List<ItemInfo>> orphans = new HashMap<>();
+        private final Set<RepoPath> rejectedFolders = new HashSet<>();
+
+        private SubtreeBuilder(FolderNode rootNode, int maxDepth) {
+            this.rootNode = rootNode;
+            this.maxDepth = maxDepth;
+            rootDepth = depthOf(rootNode.getRepoPath());
+            folders.put(rootNode.getRepoPath(), rootNode);
+            children.put(rootNode.getRepoPath(), new ArrayList<>());
+        }
+
+        @Override
+        public void accept(ItemInfo item) {
+            RepoPath parentPath = item.getRepoPath().getParent();
+            if (rejectedFolders.contains(parentPath)) {
+                reject(item);
+                return;
+            }
+            FolderNode parent = folders.get(parentPath);
+            if (parent == null) {
+                orphans.computeIfAbsent(parentPath, path -> new ArrayList<>()).add(item);
+            } else {
+                add(parent, item);
+            }
+        }
+
+        private void add(FolderNode parent, ItemInfo item) {
+            if (!parent.accepts(item).isAccepted()) {
+                reject(item);
+                return;
+            }
+            if (item.isFolder()) {
+                FolderNode folderNode = new FolderNode((FolderInfo) item, criteria);
+                children.get(parent.getRepoPath()).add(folderNode);
+                folders.put(item.getRepoPath(), folderNode);
+                children.put(item.getRepoPath(), new ArrayList<>());
+                List<ItemInfo> waitingChildren = orphans.remove(item.getRepoPath());
+                if (waitingChildren != null) {
+                    waitingChildren.forEach(child -> add(folderNode, child));
+                }
+            } else {
+                children.get(parent.getRepoPath()).add(new FileNode((FileInfo) item));
+            }
+        }
+
+        private void reject(ItemInfo item) {
+            if (item.isFolder()) {
+                rejectedFolders.add(item.getRepoPath());
+                List<ItemInfo> waitingChildren = orphans.remove(item.getRepoPath());
+                if (waitingChildren != null) {
+                    waitingChildren.forEach(this::reject);
+                }
+            }
+        }
+
+        /**
+         * Sorts and caches the children of the loaded folders, except the folders at the max depth which children
+         * were not loaded
+         */
+        private void cacheChildren() {
+            Comparator<ItemInfo> comparator = criteria.getComparator();
+            for (Map.Entry<RepoPath, FolderNode> folder : folders.entrySet()) {
+                if (folder.getValue() != rootNode && depthOf(folder.getKey()) - rootDepth >= maxDepth) {
+                    continue;
+                }
+                List<ItemNode> folderChildren = children.get(folder.getKey());
+                if (comparator != null) {
+                    folderChildren.sort((a, b) -> comparator.compare(a.getItemInfo(), b.getItemInfo()));
+                }
+                folder.getValue().setCachedChildren(folderChildren);
+            }
+        }
+
+        private int depthOf(RepoPath repoPath) {
+            if (repoPath.isRoot()) {
+                return 0;
+            }
+            String path = repoPath.getPath();
+            int depth = 1;
+            for (int i = 0; i < path.length(); i++) {
+                if (path.charAt(i) == '/') {
+                    depth++;
+                }
+            }
+            return depth;
+        }
+    }
 }
@@ -43,6 +43,9 @@ public interface AclStoreService {
      */
     Collection<AclInfo> getAllAcls();
 
+    /**
+     * @return The ACL cache. The same instance is returned until the cache is reloaded
+     */
     AclCache getAclCache();
 
     @Lock
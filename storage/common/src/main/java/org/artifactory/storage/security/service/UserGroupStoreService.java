@@ -390,4 +390,17 @@ public interface UserGroupStoreService {
     Map<String, Long> getAllGroupIdsToNames();
 
     Multimap<Long,Long> getAllUsersInGroups();
+
+    /**
+     * Loads all the users and their API keys into the principal cache, so the first authentications after a startup
+     * don't have to hit the database. Off by default ({@code security.principalCache.warmUp}) since the loaded entries
+     * are only useful if they are used before the principal cache expiry.
+     */
+    void warmUpPrincipalCache();
+
+    /**
+     * Drops all the cached users, groups and API key owners. Used when the users or groups were changed without going
+     * through this service (e.g. by another node of the cluster).
+     */
+    void invalidatePrincipalCache();
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock.provider;
+
+import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.lock.LockingTracer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit tests for the {@link StripedLockProvider}.
+ */
+@Test
+public class StripedLockProviderTest {
+
+    private LockingTracer tracer;
+    private StripedLockProvider provider;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        tracer = new LockingTracer(10);
+        provider = new StripedLockProvider(1, tracer);  // single stripe so all the paths share it
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void stripesCountRoundedToPowerOfTwo() {
+        assertEquals(new StripedLockProvider(1000, tracer).getStripesCount(), 1024);
+        assertEquals(new StripedLockProvider(1024, tracer).getStripesCount(), 1024);
+        assertEquals(provider.getStripesCount(), 1);
+    }
+
+    public void reentrantLockIsReleasedAfterLastUnlock() throws Exception {
+        LockWrapper lock = provider.getLock(path("a/b"));
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertTrue(lock.isHeldByCurrentThread());
+        lock.unlock();
+        assertTrue(lock.isLocked());
+        assertEquals(provider.getActiveLocksCount(), 1);
+        lock.unlock();
+        assertFalse(lock.isLocked());
+        assertFalse(lock.isHeldByCurrentThread());
+        assertEquals(provider.getActiveLocksCount(), 0, "Unlocked paths should not keep a lock object");
+    }
+
+    public void handlesOfSamePathShareTheLock() throws Exception {
+        LockWrapper lock = provider.getLock(path("a/b"));
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertTrue(provider.getLock(path("a/b")).isHeldByCurrentThread());
+        assertFalse(tryLockInOtherThread(path("a/b")));
+        lock.unlock();
+        assertTrue(tryLockInOtherThread(path("a/b")));
+    }
+
+    public void pathsOfSameStripeDontBlockEachOther() throws Exception {
+        LockWrapper lock = provider.getLock(path("a/b"));
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertTrue(tryLockInOtherThread(path("a/c")));
+        assertTrue(tryLockInOtherThread(path("a")));
+        lock.unlock();
+    }
+
+    @Test(expectedExceptions = IllegalMonitorStateException.class)
+    public void unlockNotHeld() {
+        provider.getLock(path("a/b")).unlock();
+    }
+
+    public void contentionIsTraced() throws Exception {
+        RepoPath repoPath = path("a/b");
+        LockWrapper lock = provider.getLock(repoPath);
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        CountDownLatch waiting = new CountDownLatch(1);
+        Future<Boolean> waiter = executor.submit(() -> {
+            LockWrapper otherLock = provider.getLock(repoPath);
+            waiting.countDown();
+            boolean locked = otherLock.tryLock(10, TimeUnit.SECONDS);
+            if (locked) {
+                otherLock.unlock();
+            }
+            return locked;
+        });
+        waiting.await();
+        Thread.sleep(50);
+        lock.unlock();
+        assertTrue(waiter.get());
+        assertTrue(tryLockInOtherThread(repoPath));
+
+        LockingTracer.RepoLockStats stats = tracer.getRepoStats("repo");
+        assertNotNull(stats);
+        assertEquals(stats.getWaitTimes().getCount(), 3);
+        assertEquals(stats.getContendedCount(), 1);
+        assertEquals(stats.getHoldTimes().getCount(), 3);
+        assertTrue(stats.getHoldTimes().getMaxMillis() >= 50, "Hold time: " + stats.getHoldTimes().getMaxMillis());
+        List<LockingTracer.PathContention> hottest = tracer.getHottestPaths(5);
+        assertEquals(hottest.size(), 1);
+        assertEquals(hottest.get(0).getRepoPath(), repoPath);
+        assertEquals(hottest.get(0).getWaitsCount(), 1);
+        assertEquals(provider.getActiveLocksCount(), 0);
+    }
+
+    public void timeoutIsTraced() throws Exception {
+        RepoPath repoPath = path("a/b");
+        LockWrapper lock = provider.getLock(repoPath);
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertFalse(tryLockInOtherThread(repoPath));
+        lock.unlock();
+
+        assertEquals(tracer.getRepoStats("repo").getTimeoutsCount(), 1);
+        assertEquals(tracer.getHottestPaths(5).get(0).getTimeoutsCount(), 1);
+        assertEquals(provider.getActiveLocksCount(), 0, "Failed attempts should not leave a lock object");
+    }
+
+    private boolean tryLockInOtherThread(RepoPath repoPath) throws Exception {
+        return executor.submit(() -> {
+            LockWrapper lock = provider.getLock(repoPath);
+            boolean locked = lock.tryLock(10, TimeUnit.MILLISECONDS);
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        }).get();
+    }
+
+    private RepoPath path(String path) {
+        return new RepoPathImpl("repo", path);
+    }
+}
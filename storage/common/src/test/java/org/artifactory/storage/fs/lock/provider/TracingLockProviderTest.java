@@ -0,0 +1,108 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.fs.lock.provider;
+
+import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.lock.LockingTracer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit tests for the {@link TracingLockProvider}.
+ */
+@Test
+public class TracingLockProviderTest {
+
+    private LockingTracer tracer;
+    private RepoPath repoPath;
+    private LockWrapper lock;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        tracer = new LockingTracer(10);
+        repoPath = new RepoPathImpl("repo", "a/b");
+        // the cached vault shares the same lock wrapper between all the threads locking the path
+        lock = new TracingLockProvider(new JVMLockProvider(), tracer).getLock(repoPath);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void reentrantHoldIsTracedOnce() throws Exception {
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        lock.unlock();
+        assertTrue(lock.isLocked());
+        lock.unlock();
+        assertFalse(lock.isLocked());
+
+        LockingTracer.RepoLockStats stats = tracer.getRepoStats("repo");
+        assertEquals(stats.getWaitTimes().getCount(), 2);
+        assertEquals(stats.getContendedCount(), 0);
+        assertEquals(stats.getHoldTimes().getCount(), 1);
+    }
+
+    public void contentionIsTraced() throws Exception {
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        CountDownLatch waiting = new CountDownLatch(1);
+        Future<Boolean> waiter = executor.submit(() -> {
+            waiting.countDown();
+            boolean locked = lock.tryLock(10, TimeUnit.SECONDS);
+            if (locked) {
+                lock.unlock();
+            }
+            return locked;
+        });
+        waiting.await();
+        Thread.sleep(50);
+        lock.unlock();
+        assertTrue(waiter.get());
+
+        LockingTracer.RepoLockStats stats = tracer.getRepoStats("repo");
+        assertEquals(stats.getContendedCount(), 1);
+        assertEquals(stats.getHoldTimes().getCount(), 2);
+        assertTrue(stats.getHoldTimes().getMaxMillis() >= 50, "Hold time: " + stats.getHoldTimes().getMaxMillis());
+        assertEquals(tracer.getHottestPaths(5).get(0).getRepoPath(), repoPath);
+    }
+
+    public void timeoutIsTraced() throws Exception {
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        assertFalse(executor.submit(() -> lock.tryLock(10, TimeUnit.MILLISECONDS)).get());
+        lock.unlock();
+
+        assertEquals(tracer.getRepoStats("repo").getTimeoutsCount(), 1);
+        assertEquals(tracer.getHottestPaths(5).get(0).getTimeoutsCount(), 1);
+    }
+}
@@ -98,4 +98,36 @@ public class AqlDao extends BaseDao {
         }
         return new AqlLazyResultImpl(resultSet, sqlQuery, aqlPermissionProvider, aqlRepoProvider);
     }
+
+    /**
+     * Execute the AQL query and stream the results from the database
+     * Like the lazy mode, but the database driver is also instructed to fetch the rows in chunks while the result is
+     * consumed (using a cursor where the database requires one), so memory stays constant regardless of the result
+     * size. The result holds a database connection until closed.
+     */
+    public AqlLazyResult executeQueryStreaming(SqlQuery sqlQuery, AqlPermissionProvider aqlPermissionProvider,
+            AqlRepoProvider aqlRepoProvider) {
+        int fetchSize = ConstantValues.aqlStreamingFetchSize.getInt();
+        if (fetchSize <= 0) {
+            return executeQueryLazy(sqlQuery, aqlPermissionProvider, aqlRepoProvider);
+        }
+        DbType dbType = dbService.getDatabaseType();
+        ResultSet resultSet;
+        try {
+            resultSet = jdbcHelper.executeStreamingSelect(sqlQuery.getQueryString(),
+                    streamingFetchSize(dbType, fetchSize), dbType == DbType.POSTGRESQL, !allowReadCommitted(),
+                    sqlQuery.getQueryParams());
+        } catch (SQLException e) {
+            throw new AqlException("Failed to execute the following sql query" + sqlQuery, e);
+        }
+        return new AqlLazyResultImpl(resultSet, sqlQuery, aqlPermissionProvider, aqlRepoProvider);
+    }
+
+    /**
+     * MySQL buffers the whole result unless the fetch size is Integer.MIN_VALUE, which makes it stream the rows one
+     * by one. The other drivers fetch (Oracle prefetches) the given number of rows on each round trip.
+     */
+    private int streamingFetchSize(DbType dbType, int fetchSize) {
+        return dbType == DbType.MYSQL ? Integer.MIN_VALUE : fetchSize;
+    }
 }
@@ -0,0 +1,249 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import org.artifactory.storage.db.aql.parser.elements.ParserElement;
+import org.jfrog.client.util.Pair;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the parser results by query shape: the query string with the quoted values following a colon and the bare
+ * numbers (criteria values, limit and offset) replaced by placeholders. Queries fired from the same template with
+ * different values are parsed once, the values of each query are then set on a copy of the cached parser result.
+ * <p>
+ * A shape is cached only if its values map one to one, in order, to the value elements of the parser result. The
+ * value elements accept any string between quotes or any number, so other queries of the same shape always parse to
+ * the same elements.
+ */
+public class AqlParseCache {
+
+    private final AqlParser parser;
+    private final Cache<String, CachedParse> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong uncacheable = new AtomicLong();
+
+    /**
+     * @param maxSize Max number of cached query shapes, zero to parse every query
+     */
+    public AqlParseCache(AqlParser parser, long maxSize) {
+        this.parser = parser;
+        this.cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).build() : null;
+    }
+
+    public ParserElementResultContainer parse(String query) {
+        QueryShape shape = cache != null ? QueryShape.of(query) : null;
+        CachedParse cached = shape != null ? cache.getIfPresent(shape.text) : null;
+        if (shape == null || (cached != null && cached.valueIndexes == null)) {
+            uncacheable.incrementAndGet();
+            return parser.parse(query);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.bind(shape.values);
+        }
+        misses.incrementAndGet();
+        ParserElementResultContainer result = parser.parse(query);
+        cache.put(shape.text, CachedParse.create(result, shape.values));
+        return result;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of queries parsed without the cache because their shape can't be cached
+     */
+    public long getUncacheableCount() {
+        return uncacheable.get();
+    }
+
+    public long size() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public void reset() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        hits.set(0);
+        misses.set(0);
+        uncacheable.set(0);
+    }
+
+    private static boolean isValueElement(ParserElement element) {
+        return element == AqlParser.value || element == AqlParser.number || element == AqlParser.limitValue
+                || element == AqlParser.offsetValue;
+    }
+
+    /**
+     * The parser trims the query after each sign, so quoted values lose their leading whitespaces
+     */
+    private static String parsedValue(String value) {
+        int start = 0;
+        while (start < value.length() && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return value.substring(start);
+    }
+
+    /**
+     * The query string with its values replaced by placeholders, and the values in the query order
+     */
+    static class QueryShape {
+        final String text;
+        final List<String> values;
+
+        private QueryShape(String text, List<String> values) {
+            this.text = text;
+            this.values = values;
+        }
+
+        /**
+         * @return The shape of the query, null if the query can't be parsed from the cache
+         */
+        @Nullable
+        static QueryShape of(String query) {
+            StringBuilder shape = new StringBuilder(query.length());
+            List<String> values = Lists.newArrayList();
+            // last character outside of quotes which is not a whitespace
+            char previous = 0;
+            int i = 0;
+            while (i < query.length()) {
+                char c = query.charAt(i);
+                if (c == '"') {
+                    int end = query.indexOf('"', i + 1);
+                    if (end < 0) {
+                        return null;
+                    }
+                    if (previous == ':') {
+                        shape.append("\"?\"");
+                        values.add(query.substring(i + 1, end));
+                    } else {
+                        shape.append(query, i, end + 1);
+                    }
+                    previous = c;
+                    i = end + 1;
+                } else if (c == '?') {
+                    // would be mistaken for a placeholder
+                    return null;
+                } else if (isNumberStart(query, i)) {
+                    int end = i + 1;
+                    while (end < query.length() && "0123456789.eE+-".indexOf(query.charAt(end)) >= 0) {
+                        end++;
+                    }
+                    String token = query.substring(i, end);
+                    if (isNumber(token)) {
+                        shape.append('?');
+                        values.add(token);
+                    } else {
+                        shape.append(token);
+                    }
+                    previous = query.charAt(end - 1);
+                    i = end;
+                } else {
+                    shape.append(c);
+                    if (!Character.isWhitespace(c)) {
+                        previous = c;
+                    }
+                    i++;
+                }
+            }
+            return new QueryShape(shape.toString(), values);
+        }
+
+        private static boolean isNumberStart(String query, int i) {
+            char c = query.charAt(i);
+            if (!Character.isDigit(c) && c != '-') {
+                return false;
+            }
+            // a number is a whole token, not the end of a name like "sha1"
+            char before = i > 0 ? query.charAt(i - 1) : ' ';
+            return Character.isWhitespace(before) || "(:,[".indexOf(before) >= 0;
+        }
+
+        private static boolean isNumber(String token) {
+            try {
+                Double.parseDouble(token);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    private static class CachedParse {
+        /**
+         * The parser result elements, in the reverse order of the query like the parser result
+         */
+        private final List<Pair<ParserElement, String>> elements;
+        /**
+         * Index in the elements of each query value, null if the shape can't be cached
+         */
+        private final int[] valueIndexes;
+
+        private CachedParse(List<Pair<ParserElement, String>> elements, @Nullable int[] valueIndexes) {
+            this.elements = elements;
+            this.valueIndexes = valueIndexes;
+        }
+
+        static CachedParse create(ParserElementResultContainer result, List<String> values) {
+            List<Pair<ParserElement, String>> elements = Lists.newArrayList(result.getAll());
+            int[] valueIndexes = new int[values.size()];
+            int valueCount = 0;
+            for (int i = elements.size() - 1; i >= 0; i--) {
+                Pair<ParserElement, String> element = elements.get(i);
+                if (isValueElement(element.getFirst())) {
+                    if (valueCount == values.size()
+                            || !parsedValue(values.get(valueCount)).equals(element.getSecond())) {
+                        return new CachedParse(elements, null);
+                    }
+                    valueIndexes[valueCount++] = i;
+                }
+            }
+            return new CachedParse(elements, valueCount == values.size() ? valueIndexes : null);
+        }
+
+        ParserElementResultContainer bind(List<String> values) {
+            List<Pair<ParserElement, String>> bound = Lists.newArrayList(elements);
+            for (int i = 0; i < valueIndexes.length; i++) {
+                int index = valueIndexes[i];
+                bound.set(index, new Pair<>(bound.get(index).getFirst(), parsedValue(values.get(i))));
+            }
+            ParserElementResultContainer result = new ParserElementResultContainer("", "");
+            for (Pair<ParserElement, String> element : bound) {
+                result.add(element.getFirst(), element.getSecond());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service;
+
+import org.artifactory.storage.db.aql.parser.AqlParseCache;
+
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of the AQL query steps (parsing, planning the SQL query and executing it) and the counters of the parse
+ * cache.
+ */
+public class AqlMetrics {
+
+    private final AqlParseCache parseCache;
+    private final StepTimer parse = new StepTimer();
+    private final StepTimer plan = new StepTimer();
+    private final StepTimer execute = new StepTimer();
+
+    AqlMetrics(AqlParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    void parsed(long startNanos) {
+        parse.record(startNanos);
+    }
+
+    void planned(long startNanos) {
+        plan.record(startNanos);
+    }
+
+    void executed(long startNanos) {
+        execute.record(startNanos);
+    }
+
+    public void reset() {
+        parseCache.reset();
+        parse.reset();
+        plan.reset();
+        execute.reset();
+    }
+
+    public String report() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        sb.append("AQL report\n");
+        sb.append("Report time: ").append(sdf.format(System.currentTimeMillis())).append("\n");
+        sb.append("Parse cache: shapes=").append(parseCache.size())
+                .append(", hits=").append(parseCache.getHitCount())
+                .append(", misses=").append(parseCache.getMissCount())
+                .append(", uncacheable=").append(parseCache.getUncacheableCount()).append("\n");
+        parse.append(sb, "parse");
+        plan.append(sb, "plan");
+        execute.append(sb, "execute");
+        return sb.toString();
+    }
+
+    private static class StepTimer {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long startNanos) {
+            long nanos = System.nanoTime() - startNanos;
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void reset() {
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        void append(StringBuilder sb, String step) {
+            long calls = count.get();
+            double avgMillis = calls == 0 ? 0 : totalNanos.get() / (double) calls / TimeUnit.MILLISECONDS.toNanos(1);
+            sb.append(String.format("%-8s count=%d, total=%d ms, avg=%.3f ms, max=%.3f ms%n", step, calls,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos.get()), avgMillis,
+                    maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+}
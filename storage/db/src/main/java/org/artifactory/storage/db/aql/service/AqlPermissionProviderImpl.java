@@ -24,9 +24,13 @@ import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.OssAddonsManager;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.security.AuthorizationService;
+import org.artifactory.api.security.PermissionHeuristicScore;
 import org.artifactory.aql.model.AqlPermissionProvider;
 import org.artifactory.repo.RepoPath;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * @author Gidi Shabat
  */
@@ -63,4 +67,9 @@ public class AqlPermissionProviderImpl implements AqlPermissionProvider {
     public boolean isOss() {
         return getAddonsManager() instanceof OssAddonsManager;
     }
+
+    @Override
+    public Map<String, PermissionHeuristicScore> getReadPermissionScores(Collection<String> repoKeys) {
+        return getAuthorizationProvider().getReadPermissionScores(repoKeys);
+    }
 }
\ No newline at end of file
@@ -71,4 +71,11 @@ public class AqlRepoProviderImpl implements AqlRepoProvider {
                 .map(RepoDescriptor::getKey)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public List<String> getLocalAndCacheRepoKeys() {
+        return getRepositoryService().getLocalAndCachedRepoDescriptors().stream()
+                .map(RepoDescriptor::getKey)
+                .collect(Collectors.toList());
+    }
 }
\ No newline at end of file
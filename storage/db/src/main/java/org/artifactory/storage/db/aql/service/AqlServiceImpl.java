@@ -31,12 +31,15 @@ import org.artifactory.aql.result.AqlComposedResult;
 import org.artifactory.aql.result.AqlEagerResult;
 import org.artifactory.aql.result.AqlLazyResult;
 import org.artifactory.aql.result.rows.AqlRowResult;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.config.db.ArtifactoryDbProperties;
 import org.artifactory.storage.db.aql.dao.AqlDao;
+import org.artifactory.storage.db.aql.parser.AqlParseCache;
 import org.artifactory.storage.db.aql.parser.AqlParser;
 import org.artifactory.storage.db.aql.parser.ParserElementResultContainer;
 import org.artifactory.storage.db.aql.service.decorator.AqlQueryDecoratorContext;
 import org.artifactory.storage.db.aql.service.decorator.DefaultSortDecorator;
+import org.artifactory.storage.db.aql.service.decorator.PermissionCriteriaDecorator;
 import org.artifactory.storage.db.aql.service.decorator.TrashcanDecorator;
 import org.artifactory.storage.db.aql.service.decorator.VirtualRepoCriteriaDecorator;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.*;
@@ -71,6 +74,8 @@ public class AqlServiceImpl implements AqlService {
     private ArtifactoryDbProperties storageProperties;
 
     private AqlParser parser;
+    private AqlParseCache parseCache;
+    private AqlMetrics metrics;
     private ParserToAqlAdapter parserToAqlAdapter;
     private AqlApiToAqlAdapter aqlApiToAqlAdapter;
     private SqlQueryBuilder sqlQueryBuilder;
@@ -87,12 +92,15 @@ public class AqlServiceImpl implements AqlService {
         // Please note that it doesn't really have state therefore we can use it simultaneously
         // TODO init the parser eagerly here not lazy
         parser = new AqlParser();
+        parseCache = new AqlParseCache(parser, ConstantValues.aqlParseCacheSize.getLong());
+        metrics = new AqlMetrics(parseCache);
         parserToAqlAdapter = new ParserToAqlAdapter();
         sqlQueryBuilder = new SqlQueryBuilder();
         aqlApiToAqlAdapter = new AqlApiToAqlAdapter();
         optimizer = new AqlQueryOptimizer(storageProperties.getDbType());
         validator = new AqlQueryValidator();
-        externalDecorator = new AqlQueryDecorator(new DefaultSortDecorator(), new TrashcanDecorator(), new VirtualRepoCriteriaDecorator());
+        externalDecorator = new AqlQueryDecorator(new DefaultSortDecorator(), new TrashcanDecorator(),
+                new VirtualRepoCriteriaDecorator(), new PermissionCriteriaDecorator());
         internalDecorator = new AqlQueryDecorator(new TrashcanDecorator(), new VirtualRepoCriteriaDecorator());
     }
 
@@ -102,7 +110,7 @@ public class AqlServiceImpl implements AqlService {
     @Override
     public AqlEagerResult executeQueryEager(String query) {
         log.debug("Processing textual AqlApi query: {}", query);
-        ParserElementResultContainer parserResult = parser.parse(query);
+        ParserElementResultContainer parserResult = parse(query);
         return executeQueryEager(parserResult);
     }
 
@@ -112,8 +120,18 @@ public class AqlServiceImpl implements AqlService {
     @Override
     public AqlLazyResult executeQueryLazy(String query) {
         log.debug("Processing textual AqlApi query: {}", query);
-        ParserElementResultContainer parserResult = parser.parse(query);
-        return executeQueryLazy(parserResult);
+        ParserElementResultContainer parserResult = parse(query);
+        return executeQueryLazy(parserResult, false);
+    }
+
+    /**
+     * Converts the Json query into SQL query and executes the query lazy, streaming the rows from the database
+     */
+    @Override
+    public AqlLazyResult executeQueryStreaming(String query) {
+        log.debug("Processing textual AqlApi query (streaming): {}", query);
+        ParserElementResultContainer parserResult = parse(query);
+        return executeQueryLazy(parserResult, true);
     }
 
     /**
@@ -123,17 +141,20 @@ public class AqlServiceImpl implements AqlService {
     public AqlComposedResult executeQueryLazy(String originalMainQuery, AqlOperatorEnum operatorEnum,
             AqlBase extensionQuery) {
         log.debug("Processing textual AqlApi query {} and API AqlApi", originalMainQuery);
-        ParserElementResultContainer parserResult = parser.parse(originalMainQuery);
+        ParserElementResultContainer parserResult = parse(originalMainQuery);
+        long planStart = System.nanoTime();
         AqlQuery originalMainAqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
         AqlQuery extensionAqlQuery = aqlApiToAqlAdapter.toAqlModel(extensionQuery);
         log.debug("Attempting to merge original query with the extension query");
         AqlQuery mergedAqlQuery = merge(originalMainAqlQuery, extensionAqlQuery, operatorEnum);
         optimizer.optimize(mergedAqlQuery);
         validator.validate(mergedAqlQuery, permissionProvider);
-        externalDecorator.decorate(mergedAqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
+        AqlQueryDecoratorContext decoratorContext = new AqlQueryDecoratorContext(repoProvider, permissionProvider);
+        externalDecorator.decorate(mergedAqlQuery, decoratorContext);
         log.trace("Successfully finished to convert the parser result into AqlApi query");
-        return new AqlComposedResultImpl(getAqlQueryStreamResult(mergedAqlQuery), originalMainAqlQuery,
-                extensionAqlQuery, mergedAqlQuery);
+        return new AqlComposedResultImpl(getAqlQueryStreamResult(mergedAqlQuery, false,
+                decoratorContext.getResultPermissionProvider(), planStart), originalMainAqlQuery, extensionAqlQuery,
+                mergedAqlQuery);
     }
 
     /**
@@ -142,19 +163,21 @@ public class AqlServiceImpl implements AqlService {
     @Override
     public <T extends AqlRowResult> AqlEagerResult<T> executeQueryEager(AqlBase<? extends AqlBase, T> aql) {
         log.debug("Processing API AqlApi query");
+        long planStart = System.nanoTime();
         AqlQuery aqlQuery = aqlApiToAqlAdapter.toAqlModel(aql);
         optimizer.optimize(aqlQuery);
         internalDecorator.decorate(aqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
-        return (AqlEagerResultImpl<T>) getAqlQueryResult(aqlQuery);
+        return (AqlEagerResultImpl<T>) getAqlQueryResult(aqlQuery, planStart);
     }
 
     @Override
     public AqlLazyResult executeQueryLazy(AqlBase aql) {
         log.debug("Processing API AqlApi query");
+        long planStart = System.nanoTime();
         AqlQuery aqlQuery = aqlApiToAqlAdapter.toAqlModel(aql);
         optimizer.optimize(aqlQuery);
         internalDecorator.decorate(aqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
-        return getAqlQueryStreamResult(aqlQuery);
+        return getAqlQueryStreamResult(aqlQuery, false, permissionProvider, planStart);
     }
 
     /**
@@ -162,50 +185,83 @@ public class AqlServiceImpl implements AqlService {
      */
     private AqlEagerResult executeQueryEager(ParserElementResultContainer parserResult) {
         log.trace("Converting the parser result into AqlApi query");
+        long planStart = System.nanoTime();
         AqlQuery aqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
         optimizer.optimize(aqlQuery);
         validator.validate(aqlQuery, permissionProvider);
         externalDecorator.decorate(aqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
         log.trace("Successfully finished to convert the parser result into AqlApi query");
-        return getAqlQueryResult(aqlQuery);
+        return getAqlQueryResult(aqlQuery, planStart);
     }
 
     /**
      * Converts the parser elements into AqlApi query and executes the query lazy
      */
-    private AqlLazyResult executeQueryLazy(ParserElementResultContainer parserResult) {
+    private AqlLazyResult executeQueryLazy(ParserElementResultContainer parserResult, boolean streaming) {
         log.trace("Converting the parser result into AqlApi query");
+        long planStart = System.nanoTime();
         AqlQuery aqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
         optimizer.optimize(aqlQuery);
         validator.validate(aqlQuery, permissionProvider);
-        externalDecorator.decorate(aqlQuery, new AqlQueryDecoratorContext(repoProvider, permissionProvider));
+        AqlQueryDecoratorContext decoratorContext = new AqlQueryDecoratorContext(repoProvider, permissionProvider);
+        externalDecorator.decorate(aqlQuery, decoratorContext);
         log.trace("Successfully finished to convert the parser result into AqlApi query");
-        return getAqlQueryStreamResult(aqlQuery);
+        return getAqlQueryStreamResult(aqlQuery, streaming, decoratorContext.getResultPermissionProvider(),
+                planStart);
     }
 
     /**
      * Converts the AqlApi query into SQL query and executes the query eagerly
      */
-    private AqlEagerResult getAqlQueryResult(AqlQuery aqlQuery) {
+    private AqlEagerResult getAqlQueryResult(AqlQuery aqlQuery, long planStart) {
         log.trace("Converting the AqlApi query into SQL query: {}", aqlQuery);
         SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
+        metrics.planned(planStart);
         log.trace("Successfully finished to convert the parser result into the following SQL query '{}'", sqlQuery);
         log.trace("processing the following SQL query: {}", sqlQuery);
+        long executeStart = System.nanoTime();
         AqlEagerResultImpl aqlQueryResult = aqlDao.executeQueryEager(sqlQuery, repoProvider);
+        metrics.executed(executeStart);
         log.debug("Successfully finished to process SQL query with the following size: {}", aqlQueryResult.getSize());
         return aqlQueryResult;
     }
 
-    private AqlLazyResult getAqlQueryStreamResult(AqlQuery aqlQuery) {
+    /**
+     * Converts the AqlApi query into SQL query and executes it, the rows are read by the returned result
+     */
+    private AqlLazyResult getAqlQueryStreamResult(AqlQuery aqlQuery, boolean streaming,
+            AqlPermissionProvider resultPermissionProvider, long planStart) {
         log.trace("Converting the AqlApi query into SQL query: {}", aqlQuery);
         SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
+        metrics.planned(planStart);
         log.trace("Successfully finished to convert the parser result into the following SQL query '{}'", sqlQuery);
         log.trace("processing the following SQL query: {}", sqlQuery);
-        AqlLazyResult aqlQueryStreamResult = aqlDao.executeQueryLazy(sqlQuery, permissionProvider, repoProvider);
-        log.debug("Successfully finished to process SQL query (lazy)");
+        long executeStart = System.nanoTime();
+        AqlLazyResult aqlQueryStreamResult = streaming ?
+                aqlDao.executeQueryStreaming(sqlQuery, resultPermissionProvider, repoProvider) :
+                aqlDao.executeQueryLazy(sqlQuery, resultPermissionProvider, repoProvider);
+        metrics.executed(executeStart);
+        log.debug("Successfully finished to process SQL query ({})", streaming ? "streaming" : "lazy");
         return aqlQueryStreamResult;
     }
 
+    /**
+     * Parses the query string, reusing the parser result of the previous queries of the same shape
+     */
+    private ParserElementResultContainer parse(String query) {
+        long parseStart = System.nanoTime();
+        ParserElementResultContainer parserResult = parseCache.parse(query);
+        metrics.parsed(parseStart);
+        return parserResult;
+    }
+
+    /**
+     * @return The parse, plan and execute timings of the queries and the parse cache counters
+     */
+    public AqlMetrics getMetrics() {
+        return metrics;
+    }
+
     private AqlQuery merge(AqlQuery originalMainQueryAqlQuery, AqlQuery extensionAqlQuery, AqlOperatorEnum operatorEnum) {
         AqlQuery merge = new AqlQuery();
         merge.setAction(originalMainQueryAqlQuery.getAction());
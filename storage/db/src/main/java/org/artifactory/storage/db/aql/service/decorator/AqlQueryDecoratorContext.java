@@ -32,10 +32,12 @@ public class AqlQueryDecoratorContext {
 
     private final AqlRepoProvider repoProvider;
     private final AqlPermissionProvider permissionProvider;
+    private AqlPermissionProvider resultPermissionProvider;
 
     public AqlQueryDecoratorContext(AqlRepoProvider repoProvider, AqlPermissionProvider permissionProvider) {
         this.repoProvider = repoProvider;
         this.permissionProvider = permissionProvider;
+        this.resultPermissionProvider = permissionProvider;
     }
 
     public AqlRepoProvider getRepoProvider() {
@@ -45,4 +47,15 @@ public class AqlQueryDecoratorContext {
     public AqlPermissionProvider getPermissionProvider() {
         return permissionProvider;
     }
+
+    /**
+     * @return The permission provider to check the result rows of the decorated query with
+     */
+    public AqlPermissionProvider getResultPermissionProvider() {
+        return resultPermissionProvider;
+    }
+
+    void setResultPermissionProvider(AqlPermissionProvider resultPermissionProvider) {
+        this.resultPermissionProvider = resultPermissionProvider;
+    }
 }
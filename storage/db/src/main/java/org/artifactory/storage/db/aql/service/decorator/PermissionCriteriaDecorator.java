@@ -0,0 +1,113 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service.decorator;
+
+import com.google.common.collect.Lists;
+import org.artifactory.api.security.PermissionHeuristicScore;
+import org.artifactory.aql.AqlFieldResolver;
+import org.artifactory.aql.model.*;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.storage.db.aql.sql.builder.links.TableLink;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.*;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.type.AqlTableGraph;
+import org.artifactory.storage.db.aql.sql.model.SqlTableEnum;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filters the items of the repositories the current user can't read anything from in the database, so the limit and
+ * offset of the query apply to the rows the user may see. The items of the partially readable repositories are still
+ * checked one by one when reading the results, the items of the repositories readable as a whole are not.
+ */
+public class PermissionCriteriaDecorator implements DecorationStrategy {
+
+    @Override
+    public void decorate(AqlQuery aqlQuery, AqlQueryDecoratorContext decoratorContext) {
+        AqlPermissionProvider permissionProvider = decoratorContext.getPermissionProvider();
+        // Only items are checked against the user permissions, other domains are for admins only
+        if (!ConstantValues.aqlPermissionsPushDown.getBoolean() || !AqlDomainEnum.items.equals(aqlQuery.getDomain())
+                || permissionProvider.isAdmin()) {
+            return;
+        }
+        List<String> repoKeys = decoratorContext.getRepoProvider().getLocalAndCacheRepoKeys();
+        Map<String, PermissionHeuristicScore> scores = permissionProvider.getReadPermissionScores(repoKeys);
+        if (scores == null) {
+            return;
+        }
+        List<String> readableRepoKeys = Lists.newArrayList();
+        List<String> unreadableRepoKeys = Lists.newArrayList();
+        Set<String> fullyReadableRepoKeys = new HashSet<>();
+        for (String repoKey : repoKeys) {
+            PermissionHeuristicScore score = scores.get(repoKey);
+            if (score == null || score == PermissionHeuristicScore.readNotAllowed) {
+                unreadableRepoKeys.add(repoKey);
+            } else {
+                readableRepoKeys.add(repoKey);
+                if (score.ordinal() >= PermissionHeuristicScore.readAll.ordinal()) {
+                    fullyReadableRepoKeys.add(repoKey);
+                }
+            }
+        }
+        if (!unreadableRepoKeys.isEmpty()) {
+            // Use the shorter list, excluding the unreadable repositories also keeps the items of repositories
+            // unknown to the repo provider, which are checked when reading the results
+            if (!readableRepoKeys.isEmpty() && readableRepoKeys.size() <= unreadableRepoKeys.size()) {
+                addCriteria(aqlQuery, readableRepoKeys, AqlComparatorEnum.equals, AqlAdapter.or);
+            } else {
+                addCriteria(aqlQuery, unreadableRepoKeys, AqlComparatorEnum.notEquals, AqlAdapter.and);
+            }
+        }
+        if (!fullyReadableRepoKeys.isEmpty()) {
+            decoratorContext.setResultPermissionProvider(
+                    new ReadableReposPermissionProvider(permissionProvider, fullyReadableRepoKeys));
+        }
+    }
+
+    private void addCriteria(AqlQuery aqlQuery, List<String> repoKeys, AqlComparatorEnum comparator,
+            OperatorQueryElement operator) {
+        // (query)AND(repo = "a" OR repo = "b"...) or (query)AND(repo != "a" AND repo != "b"...)
+        AqlField itemRepo = AqlFieldResolver.resolve(AqlPhysicalFieldEnum.itemRepo);
+        TableLink nodesTable = AqlTableGraph.tablesLinksMap.get(SqlTableEnum.nodes);
+        List<AqlQueryElement> criteria = Lists.newArrayList();
+        for (String repoKey : repoKeys) {
+            if (!criteria.isEmpty()) {
+                criteria.add(operator);
+            }
+            AqlVariable repoValue = AqlFieldResolver.resolve(repoKey, AqlVariableTypeEnum.string);
+            criteria.add(new SimpleCriterion(Lists.newArrayList(AqlDomainEnum.items), itemRepo, nodesTable.getTable(),
+                    comparator.signature, repoValue, nodesTable.getTable(), false));
+        }
+        if (criteria.size() > 1) {
+            criteria.add(0, AqlAdapter.open);
+            criteria.add(AqlAdapter.close);
+        }
+        List<AqlQueryElement> aqlElements = aqlQuery.getAqlElements();
+        if (!aqlElements.isEmpty()) {
+            aqlElements.add(0, AqlAdapter.open);
+            aqlElements.add(AqlAdapter.close);
+            aqlElements.add(AqlAdapter.and);
+        }
+        aqlElements.addAll(criteria);
+    }
+}
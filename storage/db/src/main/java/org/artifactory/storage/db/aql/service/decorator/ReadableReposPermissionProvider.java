@@ -0,0 +1,65 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.service.decorator;
+
+import org.artifactory.api.security.PermissionHeuristicScore;
+import org.artifactory.aql.model.AqlPermissionProvider;
+import org.artifactory.repo.RepoPath;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the items of the repositories the user can read as a whole without checking each of them
+ *
+ * @see PermissionCriteriaDecorator
+ */
+class ReadableReposPermissionProvider implements AqlPermissionProvider {
+
+    private final AqlPermissionProvider delegate;
+    private final Set<String> readableRepoKeys;
+
+    ReadableReposPermissionProvider(AqlPermissionProvider delegate, Set<String> readableRepoKeys) {
+        this.delegate = delegate;
+        this.readableRepoKeys = readableRepoKeys;
+    }
+
+    @Override
+    public boolean canRead(RepoPath repoPath) {
+        return readableRepoKeys.contains(repoPath.getRepoKey()) || delegate.canRead(repoPath);
+    }
+
+    @Override
+    public boolean isAdmin() {
+        return delegate.isAdmin();
+    }
+
+    @Override
+    public boolean isOss() {
+        return delegate.isOss();
+    }
+
+    @Override
+    public Map<String, PermissionHeuristicScore> getReadPermissionScores(Collection<String> repoKeys) {
+        return delegate.getReadPermissionScores(repoKeys);
+    }
+}
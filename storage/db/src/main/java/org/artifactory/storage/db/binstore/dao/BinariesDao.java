@@ -21,6 +21,7 @@
 package org.artifactory.storage.db.binstore.dao;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.artifactory.api.storage.BinariesInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.common.ConstantValues;
@@ -28,6 +29,7 @@ import org.artifactory.storage.db.binstore.entity.BinaryEntity;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.db.util.querybuilder.QueryWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A data access object for binaries table access.
@@ -138,6 +141,66 @@ public class BinariesDao extends BaseDao {
         return results;
     }
 
+    /**
+     * Finds a page of the binaries that are not referenced by any node, ordered by sha1 checksum. Unlike
+     * {@link #findPotentialDeletion()} the candidates are read page by page, without loading all of them to memory.
+     *
+     * @param afterSha1 Only binaries with a checksum greater than this one are returned, null to start from the first
+     * @param limit     Maximum number of binaries to return
+     */
+    public List<BinaryEntity> findPotentialDeletion(@Nullable String afterSha1, long limit) throws SQLException {
+        List<BinaryEntity> results = Lists.newArrayList();
+        String conditions = " b.sha1 NOT LIKE '" + TEMP_SHA1_PREFIX + "%'" +
+                " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = b.sha1) ";
+        Object[] params = new Object[0];
+        if (afterSha1 != null) {
+            conditions += " AND b.sha1 > ? ";
+            params = new Object[]{afterSha1};
+        }
+        String query = new QueryWriter().select(" b.sha1, b.md5, b.bin_length ").from(" binaries b ")
+                .where(conditions).orderBy(" b.sha1 ").limit(limit).build();
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect(query, params);
+            while (resultSet.next()) {
+                results.add(binaryFromResultSet(resultSet));
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        return results;
+    }
+
+    /**
+     * @param sha1s Checksums of candidates for deletion (no more than the max elements of an IN clause)
+     * @return The checksums that are still not referenced by any node
+     */
+    public Set<String> findUnreferenced(Collection<String> sha1s) throws SQLException {
+        Set<String> results = Sets.newHashSet();
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect("SELECT b.sha1 FROM binaries b WHERE b.sha1 IN (#)" +
+                    " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = b.sha1)", sha1s);
+            while (resultSet.next()) {
+                results.add(resultSet.getString(1));
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        return results;
+    }
+
+    /**
+     * Deletes the binaries rows of the given checksums in a single statement, skipping binaries referenced by nodes.
+     *
+     * @param sha1s Checksums to delete (no more than the max elements of an IN clause)
+     * @return Number of deleted rows
+     */
+    public int deleteEntries(Collection<String> sha1s) throws SQLException {
+        return jdbcHelper.executeUpdate("DELETE FROM binaries WHERE binaries.sha1 IN (#)" +
+                " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = binaries.sha1)", sha1s);
+    }
+
     public int deleteEntry(String sha1ToDelete) throws SQLException {
         return jdbcHelper.executeUpdate("DELETE FROM binaries WHERE binaries.sha1 = ?" +
                 " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = ?)"
@@ -23,6 +23,7 @@ package org.artifactory.storage.db.binstore.service;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.http.HttpStatus;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.ha.ClusterOperationsService;
@@ -85,6 +86,10 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -102,6 +107,11 @@ import static org.artifactory.storage.db.binstore.util.BinaryServiceUtils.*;
 public class BinaryServiceImpl implements InternalBinaryService, ClusterTopologyListener {
     private static final Logger log = LoggerFactory.getLogger(BinaryServiceImpl.class);
 
+    /**
+     * Maximal number of binaries deleted by a single batch, bounded by the maximal elements of an IN clause (Oracle)
+     */
+    private static final int MAX_GC_BATCH_SIZE = 1000;
+
     @Autowired
     private BinariesDao binariesDao;
 
@@ -396,11 +406,47 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
     public GarbageCollectorInfo garbageCollect() {
         notifyGCListenersOnStart();
         final GarbageCollectorInfo result = new GarbageCollectorInfo();
-        Collection<BinaryEntity> binsToDelete;
         try {
             BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
             result.initialCount = countAndSize.getBinariesCount();
             result.initialSize = countAndSize.getBinariesSize();
+        } catch (SQLException e) {
+            throw new StorageException("Could not find potential Binaries to delete!", e);
+        }
+        int batchSize = ConstantValues.gcBatchSize.getInt();
+        if (batchSize > 1) {
+            collectInBatches(result, Math.min(batchSize, MAX_GC_BATCH_SIZE));
+        } else {
+            collectOneByOne(result);
+        }
+
+        if (result.checksumsCleaned > 0) {
+            result.archivePathsCleaned = getTransactionalMe().deleteUnusedArchivePaths();
+            result.archiveNamesCleaned = getTransactionalMe().deleteUnusedArchiveNames();
+        }
+
+        result.gcEndTime = System.currentTimeMillis();
+
+        try {
+            BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
+            result.printCollectionInfo(countAndSize.getBinariesSize());
+        } catch (SQLException e) {
+            log.error("Could not list files due to " + e.getMessage());
+        }
+        boolean success = binaryProviderManager.optimize(forceBinaryProviderOptimizationOnce);
+        if (success) {
+            forceBinaryProviderOptimizationOnce = false;
+        }
+        notifyGCListenersOnFinished();
+        return result;
+    }
+
+    /**
+     * Collects all the candidates for deletion at once and deletes them one by one, each in its own transaction.
+     */
+    private void collectOneByOne(GarbageCollectorInfo result) {
+        Collection<BinaryEntity> binsToDelete;
+        try {
             binsToDelete = binariesDao.findPotentialDeletion();
         } catch (SQLException e) {
             throw new StorageException("Could not find potential Binaries to delete!", e);
@@ -429,26 +475,63 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
                 }
             }
         }
+    }
 
-        if (result.checksumsCleaned > 0) {
-            result.archivePathsCleaned = getTransactionalMe().deleteUnusedArchivePaths();
-            result.archiveNamesCleaned = getTransactionalMe().deleteUnusedArchiveNames();
-        }
-
-        result.gcEndTime = System.currentTimeMillis();
-
+    /**
+     * Pages through the candidates for deletion (ordered by checksum) and deletes each page in a single transaction.
+     * The binaries of each deleted page are then removed from the binary provider by a pool of delete threads.
+     */
+    private void collectInBatches(GarbageCollectorInfo result, int batchSize) {
+        ExecutorService deleteExecutor = Executors.newFixedThreadPool(
+                Math.max(1, ConstantValues.gcBinaryProviderDeleteThreads.getInt()),
+                new ThreadFactoryBuilder().setNameFormat("art-gc-%s").setDaemon(true).build());
+        // Counts failures, if pass the threshold, gc stops.
+        int failures = 0;
+        String lastSha1 = null;
         try {
-            BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
-            result.printCollectionInfo(countAndSize.getBinariesSize());
-        } catch (SQLException e) {
-            log.error("Could not list files due to " + e.getMessage());
+            while (true) {
+                List<BinaryEntity> batch;
+                try {
+                    batch = binariesDao.findPotentialDeletion(lastSha1, batchSize);
+                } catch (SQLException e) {
+                    throw new StorageException("Could not find potential Binaries to delete!", e);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastSha1 = batch.get(batch.size() - 1).getSha1();
+                result.candidatesForDeletion += batch.size();
+                result.batchesProcessed++;
+                try {
+                    dbService.invokeInTransaction("BinaryBatchCleaner#" + lastSha1,
+                            new BinaryBatchCleaner(batch, result, deleteExecutor));
+                } catch (Exception e) {
+                    failures++;
+                    String msg = "Caught Exception, trying to clean batch ending at {} : {}";
+                    if (failures >= ConstantValues.gcFailCountThreshold.getInt()) {
+                        // We're past the allowed fail threshold, fail gc.
+                        log.error(msg + ". Aborting Garbage Collection Run.", lastSha1, e.getMessage());
+                        log.debug("", e);
+                        break;
+                    } else {
+                        log.debug(msg, lastSha1, e.getMessage());
+                    }
+                }
+                if (log.isDebugEnabled()) {
+                    result.printProgress();
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } finally {
+            result.stopScanTimestamp = System.currentTimeMillis();
+            deleteExecutor.shutdown();
         }
-        boolean success = binaryProviderManager.optimize(forceBinaryProviderOptimizationOnce);
-        if (success) {
-            forceBinaryProviderOptimizationOnce = false;
+        if (result.candidatesForDeletion > 0) {
+            log.info("Found {} candidates for deletion in {} batches", result.candidatesForDeletion,
+                    result.batchesProcessed);
         }
-        notifyGCListenersOnFinished();
-        return result;
     }
 
     /**
@@ -478,6 +561,31 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
         return false;
     }
 
+    /**
+     * Marks the binary as being deleted, unless it has active readers or writers. The caller must remove the delete
+     * protection of the binary when done.
+     *
+     * @return True if the binary can be deleted
+     */
+    private boolean protectForDeletion(String sha1) {
+        deleteProtectedBinaries.putIfAbsent(sha1, new Pair<>(new AtomicInteger(0), System.currentTimeMillis()));
+        Pair<AtomicInteger, Long> pair = deleteProtectedBinaries.get(sha1);
+        if (pair.getFirst().compareAndSet(0, -30)) {
+            log.debug("Targeting '{}' for deletion as it not seems to be used", sha1);
+            return true;
+        }
+        Long timestamp = pair.getSecond();
+        log.info("Binary {} has {} readers with last timestamp of {}", sha1, pair.getFirst().get(), timestamp);
+        long trashTime = (System.currentTimeMillis() - timestamp) / 1000;
+        if (trashTime > ConstantValues.gcReadersMaxTimeSecs.getLong()) {
+            log.info("Binary {} has reached it's max read time, removing it from ref. counter", sha1);
+            deleteProtectedBinaries.remove(sha1);
+        } else {
+            log.info("Binary {} is being read! Not deleting.", sha1);
+        }
+        return false;
+    }
+
     @Override
     public int deleteUnusedArchivePaths() {
         try {
@@ -738,10 +846,7 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
         @Override
         public Void call() throws Exception {
             String sha1 = bd.getSha1();
-            deleteProtectedBinaries.putIfAbsent(sha1, new Pair<>(new AtomicInteger(0), System.currentTimeMillis()));
-            Pair<AtomicInteger, Long> pair = deleteProtectedBinaries.get(sha1);
-            if (pair.getFirst().compareAndSet(0, -30)) {
-                log.debug("Targeting '{}' for deletion as it not seems to be used", sha1);
+            if (protectForDeletion(sha1)) {
                 try {
                     if (deleteEntry(sha1)) {
                         log.trace("Deleted {} record from binaries table", sha1);
@@ -761,19 +866,102 @@ public class BinaryServiceImpl implements InternalBinaryService, ClusterTopology
                     deleteProtectedBinaries.remove(sha1);
                     log.debug("Cleaning '{}' from ref. counter", sha1);
                 }
-            } else {
-                Long timestamp = pair.getSecond();
-                log.info("Binary {} has {} readers with last timestamp of {}", sha1, pair.getFirst().get(), timestamp);
-                long trashTime = (System.currentTimeMillis() - timestamp) / 1000;
-                if (trashTime > ConstantValues.gcReadersMaxTimeSecs.getLong()) {
-                    log.info("Binary {} has reached it's max read time, removing it from ref. counter", sha1);
-                    deleteProtectedBinaries.remove(sha1);
-                } else {
-                    log.info("Binary {} is being read! Not deleting.", sha1);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a batch of binaries from the database in a single transaction, skipping binaries that are in use. The
+     * deleted binaries are then removed from the filesystem in parallel, and the delete protection of the batch is
+     * released only once all of them are removed.
+     */
+    private class BinaryBatchCleaner implements Callable<Void> {
+        private final GarbageCollectorInfo result;
+        private final List<BinaryEntity> batch;
+        private final ExecutorService deleteExecutor;
+
+        public BinaryBatchCleaner(List<BinaryEntity> batch, GarbageCollectorInfo result,
+                ExecutorService deleteExecutor) {
+            this.result = result;
+            this.batch = batch;
+            this.deleteExecutor = deleteExecutor;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            Map<String, BinaryEntity> targeted = new HashMap<>();
+            try {
+                for (BinaryEntity bd : batch) {
+                    if (protectForDeletion(bd.getSha1())) {
+                        targeted.put(bd.getSha1(), bd);
+                    }
+                }
+                if (targeted.isEmpty()) {
+                    return null;
                 }
+                Set<String> deleted = deleteEntries(targeted.keySet());
+                result.checksumsCleaned += deleted.size();
+                deleteBinaries(deleted.stream().map(targeted::get).collect(Collectors.toList()));
+            } finally {
+                // remove delete protection (even if delete was not successful)
+                targeted.keySet().forEach(deleteProtectedBinaries::remove);
+                log.debug("Cleaning {} checksums from ref. counter", targeted.size());
             }
             return null;
         }
+
+        /**
+         * Deletes the binaries rows and all dependent rows of the given checksums from the database
+         *
+         * @return The checksums that were deleted
+         */
+        private Set<String> deleteEntries(Set<String> sha1s) throws SQLException {
+            Set<String> unreferenced = binariesDao.findUnreferenced(sha1s);
+            if (unreferenced.isEmpty()) {
+                return unreferenced;
+            }
+            archiveEntriesService.deleteArchiveEntries(unreferenced);
+            int deletedCount = binariesDao.deleteEntries(unreferenced);
+            if (deletedCount == unreferenced.size()) {
+                return unreferenced;
+            }
+            // some binaries got referenced since they were found unreferenced - keep only the ones actually deleted
+            Set<String> deleted = Sets.newHashSet(unreferenced);
+            deleted.removeAll(binariesDao.search(ChecksumType.sha1, unreferenced).stream()
+                    .map(BinaryEntity::getSha1).collect(Collectors.toSet()));
+            log.error("Binary entries " + Sets.difference(unreferenced, deleted) + " had archive entries that are" +
+                    " deleted, but the binary line was not deleted! Re indexing of archive needed.");
+            return deleted;
+        }
+
+        private void deleteBinaries(List<BinaryEntity> deleted) throws InterruptedException {
+            List<Future<?>> futures = Lists.newArrayListWithCapacity(deleted.size());
+            for (BinaryEntity bd : deleted) {
+                futures.add(deleteExecutor.submit(() -> deleteBinary(bd)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Could not delete binary: {}", e.getCause().getMessage());
+                    log.debug("Could not delete binary", e.getCause());
+                }
+            }
+        }
+
+        private void deleteBinary(BinaryEntity bd) {
+            String sha1 = bd.getSha1();
+            if (binaryProvider.delete(new BinaryElementRequestImpl(sha1))) {
+                log.trace("Deleted {} binary", sha1);
+                synchronized (result) {
+                    result.binariesCleaned++;
+                    result.totalSizeCleaned += bd.getLength();
+                }
+            } else {
+                log.error("Could not delete binary '{}'", sha1);
+            }
+        }
     }
 }
 
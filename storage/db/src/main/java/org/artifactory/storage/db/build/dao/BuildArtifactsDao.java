@@ -48,12 +48,16 @@ public class BuildArtifactsDao extends BaseDao {
     }
 
     public int createBuildArtifacts(List<BuildArtifact> bas) throws SQLException {
-        int res = 0;
+        List<Object[]> rows = new ArrayList<>(bas.size());
         for (BuildArtifact ba : bas) {
-            // TODO: Make it big single SQL
-            res += createBuildArtifact(ba);
+            rows.add(new Object[]{ba.getArtifactId(), ba.getModuleId(),
+                    ba.getArtifactName(), ba.getArtifactType(),
+                    ba.getSha1(), ba.getMd5()});
         }
-        return res;
+        return insertRows("build_artifacts " +
+                "(artifact_id, module_id, " +
+                "artifact_name, artifact_type, " +
+                "sha1, md5)", rows);
     }
 
     public int createBuildArtifact(BuildArtifact ba) throws SQLException {
@@ -48,12 +48,16 @@ public class BuildDependenciesDao extends BaseDao {
     }
 
     public int createBuildDependencies(List<BuildDependency> bds) throws SQLException {
-        int res = 0;
+        List<Object[]> rows = new ArrayList<>(bds.size());
         for (BuildDependency bd : bds) {
-            // TODO: Make it big single SQL
-            res += createBuildDependency(bd);
+            rows.add(new Object[]{bd.getDependencyId(), bd.getModuleId(),
+                    bd.getDependencyNameId(), bd.getDependencyScopes(), bd.getDependencyType(),
+                    bd.getSha1(), bd.getMd5()});
         }
-        return res;
+        return insertRows("build_dependencies " +
+                "(dependency_id, module_id, " +
+                "dependency_name_id, dependency_scopes, dependency_type, " +
+                "sha1, md5)", rows);
     }
 
     public int createBuildDependency(BuildDependency bd) throws SQLException {
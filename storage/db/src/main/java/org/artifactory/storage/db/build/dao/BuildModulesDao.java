@@ -62,12 +62,12 @@ public class BuildModulesDao extends BaseDao {
         int res = jdbcHelper.executeUpdate("INSERT INTO build_modules VALUES(" +
                 "?, ?, ?)",
                 bm.getModuleId(), bm.getBuildId(), bm.getModuleNameId());
+        List<Object[]> propRows = new ArrayList<>(bm.getProperties().size());
         for (ModuleProperty bmp : bm.getProperties()) {
-            res += jdbcHelper.executeUpdate("INSERT INTO module_props VALUES(" +
-                    "?, ?, ?, ?)",
-                    bmp.getPropId(), bmp.getModuleId(), bmp.getPropKey(),
-                    StringUtils.substring(bmp.getPropValue(), 0, 2048));
+            propRows.add(new Object[]{bmp.getPropId(), bmp.getModuleId(), bmp.getPropKey(),
+                    StringUtils.substring(bmp.getPropValue(), 0, 2048)});
         }
+        res += insertRows("module_props", propRows);
         return res;
     }
 
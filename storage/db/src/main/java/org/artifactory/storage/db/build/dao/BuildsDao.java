@@ -26,6 +26,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.api.build.*;
 import org.artifactory.api.build.diff.BuildParams;
+import org.artifactory.api.jackson.JacksonFactory;
 import org.artifactory.api.jackson.JacksonReader;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.common.config.db.BlobWrapper;
@@ -39,7 +40,12 @@ import org.artifactory.storage.db.build.entity.BuildProperty;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.db.util.blob.JsonBlobWrapper;
 import org.artifactory.storage.db.util.querybuilder.QueryWriter;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -164,7 +170,7 @@ public class BuildsDao extends BaseDao {
                     " build_id = ?",
                     buildId);
             if (rs.next()) {
-                jsonStream = rs.getBinaryStream(1);
+                jsonStream = JsonBlobWrapper.uncompressed(rs.getBinaryStream(1));
                 if (CharSequence.class.isAssignableFrom(clazz)) {
                     //noinspection unchecked
                     return (T) IOUtils.toString(jsonStream, Charsets.UTF_8.name());
@@ -180,6 +186,49 @@ public class BuildsDao extends BaseDao {
         return null;
     }
 
+    /**
+     * Reads only the given top level fields of the stored build JSON. The JSON is streamed and the other fields are
+     * skipped without being bound, and the stream is abandoned as soon as all the requested fields were read.
+     *
+     * @param buildId    The build to read
+     * @param clazz      The class to bind the selected fields to, fields that were not selected are left unset
+     * @param fieldNames Names of the top level fields to read
+     * @return An instance of the class holding the selected fields, null if the build has no JSON
+     */
+    public <T> T getJsonBuildFields(long buildId, Class<T> clazz, Set<String> fieldNames) throws SQLException {
+        ResultSet rs = null;
+        InputStream jsonStream = null;
+        try {
+            rs = jdbcHelper.executeSelect("SELECT build_info_json FROM build_jsons WHERE" +
+                    " build_id = ?",
+                    buildId);
+            if (rs.next()) {
+                jsonStream = JsonBlobWrapper.uncompressed(rs.getBinaryStream(1));
+                JsonParser parser = JacksonFactory.createJsonParser(jsonStream);
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a JSON object but found " + parser.getCurrentToken());
+                }
+                ObjectNode selected = JsonNodeFactory.instance.objectNode();
+                while (selected.size() < fieldNames.size() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    if (fieldNames.contains(fieldName)) {
+                        selected.put(fieldName, parser.readValueAsTree());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return parser.getCodec().treeToValue(selected, clazz);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read JSON data for build '" + buildId + "' due to: " + e.getMessage(), e);
+        } finally {
+            DbUtils.close(rs);
+            IOUtils.closeQuietly(jsonStream);
+        }
+        return null;
+    }
+
     public BuildEntity getBuild(long buildId) throws SQLException {
         ResultSet rs = null;
         BuildEntity build = null;
@@ -887,6 +936,43 @@ public class BuildsDao extends BaseDao {
         return buildIds;
     }
 
+    /**
+     * Reads only the builds table, so the latest build can be picked without loading every build of the name.
+     *
+     * @return The ids, numbers and dates of the builds with the given name, ordered by build date
+     */
+    public List<BuildIdEntity> findBuildIdEntities(String buildName) throws SQLException {
+        return findBuildIdEntities("SELECT build_id, build_name, build_number, build_date FROM builds WHERE" +
+                " build_name = ? ORDER BY build_date", buildName);
+    }
+
+    /**
+     * @return The ids, numbers and dates of the builds with the given name which latest promotion has the given
+     * status, ordered by build date
+     */
+    public List<BuildIdEntity> findBuildIdEntitiesByReleaseStatus(String buildName, String releaseStatus)
+            throws SQLException {
+        return findBuildIdEntities("SELECT b.build_id, b.build_name, b.build_number, b.build_date" +
+                " FROM builds b, build_promotions p WHERE b.build_name = ? AND p.build_id = b.build_id" +
+                " AND p.status = ? AND p.created =" +
+                " (SELECT max(p2.created) FROM build_promotions p2 WHERE p2.build_id = b.build_id)" +
+                " ORDER BY b.build_date", buildName, releaseStatus);
+    }
+
+    private List<BuildIdEntity> findBuildIdEntities(String query, Object... params) throws SQLException {
+        ResultSet rs = null;
+        List<BuildIdEntity> builds = new ArrayList<>();
+        try {
+            rs = jdbcHelper.executeSelect(query, params);
+            while (rs.next()) {
+                builds.add(new BuildIdEntity(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)));
+            }
+        } finally {
+            DbUtils.close(rs);
+        }
+        return builds;
+    }
+
     public List<Long> findBuildIds(String buildName, String buildNumber) throws SQLException {
         ResultSet rs = null;
         List<Long> buildIds = new ArrayList<>();
@@ -29,6 +29,8 @@ import org.artifactory.build.BuildId;
 import org.artifactory.build.BuildInfoUtils;
 import org.artifactory.build.BuildRun;
 import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.common.config.db.BlobWrapper;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.binstore.service.BinaryInfo;
 import org.artifactory.storage.binstore.service.BinaryService;
@@ -121,7 +123,7 @@ public class BuildStoreServiceImpl implements BuildStoreService {
             long buildId = dbBuild.getBuildId();
             dbBuild.setProperties(createProperties(buildId, build));
             dbBuild.setPromotions(createPromotions(buildId, build));
-            buildsDao.createBuild(dbBuild, blobsFactory.createJsonObjectWrapper(build));
+            buildsDao.createBuild(dbBuild, createBuildJsonWrapper(build));
             insertModules(buildId, build);
         } catch (SQLException e) {
             throw new StorageException("Could not insert build " + build, e);
@@ -176,6 +178,9 @@ public class BuildStoreServiceImpl implements BuildStoreService {
             // Nothing to do here
             return;
         }
+        // artifacts and dependencies of all the modules are inserted together, after their modules
+        List<BuildArtifact> dbArtifacts = Lists.newArrayList();
+        List<BuildDependency> dbDependencies = Lists.newArrayList();
         for (Module module : modules) {
             BuildModule dbModule = new BuildModule(dbService.nextId(), buildId, module.getId());
             Properties properties = module.getProperties();
@@ -196,34 +201,26 @@ public class BuildStoreServiceImpl implements BuildStoreService {
             buildModulesDao.createBuildModule(dbModule);
 
             List<Artifact> artifacts = module.getArtifacts();
-            List<BuildArtifact> dbArtifacts;
             if (artifacts != null && !artifacts.isEmpty()) {
-                dbArtifacts = Lists.newArrayListWithExpectedSize(artifacts.size());
                 for (Artifact artifact : artifacts) {
                     // Artifact properties are not inserted in DB
                     dbArtifacts.add(new BuildArtifact(dbService.nextId(), dbModule.getModuleId(),
                             artifact.getName(), artifact.getType(), artifact.getSha1(), artifact.getMd5()));
                 }
-            } else {
-                dbArtifacts = Lists.newArrayListWithExpectedSize(1);
             }
-            buildArtifactsDao.createBuildArtifacts(dbArtifacts);
 
             List<Dependency> dependencies = module.getDependencies();
-            List<BuildDependency> dbDependencies;
             if (dependencies != null && !dependencies.isEmpty()) {
-                dbDependencies = Lists.newArrayListWithExpectedSize(dependencies.size());
                 for (Dependency dependency : dependencies) {
                     // Dependency properties are not inserted in DB
                     dbDependencies.add(new BuildDependency(dbService.nextId(), dbModule.getModuleId(),
                             dependency.getId(), dependency.getScopes(), dependency.getType(),
                             dependency.getSha1(), dependency.getMd5()));
                 }
-            } else {
-                dbDependencies = Lists.newArrayListWithExpectedSize(1);
             }
-            buildDependenciesDao.createBuildDependencies(dbDependencies);
         }
+        buildArtifactsDao.createBuildArtifacts(dbArtifacts);
+        buildDependenciesDao.createBuildDependencies(dbDependencies);
     }
 
     @Override
@@ -265,12 +262,25 @@ public class BuildStoreServiceImpl implements BuildStoreService {
         return null;
     }
 
+    @Override
+    public Build getBuildJsonFields(BuildRun buildRun, String... fieldNames) {
+        try {
+            long buildId = findIdFromBuildRun(buildRun);
+            if (buildId > 0L) {
+                return buildsDao.getJsonBuildFields(buildId, Build.class, Sets.newHashSet(fieldNames));
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Could not execute get build JSON fields for build " + buildRun, e);
+        }
+        return null;
+    }
+
     @Override
     public void renameBuild(BuildRun originalBuildRun, Build renamedBuild, String currentUser) {
         try {
             long buildId = findIdFromBuildRun(originalBuildRun);
             if (buildId > 0L) {
-                buildsDao.rename(buildId, renamedBuild.getName(), blobsFactory.createJsonObjectWrapper(renamedBuild),
+                buildsDao.rename(buildId, renamedBuild.getName(), createBuildJsonWrapper(renamedBuild),
                         currentUser, System.currentTimeMillis());
             } else {
                 throw new StorageException("Could not find build to rename " + originalBuildRun);
@@ -290,7 +300,7 @@ public class BuildStoreServiceImpl implements BuildStoreService {
             long buildId = findIdFromBuildRun(buildRun);
             build.addStatus(promotion);
             buildsDao.addPromotionStatus(buildId, convertPromotionStatus(buildId, promotion),
-                    blobsFactory.createJsonObjectWrapper(build), currentUser, System.currentTimeMillis());
+                    createBuildJsonWrapper(build), currentUser, System.currentTimeMillis());
         } catch (SQLException e) {
             throw new StorageException("Could not add promotion " + promotion + " for build " + buildRun, e);
         }
@@ -606,6 +616,43 @@ public class BuildStoreServiceImpl implements BuildStoreService {
         return results;
     }
 
+    @Override
+    @Nullable
+    public BuildRun getLatestBuildRun(String buildName, @Nullable String releaseStatus) {
+        try {
+            List<BuildRun> buildRuns = toBuildRuns(buildsDao.findBuildIdEntities(buildName), null);
+            // the type of build numbers comparison is determined by all the runs of the name
+            Comparator<BuildRun> comparator = BuildRunComparators.getComparatorFor(buildRuns);
+            if (releaseStatus != null) {
+                buildRuns = toBuildRuns(buildsDao.findBuildIdEntitiesByReleaseStatus(buildName, releaseStatus),
+                        releaseStatus);
+            }
+            BuildRun latestBuildRun = null;
+            for (BuildRun buildRun : buildRuns) {
+                // runs are ordered by date, so the last started run wins among runs with the same number
+                if (latestBuildRun == null || comparator.compare(buildRun, latestBuildRun) >= 0) {
+                    latestBuildRun = buildRun;
+                }
+            }
+            return latestBuildRun;
+        } catch (SQLException e) {
+            throw new StorageException("Could not find the latest build of name='" + buildName + "'", e);
+        }
+    }
+
+    private BlobWrapper createBuildJsonWrapper(Build build) {
+        return blobsFactory.createJsonObjectWrapper(build, ConstantValues.buildInfoJsonCompress.getBoolean());
+    }
+
+    private List<BuildRun> toBuildRuns(List<BuildIdEntity> builds, @Nullable String releaseStatus) {
+        List<BuildRun> buildRuns = new ArrayList<>(builds.size());
+        for (BuildIdEntity build : builds) {
+            buildRuns.add(new BuildRunImpl(build.getBuildId(), build.getBuildName(), build.getBuildNumber(),
+                    formatDateToString(build.getBuildDate()), null, releaseStatus));
+        }
+        return buildRuns;
+    }
+
     @Override
     public Set<BuildRun> findBuildsByNameAndNumber(String buildName, String buildNumber) {
         Set<BuildRun> results = Sets.newHashSet();
@@ -20,6 +20,8 @@
 
 package org.artifactory.storage.db.fs.dao;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.artifactory.common.config.db.ArtifactoryDbProperties;
 import org.artifactory.storage.db.DbService;
@@ -27,12 +29,16 @@ import org.artifactory.storage.db.fs.entity.ArchiveEntry;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.jfrog.client.util.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nonnull;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -95,6 +101,19 @@ public class ArchiveEntriesDao extends BaseDao {
         return 0;
     }
 
+    /**
+     * Same as {@link #deleteByChecksum(String)} for multiple checksums, in two statements.
+     *
+     * @param sha1s The checksums to cleanup (no more than the max elements of an IN clause)
+     * @return Number of entries deleted from the many to many table
+     */
+    public int deleteByChecksums(Collection<String> sha1s) throws SQLException {
+        int entriesCount = jdbcHelper.executeUpdate("DELETE FROM indexed_archives_entries WHERE indexed_archives_id IN" +
+                " (SELECT indexed_archives_id FROM indexed_archives WHERE archive_sha1 IN (#))", sha1s);
+        jdbcHelper.executeUpdate("DELETE FROM indexed_archives WHERE archive_sha1 IN (#)", sha1s);
+        return entriesCount;
+    }
+
     public long findIndexedArchiveIdByChecksum(String sha1) throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -131,6 +150,24 @@ public class ArchiveEntriesDao extends BaseDao {
                 dotIfNullOrEmpty(entryPath));
     }
 
+    /**
+     * @param entryPaths The entry paths (no more than the max elements of an IN clause)
+     * @return Unique ids of the entry paths which exist, by the entry path as stored in the database
+     */
+    public Map<String, Long> findArchivePathIds(Collection<String> entryPaths) throws SQLException {
+        return findIds("SELECT path_id, entry_path FROM archive_paths WHERE entry_path IN (#)", entryPaths);
+    }
+
+    /**
+     * Creates new archive paths in as few statements as possible.
+     *
+     * @param entryPathIds The unique ids of the new entry paths by entry path
+     * @return Number of inserted paths
+     */
+    public int createArchivePaths(Map<String, Long> entryPathIds) throws SQLException {
+        return insertRows("archive_paths", toIdRows(entryPathIds));
+    }
+
     public boolean createArchiveName(long archiveNameId, String entryName) throws SQLException {
         int updateCount = jdbcHelper.executeUpdate("INSERT INTO archive_names VALUES (?, ?)",
                 archiveNameId, dotIfNullOrEmpty(entryName));
@@ -146,6 +183,53 @@ public class ArchiveEntriesDao extends BaseDao {
                 dotIfNullOrEmpty(entryName));
     }
 
+    /**
+     * @param entryNames The entry names (no more than the max elements of an IN clause)
+     * @return Unique ids of the entry names which exist, by the entry name as stored in the database
+     */
+    public Map<String, Long> findArchiveNameIds(Collection<String> entryNames) throws SQLException {
+        return findIds("SELECT name_id, entry_name FROM archive_names WHERE entry_name IN (#)", entryNames);
+    }
+
+    /**
+     * Creates new archive names in as few statements as possible.
+     *
+     * @param entryNameIds The unique ids of the new entry names by entry name
+     * @return Number of inserted names
+     */
+    public int createArchiveNames(Map<String, Long> entryNameIds) throws SQLException {
+        return insertRows("archive_names", toIdRows(entryNameIds));
+    }
+
+    private Map<String, Long> findIds(String query, Collection<String> values) throws SQLException {
+        Map<String, Long> ids = Maps.newHashMapWithExpectedSize(values.size());
+        if (values.isEmpty()) {
+            return ids;
+        }
+        List<String> dottedValues = Lists.newArrayListWithCapacity(values.size());
+        for (String value : values) {
+            dottedValues.add(dotIfNullOrEmpty(value));
+        }
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect(query, dottedValues);
+            while (resultSet.next()) {
+                ids.put(emptyIfNullOrDot(resultSet.getString(2)), resultSet.getLong(1));
+            }
+            return ids;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    private List<Object[]> toIdRows(Map<String, Long> ids) {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(ids.size());
+        for (Map.Entry<String, Long> id : ids.entrySet()) {
+            rows.add(new Object[]{id.getValue(), dotIfNullOrEmpty(id.getKey())});
+        }
+        return rows;
+    }
+
     /**
      * Creates a new record in the many-to-many table of archive to entries.
      *
@@ -161,6 +245,22 @@ public class ArchiveEntriesDao extends BaseDao {
         return updateCount > 0;
     }
 
+    /**
+     * Creates new records in the many-to-many table of archive to entries in as few statements as possible.
+     *
+     * @param indexedArchiveId The indexed archive unique id
+     * @param entriesIds       Pairs of archive entry path and name unique ids. Must not contain duplicates
+     * @return Number of inserted entries
+     */
+    public int createIndexedArchivesEntries(long indexedArchiveId, Collection<Pair<Long, Long>> entriesIds)
+            throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(entriesIds.size());
+        for (Pair<Long, Long> entryIds : entriesIds) {
+            rows.add(new Object[]{indexedArchiveId, entryIds.getFirst(), entryIds.getSecond()});
+        }
+        return insertRows("indexed_archives_entries", rows);
+    }
+
     /**
      * @return True if there's already an entry with the given ids
      */
@@ -36,6 +36,7 @@ import org.artifactory.storage.db.fs.util.NodeUtils;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.db.util.querybuilder.QueryWriter;
 import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +49,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * A data access object for node table access.
@@ -60,6 +62,10 @@ public class NodesDao extends BaseDao {
 
     public static final String TABLE_NAME = "nodes";
     private static final String SELECT_NODE_QUERY = "SELECT * FROM nodes ";
+    private static final String SELECT_SUBTREE_OF_ROOT_QUERY = SELECT_NODE_QUERY +
+            "WHERE repo = ? AND depth > 0 ORDER BY node_path, node_name";
+    private static final String SELECT_SUBTREE_QUERY = SELECT_NODE_QUERY +
+            "WHERE repo = ? AND depth > ? AND (node_path = ? OR node_path LIKE ?) ORDER BY node_path, node_name";
 
     @Autowired
     public NodesDao(JdbcHelper jdbcHelper) {
@@ -352,6 +358,126 @@ public class NodesDao extends BaseDao {
                 nodePath.getRepo(), nodePath.getDepth(), nodePath.getPathName(), nodePath.getPathName() + "/%");
     }
 
+    /**
+     * Counts the nodes under the given folder (excluding the folder itself) up to the given depth
+     *
+     * @param maxDepth Max depth of the counted nodes relative to the folder (1 for the direct children)
+     */
+    public int getNodesCount(NodePath nodePath, int maxDepth) throws SQLException {
+        if (nodePath.isRoot()) {
+            return jdbcHelper.executeSelectCount(
+                    "SELECT COUNT(*) FROM nodes WHERE repo = ? and depth > 0 and depth <= ?",
+                    nodePath.getRepo(), maxDepth);
+        }
+        return jdbcHelper.executeSelectCount(
+                "SELECT COUNT(*) FROM nodes WHERE repo = ? and depth > ? and depth <= ? and " +
+                        "(node_path = ? or node_path like ?)", nodePath.getRepo(), nodePath.getDepth(),
+                nodePath.getDepth() + maxDepth, nodePath.getPathName(), nodePath.getPathName() + "/%");
+    }
+
+    /**
+     * Loads all the nodes under the given folder (excluding the folder itself) in a single range query.
+     *
+     * @param path Path of the folder to load the subtree of, or the repository root
+     * @return The nodes under the folder ordered by path and name
+     */
+    public List<Node> getSubtree(NodePath path) throws SQLException {
+        ResultSet resultSet = null;
+        List<Node> results = Lists.newArrayList();
+        try {
+            if (path.isRoot()) {
+                resultSet = jdbcHelper.executeSelect(SELECT_SUBTREE_OF_ROOT_QUERY, path.getRepo());
+            } else {
+                resultSet = jdbcHelper.executeSelect(SELECT_SUBTREE_QUERY,
+                        path.getRepo(), path.getDepth(), path.getPathName(), path.getPathName() + "/%");
+            }
+            while (resultSet.next()) {
+                results.add(nodeFromResultSet(resultSet));
+            }
+            return results;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    /**
+     * Loads a page of the nodes under the given folder (excluding the folder itself), ordered by path and name. Unlike
+     * {@link #visitSubtree} no cursor is left open between the pages, so the caller can do lengthy work on each page.
+     *
+     * @param path      Path of the folder to load the subtree of, or the repository root
+     * @param afterPath Only nodes after this one (in path and name order) are returned, null to start from the first
+     * @param limit     Maximum number of nodes to return
+     * @return The nodes of the page ordered by path and name
+     */
+    public List<Node> getSubtreePage(NodePath path, @Nullable NodePath afterPath, long limit) throws SQLException {
+        List<Object> params = Lists.newArrayList(path.getRepo(), path.getDepth());
+        String conditions = " repo = ? AND depth > ? ";
+        if (!path.isRoot()) {
+            conditions += " AND (node_path = ? OR node_path LIKE ?) ";
+            params.add(path.getPathName());
+            params.add(path.getPathName() + "/%");
+        }
+        if (afterPath != null) {
+            conditions += " AND (node_path > ? OR (node_path = ? AND node_name > ?)) ";
+            params.add(afterPath.getPath());
+            params.add(afterPath.getPath());
+            params.add(afterPath.getName());
+        }
+        String query = new QueryWriter().select().from(" nodes ").where(conditions)
+                .orderBy(" node_path, node_name ").limit(limit).build();
+        List<Node> results = Lists.newArrayList();
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect(query, params.toArray());
+            while (resultSet.next()) {
+                results.add(nodeFromResultSet(resultSet));
+            }
+            return results;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    /**
+     * Streams all the nodes under the given folder (excluding the folder itself) to the visitor while they are read
+     * from the database, so the memory used doesn't depend on the size of the subtree. The database connection is held
+     * until all the nodes were visited.
+     *
+     * @param path                Path of the folder to visit the subtree of, or the repository root
+     * @param maxDepth            Max depth of the visited nodes relative to the folder (1 for the direct children),
+     *                            {@link Integer#MAX_VALUE} for the whole subtree
+     * @param fetchSize           Number of rows to fetch on each round trip, see
+     *                            {@link JdbcHelper#executeStreamingSelect}
+     * @param cursorInTransaction Whether the driver can only use a cursor inside a transaction
+     * @param visitor             Receives the nodes ordered by path and name
+     */
+    public void visitSubtree(NodePath path, int maxDepth, int fetchSize, boolean cursorInTransaction,
+            Consumer<Node> visitor) throws SQLException {
+        boolean depthLimited = maxDepth < Integer.MAX_VALUE - path.getDepth();
+        List<Object> params = Lists.newArrayList(path.getRepo(), path.getDepth());
+        StringBuilder query = new StringBuilder(SELECT_NODE_QUERY).append("WHERE repo = ? AND depth > ? ");
+        if (depthLimited) {
+            query.append("AND depth <= ? ");
+            params.add(path.getDepth() + maxDepth);
+        }
+        if (!path.isRoot()) {
+            query.append("AND (node_path = ? OR node_path LIKE ?) ");
+            params.add(path.getPathName());
+            params.add(path.getPathName() + "/%");
+        }
+        query.append("ORDER BY node_path, node_name");
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeStreamingSelect(query.toString(), fetchSize, cursorInTransaction, false,
+                    params.toArray());
+            while (resultSet.next()) {
+                visitor.accept(nodeFromResultSet(resultSet));
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
     public List<Node> searchFileByName(String name) throws SQLException {
         ResultSet resultSet = null;
         List<Node> results = new ArrayList<>();
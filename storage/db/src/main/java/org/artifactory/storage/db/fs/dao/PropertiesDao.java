@@ -144,6 +144,20 @@ public class PropertiesDao extends BaseDao {
                 property.getPropId(), property.getNodeId(), property.getPropKey(), propValue);
     }
 
+    /**
+     * Inserts the given properties in as few statements as possible
+     *
+     * @return Number of inserted properties
+     */
+    public int create(List<NodeProperty> properties) throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(properties.size());
+        for (NodeProperty property : properties) {
+            rows.add(new Object[]{property.getPropId(), property.getNodeId(), property.getPropKey(),
+                    getPropertyValueEnforceLength(property)});
+        }
+        return insertRows("node_props", rows);
+    }
+
     private String getPropertyValueEnforceLength(NodeProperty property) {
         String propValue = nullIfEmpty(property.getPropValue());
         int maxPropValue = PROP_VALUE_MAX_SIZE;
@@ -33,6 +33,7 @@ import org.artifactory.factory.InfoFactoryHolder;
 import org.artifactory.fs.ItemInfo;
 import org.artifactory.fs.MutableStatsInfo;
 import org.artifactory.fs.StatsInfo;
+import org.artifactory.repo.RemoteRepoPath;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.fs.dao.StatsDao;
@@ -50,11 +51,14 @@ import org.springframework.transaction.support.AbstractPlatformTransactionManage
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * Provides basic statistic services
@@ -66,6 +70,11 @@ public abstract class AbstractStatsService {
     public static final int DEFAULT_NB_STATS_SAVED_PER_TX = 30;
     private static final Logger log = LoggerFactory.getLogger(AbstractStatsService.class);
     private ConcurrentMap<RepoPath, StatsEvent> statsEvents = Maps.newConcurrentMap();
+    /**
+     * Secondary index of the queued events of remote origins ({@link RemoteRepoPath} keys) by their actual repo path
+     */
+    private final ConcurrentMap<RepoPath, ConcurrentMap<RepoPath, StatsEvent>> remoteStatsEvents =
+            Maps.newConcurrentMap();
 
     @Autowired
     private StatsDao statsDao;
@@ -92,6 +101,52 @@ public abstract class AbstractStatsService {
         return statsEvents;
     }
 
+    /**
+     * Returns the queued event of the given repo path, creating and queueing a new event if there is none.
+     * Callers must synchronize the creation of events.
+     *
+     * @param repoPath     The repo path of the event, a {@link RemoteRepoPath} for events of a remote origin
+     * @param eventFactory Creates the new event if needed
+     */
+    protected StatsEvent getOrCreateStatsEvent(RepoPath repoPath, Function<RepoPath, StatsEvent> eventFactory) {
+        StatsEvent statsEvent = statsEvents.get(repoPath);
+        if (statsEvent == null) {
+            statsEvent = eventFactory.apply(repoPath);
+            if (repoPath instanceof RemoteRepoPath) {
+                StatsEvent remoteEvent = statsEvent;
+                remoteStatsEvents.compute(((RemoteRepoPath) repoPath).getActualRepoPath(), (actualPath, events) -> {
+                    if (events == null) {
+                        events = Maps.newConcurrentMap();
+                    }
+                    events.put(repoPath, remoteEvent);
+                    return events;
+                });
+            }
+            statsEvents.put(repoPath, statsEvent);
+        }
+        return statsEvent;
+    }
+
+    /**
+     * @param actualRepoPath The actual repo path of remote origins events
+     * @return The queued events of all the remote origins of the given repo path
+     */
+    protected Collection<StatsEvent> getRemoteStatsEvents(RepoPath actualRepoPath) {
+        ConcurrentMap<RepoPath, StatsEvent> events = remoteStatsEvents.get(actualRepoPath);
+        return events != null ? events.values() : Collections.emptyList();
+    }
+
+    private void removeFromRemoteStatsEvents(RepoPath repoPath, StatsEvent statsEvent) {
+        if (repoPath instanceof RemoteRepoPath) {
+            remoteStatsEvents.computeIfPresent(((RemoteRepoPath) repoPath).getActualRepoPath(),
+                    (actualPath, events) -> {
+                        // a newer event of the same origin might have been queued already
+                        events.remove(repoPath, statsEvent);
+                        return events.isEmpty() ? null : events;
+                    });
+        }
+    }
+
     public void flushStats() {
         if (getStatsEvents().isEmpty()) {
             return;
@@ -127,7 +182,8 @@ public abstract class AbstractStatsService {
         try {
             onTraversingStart();
             while (iterator.hasNext()) {
-                final StatsEvent event = iterator.next().getValue();
+                Map.Entry<RepoPath, StatsEvent> entry = iterator.next();
+                final StatsEvent event = entry.getValue();
                 log.trace("Flushing statistics : {}", event);
                 if (txStatus == null) {
                     txStatus = startTransaction();
@@ -137,6 +193,7 @@ public abstract class AbstractStatsService {
                     continue;
                 }
                 iterator.remove(); //remove the object prior to sampling its value to avoid atomicity problems
+                removeFromRemoteStatsEvents(entry.getKey(), event);
                 processed++;
                 StatsSaveResult saveResult = createOrUpdateStats(event);
                 switch (saveResult) {
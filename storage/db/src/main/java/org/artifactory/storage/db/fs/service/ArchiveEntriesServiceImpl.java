@@ -20,6 +20,9 @@
 
 package org.artifactory.storage.db.fs.service;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.artifactory.fs.ZipEntryInfo;
 import org.artifactory.model.xstream.fs.ZipEntryImpl;
@@ -29,12 +32,16 @@ import org.artifactory.storage.db.fs.dao.ArchiveEntriesDao;
 import org.artifactory.storage.db.fs.entity.ArchiveEntry;
 import org.artifactory.storage.fs.VfsException;
 import org.artifactory.storage.fs.service.ArchiveEntriesService;
+import org.jfrog.client.util.Pair;
 import org.jfrog.client.util.PathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -45,6 +52,8 @@ import java.util.Set;
 @Service
 public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
 
+    private static final int MAX_IN_CLAUSE_VALUES = 500;
+
     @Autowired
     private DbService dbService;
 
@@ -85,40 +94,134 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
                 throw new StorageException("Failed to insert indexed archive entry for " + archiveSha1);
             }
 
+            // entry paths and names repeat a lot within an archive, so the distinct ones are resolved in batches
+            List<ArchiveEntry> archiveEntries = Lists.newArrayListWithCapacity(entries.size());
+            Set<String> entryPaths = Sets.newHashSet();
+            Set<String> entryNames = Sets.newHashSet();
             for (ZipEntryInfo zipEntry : entries) {
-                // for each entry add one new row to the many to many and to the entries path
                 ArchiveEntry archiveEntry = zipEntryInfoToArchiveEntry(archiveSha1, zipEntry);
+                archiveEntries.add(archiveEntry);
+                entryPaths.add(archiveEntry.getEntryPath());
+                entryNames.add(archiveEntry.getEntryName());
+            }
+            Map<String, Long> archivePathIds = findOrCreateArchivePathIds(entryPaths);
+            Map<String, Long> archiveNameIds = findOrCreateArchiveNameIds(entryNames);
 
-                // select or create id from archive path
-                long archivePathId = archiveEntriesDao.findArchivePathId(archiveEntry.getEntryPath());
-                if (archivePathId == DbService.NO_DB_ID) {
-                    archivePathId = dbService.nextId();
-                    if (!archiveEntriesDao.createArchivePath(archivePathId, archiveEntry.getEntryPath())) {
-                        throw new StorageException("Failed to insert archive path: " + archiveEntry.getEntryPath());
-                    }
-                }
-
-                // select or create id from archive name
-                long archiveNameId = archiveEntriesDao.findArchiveNameId(archiveEntry.getEntryName());
-                if (archiveNameId == DbService.NO_DB_ID) {
-                    archiveNameId = dbService.nextId();
-                    if (!archiveEntriesDao.createArchiveName(archiveNameId, archiveEntry.getEntryName())) {
-                        throw new StorageException("Failed to insert archive name: " + archiveEntry.getEntryName());
-                    }
-                }
-
-                // before inserting to the many to many relation check that such entry doesn't entry doesn't exist
-                // this might happen for example in case insensitive databases if the archive contains two entries
-                // with difference only is character casing
-                if (!archiveEntriesDao.hasIndexedArchivesEntries(indexedArchiveId, archivePathId, archiveNameId)) {
-                    archiveEntriesDao.createIndexedArchivesEntries(indexedArchiveId, archivePathId, archiveNameId);
-                }
+            // the same entry might resolve to the same ids more than once, for example in case insensitive databases
+            // if the archive contains two entries with difference only is character casing
+            Set<Pair<Long, Long>> indexedEntries = Sets.newLinkedHashSetWithExpectedSize(archiveEntries.size());
+            for (ArchiveEntry archiveEntry : archiveEntries) {
+                indexedEntries.add(new Pair<>(archivePathIds.get(archiveEntry.getEntryPath()),
+                        archiveNameIds.get(archiveEntry.getEntryName())));
             }
+            // the indexed archive is new, so all of its entries are inserted together
+            archiveEntriesDao.createIndexedArchivesEntries(indexedArchiveId, indexedEntries);
         } catch (SQLException e) {
             throw new StorageException("Failed to insert archive entries: " + e.getMessage(), e);
         }
     }
 
+    private Map<String, Long> findOrCreateArchivePathIds(Set<String> entryPaths) throws SQLException {
+        Map<String, Long> found = Maps.newHashMapWithExpectedSize(entryPaths.size());
+        for (List<String> chunk : Iterables.partition(entryPaths, MAX_IN_CLAUSE_VALUES)) {
+            found.putAll(archiveEntriesDao.findArchivePathIds(chunk));
+        }
+        Map<String, Long> ids = Maps.newHashMapWithExpectedSize(entryPaths.size());
+        Map<String, Long> created = Maps.newHashMap();
+        Set<String> caseCollisions = findCaseCollisions(entryPaths, found.keySet());
+        for (String entryPath : resolveExisting(entryPaths, found, ids)) {
+            if (!caseCollisions.contains(entryPath.toLowerCase())) {
+                created.put(entryPath, dbService.nextId());
+            } else {
+                ids.put(entryPath, findOrCreateArchivePathId(entryPath));
+            }
+        }
+        archiveEntriesDao.createArchivePaths(created);
+        ids.putAll(created);
+        return ids;
+    }
+
+    private Map<String, Long> findOrCreateArchiveNameIds(Set<String> entryNames) throws SQLException {
+        Map<String, Long> found = Maps.newHashMapWithExpectedSize(entryNames.size());
+        for (List<String> chunk : Iterables.partition(entryNames, MAX_IN_CLAUSE_VALUES)) {
+            found.putAll(archiveEntriesDao.findArchiveNameIds(chunk));
+        }
+        Map<String, Long> ids = Maps.newHashMapWithExpectedSize(entryNames.size());
+        Map<String, Long> created = Maps.newHashMap();
+        Set<String> caseCollisions = findCaseCollisions(entryNames, found.keySet());
+        for (String entryName : resolveExisting(entryNames, found, ids)) {
+            if (!caseCollisions.contains(entryName.toLowerCase())) {
+                created.put(entryName, dbService.nextId());
+            } else {
+                ids.put(entryName, findOrCreateArchiveNameId(entryName));
+            }
+        }
+        archiveEntriesDao.createArchiveNames(created);
+        ids.putAll(created);
+        return ids;
+    }
+
+    /**
+     * Copies the ids of the values found as is in the database to the resolved ids.
+     *
+     * @return The values which were not found
+     */
+    private List<String> resolveExisting(Set<String> values, Map<String, Long> found, Map<String, Long> ids) {
+        List<String> missing = Lists.newArrayList();
+        for (String value : values) {
+            Long id = found.get(value);
+            if (id != null) {
+                ids.put(value, id);
+            } else {
+                missing.add(value);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * A missing value can be inserted with the rest of the batch only if no other value differs from it just by
+     * character casing. Otherwise a case insensitive database would either already hold it under another casing or
+     * fail the whole batch on the unique index, so it is resolved on its own like before.
+     *
+     * @return The lower cased values shared by more than one distinct value
+     */
+    private Set<String> findCaseCollisions(Set<String> values, Set<String> found) {
+        Set<String> distinct = Sets.newHashSet(values);
+        distinct.addAll(found);
+        Set<String> lowerCased = Sets.newHashSetWithExpectedSize(distinct.size());
+        Set<String> collisions = Sets.newHashSet();
+        for (String value : distinct) {
+            String lower = value.toLowerCase();
+            if (!lowerCased.add(lower)) {
+                collisions.add(lower);
+            }
+        }
+        return collisions;
+    }
+
+    private long findOrCreateArchivePathId(String entryPath) throws SQLException {
+        long archivePathId = archiveEntriesDao.findArchivePathId(entryPath);
+        if (archivePathId == DbService.NO_DB_ID) {
+            archivePathId = dbService.nextId();
+            if (!archiveEntriesDao.createArchivePath(archivePathId, entryPath)) {
+                throw new StorageException("Failed to insert archive path: " + entryPath);
+            }
+        }
+        return archivePathId;
+    }
+
+    private long findOrCreateArchiveNameId(String entryName) throws SQLException {
+        long archiveNameId = archiveEntriesDao.findArchiveNameId(entryName);
+        if (archiveNameId == DbService.NO_DB_ID) {
+            archiveNameId = dbService.nextId();
+            if (!archiveEntriesDao.createArchiveName(archiveNameId, entryName)) {
+                throw new StorageException("Failed to insert archive name: " + entryName);
+            }
+        }
+        return archiveNameId;
+    }
+
     private ArchiveEntry zipEntryInfoToArchiveEntry(String archiveSha1, ZipEntryInfo entry) {
         String path = PathUtils.getParent(entry.getPath());
         return new ArchiveEntry(archiveSha1, path, entry.getName());
@@ -133,6 +236,15 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
         }
     }
 
+    @Override
+    public int deleteArchiveEntries(Collection<String> archiveSha1s) {
+        try {
+            return archiveEntriesDao.deleteByChecksums(archiveSha1s);
+        } catch (SQLException e) {
+            throw new VfsException("Failed to delete indexed entries for " + archiveSha1s.size() + " checksums", e);
+        }
+    }
+
     @Override
     public int deleteUnusedPathIds() {
         try {
@@ -211,11 +211,12 @@ public class DbPropertiesServiceImpl implements PropertiesService {
         deleteProperties(nodeId);
 
         // create record for each node property. one record for each key/value combination
+        List<NodeProperty> nodeProperties = Lists.newArrayListWithCapacity(properties.size());
         for (Map.Entry<String, String> propEntry : properties.entries()) {
-            NodeProperty property = new NodeProperty(dbService.nextId(), nodeId, propEntry.getKey(),
-                    propEntry.getValue());
-            propertiesDao.create(property);
+            nodeProperties.add(new NodeProperty(dbService.nextId(), nodeId, propEntry.getKey(),
+                    propEntry.getValue()));
         }
+        propertiesDao.create(nodeProperties);
     }
 
     /**
@@ -31,6 +31,7 @@ import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.checksum.ChecksumsInfo;
 import org.artifactory.common.ConstantValues;
+import org.artifactory.common.config.db.DbType;
 import org.artifactory.fs.FileInfo;
 import org.artifactory.fs.FolderInfo;
 import org.artifactory.fs.ItemInfo;
@@ -58,9 +59,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -258,6 +261,54 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    public List<ItemInfo> loadSubtree(RepoPath repoPath) throws VfsException {
+        try {
+            List<Node> subtreeNodes = nodesDao.getSubtree(NodePath.fromRepoPath(repoPath));
+            List<ItemInfo> items = Lists.newArrayListWithCapacity(subtreeNodes.size());
+            for (Node node : subtreeNodes) {
+                items.add(itemInfoFromNode(node));
+            }
+            return items;
+        } catch (SQLException e) {
+            throw new VfsException("Failed to load subtree of node '" + repoPath + "'", e);
+        }
+    }
+
+    @Override
+    public List<ItemInfo> loadSubtreePage(RepoPath repoPath, @Nullable RepoPath after, int limit)
+            throws VfsException {
+        try {
+            List<Node> pageNodes = nodesDao.getSubtreePage(NodePath.fromRepoPath(repoPath),
+                    after != null ? NodePath.fromRepoPath(after) : null, limit);
+            List<ItemInfo> items = Lists.newArrayListWithCapacity(pageNodes.size());
+            for (Node node : pageNodes) {
+                items.add(itemInfoFromNode(node));
+            }
+            return items;
+        } catch (SQLException e) {
+            throw new VfsException("Failed to load subtree page of node '" + repoPath + "'", e);
+        }
+    }
+
+    @Override
+    public void visitSubtree(RepoPath repoPath, Consumer<ItemInfo> visitor) throws VfsException {
+        visitSubtree(repoPath, Integer.MAX_VALUE, visitor);
+    }
+
+    @Override
+    public void visitSubtree(RepoPath repoPath, int maxDepth, Consumer<ItemInfo> visitor) throws VfsException {
+        DbType dbType = dbService.getDatabaseType();
+        // MySQL buffers the whole result unless the fetch size is Integer.MIN_VALUE
+        int fetchSize = dbType == DbType.MYSQL ? Integer.MIN_VALUE : ConstantValues.dbStreamingFetchSize.getInt();
+        try {
+            nodesDao.visitSubtree(NodePath.fromRepoPath(repoPath), maxDepth, fetchSize, dbType == DbType.POSTGRESQL,
+                    node -> visitor.accept(itemInfoFromNode(node)));
+        } catch (SQLException e) {
+            throw new VfsException("Failed to visit subtree of node '" + repoPath + "'", e);
+        }
+    }
+
     @Override
     public int getFilesCount() throws VfsException {
         try {
@@ -318,6 +369,15 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    public int getNodesCount(RepoPath repoPath, int maxDepth) throws VfsException {
+        try {
+            return nodesDao.getNodesCount(NodePath.fromRepoPath(repoPath), maxDepth);
+        } catch (SQLException e) {
+            throw new VfsException(e);
+        }
+    }
+
     @Override
     public List<FileInfo> searchFilesByProperty(String repo, String propKey, String propValue) {
         try {
@@ -30,7 +30,6 @@ import org.artifactory.fs.FileInfo;
 import org.artifactory.fs.ItemInfo;
 import org.artifactory.fs.StatsInfo;
 import org.artifactory.model.xstream.fs.StatsImpl;
-import org.artifactory.repo.RemoteRepoPath;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.db.DbService;
@@ -42,7 +41,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.sql.SQLException;
-import java.util.Map;
 
 /**
  * A business service to interact with the node stats table.
@@ -114,21 +112,11 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
      * @return mergedStats
      */
     private StatsInfo injectRemoteEvents(RepoPath repoPath, StatsImpl mergedStats) {
-        for (Map.Entry<RepoPath, StatsEvent> entry : getStatsEvents().entrySet()) {
-            if (!entry.getValue().hasRemoteContent()) {
-                continue;
-            }
-            if (entry.getKey() instanceof RemoteRepoPath) {
-                // TODO: do we need this ^ ? previous line makes sure we have RemoteContent
-                if (((RemoteRepoPath) entry.getKey()).getActualRepoPath().equals(repoPath)) {
-                    if (mergedStats == null) {
-                        mergedStats = new StatsImpl();
-                    }
-                    merge(entry.getValue(), mergedStats);
-                }
+        for (StatsEvent statsEvent : getRemoteStatsEvents(repoPath)) {
+            if (statsEvent.hasRemoteContent()) {
+                merge(statsEvent, mergedStats);
             }
         }
-
         return mergedStats;
     }
 
@@ -166,10 +154,7 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
         log.debug("Queuing downloaded resource '{}' by '{}' at '{}', fromAnotherArtifactory: '{}'",
                 repoPath, downloadedBy, downloadedTime, fromAnotherArtifactory);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath));
-        }
+        StatsEvent statsEvent = getOrCreateStatsEvent(repoPath, StatsEvent::new);
         statsEvent.update(downloadedBy, downloadedTime);
     }
 
@@ -190,10 +175,7 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
         log.debug("Queuing resource '{}' downloaded remotely by '{}', at '{}', from {}, count: '{}'",
                 repoPath, downloadedBy, downloadedTime, origin, count);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, origin));
-        }
+        StatsEvent statsEvent = getOrCreateStatsEvent(repoPath, key -> new StatsEvent(key, origin));
         statsEvent.update(downloadedBy, origin, path, downloadedTime, count);
     }
 
@@ -0,0 +1,70 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.mbean;
+
+import org.artifactory.storage.db.security.service.VersioningCache;
+
+/**
+ * MBean wrapper for the ACL {@link VersioningCache}
+ */
+public class ManagedAclCache implements ManagedAclCacheMBean {
+
+    private final VersioningCache<?> aclsCache;
+
+    public ManagedAclCache(VersioningCache<?> aclsCache) {
+        this.aclsCache = aclsCache;
+    }
+
+    @Override
+    public long getFullReloadsCount() {
+        return aclsCache.getFullReloadsCount();
+    }
+
+    @Override
+    public long getFullReloadsTotalMillis() {
+        return aclsCache.getFullReloadsTotalMillis();
+    }
+
+    @Override
+    public long getLastFullReloadMillis() {
+        return aclsCache.getLastFullReloadMillis();
+    }
+
+    @Override
+    public long getDeltaUpdatesCount() {
+        return aclsCache.getDeltaUpdatesCount();
+    }
+
+    @Override
+    public long getDeltaUpdatesTotalMillis() {
+        return aclsCache.getDeltaUpdatesTotalMillis();
+    }
+
+    @Override
+    public long getLastDeltaUpdateMillis() {
+        return aclsCache.getLastDeltaUpdateMillis();
+    }
+
+    @Override
+    public long getDeltaUpdatesFailuresCount() {
+        return aclsCache.getDeltaUpdatesFailuresCount();
+    }
+}
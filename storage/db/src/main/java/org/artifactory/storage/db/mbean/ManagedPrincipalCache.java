@@ -0,0 +1,81 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.artifactory.storage.db.mbean;
+
+import org.artifactory.storage.db.security.service.PrincipalCache;
+
+/**
+ * MBean wrapper for the {@link PrincipalCache}
+ */
+public class ManagedPrincipalCache implements ManagedPrincipalCacheMBean {
+
+    private final PrincipalCache principalCache;
+
+    public ManagedPrincipalCache(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @Override
+    public long getUsersCount() {
+        return principalCache.getUsersCount();
+    }
+
+    @Override
+    public long getUsersHitCount() {
+        return principalCache.getUsersStats().hitCount();
+    }
+
+    @Override
+    public long getUsersMissCount() {
+        return principalCache.getUsersStats().missCount();
+    }
+
+    @Override
+    public double getUsersHitRatio() {
+        return principalCache.getUsersStats().hitRate();
+    }
+
+    @Override
+    public long getPropertyUsersCount() {
+        return principalCache.getPropertyUsersCount();
+    }
+
+    @Override
+    public long getPropertyUsersHitCount() {
+        return principalCache.getPropertyUsersStats().hitCount();
+    }
+
+    @Override
+    public long getPropertyUsersMissCount() {
+        return principalCache.getPropertyUsersStats().missCount();
+    }
+
+    @Override
+    public double getPropertyUsersHitRatio() {
+        return principalCache.getPropertyUsersStats().hitRate();
+    }
+
+    @Override
+    public void invalidate() {
+        principalCache.invalidateAll();
+    }
+}
@@ -1,6 +1,7 @@
 package org.artifactory.storage.db.security.service;
 
 import org.artifactory.security.AclInfo;
+import org.artifactory.storage.security.service.AclCache;
 
 import java.util.Map;
 import java.util.Set;
@@ -15,6 +16,8 @@ class AclCacheItem implements BasicCacheModel{
     // Maps of user/group name to -> map of repo path to aclInfo
     final Map<String, Map<String, Set<AclInfo>>> UserResultMap;
     final Map<String, Map<String, Set<AclInfo>>> GroupResultMap;
+    // a single view per loaded item, so that cache users can tell when a new version was loaded
+    final AclCache aclCache;
     private long version;
 
     AclCacheItem(Map<String, AclInfo> aclInfoMap, Map<String, Map<String, Set<AclInfo>>> userResultMap,
@@ -22,6 +25,7 @@ class AclCacheItem implements BasicCacheModel{
         this.AclInfoMap = aclInfoMap;
         this.UserResultMap = userResultMap;
         this.GroupResultMap = groupResultMap;
+        this.aclCache = new AclCache(groupResultMap, userResultMap);
     }
 
     @Override
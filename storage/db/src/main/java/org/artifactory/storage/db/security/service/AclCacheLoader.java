@@ -14,6 +14,7 @@ import org.artifactory.storage.db.security.dao.PermissionTargetsDao;
 import org.artifactory.storage.db.security.dao.UserGroupsDao;
 import org.artifactory.storage.db.security.entity.Ace;
 import org.artifactory.storage.db.security.entity.Acl;
+import org.artifactory.storage.db.security.entity.Group;
 import org.artifactory.storage.db.security.entity.PermissionTarget;
 
 import java.sql.SQLException;
@@ -23,7 +24,7 @@ import java.util.concurrent.Callable;
 /**
  * @author nadavy
  */
-public class AclCacheLoader implements Callable<AclCacheItem> {
+public class AclCacheLoader implements Callable<AclCacheItem>, VersioningCache.DeltaLoader<AclCacheItem> {
 
     private AclsDao aclsDao;
     private UserGroupsDao userGroupsDao;
@@ -67,10 +68,7 @@ public class AclCacheLoader implements Callable<AclCacheItem> {
 
         for (Acl acl : allAcls) {
             PermissionTarget permTarget = targetMap.get(acl.getPermTargetId());
-            MutablePermissionTargetInfo permissionTarget = InfoFactoryHolder.get().createPermissionTarget(
-                    permTarget.getName(), new ArrayList<>(permTarget.getRepoKeys()));
-            permissionTarget.setIncludes(permTarget.getIncludes());
-            permissionTarget.setExcludes(permTarget.getExcludes());
+            MutablePermissionTargetInfo permissionTarget = toPermissionTargetInfo(permTarget);
             ImmutableSet<Ace> dbAces = acl.getAces();
             HashSet<AceInfo> aces = new HashSet<>(dbAces.size());
             for (Ace dbAce : dbAces) {
@@ -89,6 +87,112 @@ public class AclCacheLoader implements Callable<AclCacheItem> {
         return new AclCacheItem(aclResultMap, userResultMap, groupResultMap);
     }
 
+    /**
+     * Applies changes of the given permission targets on the cache, reloading only their ACLs from DB.
+     * The given cache item is not modified: the returned item shares with it the maps of all the users and groups
+     * that are not affected by the changes. The user and group maps of a changed target point to its full ACL.
+     *
+     * @param cache              The current cache item
+     * @param changedPermTargets Names of the permission targets that were created, updated or deleted
+     * @return A new AclCacheItem with the changes applied
+     */
+    @Override
+    public AclCacheItem apply(AclCacheItem cache, Set<String> changedPermTargets) throws SQLException {
+        Map<String, AclInfo> aclResultMap = Maps.newHashMap(cache.AclInfoMap);
+        Map<String, Map<String, Set<AclInfo>>> userResultMap = Maps.newHashMap(cache.UserResultMap);
+        Map<String, Map<String, Set<AclInfo>>> groupResultMap = Maps.newHashMap(cache.GroupResultMap);
+        // users and groups whose maps were already copied by this update, and can be modified
+        Set<String> copiedUsers = Sets.newHashSet();
+        Set<String> copiedGroups = Sets.newHashSet();
+        for (String permTargetName : changedPermTargets) {
+            AclInfo oldAcl = aclResultMap.remove(permTargetName);
+            if (oldAcl != null) {
+                for (AceInfo ace : oldAcl.getAces()) {
+                    Map<String, Set<AclInfo>> repoKeyMap = ace.isGroup() ?
+                            copyOnWrite(groupResultMap, copiedGroups, ace.getPrincipal()) :
+                            copyOnWrite(userResultMap, copiedUsers, ace.getPrincipal());
+                    repoKeyMap.values().forEach(aclInfos -> aclInfos.removeIf(
+                            aclInfo -> permTargetName.equals(aclInfo.getPermissionTarget().getName())));
+                    repoKeyMap.values().removeIf(Set::isEmpty);
+                }
+            }
+            AclInfo newAcl = loadAcl(permTargetName);
+            if (newAcl != null) {
+                for (AceInfo ace : newAcl.getAces()) {
+                    Map<String, Set<AclInfo>> repoKeyMap = ace.isGroup() ?
+                            copyOnWrite(groupResultMap, copiedGroups, ace.getPrincipal()) :
+                            copyOnWrite(userResultMap, copiedUsers, ace.getPrincipal());
+                    newAcl.getPermissionTarget().getRepoKeys()
+                            .forEach(repoKey -> addRepoKeyToMap(repoKeyMap, repoKey, newAcl));
+                }
+                aclResultMap.put(permTargetName, newAcl);
+            }
+        }
+        userResultMap.values().removeIf(Map::isEmpty);
+        groupResultMap.values().removeIf(Map::isEmpty);
+        return new AclCacheItem(aclResultMap, userResultMap, groupResultMap);
+    }
+
+    /**
+     * Loads the ACL of a single permission target from DB
+     *
+     * @return The ACL of the permission target, or null if the permission target or its ACL doesn't exist
+     */
+    private AclInfo loadAcl(String permTargetName) throws SQLException {
+        PermissionTarget permTarget = permTargetsDao.findPermissionTarget(permTargetName);
+        if (permTarget == null) {
+            return null;
+        }
+        Acl acl = aclsDao.findAclByPermissionTargetId(permTarget.getPermTargetId());
+        if (acl == null) {
+            return null;
+        }
+        ImmutableSet<Ace> dbAces = acl.getAces();
+        HashSet<AceInfo> aces = new HashSet<>(dbAces.size());
+        for (Ace dbAce : dbAces) {
+            String name;
+            if (dbAce.isOnGroup()) {
+                Group group = userGroupsDao.findGroupById(dbAce.getGroupId());
+                name = group != null ? group.getGroupName() : null;
+            } else {
+                name = userGroupsDao.findUsernameByUserId(dbAce.getUserId());
+            }
+            if (name != null) {
+                MutableAceInfo ace = InfoFactoryHolder.get().createAce(name, dbAce.isOnGroup(), dbAce.getMask());
+                if (ace != null) {
+                    aces.add(ace);
+                }
+            }
+        }
+        return InfoFactoryHolder.get().createAcl(toPermissionTargetInfo(permTarget), aces, acl.getLastModifiedBy());
+    }
+
+    /**
+     * Returns a modifiable copy of the repo keys map of the user/group, replacing the shared map in the result map.
+     * The map is copied only once per update.
+     */
+    private Map<String, Set<AclInfo>> copyOnWrite(Map<String, Map<String, Set<AclInfo>>> resultMap,
+            Set<String> copied, String name) {
+        Map<String, Set<AclInfo>> repoKeyMap = resultMap.get(name);
+        if (copied.add(name)) {
+            Map<String, Set<AclInfo>> copy = Maps.newHashMap();
+            if (repoKeyMap != null) {
+                repoKeyMap.forEach((repoKey, aclInfos) -> copy.put(repoKey, Sets.newHashSet(aclInfos)));
+            }
+            resultMap.put(name, copy);
+            return copy;
+        }
+        return repoKeyMap;
+    }
+
+    private MutablePermissionTargetInfo toPermissionTargetInfo(PermissionTarget permTarget) {
+        MutablePermissionTargetInfo permissionTarget = InfoFactoryHolder.get().createPermissionTarget(
+                permTarget.getName(), new ArrayList<>(permTarget.getRepoKeys()));
+        permissionTarget.setIncludes(permTarget.getIncludes());
+        permissionTarget.setExcludes(permTarget.getExcludes());
+        return permissionTarget;
+    }
+
     private void addAceToMap(Map<String, Map<String, Set<AclInfo>>> resultMap, Acl acl,
             MutablePermissionTargetInfo permissionTarget, HashSet<AceInfo> aces, Ace dbAce, String name, boolean isGroup) {
         MutableAceInfo ace;
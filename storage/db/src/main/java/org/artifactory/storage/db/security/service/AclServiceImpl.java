@@ -26,11 +26,13 @@ import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.repo.RepositoryService;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.mbean.MBeanRegistrationService;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.security.*;
 import org.artifactory.storage.DBEntityNotFoundException;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.db.DbService;
+import org.artifactory.storage.db.mbean.ManagedAclCache;
 import org.artifactory.storage.db.security.dao.AclsDao;
 import org.artifactory.storage.db.security.dao.PermissionTargetsDao;
 import org.artifactory.storage.db.security.dao.UserGroupsDao;
@@ -50,6 +52,7 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.artifactory.security.ArtifactoryPermission.DEPLOY;
@@ -73,12 +76,22 @@ public class AclServiceImpl implements AclStoreService {
     private PermissionTargetsDao permTargetsDao;
     @Autowired
     private UserGroupsDao userGroupsDao;
+    @Autowired(required = false)
+    private MBeanRegistrationService mbeanRegistrationService;
     private VersioningCache<AclCacheItem> aclsCache;
 
     @PostConstruct
     private void init() {
         long timeout = ConstantValues.aclDirtyReadsTimeout.getLong();
-        aclsCache = new VersioningCache<>(timeout, new AclCacheLoader(aclsDao, userGroupsDao, permTargetsDao));
+        AclCacheLoader cacheLoader = new AclCacheLoader(aclsDao, userGroupsDao, permTargetsDao);
+        // permission target changes are applied on the cache by the loader, falling back to a full reload
+        AclCacheLoader deltaLoader = ConstantValues.aclCacheDeltaUpdates.getBoolean() ? cacheLoader : null;
+        long consistencyCheckInterval = TimeUnit.SECONDS.toMillis(
+                ConstantValues.aclCacheConsistencyCheckIntervalSecs.getLong());
+        aclsCache = new VersioningCache<>(timeout, cacheLoader, deltaLoader, consistencyCheckInterval);
+        if (mbeanRegistrationService != null) {
+            mbeanRegistrationService.register(new ManagedAclCache(aclsCache), "Security", "ACL Cache");
+        }
     }
 
     @Override
@@ -87,8 +100,7 @@ public class AclServiceImpl implements AclStoreService {
     }
 
     public AclCache getAclCache() {
-        AclCacheItem aclCacheItem = aclsCache.get();
-        return new AclCache(aclCacheItem.GroupResultMap, aclCacheItem.UserResultMap);
+        return aclsCache.get().aclCache;
     }
 
     @Override
@@ -110,7 +122,7 @@ public class AclServiceImpl implements AclStoreService {
         } catch (SQLException e) {
             throw new StorageException("Could not create ACL " + entity, e);
         } finally {
-            aclsCache.promoteDbVersion();
+            aclsCache.promoteDelta(entity.getPermissionTarget().getName());
         }
     }
 
@@ -137,7 +149,7 @@ public class AclServiceImpl implements AclStoreService {
         } catch (SQLException e) {
             throw new StorageException("Could not update ACL " + aclInfo, e);
         } finally {
-            aclsCache.promoteDbVersion();
+            aclsCache.promoteDelta(permTargetInfo.getName());
         }
     }
 
@@ -159,7 +171,7 @@ public class AclServiceImpl implements AclStoreService {
         } catch (SQLException e) {
             throw new StorageException("Could not delete ACL " + permTargetName, e);
         } finally {
-            aclsCache.promoteDbVersion();
+            aclsCache.promoteDelta(permTargetName);
         }
     }
 
@@ -0,0 +1,245 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.security.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import org.artifactory.storage.db.security.entity.Group;
+import org.artifactory.storage.db.security.entity.User;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the principals read on every authenticated request: users with their group memberships, groups, and the
+ * users owning a property value (API keys and tokens). Property values are kept only as hashes.
+ * <p/>
+ * Like the {@link VersioningCache}, each change promotes a version. A value loaded from the database is kept only if
+ * no change was promoted while it was loaded, so a load racing with a change never caches the data from before the
+ * change. Changes made in a transaction are invalidated again when the transaction completes, since other threads
+ * can read the data from before the change until it is committed.
+ * <p/>
+ * Entries expire after a fixed time, which bounds how long changes made by other HA nodes are not seen.
+ */
+public class PrincipalCache {
+
+    private final AtomicLong version = new AtomicLong();
+    private final long maxUsers;
+    private final Cache<String, User> users;
+    private final Cache<Long, Group> groups;
+    /**
+     * User names by property key and value hash
+     */
+    private final Cache<String, String> propertyUsers;
+
+    /**
+     * @param maxUsers   Max number of cached users and property values, 0 to disable caching
+     * @param expirySecs Time after which cached entries are reloaded
+     */
+    public PrincipalCache(long maxUsers, long expirySecs) {
+        this.maxUsers = maxUsers;
+        users = CacheBuilder.newBuilder().maximumSize(maxUsers).expireAfterWrite(expirySecs, TimeUnit.SECONDS)
+                .recordStats().build();
+        groups = CacheBuilder.newBuilder().maximumSize(maxUsers).expireAfterWrite(expirySecs, TimeUnit.SECONDS)
+                .build();
+        propertyUsers = CacheBuilder.newBuilder().maximumSize(maxUsers).expireAfterWrite(expirySecs, TimeUnit.SECONDS)
+                .recordStats().build();
+    }
+
+    interface Loader<T> {
+        @Nullable
+        T load() throws SQLException;
+    }
+
+    @Nullable
+    public User getUser(String username, Loader<User> loader) throws SQLException {
+        User user = users.getIfPresent(username);
+        if (user == null) {
+            long loadVersion = version.get();
+            user = loader.load();
+            if (user != null) {
+                putIfUnchanged(users, username, user, loadVersion);
+            }
+        }
+        return user;
+    }
+
+    @Nullable
+    public Group getGroup(long groupId, Loader<Group> loader) throws SQLException {
+        Group group = groups.getIfPresent(groupId);
+        if (group == null) {
+            long loadVersion = version.get();
+            group = loader.load();
+            if (group != null) {
+                putIfUnchanged(groups, groupId, group, loadVersion);
+            }
+        }
+        return group;
+    }
+
+    /**
+     * @param loader Loads the user owning the property value
+     * @return The user owning the property value, null if none
+     */
+    @Nullable
+    public User getUserByProperty(String key, String value, Loader<User> loader) throws SQLException {
+        String propertyKey = propertyKey(key, value);
+        String username = propertyUsers.getIfPresent(propertyKey);
+        if (username != null) {
+            User user = users.getIfPresent(username);
+            if (user != null) {
+                return user;
+            }
+        }
+        long loadVersion = version.get();
+        User user = loader.load();
+        if (user != null) {
+            putIfUnchanged(users, user.getUsername(), user, loadVersion);
+            putIfUnchanged(propertyUsers, propertyKey, user.getUsername(), loadVersion);
+        }
+        return user;
+    }
+
+    /**
+     * Caches users and the owners of property values read in bulk.
+     *
+     * @param loadVersion The version before the users were read
+     */
+    void warmUp(Collection<User> allUsers, long loadVersion) {
+        allUsers.stream().limit(maxUsers)
+                .forEach(user -> putIfUnchanged(users, user.getUsername(), user, loadVersion));
+    }
+
+    void warmUpProperty(String key, String value, String username, long loadVersion) {
+        putIfUnchanged(propertyUsers, propertyKey(key, value), username, loadVersion);
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Invalidates a user, its group memberships and the property values it owns
+     */
+    public void invalidateUser(String username) {
+        invalidate(() -> {
+            users.invalidate(username);
+            propertyUsers.asMap().values().removeIf(username::equals);
+        });
+    }
+
+    /**
+     * Invalidates the property values owned by a user
+     */
+    public void invalidateUserProperties(String username) {
+        invalidate(() -> propertyUsers.asMap().values().removeIf(username::equals));
+    }
+
+    /**
+     * Invalidates all the users and their group memberships
+     */
+    public void invalidateUsers() {
+        invalidate(users::invalidateAll);
+    }
+
+    /**
+     * Invalidates the users owning values of the given property
+     */
+    public void invalidateProperty(String key) {
+        String prefix = key + ":";
+        invalidate(() -> propertyUsers.asMap().keySet().removeIf(propertyKey -> propertyKey.startsWith(prefix)));
+    }
+
+    /**
+     * Invalidates the groups and the group memberships of all the users
+     */
+    public void invalidateGroups() {
+        invalidate(() -> {
+            groups.invalidateAll();
+            users.invalidateAll();
+        });
+    }
+
+    public void invalidateAll() {
+        invalidate(() -> {
+            users.invalidateAll();
+            groups.invalidateAll();
+            propertyUsers.invalidateAll();
+        });
+    }
+
+    public CacheStats getUsersStats() {
+        return users.stats();
+    }
+
+    public CacheStats getPropertyUsersStats() {
+        return propertyUsers.stats();
+    }
+
+    public long getUsersCount() {
+        return users.size();
+    }
+
+    public long getPropertyUsersCount() {
+        return propertyUsers.size();
+    }
+
+    private void invalidate(Runnable invalidation) {
+        version.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Caches a loaded value unless a change was promoted since the load started. The value is put before checking
+     * the version, since an invalidation promotes the version before removing entries: either the change is seen
+     * here, or its removal comes after the put.
+     */
+    private <K, V> void putIfUnchanged(Cache<K, V> cache, K key, V value, long loadVersion) {
+        if (version.get() != loadVersion) {
+            return;
+        }
+        cache.put(key, value);
+        if (version.get() != loadVersion) {
+            cache.invalidate(key);
+        }
+    }
+
+    private static String propertyKey(String key, String value) {
+        return key + ":" + Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -33,6 +33,7 @@ import org.artifactory.common.ConstantValues;
 import org.artifactory.common.Info;
 import org.artifactory.common.crypto.CryptoHelper;
 import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.mbean.MBeanRegistrationService;
 import org.artifactory.md.Properties;
 import org.artifactory.model.xstream.fs.PropertiesImpl;
 import org.artifactory.model.xstream.security.UserProperty;
@@ -41,6 +42,7 @@ import org.artifactory.security.exceptions.PasswordChangeException;
 import org.artifactory.security.props.auth.PropsTokenManager;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.db.DbService;
+import org.artifactory.storage.db.mbean.ManagedPrincipalCache;
 import org.artifactory.storage.db.security.dao.UserGroupsDao;
 import org.artifactory.storage.db.security.dao.UserPropertiesDao;
 import org.artifactory.storage.db.security.entity.Group;
@@ -57,6 +59,7 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -86,6 +89,9 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     private final Cache<String, Long> userAccessUsersCache = CacheBuilder.newBuilder().maximumSize(MAX_USERS_TO_TRACK).
             expireAfterWrite(24, TimeUnit.HOURS).build();
     private final Map<String, AtomicInteger> incorrectLoginAttemptsCache = Maps.newConcurrentMap();
+    private final PrincipalCache principalCache = new PrincipalCache(
+            Math.max(0, ConstantValues.securityPrincipalCacheMaxUsers.getLong()),
+            ConstantValues.securityPrincipalCacheExpirySecs.getLong());
     private SecurityService securityService;
     @Autowired
     private DbService dbService;
@@ -96,6 +102,17 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     @Autowired
     private UserPropertiesDao userPropertiesDao;
 
+    @Autowired(required = false)
+    private MBeanRegistrationService mbeanRegistrationService;
+
+    @PostConstruct
+    private void init() {
+        if (mbeanRegistrationService != null) {
+            mbeanRegistrationService.register(new ManagedPrincipalCache(principalCache), "Security",
+                    "Principal Cache");
+        }
+    }
+
     /**
      * Calculates user login delay multiplier,
      * the value (security.loginBlockDelay) is
@@ -123,6 +140,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     public void deleteAllGroupsAndUsers() {
         try {
             userGroupsDao.deleteAllGroupsAndUsers();
+            principalCache.invalidateAll();
         } catch (SQLException e) {
             throw new StorageException("Could not delete all users and groups", e);
         }
@@ -154,7 +172,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     @Override
     public UserInfo findUser(String username, List<String> propertiesToRetrieve) {
         try {
-            User user = userGroupsDao.findUserByName(username);
+            User user = principalCache.getUser(username, () -> userGroupsDao.findUserByName(username));
             if (user == null) {
                 return null;
             }
@@ -183,7 +201,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
      */
     private User getUser(String userName) {
         try {
-            return userGroupsDao.findUserByName(userName);
+            return principalCache.getUser(userName, () -> userGroupsDao.findUserByName(userName));
         } catch (SQLException e) {
             throw new StorageException("Could not execute search query for username='" + userName + "'", e);
         }
@@ -199,6 +217,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
             }
             User updatedUser = userInfoToUser(originalUser.getUserId(), userInfo);
             userGroupsDao.updateUser(updatedUser);
+            principalCache.invalidateUser(userInfo.getUsername());
 
             // change passwordExpired state if user changes password during update
             if (originalUser.isCredentialsExpired() == updatedUser.isCredentialsExpired() &&
@@ -240,6 +259,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
             }
             User u = userInfoToUser(dbService.nextId(), user);
             int createUserSucceeded = userGroupsDao.createUser(u);
+            principalCache.invalidateUser(user.getUsername());
             Set<UserPropertyInfo> userProperties = user.getUserProperties();
             if (addUserProperties && userProperties != null && !userProperties.isEmpty()) {
                 for (UserPropertyInfo userPropertyInfo : userProperties) {
@@ -279,6 +299,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     public void deleteUser(String username) {
         try {
             userGroupsDao.deleteUser(username);
+            principalCache.invalidateUser(username);
         } catch (SQLException e) {
             throw new StorageException("Failed to delete user " + username, e);
         }
@@ -303,7 +324,9 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     @Override
     public boolean deleteGroup(String groupName) {
         try {
-            return userGroupsDao.deleteGroup(groupName) > 0;
+            int deleted = userGroupsDao.deleteGroup(groupName);
+            principalCache.invalidateGroups();
+            return deleted > 0;
         } catch (SQLException e) {
             throw new StorageException("Failed to delete group " + groupName, e);
         }
@@ -368,6 +391,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 throw new StorageException("Updating group did not find corresponding entity" +
                         " based on name='" + groupInfo.getGroupName() + "' and id=" + originalGroup.getGroupId());
             }
+            principalCache.invalidateGroups();
         } catch (SQLException e) {
             throw new StorageException("Could not update group " + groupInfo.getGroupName(), e);
         }
@@ -396,6 +420,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 throw new GroupNotFoundException("Cannot add users to non existent group " + groupName);
             }
             userGroupsDao.addUsersToGroup(group.getGroupId(), usernames, group.getRealm());
+            usernames.forEach(principalCache::invalidateUser);
         } catch (SQLException e) {
             throw new StorageException("Could not add users " + usernames + " to group " + groupName, e);
         }
@@ -409,6 +434,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 throw new GroupNotFoundException("Cannot remove users to non existent group " + groupName);
             }
             userGroupsDao.removeUsersFromGroup(group.getGroupId(), usernames);
+            usernames.forEach(principalCache::invalidateUser);
         } catch (SQLException e) {
             throw new StorageException("Could not add users " + usernames + " to group " + groupName, e);
         }
@@ -446,19 +472,22 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     @Nullable
     public UserInfo findUserByProperty(String key, String val) {
         try {
-            String encryptedVal =
-                    shouldEncryptProperty(key) ? CryptoHelper.encryptIfNeeded(ArtifactoryHome.get(), val) : val;
-            long userId = userPropertiesDao.getUserIdByProperty(key, encryptedVal);
-            if (userId == 0L) {
-                // If not found and the 'encryptedVal' is not an 'encrypted' version of 'val', try to find the original 'val'.
-                if (!encryptedVal.equals(val)) {
-                    userId = userPropertiesDao.getUserIdByProperty(key, val);
-                    return userId != 0L ? userToUserInfo(userGroupsDao.findUserById(userId)) : null;
+            User user = principalCache.getUserByProperty(key, val, () -> {
+                String encryptedVal =
+                        shouldEncryptProperty(key) ? CryptoHelper.encryptIfNeeded(ArtifactoryHome.get(), val) : val;
+                long userId = userPropertiesDao.getUserIdByProperty(key, encryptedVal);
+                if (userId == 0L) {
+                    // If not found and the 'encryptedVal' is not an 'encrypted' version of 'val', try to find the original 'val'.
+                    if (!encryptedVal.equals(val)) {
+                        userId = userPropertiesDao.getUserIdByProperty(key, val);
+                        return userId != 0L ? userGroupsDao.findUserById(userId) : null;
+                    }
+                    return null;
+                } else {
+                    return userGroupsDao.findUserById(userId);
                 }
-                return null;
-            } else {
-                return userToUserInfo(userGroupsDao.findUserById(userId));
-            }
+            });
+            return user != null ? userToUserInfo(user) : null;
         } catch (SQLException e) {
             throw new StorageException("Could not search for user with property " + key + ":" + val, e);
         }
@@ -481,7 +510,9 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     @Override
     public boolean addUserProperty(String username, String key, String val) {
         try {
-            return userPropertiesDao.addUserPropertyByUserName(username, key, val);
+            boolean added = userPropertiesDao.addUserPropertyByUserName(username, key, val);
+            principalCache.invalidateUserProperties(username);
+            return added;
         } catch (SQLException e) {
             throw new StorageException("Could not add external data " + key + ":" + val + " to user " + username, e);
         }
@@ -490,7 +521,9 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     @Override
     public boolean deleteUserProperty(String username, String key) {
         try {
-            return userPropertiesDao.deleteProperty(userGroupsDao.findUserIdByUsername(username), key);
+            boolean deleted = userPropertiesDao.deleteProperty(userGroupsDao.findUserIdByUsername(username), key);
+            principalCache.invalidateUserProperties(username);
+            return deleted;
         } catch (SQLException e) {
             throw new StorageException("Could not delete external data " + key + " from user " + username, e);
         }
@@ -515,6 +548,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     public void deletePropertyFromAllUsers(String propertyKey) {
         try {
             userPropertiesDao.deletePropertyFromAllUsers(propertyKey);
+            principalCache.invalidateProperty(propertyKey);
         } catch (SQLException e) {
             throw new StorageException("Could not delete property by key" + propertyKey + " from all users");
         }
@@ -539,6 +573,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 // we want to block non-existing users as well
                 {
                     userGroupsDao.lockUser(user);
+                    principalCache.invalidateUser(userName);
                 }
                 registerLockedOutUser(userName);
             }
@@ -566,6 +601,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 // synchronisation
                 if (user != null) {
                     userGroupsDao.unlockUser(user);
+                    principalCache.invalidateUser(userName);
                 }
                 unRegisterLockedOutUser(userName);
             }
@@ -590,6 +626,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 // we lock it externally in sake of db/cache
                 // synchronisation
                 userGroupsDao.unlockAllUsers();
+                principalCache.invalidateUsers();
                 lockedUsersCache.invalidateAll();
             }
             synchronized (incorrectLoginAttemptsCache) {
@@ -614,6 +651,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                 // we lock it externally in sake of db/cache
                 // synchronisation
                 userGroupsDao.unlockAdminUsers();
+                principalCache.invalidateUsers();
                 getAllUsers(true).stream()
                         .filter(UserInfo::isEffectiveAdmin)
                         .forEach(u -> {
@@ -788,6 +826,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
             }
             userGroupsDao.changePassword(user.getUsername(), newSaltedPassword);
             userGroupsDao.unexpirePassword(user.getUsername());
+            principalCache.invalidateUser(user.getUsername());
         } catch (SQLException e) {
             throw new StorageException(
                     "Changing password for \"" + user.getUsername() + "\" has failed, " + e.getMessage(), e);
@@ -802,6 +841,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
         try {
             if (getUser(userName) != null) {
                 userGroupsDao.expireUserPassword(userName);
+                principalCache.invalidateUser(userName);
                 return;
             }
             throw new UsernameNotFoundException("User " + userName + " is not exist");
@@ -819,6 +859,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
         try {
             if (getUser(userName) != null) {
                 userGroupsDao.unexpirePassword(userName);
+                principalCache.invalidateUser(userName);
                 return;
             }
             throw new UsernameNotFoundException("User " + userName + " is not exist");
@@ -835,6 +876,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     public void expirePasswordForAllUsers() {
         try {
             userGroupsDao.expirePasswordForAllUsers();
+            principalCache.invalidateUsers();
         } catch (SQLException e) {
             throw new StorageException("Expiring passwords for all users has failed, " + e.getMessage(), e);
         }
@@ -847,6 +889,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
     public void revalidatePasswordForAllUsers() {
         try {
             userGroupsDao.unexpirePasswordForAllUsers();
+            principalCache.invalidateUsers();
         } catch (SQLException e) {
             throw new StorageException("UnExpiring passwords for all users has failed, " + e.getMessage(), e);
         }
@@ -904,7 +947,8 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
         Set<UserGroupInfo> groups = new HashSet<>(user.getGroups().size());
         boolean groupAdmin = false;
         for (UserGroup userGroup : user.getGroups()) {
-            Group groupById = userGroupsDao.findGroupById(userGroup.getGroupId());
+            Group groupById = principalCache.getGroup(userGroup.getGroupId(),
+                    () -> userGroupsDao.findGroupById(userGroup.getGroupId()));
             if (groupById != null) {
                 String groupname = groupById.getGroupName();
                 if (groupById.isAdminPrivileges()) {
@@ -1037,6 +1081,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
 
     public void expirePasswordForUserIds(Set<Long> userIds) throws SQLException {
         userGroupsDao.markCredentialsExpired(userIds.toArray(new Long[userIds.size()]));
+        principalCache.invalidateUsers();
     }
 
     /**
@@ -1095,6 +1140,7 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
                         : CryptoHelper.decryptIfNeeded(ArtifactoryHome.get(), userProp.getPropVal());
                 userPropertiesDao.updateUserPropertyValue(userProp.getUserId(), userProp.getPropKey(), propVal);
             }
+            principalCache.invalidateProperty(propKey);
         } catch (SQLException e) {
             log.debug("Could not encrypt or decrypt user props, cause: {}", e);
             throw new StorageException("Could not encrypt or decrypt user props, see logs for more details");
@@ -1158,6 +1204,40 @@ public class UserGroupStoreServiceImpl implements UserGroupStoreService {
         }
     }
 
+    @Override
+    public void warmUpPrincipalCache() {
+        try {
+            long loadVersion = principalCache.getVersion();
+            Collection<User> allUsers = userGroupsDao.getAllUsers(true);
+            principalCache.warmUp(allUsers, loadVersion);
+            Map<Long, String> usernames = Maps.newHashMapWithExpectedSize(allUsers.size());
+            allUsers.forEach(user -> usernames.put(user.getUserId(), user.getUsername()));
+            Map<String, PropsTokenManager> tokenManagers = ContextHelper.get().beansForType(PropsTokenManager.class);
+            if (tokenManagers != null) {
+                for (PropsTokenManager tokenManager : tokenManagers.values()) {
+                    for (UserProp userProp : userPropertiesDao.getAllPropertiesByKey(tokenManager.getPropKey())) {
+                        String username = usernames.get(userProp.getUserId());
+                        if (username != null && StringUtils.isNotBlank(userProp.getPropVal())) {
+                            principalCache.warmUpProperty(userProp.getPropKey(),
+                                    CryptoHelper.decryptIfNeeded(ArtifactoryHome.get(), userProp.getPropVal()),
+                                    username, loadVersion);
+                        }
+                    }
+                }
+            }
+            log.debug("Principal cache warmed up with {} users and {} property values",
+                    principalCache.getUsersCount(), principalCache.getPropertyUsersCount());
+        } catch (SQLException e) {
+            log.warn("Failed to warm up the principal cache: {}", e.getMessage());
+            log.debug("Failed to warm up the principal cache", e);
+        }
+    }
+
+    @Override
+    public void invalidatePrincipalCache() {
+        principalCache.invalidateAll();
+    }
+
     private boolean passwordExpired(long creationTime, long millisNow, long millisDaysToKeepPassword) {
         return millisNow > (creationTime + millisDaysToKeepPassword);
     }
@@ -5,8 +5,14 @@ import edu.emory.mathcs.backport.java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Gidi Shabat
@@ -17,14 +23,43 @@ public class VersioningCache<T extends BasicCacheModel> {
     private ReentrantLock cacheLock = new ReentrantLock();
     private long timeout;
     private final Callable<T> cacheLoader;
+    private final DeltaLoader<T> deltaLoader;
+    private final long consistencyCheckIntervalMillis;
     // promoted on each DB change (permission change/add/delete)
     private AtomicInteger dbVersion = new AtomicInteger(1);
     private volatile int version = 0; // promoted each time we load the cache from DB
     private volatile T cache;
+    // keys changed since the last delta update, promoted on each keyed DB change
+    private final Set<String> changedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger deltaVersion = new AtomicInteger(0);
+    private volatile int appliedDeltaVersion = 0;
+    private volatile long lastFullReload;
+    private volatile boolean deltasSinceFullReload;
+    // statistics
+    private final AtomicLong fullReloadsCount = new AtomicLong();
+    private final AtomicLong fullReloadsTotalMillis = new AtomicLong();
+    private volatile long lastFullReloadMillis;
+    private final AtomicLong deltaUpdatesCount = new AtomicLong();
+    private final AtomicLong deltaUpdatesTotalMillis = new AtomicLong();
+    private volatile long lastDeltaUpdateMillis;
+    private final AtomicLong deltaUpdatesFailuresCount = new AtomicLong();
 
     public VersioningCache(long timeout, Callable<T> cacheLoader) {
+        this(timeout, cacheLoader, null, 0);
+    }
+
+    /**
+     * @param deltaLoader                    Applies keyed changes (see {@link #promoteDelta(String)}) on the current
+     *                                       cache. Null to always reload the whole cache
+     * @param consistencyCheckIntervalMillis Minimal interval between full reloads that verify the result of the delta
+     *                                       updates, 0 to never reload after delta updates
+     */
+    public VersioningCache(long timeout, Callable<T> cacheLoader, @Nullable DeltaLoader<T> deltaLoader,
+            long consistencyCheckIntervalMillis) {
         this.timeout = timeout;
         this.cacheLoader = cacheLoader;
+        this.deltaLoader = deltaLoader;
+        this.consistencyCheckIntervalMillis = consistencyCheckIntervalMillis;
     }
 
     /**
@@ -34,12 +69,25 @@ public class VersioningCache<T extends BasicCacheModel> {
         return dbVersion.incrementAndGet();
     }
 
+    /**
+     * Call this method on a DB change that affects only the cache entries of the given key. The change is applied on
+     * the current cache by the delta loader instead of reloading the whole cache.
+     * Falls back to {@link #promoteDbVersion()} if this cache has no delta loader.
+     */
+    public int promoteDelta(String key) {
+        if (deltaLoader == null) {
+            return promoteDbVersion();
+        }
+        changedKeys.add(key);
+        return deltaVersion.incrementAndGet();
+    }
+
     /**
      * Returns cache.
      */
     public T get() {
         T currentCache = cache;
-        if (dbVersion.get() > version) {
+        if (dbVersion.get() > version || deltaVersion.get() > appliedDeltaVersion || isConsistencyCheckDue()) {
             // Need to update cache (new version in dbVersion).
             // Try to acquire acl lock
             log.debug("Attempting to acquire a lock on cacheLock");
@@ -58,26 +106,11 @@ public class VersioningCache<T extends BasicCacheModel> {
                         log.debug("Current cache : " + currentCache);
                     }
                     // Double check after cacheLoader synchronization.
-                    if (dbVersion.get() > version) {
+                    if (dbVersion.get() > version || currentCache == null || isConsistencyCheckDue()) {
                         log.debug("aclsDbVersion version '{}' is higher than version: {}", dbVersion.get(), version);
-                        // The map will be valid for version the current aclsDbVersion.
-                        int startingVersion = dbVersion.get();
-                        try {
-                            currentCache = cacheLoader.call();
-                        } catch (Exception e) {
-                            throw new VersioningCacheException("Fail to reload cache:", e);
-                        }
-                        T oldCache = cache;
-                        cache = currentCache;
-                        if (oldCache != null) {
-                            oldCache.destroy();
-                        }
-                        //print only if debug is enabled to avoid performances degradation on large cache
-                        if (log.isDebugEnabled()) {
-                            log.debug("current cache has been updated with: " + currentCache);
-                        }
-                        currentCache.setVersion(startingVersion);
-                        version = startingVersion;
+                        currentCache = reload();
+                    } else if (deltaVersion.get() > appliedDeltaVersion) {
+                        currentCache = applyDeltas(currentCache);
                     } else {
                         log.debug("Skipping cache update, newer version exist: dbVersion is: '{}'" +
                                 " while version version is: {}", dbVersion.get(), version);
@@ -90,6 +123,90 @@ public class VersioningCache<T extends BasicCacheModel> {
         return currentCache;
     }
 
+    private T reload() {
+        // The map will be valid for version the current aclsDbVersion.
+        int startingVersion = dbVersion.get();
+        // The reload reads all the changes promoted so far, no need to apply them again
+        int startingDeltaVersion = deltaVersion.get();
+        drainChangedKeys();
+        long start = System.currentTimeMillis();
+        T currentCache;
+        try {
+            currentCache = cacheLoader.call();
+        } catch (Exception e) {
+            throw new VersioningCacheException("Fail to reload cache:", e);
+        }
+        lastFullReloadMillis = System.currentTimeMillis() - start;
+        fullReloadsCount.incrementAndGet();
+        fullReloadsTotalMillis.addAndGet(lastFullReloadMillis);
+        replaceCache(currentCache);
+        currentCache.setVersion(startingVersion);
+        version = startingVersion;
+        appliedDeltaVersion = startingDeltaVersion;
+        lastFullReload = System.currentTimeMillis();
+        deltasSinceFullReload = false;
+        return currentCache;
+    }
+
+    private T applyDeltas(T currentCache) {
+        int startingDeltaVersion = deltaVersion.get();
+        Set<String> keys = drainChangedKeys();
+        if (!keys.isEmpty()) {
+            log.debug("Applying changes of {} on current cache", keys);
+            long start = System.currentTimeMillis();
+            T updatedCache;
+            try {
+                updatedCache = deltaLoader.apply(currentCache, keys);
+            } catch (Exception e) {
+                log.warn("Failed to apply changes of {} on the cache, reloading the whole cache: {}", keys,
+                        e.getMessage());
+                log.debug("Failed to apply changes on the cache", e);
+                deltaUpdatesFailuresCount.incrementAndGet();
+                return reload();
+            }
+            lastDeltaUpdateMillis = System.currentTimeMillis() - start;
+            deltaUpdatesCount.incrementAndGet();
+            deltaUpdatesTotalMillis.addAndGet(lastDeltaUpdateMillis);
+            replaceCache(updatedCache);
+            updatedCache.setVersion(version);
+            currentCache = updatedCache;
+            deltasSinceFullReload = true;
+        }
+        appliedDeltaVersion = startingDeltaVersion;
+        return currentCache;
+    }
+
+    private void replaceCache(T newCache) {
+        T oldCache = cache;
+        cache = newCache;
+        if (oldCache != null && oldCache != newCache) {
+            oldCache.destroy();
+        }
+        //print only if debug is enabled to avoid performances degradation on large cache
+        if (log.isDebugEnabled()) {
+            log.debug("current cache has been updated with: " + newCache);
+        }
+    }
+
+    private Set<String> drainChangedKeys() {
+        Set<String> keys = new HashSet<>();
+        Iterator<String> iterator = changedKeys.iterator();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+            iterator.remove();
+        }
+        return keys;
+    }
+
+    /**
+     * A full reload is due if delta updates were applied since the last one, and the consistency check interval
+     * elapsed.
+     */
+    private boolean isConsistencyCheckDue() {
+        return deltasSinceFullReload && consistencyCheckIntervalMillis > 0 &&
+                System.currentTimeMillis() - lastFullReload > consistencyCheckIntervalMillis;
+    }
+
     private boolean tryToWaitForLock() {
         boolean acquireLock = false;
         try {
@@ -106,4 +223,45 @@ public class VersioningCache<T extends BasicCacheModel> {
         }
         return acquireLock;
     }
-}
\ No newline at end of file
+
+    public long getFullReloadsCount() {
+        return fullReloadsCount.get();
+    }
+
+    public long getFullReloadsTotalMillis() {
+        return fullReloadsTotalMillis.get();
+    }
+
+    public long getLastFullReloadMillis() {
+        return lastFullReloadMillis;
+    }
+
+    public long getDeltaUpdatesCount() {
+        return deltaUpdatesCount.get();
+    }
+
+    public long getDeltaUpdatesTotalMillis() {
+        return deltaUpdatesTotalMillis.get();
+    }
+
+    public long getLastDeltaUpdateMillis() {
+        return lastDeltaUpdateMillis;
+    }
+
+    public long getDeltaUpdatesFailuresCount() {
+        return deltaUpdatesFailuresCount.get();
+    }
+
+    /**
+     * Applies changes of specific keys on a cache, without reloading the whole cache.
+     */
+    public interface DeltaLoader<T> {
+
+        /**
+         * @param cache       The current cache. Must not be modified, as it might still be in use
+         * @param changedKeys The keys that changed since the cache was loaded or last updated
+         * @return A new cache with the changes applied
+         */
+        T apply(T cache, Set<String> changedKeys) throws Exception;
+    }
+}
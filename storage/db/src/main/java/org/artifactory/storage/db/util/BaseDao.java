@@ -20,6 +20,13 @@
 
 package org.artifactory.storage.db.util;
 
+import org.apache.commons.lang.StringUtils;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.storage.db.util.querybuilder.QueryWriter;
+
+import java.sql.SQLException;
+import java.util.List;
+
 /**
  * Base class for the data access objects.
  *
@@ -27,6 +34,11 @@ package org.artifactory.storage.db.util;
  */
 public class BaseDao {
 
+    /**
+     * Maximal number of parameters in a single multi-row insert (SQL Server limits a statement to 2100 parameters)
+     */
+    private static final int MAX_INSERT_PARAMS = 2000;
+
     protected final JdbcHelper jdbcHelper;
 
     public BaseDao(JdbcHelper jdbcHelper) {
@@ -88,4 +100,48 @@ public class BaseDao {
     protected byte booleanAsByte(boolean bool) {
         return (byte) (bool ? 1 : 0);
     }
+
+    /**
+     * Inserts the given rows using multi-row inserts of no more than {@link ConstantValues#dbMultiRowInsertMaxRows}
+     * rows each. If multi-row inserts are disabled (max rows of 1 or less) the rows are inserted in a JDBC batch.
+     *
+     * @param table The table name, optionally followed by the inserted columns list
+     * @param rows  The values of each row to insert, all rows must have the same number of values
+     * @return Number of inserted rows
+     */
+    protected int insertRows(String table, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int columnsCount = rows.get(0).length;
+        int maxRows = Math.min(ConstantValues.dbMultiRowInsertMaxRows.getInt(), MAX_INSERT_PARAMS / columnsCount);
+        if (maxRows <= 1 || rows.size() == 1) {
+            return jdbcHelper.executeBatch("INSERT INTO " + table + " VALUES (" +
+                    StringUtils.repeat("?", ", ", columnsCount) + ")", rows);
+        }
+        QueryWriter queryWriter = new QueryWriter();
+        String fullChunkQuery = null;
+        int res = 0;
+        for (int i = 0; i < rows.size(); i += maxRows) {
+            List<Object[]> chunk = rows.subList(i, Math.min(i + maxRows, rows.size()));
+            String query;
+            if (chunk.size() == maxRows) {
+                // all the full chunks share the same statement
+                if (fullChunkQuery == null) {
+                    fullChunkQuery = queryWriter.buildMultiRowInsert(table, columnsCount, maxRows);
+                }
+                query = fullChunkQuery;
+            } else {
+                query = queryWriter.buildMultiRowInsert(table, columnsCount, chunk.size());
+            }
+            Object[] params = new Object[chunk.size() * columnsCount];
+            int p = 0;
+            for (Object[] row : chunk) {
+                System.arraycopy(row, 0, params, p, columnsCount);
+                p += columnsCount;
+            }
+            res += jdbcHelper.executeUpdate(query, params);
+        }
+        return res;
+    }
 }
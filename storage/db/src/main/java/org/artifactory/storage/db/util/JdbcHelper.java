@@ -34,6 +34,7 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Nonnull;
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.List;
 
 import static org.artifactory.util.CommonDbUtils.parseInListQuery;
 import static org.artifactory.util.CommonDbUtils.setParamsToStmt;
@@ -180,6 +181,67 @@ public class JdbcHelper {
         }
     }
 
+    /**
+     * Executes a select query which results are fetched from the database in chunks while the result set is iterated,
+     * instead of being loaded to memory by the driver when the query is executed.
+     * The returned result set holds a database connection until closed and must be consumed promptly.
+     *
+     * @param fetchSize           Number of rows to fetch on each round trip. Some drivers give special meaning to
+     *                            non-positive values (e.g. MySQL streams rows one by one on Integer.MIN_VALUE)
+     * @param cursorInTransaction Whether the driver can only use a cursor inside a transaction (e.g. PostgreSQL). If
+     *                            not already in a transaction, the query runs in a transaction that ends when the result
+     *                            set is closed
+     */
+    @Nonnull
+    public ResultSet executeStreamingSelect(String query, int fetchSize, boolean cursorInTransaction,
+            boolean allowDirtyReads, Object... params) throws SQLException {
+        if (closed) {
+            throw new IllegalStateException("DataSource is closed cannot execute select query:\n'" + query + "'");
+        }
+        tracer.traceSelectQuery(query);
+        debugSql(query, params);
+
+        PerfTimer timer = null;
+        if (log.isDebugEnabled()) {
+            timer = new PerfTimer();
+        }
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        boolean endTransactionOnClose = false;
+        try {
+            con = getConnection();
+            allowDirtyReads(allowDirtyReads, con);
+            if (cursorInTransaction && !TxHelper.isInTransaction() && con.getAutoCommit()) {
+                con.setAutoCommit(false);
+                endTransactionOnClose = true;
+            }
+            boolean hasParams = params != null && params.length > 0;
+            stmt = con.prepareStatement(hasParams ? parseInListQuery(query, params) : query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            if (hasParams) {
+                setParamsToStmt(stmt, params);
+            }
+            rs = stmt.executeQuery();
+            if (timer != null && log.isDebugEnabled()) {
+                timer.stop();
+                log.debug("Streaming query returned in {} : '{}'", timer, resolveQuery(query, params));
+            }
+            return ResultSetWrapper.newInstance(con, stmt, rs, dataSource, endTransactionOnClose);
+        } catch (Exception e) {
+            if (endTransactionOnClose) {
+                ResultSetWrapper.endTransaction(con);
+            }
+            DbUtils.close(con, stmt, rs, dataSource);
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            } else {
+                throw new SQLException("Unexpected exception: " + e.getMessage(), e);
+            }
+        }
+    }
+
     public int executeUpdate(String query, Object... params) throws SQLException {
         if (closed) {
             throw new IllegalStateException("DataSource is closed cannot execute update query:\n'" + query + "'");
@@ -216,6 +278,55 @@ public class JdbcHelper {
         }
     }
 
+    /**
+     * Executes the same update query for each of the given parameters sets using JDBC batching, so the whole batch is
+     * sent to the database in as few round trips as the driver allows.
+     *
+     * @param query      The update query to execute. IN lists (#) are not supported
+     * @param paramsList The parameters of each execution of the query
+     * @return The total number of updated rows. Executions for which the driver doesn't report the count are counted as
+     * a single row
+     */
+    public int executeBatch(String query, List<Object[]> paramsList) throws SQLException {
+        if (closed) {
+            throw new IllegalStateException("DataSource is closed cannot execute batch query:\n'" + query + "'");
+        }
+        if (paramsList.isEmpty()) {
+            return 0;
+        }
+        tracer.traceUpdateQuery(query);
+        if (log.isDebugEnabled()) {
+            log.debug("Executing SQL batch of {} statements: '{}'.", paramsList.size(), query);
+        }
+
+        PerfTimer timer = null;
+        if (log.isDebugEnabled()) {
+            timer = new PerfTimer();
+        }
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        int results = 0;
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(query);
+            for (Object[] params : paramsList) {
+                setParamsToStmt(pstmt, params);
+                pstmt.addBatch();
+            }
+            for (int count : pstmt.executeBatch()) {
+                results += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+            if (timer != null && log.isDebugEnabled()) {
+                timer.stop();
+                log.debug("Batch of {} statements returned with {} results in {} : '{}'",
+                        paramsList.size(), results, timer, query);
+            }
+            return results;
+        } finally {
+            DbUtils.close(con, pstmt, null, dataSource);
+        }
+    }
+
     public int executeSelectCount(String query, Object... params) throws SQLException {
         try (ResultSet resultSet = executeSelect(query, params)) {
             int count = 0;
@@ -19,12 +19,17 @@
  */
 package org.artifactory.storage.db.util;
 
+import org.artifactory.util.CommonDbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.sql.DataSource;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
@@ -34,11 +39,13 @@ import java.sql.Statement;
  * A simple delegator will also do the work but it's a bit too long.
  */
 public final class ResultSetWrapper implements InvocationHandler {
+    private static final Logger log = LoggerFactory.getLogger(ResultSetWrapper.class);
 
     private final DataSource ds;
     private final Connection con;
     private final Statement stmt;
     private final ResultSet rs;
+    private final boolean endTransactionOnClose;
 
     /**
      * Creates a new {@link org.artifactory.storage.db.util.ResultSetWrapper} with the associated connection and
@@ -51,16 +58,42 @@ public final class ResultSetWrapper implements InvocationHandler {
      * @return Proxy to the result set
      */
     public static ResultSet newInstance(Connection con, Statement stmt, ResultSet rs, DataSource ds) {
-        ResultSetWrapper proxy = new ResultSetWrapper(con, stmt, rs, ds);
+        return newInstance(con, stmt, rs, ds, false);
+    }
+
+    /**
+     * @param endTransactionOnClose Whether the result set was read in a transaction started only for it, which should
+     *                              be ended (and auto commit restored) when the result set is closed
+     * @see #newInstance(Connection, Statement, ResultSet, DataSource)
+     */
+    public static ResultSet newInstance(Connection con, Statement stmt, ResultSet rs, DataSource ds,
+            boolean endTransactionOnClose) {
+        ResultSetWrapper proxy = new ResultSetWrapper(con, stmt, rs, ds, endTransactionOnClose);
         return (ResultSet) Proxy.newProxyInstance(rs.getClass().getClassLoader(),
                 new Class<?>[]{ResultSet.class}, proxy);
     }
 
-    private ResultSetWrapper(Connection con, Statement stmt, ResultSet rs, DataSource ds) {
+    private ResultSetWrapper(Connection con, Statement stmt, ResultSet rs, DataSource ds,
+            boolean endTransactionOnClose) {
         this.con = con;
         this.stmt = stmt;
         this.rs = rs;
         this.ds = ds;
+        this.endTransactionOnClose = endTransactionOnClose;
+    }
+
+    /**
+     * Ends a read only transaction started for a result set and restores the connection auto commit. Errors are just
+     * logged, the connection is released to the pool anyway.
+     */
+    static void endTransaction(Connection con) {
+        try {
+            con.rollback();
+            con.setAutoCommit(true);
+        } catch (SQLException e) {
+            log.warn("Failed to end the transaction of a streaming result set: {}", e.getMessage());
+            log.debug("Failed to end the transaction of a streaming result set", e);
+        }
     }
 
     /**
@@ -69,6 +102,14 @@ public final class ResultSetWrapper implements InvocationHandler {
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         if ("close".equals(method.getName())) {
+            if (endTransactionOnClose) {
+                try {
+                    DbUtils.close(rs);
+                    CommonDbUtils.close(stmt);
+                } finally {
+                    endTransaction(con);
+                }
+            }
             DbUtils.close(con, stmt, rs, ds);
             return null;
         } else {
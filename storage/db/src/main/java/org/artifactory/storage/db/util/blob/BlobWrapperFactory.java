@@ -75,7 +75,16 @@ public class BlobWrapperFactory {
      * @return A blob wrapper around json object
      */
     public BlobWrapper createJsonObjectWrapper(Object jsonObject) {
-        JsonBlobWrapper jsonBlobWrapper = new JsonBlobWrapper(jsonObject);
+        return createJsonObjectWrapper(jsonObject, false);
+    }
+
+    /**
+     * @param jsonObject The object to serialize and offer as an input stream to the blob wrapper
+     * @param compress   Whether to gzip the serialized JSON, readers must use {@link JsonBlobWrapper#uncompressed}
+     * @return A blob wrapper around json object
+     */
+    public BlobWrapper createJsonObjectWrapper(Object jsonObject, boolean compress) {
+        JsonBlobWrapper jsonBlobWrapper = new JsonBlobWrapper(jsonObject, compress);
         if (!dbProperties.isPostgres()) {
             return jsonBlobWrapper;
         } else {
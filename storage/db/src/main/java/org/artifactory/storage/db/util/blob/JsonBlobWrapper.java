@@ -25,23 +25,67 @@ import org.artifactory.common.config.db.BlobWrapper;
 import org.codehaus.jackson.JsonGenerator;
 import org.iostreams.streams.in.OutputToInputStream;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * A blob wrapper that lazily creates an input stream out of an Object using JSON serialization.
+ * <p/>
+ * The JSON may be stored gzip compressed. Readers should go through {@link #uncompressed(InputStream)} which detects
+ * the gzip header, so compressed and plain JSON blobs can live side by side in the same column.
  *
  * @author freds
  */
 public class JsonBlobWrapper extends BlobWrapper {
+    private static final int GZIP_MAGIC_FIRST = GZIPInputStream.GZIP_MAGIC & 0xff;
+    private static final int GZIP_MAGIC_SECOND = (GZIPInputStream.GZIP_MAGIC >> 8) & 0xff;
+
     JsonBlobWrapper(final Object jsonObject) {
+        this(jsonObject, false);
+    }
+
+    /**
+     * @param jsonObject The object to serialize
+     * @param compress   Whether to gzip the serialized JSON
+     */
+    JsonBlobWrapper(final Object jsonObject, final boolean compress) {
         // TODO: Make sure the Global Artifactory executor is used
         super(new OutputToInputStream() {
             @Override
             protected void write(OutputStream outputStream) throws IOException {
-                JsonGenerator jsonGenerator = JacksonFactory.createJsonGenerator(outputStream);
+                if (!compress) {
+                    JsonGenerator jsonGenerator = JacksonFactory.createJsonGenerator(outputStream);
+                    jsonGenerator.writeObject(jsonObject);
+                    return;
+                }
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream);
+                JsonGenerator jsonGenerator = JacksonFactory.createJsonGenerator(gzipStream, false);
                 jsonGenerator.writeObject(jsonObject);
+                jsonGenerator.flush();
+                gzipStream.finish();
             }
         });
     }
+
+    /**
+     * Returns a stream of the plain JSON of a stored blob, whether it was stored compressed or not.
+     *
+     * @param blobStream The stream of the stored blob
+     * @return The given stream if it holds plain JSON, or an uncompressing stream over it
+     */
+    public static InputStream uncompressed(InputStream blobStream) throws IOException {
+        InputStream in = blobStream.markSupported() ? blobStream : new BufferedInputStream(blobStream);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first == GZIP_MAGIC_FIRST && second == GZIP_MAGIC_SECOND) {
+            return new GZIPInputStream(in);
+        }
+        return in;
+    }
 }
@@ -89,6 +89,30 @@ abstract class BaseQueryBuilder implements IQueryBuilder {
         return result;
     }
 
+    @Override
+    public String buildMultiRowInsert(String table, int columnsCount, int rowsCount) {
+        StringBuilder builder = new StringBuilder("INSERT INTO ").append(table).append(" VALUES ");
+        String row = rowPlaceholders(columnsCount);
+        for (int i = 0; i < rowsCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(row);
+        }
+        return builder.toString();
+    }
+
+    static String rowPlaceholders(int columnsCount) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < columnsCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        return builder.append(')').toString();
+    }
+
     abstract String uniqueBuild(String baseQuery, String sortBy, long offSet, long limit);
 
     abstract boolean shouldAddOrderBy(Long offSet, Long limit);
@@ -27,4 +27,13 @@ public interface IQueryBuilder {
 
     String build(String distinct, String fields, String tables, String joinType, String joinTable, String joinOn,
             String conditions, String orderBy, String groupBy, Long offSet, Long limit);
+
+    /**
+     * Builds a prepared statement that inserts multiple rows in a single statement.
+     *
+     * @param table        The table name, optionally followed by the inserted columns list
+     * @param columnsCount Number of values of each row
+     * @param rowsCount    Number of rows to insert
+     */
+    String buildMultiRowInsert(String table, int columnsCount, int rowsCount);
 }
@@ -40,6 +40,19 @@ public class OracleQueryBuilder extends BaseQueryBuilder {
         return builder.toString();
     }
 
+    /**
+     * Oracle doesn't support multiple rows in the VALUES clause, uses INSERT ALL instead
+     */
+    @Override
+    public String buildMultiRowInsert(String table, int columnsCount, int rowsCount) {
+        StringBuilder builder = new StringBuilder("INSERT ALL");
+        String row = rowPlaceholders(columnsCount);
+        for (int i = 0; i < rowsCount; i++) {
+            builder.append(" INTO ").append(table).append(" VALUES ").append(row);
+        }
+        return builder.append(" SELECT * FROM dual").toString();
+    }
+
     @Override
     public boolean shouldAddOrderBy(Long offSet, Long limit) {
         return true;
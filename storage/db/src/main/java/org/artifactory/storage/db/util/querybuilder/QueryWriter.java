@@ -108,6 +108,13 @@ public class QueryWriter {
                 groupBy, offSet, limit);
     }
 
+    /**
+     * @see IQueryBuilder#buildMultiRowInsert(String, int, int)
+     */
+    public String buildMultiRowInsert(String table, int columnsCount, int rowsCount) {
+        return queryBuilder.buildMultiRowInsert(table, columnsCount, rowsCount);
+    }
+
     public void clear() {
         distinct = null;
         fields = null;
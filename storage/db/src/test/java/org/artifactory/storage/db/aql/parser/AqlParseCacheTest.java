@@ -0,0 +1,98 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.aql.parser;
+
+import com.google.common.collect.ImmutableList;
+import org.artifactory.storage.db.aql.parser.elements.ParserElement;
+import org.jfrog.client.util.Pair;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link AqlParseCache}.
+ */
+@Test
+public class AqlParseCacheTest {
+
+    private AqlParser parser = new AqlParser();
+    private AqlParseCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = new AqlParseCache(parser, 10);
+    }
+
+    public void shapeReplacesValues() {
+        AqlParseCache.QueryShape shape = AqlParseCache.QueryShape.of(
+                "items.find({\"name\":{\"$match\":\"*.jar\"},\"size\" : 5}).sort({\"$asc\":[\"name\"]}).limit(10)");
+        assertNotNull(shape);
+        assertEquals(shape.text,
+                "items.find({\"name\":{\"$match\":\"?\"},\"size\" : ?}).sort({\"$asc\":[\"name\"]}).limit(?)");
+        assertEquals(shape.values, ImmutableList.of("*.jar", "5", "10"));
+        assertNull(AqlParseCache.QueryShape.of("items.find({\"name\":\"a?b\"}).limit(?)"));
+        assertNull(AqlParseCache.QueryShape.of("items.find({\"name\":\"a})"));
+    }
+
+    public void sameShapeParsedOnce() {
+        assertParsedLikeParser("items.find({\"repo\":\"libs\",\"name\":{\"$match\":\"*.jar\"}}).limit(10)");
+        assertEquals(cache.getMissCount(), 1);
+        assertParsedLikeParser("items.find({\"repo\":\"other\",\"name\":{\"$match\":\"*.pom\"}}).limit(5)");
+        assertParsedLikeParser("items.find({\"repo\":\" spaced\",\"name\":{\"$match\":\"*\"}}).limit(1)");
+        assertEquals(cache.getHitCount(), 2);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.size(), 1);
+    }
+
+    public void differentShapes() {
+        assertParsedLikeParser("items.find({\"repo\":\"libs\"})");
+        assertParsedLikeParser("items.find({\"path\":\"libs\"})");
+        assertParsedLikeParser("items.find({\"@version\":{\"$eq\":\"1.0\"},\"type\":1}).offset(3).limit(2)");
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    public void disabled() {
+        cache = new AqlParseCache(parser, 0);
+        assertParsedLikeParser("items.find({\"repo\":\"libs\"})");
+        assertParsedLikeParser("items.find({\"repo\":\"libs\"})");
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getUncacheableCount(), 2);
+    }
+
+    private void assertParsedLikeParser(String query) {
+        assertEquals(toStrings(cache.parse(query)), toStrings(parser.parse(query)), query);
+    }
+
+    private static List<String> toStrings(ParserElementResultContainer result) {
+        return result.getAll().stream()
+                .map(AqlParseCacheTest::describe)
+                .collect(Collectors.toList());
+    }
+
+    private static String describe(Pair<ParserElement, String> pair) {
+        return pair.getFirst().getClass().getSimpleName() + ":" + pair.getSecond();
+    }
+}
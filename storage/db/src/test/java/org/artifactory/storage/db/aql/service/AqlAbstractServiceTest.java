@@ -221,5 +221,9 @@ public class AqlAbstractServiceTest extends DbBaseTest {
         public List<String> getVirtualResolvedLocalAndCacheRepoKeys(String virtualRepoKey) {
             return Collections.emptyList();
         }
+        @Override
+        public List<String> getLocalAndCacheRepoKeys() {
+            return Collections.emptyList();
+        }
     }
 }
@@ -94,6 +94,17 @@ public class AqlJSonResultTest extends AqlAbstractServiceTest {
         compareJsons(result, expectation);
     }
 
+    @Test
+    public void itemsWithPropertiesStreaming() throws IOException {
+        AqlLazyResult aqlLazyResult = aqlService.executeQueryStreaming(
+                "items.find().include(\"property.*\")");
+        AqlJsonStreamer aqlStreamer = new AqlJsonStreamer(aqlLazyResult);
+        String result = read(aqlStreamer);
+        aqlStreamer.close();
+        String expectation = load("/aql/stream/itemsWithProperties.json");
+        compareJsons(result, expectation);
+    }
+
     @Test
     public void buildWithProperties() throws IOException {
         AqlLazyResult aqlLazyResult = aqlService.executeQueryLazy(
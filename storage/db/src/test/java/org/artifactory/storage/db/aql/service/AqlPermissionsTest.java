@@ -20,6 +20,9 @@
 
 package org.artifactory.storage.db.aql.service;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.artifactory.api.security.PermissionHeuristicScore;
 import org.artifactory.aql.AqlException;
 import org.artifactory.aql.model.AqlPermissionProvider;
 import org.artifactory.aql.result.AqlJsonStreamer;
@@ -30,6 +33,9 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Gidi Shabat
@@ -179,6 +185,31 @@ public class AqlPermissionsTest extends AqlAbstractServiceTest {
     }
 
 
+    /**
+     * Test the unreadable repositories are filtered by the query, so the limit counts the readable rows only
+     */
+    @Test
+    public void testUserUnreadableRepoFilteredByQuery() throws IOException {
+        ReflectionTestUtils.setField(aqlService, "permissionProvider", new ScoredUserPermissions());
+        ReflectionTestUtils.setField(aqlService, "repoProvider", new LocalReposProvider());
+        AqlLazyResult aqlLazyResult = aqlService.executeQueryLazy(
+                "items.find({\"type\":\"any\"}).sort({\"$asc\":[\"repo\"]}).limit(1)");
+        AqlJsonStreamer streamResult = new AqlJsonStreamer(aqlLazyResult);
+
+        byte[] read = streamResult.read();
+        StringBuilder builder = new StringBuilder();
+        while (read != null) {
+            builder.append(new String(read));
+            read = streamResult.read();
+        }
+        streamResult.close();
+        String string = builder.toString();
+        // repo1 sorts first, it is filtered by the query rather than taking the single result row
+        Assert.assertTrue(string.contains("\"repo\" : \"repo2\""));
+        Assert.assertFalse(string.contains("\"repo\" : \"repo1\""));
+        Assert.assertEquals(streamResult.getRowsCount(), 1);
+    }
+
     /**
      * Test Admin authorization
      */
@@ -214,6 +245,41 @@ public class AqlPermissionsTest extends AqlAbstractServiceTest {
         }
     }
 
+    /**
+     * Can read repo2 as a whole, items are not checked one by one
+     */
+    private class ScoredUserPermissions implements AqlPermissionProvider {
+
+        @Override
+        public boolean canRead(RepoPath repoPath) {
+            return false;
+        }
+
+        @Override
+        public boolean isAdmin() {
+            return false;
+        }
+
+        @Override
+        public boolean isOss() {
+            return false;
+        }
+
+        @Override
+        public Map<String, PermissionHeuristicScore> getReadPermissionScores(Collection<String> repoKeys) {
+            return ImmutableMap.of("repo1", PermissionHeuristicScore.readNotAllowed,
+                    "repo2", PermissionHeuristicScore.readAll);
+        }
+    }
+
+    private class LocalReposProvider extends EmptyRepoProvider {
+
+        @Override
+        public List<String> getLocalAndCacheRepoKeys() {
+            return Lists.newArrayList("repo1", "repo2");
+        }
+    }
+
     private class UserPermissions implements AqlPermissionProvider {
 
         @Override
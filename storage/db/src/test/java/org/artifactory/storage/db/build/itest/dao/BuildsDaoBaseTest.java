@@ -28,6 +28,7 @@ import org.artifactory.storage.db.build.dao.BuildModulesDao;
 import org.artifactory.storage.db.build.dao.BuildsDao;
 import org.artifactory.storage.db.build.entity.*;
 import org.artifactory.storage.db.itest.DbBaseTest;
+import org.artifactory.storage.db.util.blob.BlobWrapperFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.Assert;
 
@@ -57,6 +58,9 @@ public abstract class BuildsDaoBaseTest extends DbBaseTest {
     @Autowired
     protected BuildDependenciesDao buildDependenciesDao;
 
+    @Autowired
+    protected BlobWrapperFactory blobWrapperFactory;
+
     protected BuildEntity createBuild11() {
         long now = System.currentTimeMillis();
         BuildEntity c1 = new BuildEntity(11L, "c1", "1", now - 20000L, null, now, "this-is-me", 0L, null);
@@ -158,5 +162,6 @@ public abstract class BuildsDaoBaseTest extends DbBaseTest {
 
     public static class DummyBuild {
         public String name;
+        public String number;
     }
 }
@@ -36,6 +36,7 @@ import org.testng.annotations.Test;
 
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -91,6 +92,29 @@ public class BuildsDaoTest extends BuildsDaoBaseTest {
         assertEquals(builds.get("ba").getBuildDate(), 1349004000000L);
     }
 
+    @Test(priority = -1)
+    public void testFindBuildIdEntities() throws SQLException {
+        List<BuildIdEntity> builds = buildsDao.findBuildIdEntities("ba");
+        assertEquals(builds.stream().map(BuildIdEntity::getBuildId).collect(Collectors.toList()),
+                Arrays.asList(1L, 3L, 5L));
+        assertEquals(builds.get(2).getBuildNumber(), "3");
+        assertEquals(builds.get(2).getBuildDate(), 1349004000000L);
+        assertTrue(buildsDao.findBuildIdEntities("bc").isEmpty());
+    }
+
+    @Test(priority = -1)
+    public void testFindBuildIdEntitiesByReleaseStatus() throws SQLException {
+        List<BuildIdEntity> builds = buildsDao.findBuildIdEntitiesByReleaseStatus("ba", "Released");
+        assertEquals(builds.size(), 1);
+        assertEquals(builds.get(0).getBuildId(), 5L);
+        builds = buildsDao.findBuildIdEntitiesByReleaseStatus("bb", "rollback");
+        assertEquals(builds.size(), 1);
+        assertEquals(builds.get(0).getBuildId(), 4L);
+        // only the latest promotion of a build counts
+        assertTrue(buildsDao.findBuildIdEntitiesByReleaseStatus("ba", "staging").isEmpty());
+        assertTrue(buildsDao.findBuildIdEntitiesByReleaseStatus("bb", "promoted").isEmpty());
+    }
+
     public void testReadBuildsByFullPath() throws SQLException {
         assertBuild1(buildsDao.findBuild("ba", "1", 1349000000000L));
         assertBuild2(buildsDao.findBuild("bb", "1", 1349001000000L));
@@ -139,6 +163,33 @@ public class BuildsDaoTest extends BuildsDaoBaseTest {
         assertEquals(dummyBuild.name, "otherBa2");
     }
 
+    public void testCreateBuildCompressedJson() throws SQLException {
+        long now = System.currentTimeMillis();
+        BuildEntity bc1 = new BuildEntity(104L, "bc", "1", now - 20000L, null, now, "me", 0L, null);
+        bc1.setProperties(new HashSet<BuildProperty>());
+        bc1.setPromotions(new HashSet<BuildPromotionStatus>());
+        DummyBuild json = new DummyBuild();
+        json.name = "compressed";
+        json.number = "1";
+        assertEquals(buildsDao.createBuild(bc1, blobWrapperFactory.createJsonObjectWrapper(json, true)), 2);
+        assertEquals(buildsDao.getJsonBuild(104L, DummyBuild.class).name, "compressed");
+        assertTrue(buildsDao.getJsonBuild(104L, String.class).contains("\"compressed\""));
+    }
+
+    @Test(dependsOnMethods = {"testCreateBuildCompressedJson", "testCreateBuildSameNameAndNumber"})
+    public void testGetJsonBuildFields() throws SQLException {
+        DummyBuild numberOnly = buildsDao.getJsonBuildFields(104L, DummyBuild.class, ImmutableSet.of("number"));
+        assertNull(numberOnly.name);
+        assertEquals(numberOnly.number, "1");
+        DummyBuild both = buildsDao.getJsonBuildFields(104L, DummyBuild.class, ImmutableSet.of("name", "number"));
+        assertEquals(both.name, "compressed");
+        assertEquals(both.number, "1");
+        // plain JSON stored before compression was enabled is read the same way
+        DummyBuild plain = buildsDao.getJsonBuildFields(103L, DummyBuild.class, ImmutableSet.of("name"));
+        assertEquals(plain.name, "otherBa2");
+        assertNull(buildsDao.getJsonBuildFields(999L, DummyBuild.class, ImmutableSet.of("name")));
+    }
+
     @Test(dependsOnMethods = "testCreateBuildSameNameAndNumber")
     public void testFindLatestBuildDate() throws SQLException {
         assertEquals(buildsDao.findLatestBuildDate("ba", "1"), 1349000000000L);
@@ -152,13 +203,15 @@ public class BuildsDaoTest extends BuildsDaoBaseTest {
             "testCreateBuildWithProps",
             "testCreateBuildWithPromotions",
             "testCreateBuildWithPropsAndPromotions",
-            "testFindLatestBuildDate"})
+            "testFindLatestBuildDate",
+            "testGetJsonBuildFields"})
     public void testDeleteBuilds() throws SQLException, UnsupportedEncodingException {
         doDelete(11L, 2);
         doDelete(12L, 4);
         doDelete(13L, 4);
         doDelete(14L, 6);
         doDelete(103L, 2);
+        doDelete(104L, 2);
     }
 
     // Disable since index too big => Need to find another way for this
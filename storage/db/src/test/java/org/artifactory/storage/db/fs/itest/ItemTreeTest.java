@@ -20,6 +20,7 @@
 
 package org.artifactory.storage.db.fs.itest;
 
+import com.google.common.collect.Lists;
 import org.artifactory.fs.ItemInfo;
 import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.storage.db.itest.DbBaseTest;
@@ -31,6 +32,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
 
 import javax.annotation.Nonnull;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.testng.Assert.*;
 
@@ -81,4 +84,48 @@ public class ItemTreeTest extends DbBaseTest {
         assertTrue(rootNode.getChildren().isEmpty());
     }
 
+    public void preBuildTreeMatchesBrowsedTree() {
+        RepoPathImpl repo1 = new RepoPathImpl("repo1", "");
+        ItemNode builtRoot = new ItemTree(repo1).buildTree();
+        ItemNode browsedRoot = new ItemTree(repo1).getRootNode();
+        assertNotNull(builtRoot);
+        assertNotNull(browsedRoot);
+        assertSameChildren(builtRoot, browsedRoot);
+    }
+
+    public void preBuildTreeFiltersDescendantsOfRejectedFolders() {
+        RepoPathImpl repo1 = new RepoPathImpl("repo1", "");
+        ItemNode rootNode = new ItemTree(repo1, itemInfo -> !itemInfo.getName().equals("org")).buildTree();
+        assertNotNull(rootNode);
+        assertEquals(rootNode.getChildren().size(), 1);
+        assertNotEquals(rootNode.getChildren().get(0).getName(), "org");
+    }
+
+    public void preBuildTreeUpToDepth() {
+        RepoPathImpl repo1 = new RepoPathImpl("repo1", "");
+        ItemNode rootNode = new ItemTree(repo1).buildTree(1);
+        assertNotNull(rootNode);
+        assertEquals(rootNode.getChildren().size(), 2);
+        // children beyond the max depth are loaded on demand
+        assertSameChildren(rootNode, new ItemTree(repo1).getRootNode());
+    }
+
+    private void assertSameChildren(ItemNode actual, ItemNode expected) {
+        assertEquals(actual.getRepoPath(), expected.getRepoPath());
+        if (!expected.isFolder()) {
+            return;
+        }
+        List<ItemNode> actualChildren = sortedByName(actual.getChildren());
+        List<ItemNode> expectedChildren = sortedByName(expected.getChildren());
+        assertEquals(actualChildren.size(), expectedChildren.size(), "Children of " + expected.getRepoPath());
+        for (int i = 0; i < expectedChildren.size(); i++) {
+            assertSameChildren(actualChildren.get(i), expectedChildren.get(i));
+        }
+    }
+
+    private List<ItemNode> sortedByName(List<ItemNode> nodes) {
+        List<ItemNode> sorted = Lists.newArrayList(nodes);
+        sorted.sort(Comparator.comparing(ItemNode::getName));
+        return sorted;
+    }
 }
@@ -20,14 +20,19 @@
 
 package org.artifactory.storage.db.fs.itest.dao;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.fs.dao.ArchiveEntriesDao;
 import org.artifactory.storage.db.fs.entity.ArchiveEntry;
 import org.artifactory.storage.db.itest.DbBaseTest;
+import org.jfrog.client.util.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -117,6 +122,18 @@ public class ArchiveEntriesDaoTest extends DbBaseTest {
         assertEquals(archiveEntriesDao.findArchivePathId("."), 8004);
     }
 
+    public void createFindArchivePathsBatch() throws SQLException {
+        Map<String, Long> newPaths = ImmutableMap.of("batch/a", 21100L, "batch/b", 21101L);
+        assertEquals(archiveEntriesDao.createArchivePaths(newPaths), 2);
+        Map<String, Long> found = archiveEntriesDao.findArchivePathIds(
+                Lists.newArrayList("batch/a", "batch/b", "", "no/such/path"));
+        assertEquals(found.size(), 3);
+        assertEquals(found.get("batch/a"), Long.valueOf(21100));
+        assertEquals(found.get("batch/b"), Long.valueOf(21101));
+        // empty paths are stored and returned as empty
+        assertEquals(found.get(""), Long.valueOf(8004));
+    }
+
     public void deleteUnreferencedPathIds() throws SQLException {
         assertTrue(archiveEntriesDao.createArchivePath(21010, "delete/me"));
         assertEquals(archiveEntriesDao.findArchivePathId("delete/me"), 21010);
@@ -136,6 +153,14 @@ public class ArchiveEntriesDaoTest extends DbBaseTest {
         assertEquals(archiveEntriesDao.findArchiveNameId(""), 22001);
     }
 
+    public void createFindArchiveNamesBatch() throws SQLException {
+        Map<String, Long> newNames = ImmutableMap.of("batch-a.txt", 22100L, "batch-b.txt", 22101L);
+        assertEquals(archiveEntriesDao.createArchiveNames(newNames), 2);
+        Map<String, Long> found = archiveEntriesDao.findArchiveNameIds(
+                Lists.newArrayList("batch-a.txt", "batch-b.txt", "no-such.txt"));
+        assertEquals(found, newNames);
+    }
+
     public void deleteUnreferencedNameIds() throws SQLException {
         assertTrue(archiveEntriesDao.createArchiveName(22010L, "delete.me"));
         assertEquals(archiveEntriesDao.findArchiveNameId("delete.me"), 22010L);
@@ -148,4 +173,19 @@ public class ArchiveEntriesDaoTest extends DbBaseTest {
         assertFalse(archiveEntriesDao.hasIndexedArchivesEntries(6000, 8002, 7894));
     }
 
+    public void createIndexedArchivesEntriesBulk() throws SQLException {
+        String sha1 = "dddd89fc2a043c2479a6de676a2f7179e9eaddac";
+        assertTrue(archiveEntriesDao.createIndexedArchive(sha1, 21500));
+        // more entries than a single multi-row insert
+        List<Pair<Long, Long>> entriesIds = Lists.newArrayList();
+        for (long nameId = 23000; nameId < 23450; nameId++) {
+            assertTrue(archiveEntriesDao.createArchiveName(nameId, "bulk-" + nameId + ".class"));
+            entriesIds.add(new Pair<>(8001L, nameId));
+        }
+        assertEquals(archiveEntriesDao.createIndexedArchivesEntries(21500, entriesIds), 450);
+        Set<ArchiveEntry> entries = archiveEntriesDao.loadByChecksum(sha1);
+        assertEquals(entries.size(), 450);
+        assertTrue(entries.contains(new ArchiveEntry(sha1, "META-INF", "bulk-23449.class")));
+    }
+
 }
@@ -20,6 +20,7 @@
 
 package org.artifactory.storage.db.fs.itest.dao;
 
+import com.google.common.collect.Lists;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.common.config.db.DbType;
@@ -162,6 +163,88 @@ public class NodesDaoTest extends DbBaseTest {
         assertTrue(nodesDao.hasChildren(path2));
     }
 
+    public void getSubtreeOfFolder() throws SQLException {
+        List<Node> subtree = nodesDao.getSubtree(new NodePath("repo1", "", "org", false));
+        assertEquals(subtree.size(), 6);
+        assertEquals(subtree.get(0).getName(), "yossis");
+        assertEquals(subtree.get(1).getName(), "empty");
+        assertEquals(subtree.get(2).getName(), "tools");
+        assertEquals(subtree.get(3).getName(), "file2.pom");
+        assertEquals(subtree.get(5).getName(), "test.bin");
+    }
+
+    public void getSubtreeOfFolderWithCousinStartingWithSamePrefix() throws SQLException {
+        List<Node> subtree = nodesDao.getSubtree(new NodePath("repo1", "", "ant", false));
+        assertEquals(subtree.size(), 3);
+        assertEquals(subtree.get(2).getName(), "ant-1.5.jar");
+    }
+
+    public void getSubtreeOfRoot() throws SQLException {
+        assertEquals(nodesDao.getSubtree(new NodePath("repo1", "", "", false)).size(), 16);
+    }
+
+    public void getSubtreeOfLeafFolder() throws SQLException {
+        assertEquals(nodesDao.getSubtree(new NodePath("repo1", "org/yossis", "empty", false)).size(), 0);
+    }
+
+    public void visitSubtreeOfFolder() throws SQLException {
+        List<Node> visited = Lists.newArrayList();
+        nodesDao.visitSubtree(new NodePath("repo1", "", "org", false), Integer.MAX_VALUE, 2, false, visited::add);
+        List<Node> subtree = nodesDao.getSubtree(new NodePath("repo1", "", "org", false));
+        assertEquals(visited.size(), subtree.size());
+        for (int i = 0; i < visited.size(); i++) {
+            assertEquals(visited.get(i).getNodeId(), subtree.get(i).getNodeId());
+        }
+    }
+
+    public void visitSubtreeOfRoot() throws SQLException {
+        List<Node> visited = Lists.newArrayList();
+        nodesDao.visitSubtree(new NodePath("repo1", "", "", false), Integer.MAX_VALUE, 5, false, visited::add);
+        assertEquals(visited.size(), 16);
+    }
+
+    public void visitSubtreeUpToDepth() throws SQLException {
+        List<Node> visited = Lists.newArrayList();
+        nodesDao.visitSubtree(new NodePath("repo1", "", "org", false), 1, 5, false, visited::add);
+        assertEquals(visited.size(), 1);
+        assertEquals(visited.get(0).getName(), "yossis");
+    }
+
+    public void getSubtreePagesOfRoot() throws SQLException {
+        NodePath root = new NodePath("repo1", "", "", false);
+        List<Node> paged = Lists.newArrayList();
+        List<Node> page;
+        NodePath after = null;
+        do {
+            page = nodesDao.getSubtreePage(root, after, 5);
+            paged.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getNodePath();
+            }
+        } while (page.size() == 5);
+        List<Node> subtree = nodesDao.getSubtree(root);
+        assertEquals(paged.size(), subtree.size());
+        for (int i = 0; i < paged.size(); i++) {
+            assertEquals(paged.get(i).getNodeId(), subtree.get(i).getNodeId());
+        }
+    }
+
+    public void getSubtreePageOfFolder() throws SQLException {
+        NodePath org = new NodePath("repo1", "", "org", false);
+        List<Node> subtree = nodesDao.getSubtree(org);
+        List<Node> page = nodesDao.getSubtreePage(org, subtree.get(0).getNodePath(), 2);
+        assertEquals(page.size(), 2);
+        assertEquals(page.get(0).getNodeId(), subtree.get(1).getNodeId());
+        assertEquals(page.get(1).getNodeId(), subtree.get(2).getNodeId());
+    }
+
+    public void countNodesUpToDepth() throws SQLException {
+        assertEquals(nodesDao.getNodesCount(new NodePath("repo1", "", "org", false), 1), 1);
+        assertEquals(nodesDao.getNodesCount(new NodePath("repo1", "", "org", false), 100),
+                nodesDao.getNodesCount(new NodePath("repo1", "", "org", false)));
+        assertEquals(nodesDao.getNodesCount(new NodePath("repo1", "", "", false), 1), 2);
+    }
+
     public void countRepositoryFiles() throws SQLException {
         assertEquals(nodesDao.getFilesCount("repo1"), 4);
     }
@@ -23,6 +23,7 @@ package org.artifactory.storage.db.fs.itest.service;
 import org.artifactory.factory.InfoFactoryHolder;
 import org.artifactory.fs.MutableStatsInfo;
 import org.artifactory.fs.StatsInfo;
+import org.artifactory.model.common.RemoteRepoPathImpl;
 import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.model.xstream.fs.FileInfoImpl;
 import org.artifactory.model.xstream.fs.StatsImpl;
@@ -35,6 +36,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.Collection;
 
 import static org.testng.Assert.*;
 
@@ -159,6 +161,31 @@ public class StatsServiceImplTest extends DbBaseTest {
         assertEquals(stats.getRemoteLastDownloadedBy(), "remoteUser");
     }
 
+    @Test(dependsOnMethods = "fileDownloadedRemotelyOnFileWithStats")
+    public void fileDownloadedRemotelyFromMultipleOrigins() {
+        RepoPathImpl repoPath = new RepoPathImpl("repo1", "ant/ant/1.5/ant-1.5.jar");
+        ReflectionTestUtils.invokeMethod(statsService, "flushStats");
+        long remoteDownloadCount = statsService.getStats(repoPath).getRemoteDownloadCount();
+        long lastDownloaded = System.currentTimeMillis() + 4000;
+
+        statsService.fileDownloadedRemotely("edge-a.com", "", RemoteRepoPathImpl.newInstance("edge-a.com", repoPath),
+                "userA", lastDownloaded, 5);
+        statsService.fileDownloadedRemotely("edge-b.com", "", RemoteRepoPathImpl.newInstance("edge-b.com", repoPath),
+                "userB", lastDownloaded + 1, 4);
+
+        // events of all the origins are merged into the stats of the actual path
+        StatsInfo stats = statsService.getStats(repoPath);
+        assertNotNull(stats);
+        assertEquals(stats.getRemoteDownloadCount(), remoteDownloadCount + 9);
+        assertEquals(stats.getRemoteLastDownloaded(), lastDownloaded + 1);
+        assertEquals(stats.getRemoteLastDownloadedBy(), "userB");
+
+        // and are removed from the remote events index on flush
+        ReflectionTestUtils.invokeMethod(statsService, "flushStats");
+        Collection<?> remoteEvents = ReflectionTestUtils.invokeMethod(statsService, "getRemoteStatsEvents", repoPath);
+        assertTrue(remoteEvents.isEmpty());
+    }
+
     public void fileDownloadedOnNonExistingItem() {
         RepoPathImpl filePath = new RepoPathImpl("repo2", "no/such/item.jhk");
         statsService.fileDownloaded(filePath, "ariels", System.currentTimeMillis(), false);
@@ -195,6 +195,38 @@ public class AclCacheLoaderTest {
                 user3RepoToAclMap.get(REPO1).iterator().next().getPermissionTarget().getIncludesPattern()));
     }
 
+    /**
+     * Delete the readers target and update deployers to user1 on repo1 only, and assert only the changes are applied
+     */
+    public void testApplyChanges() throws SQLException {
+        UserGroupsDao userGroupsDao = EasyMock.createMock(UserGroupsDao.class);
+        AclsDao aclsDao = EasyMock.createMock(AclsDao.class);
+        PermissionTargetsDao permTargetsDao = EasyMock.createMock(PermissionTargetsDao.class);
+        PermissionTarget deployers = new PermissionTarget(DEPLOYERS_PERMISSION_TARGET, "deployT", "**", "");
+        deployers.setRepoKeys(Sets.newHashSet(REPO1));
+        Acl deployersAcl = new Acl(REPO1_ACL, DEPLOYERS_PERMISSION_TARGET, 2, "me");
+        deployersAcl.setAces(Sets.newHashSet(new Ace(6, REPO1_ACL, ArtifactoryPermission.DEPLOY.getMask(), USER1, 0)));
+        EasyMock.expect(permTargetsDao.findPermissionTarget("readerT")).andReturn(null);
+        EasyMock.expect(permTargetsDao.findPermissionTarget("deployT")).andReturn(deployers);
+        EasyMock.expect(aclsDao.findAclByPermissionTargetId(DEPLOYERS_PERMISSION_TARGET)).andReturn(deployersAcl);
+        EasyMock.expect(userGroupsDao.findUsernameByUserId(USER1)).andReturn(USERNAME1);
+        EasyMock.replay(userGroupsDao, aclsDao, permTargetsDao);
+
+        AclCacheLoader cacheLoader = new AclCacheLoader(aclsDao, userGroupsDao, permTargetsDao);
+        AclCacheItem updated = cacheLoader.apply(aclCacheItem, Sets.newHashSet("readerT", "deployT"));
+        EasyMock.verify(userGroupsDao, aclsDao, permTargetsDao);
+
+        assertTrue(updated.AclInfoMap.size() == 1, "Only the deployers ACL should remain");
+        assertTrue(updated.GroupResultMap.isEmpty(), "GROUP1 was removed from the deployers ACL");
+        assertTrue(updated.UserResultMap.size() == 1, "Only user1 should have ACLs");
+        Map<String, Set<AclInfo>> user1RepoToAclMap = updated.UserResultMap.get(USERNAME1);
+        assertTrue(user1RepoToAclMap.size() == 1 && user1RepoToAclMap.get(REPO1) != null,
+                "User1 should have permission on REPO1 only");
+        // the original cache is untouched
+        assertUserMap(aclCacheItem.UserResultMap);
+        assertGroupMap(aclCacheItem.GroupResultMap);
+    }
+
     /**
      * assert that group1 is in 1 acl, has deploy permission on repo1 only
      * group2 should have any acls
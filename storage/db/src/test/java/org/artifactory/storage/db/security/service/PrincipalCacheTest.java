@@ -0,0 +1,117 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package org.artifactory.storage.db.security.service;
+
+import org.artifactory.storage.db.security.entity.User;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the caching and versioned invalidation of the {@link PrincipalCache}
+ */
+@Test
+public class PrincipalCacheTest {
+
+    private PrincipalCache cache;
+    private AtomicInteger loads;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = new PrincipalCache(100, 60);
+        loads = new AtomicInteger();
+    }
+
+    public void userIsLoadedOnce() throws SQLException {
+        User user = user(1, "bob");
+        assertSame(cache.getUser("bob", () -> load(user)), user);
+        assertSame(cache.getUser("bob", () -> load(user)), user);
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.getUsersStats().hitCount(), 1);
+    }
+
+    public void missingUserIsNotCached() throws SQLException {
+        assertNull(cache.getUser("nobody", () -> load(null)));
+        assertNull(cache.getUser("nobody", () -> load(null)));
+        assertEquals(loads.get(), 2);
+    }
+
+    public void invalidatedUserIsReloaded() throws SQLException {
+        User user = user(1, "bob");
+        cache.getUser("bob", () -> load(user));
+        cache.invalidateUser("bob");
+        cache.getUser("bob", () -> load(user));
+        assertEquals(loads.get(), 2);
+    }
+
+    public void userLoadedDuringInvalidationIsNotCached() throws SQLException {
+        User stale = user(1, "bob");
+        cache.getUser("bob", () -> {
+            cache.invalidateUser("bob");
+            return load(stale);
+        });
+        assertEquals(cache.getUsersCount(), 0);
+    }
+
+    public void propertyOwnerIsCachedByValue() throws SQLException {
+        User user = user(1, "bob");
+        assertSame(cache.getUserByProperty("apiKey", "secret", () -> load(user)), user);
+        assertSame(cache.getUserByProperty("apiKey", "secret", () -> load(user)), user);
+        assertEquals(loads.get(), 1);
+        assertNull(cache.getUserByProperty("apiKey", "other", () -> load(null)));
+        assertEquals(loads.get(), 2);
+    }
+
+    public void propertyInvalidationDropsOwners() throws SQLException {
+        User user = user(1, "bob");
+        cache.getUserByProperty("apiKey", "secret", () -> load(user));
+        cache.invalidateUserProperties("bob");
+        assertEquals(cache.getPropertyUsersCount(), 0);
+        cache.getUserByProperty("apiKey", "secret", () -> load(user));
+        cache.invalidateProperty("apiKey");
+        assertEquals(cache.getPropertyUsersCount(), 0);
+        assertEquals(cache.getUsersCount(), 1);
+    }
+
+    public void warmUpSkippedAfterChange() {
+        long version = cache.getVersion();
+        cache.invalidateUsers();
+        cache.warmUp(Collections.singletonList(user(1, "bob")), version);
+        assertEquals(cache.getUsersCount(), 0);
+        cache.warmUp(Collections.singletonList(user(1, "bob")), cache.getVersion());
+        assertEquals(cache.getUsersCount(), 1);
+    }
+
+    private User load(User user) {
+        loads.incrementAndGet();
+        return user;
+    }
+
+    private static User user(long id, String username) {
+        return new User(id, username, "password", null, username + "@example.com", false, true, true, null);
+    }
+}
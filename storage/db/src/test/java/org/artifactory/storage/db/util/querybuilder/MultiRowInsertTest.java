@@ -0,0 +1,51 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.storage.db.util.querybuilder;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests {@link IQueryBuilder#buildMultiRowInsert(String, int, int)} of the different databases.
+ */
+@Test
+public class MultiRowInsertTest {
+
+    public void derbyMultiRowInsert() {
+        assertEquals(new DerbyQueryBuilder().buildMultiRowInsert("node_props", 4, 2),
+                "INSERT INTO node_props VALUES (?, ?, ?, ?), (?, ?, ?, ?)");
+    }
+
+    public void multiRowInsertWithColumns() {
+        assertEquals(new PostgresqlQueryBuilder().buildMultiRowInsert("t (a, b)", 2, 3),
+                "INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?)");
+    }
+
+    public void singleRowInsert() {
+        assertEquals(new MysqlQueryBuilder().buildMultiRowInsert("t", 1, 1), "INSERT INTO t VALUES (?)");
+    }
+
+    public void oracleMultiRowInsert() {
+        assertEquals(new OracleQueryBuilder().buildMultiRowInsert("t (a, b)", 2, 2),
+                "INSERT ALL INTO t (a, b) VALUES (?, ?) INTO t (a, b) VALUES (?, ?) SELECT * FROM dual");
+    }
+}
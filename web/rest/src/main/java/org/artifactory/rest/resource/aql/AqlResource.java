@@ -112,7 +112,8 @@ public class AqlResource {
     }
 
     private AqlRestResult executeAqlQuery(String query) {
-        AqlLazyResult result = aqlService.executeQueryLazy(query);
+        // the rows are written to the response as they are fetched, a slow client slows down the fetching
+        AqlLazyResult result = aqlService.executeQueryStreaming(query);
         final AqlRestResult restResult;
         restResult = new AqlJsonStreamer(result);
         return restResult;
@@ -2,17 +2,22 @@ package org.artifactory.rest.resource.system;
 
 import org.artifactory.api.rest.constant.SystemRestConstants;
 import org.artifactory.api.security.AuthorizationService;
+import org.artifactory.search.archive.InternalArchiveIndexer;
+import org.artifactory.storage.db.aql.service.AqlServiceImpl;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.fs.lock.LockingTracer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -30,6 +35,15 @@ public class MetricsResource {
     @Autowired
     private JdbcHelper jdbcHelper;
 
+    @Autowired
+    private LockingTracer lockingTracer;
+
+    @Autowired
+    private InternalArchiveIndexer archiveIndexer;
+
+    @Autowired
+    private AqlServiceImpl aqlService;
+
     /**
      * @return Summary report of the sql metrics.
      */
@@ -74,4 +88,60 @@ public class MetricsResource {
         return Response.noContent().build();
     }
 
-}
\ No newline at end of file
+    /**
+     * @param top Max number of hottest paths to include in the report, a negative value includes none
+     * @return Report of the storage locks wait and hold times per repository and of the most contended paths.
+     */
+    @GET
+    @Path("locks")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response getLocksMetrics(@QueryParam("top") @DefaultValue("20") int top) {
+        String report = lockingTracer.report(Math.max(0, top));
+        return Response.ok().entity(report).build();
+    }
+
+    /**
+     * Resets the storage locks metrics.
+     */
+    @PUT
+    @Path("locks/reset")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response resetLocksMetrics() {
+        lockingTracer.resetTracing();
+        return Response.noContent().build();
+    }
+
+    /**
+     * @return Report of the indexed archives counters and of the indexing rate and backlog.
+     */
+    @GET
+    @Path("archiveIndexing")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response getArchiveIndexingMetrics() {
+        String report = archiveIndexer.getMetrics().report();
+        return Response.ok().entity(report).build();
+    }
+
+    /**
+     * @return Report of the AQL parse, plan and execute timings and of the parse cache hits and misses.
+     */
+    @GET
+    @Path("aql")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response getAqlMetrics() {
+        String report = aqlService.getMetrics().report();
+        return Response.ok().entity(report).build();
+    }
+
+    /**
+     * Resets the AQL metrics and clears the parse cache.
+     */
+    @PUT
+    @Path("aql/reset")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response resetAqlMetrics() {
+        aqlService.getMetrics().reset();
+        return Response.noContent().build();
+    }
+
+}
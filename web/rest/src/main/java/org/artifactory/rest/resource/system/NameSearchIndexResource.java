@@ -0,0 +1,74 @@
+/*
+ *
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2016 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.artifactory.rest.resource.system;
+
+import org.artifactory.api.common.BasicStatusHolder;
+import org.artifactory.api.rest.constant.SearchRestConstants;
+import org.artifactory.api.rest.constant.SystemRestConstants;
+import org.artifactory.api.security.AuthorizationService;
+import org.artifactory.common.StatusEntry;
+import org.artifactory.rest.common.list.StringList;
+import org.artifactory.search.name.NameSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+
+/**
+ * Resource that maintains the name search index.
+ */
+@Component
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+@Path(SystemRestConstants.PATH_NAME_SEARCH_INDEX)
+@RolesAllowed(AuthorizationService.ROLE_ADMIN)
+public class NameSearchIndexResource {
+
+    @Autowired
+    private NameSearchService nameSearchService;
+
+    /**
+     * Starts a background rebuild of the name search index.
+     *
+     * @param repoKeys Comma separated repositories to reindex, all the indexed repositories if not specified
+     */
+    @POST
+    @Path("rebuild")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response rebuildIndex(@QueryParam(SearchRestConstants.PARAM_REPO_TO_SEARCH) StringList repoKeys) {
+        BasicStatusHolder statusHolder = new BasicStatusHolder();
+        String token = nameSearchService.callManualIndexRebuild(statusHolder,
+                repoKeys != null ? repoKeys : Collections.emptyList());
+        StatusEntry lastError = statusHolder.getLastError();
+        if (lastError != null) {
+            return Response.status(lastError.getStatusCode()).entity(lastError.getMessage()).build();
+        }
+        return Response.accepted().entity("Name search index rebuild started: " + token).build();
+    }
+}